@@ -15,7 +15,9 @@ public class CorsConfig {
                 registry.addMapping("/**")
                         .allowedOrigins("*")
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
-                        .allowedHeaders("*");
+                        .allowedHeaders("*")
+                        // Pagination par curseur et suivi des imports
+                        .exposedHeaders("X-Next-Cursor", "X-Has-More", "Location");
             }
         };
     }
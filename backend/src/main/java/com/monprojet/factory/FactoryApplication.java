@@ -3,10 +3,12 @@ package com.monprojet.factory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 
 @SpringBootApplication(scanBasePackages = "com.monprojet.factory")
+@EnableScheduling
 public class FactoryApplication {
     public static void main(String[] args) {
         SpringApplication.run(FactoryApplication.class, args);
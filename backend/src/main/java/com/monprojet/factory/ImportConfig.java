@@ -0,0 +1,83 @@
+package com.monprojet.factory;
+
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.EquipmentDataBatchRepository;
+import com.monprojet.factory.repository.JdbcBatchTelemetryLoader;
+import com.monprojet.factory.repository.SegmentTelemetryLoader;
+import com.monprojet.factory.repository.SpectralFeatureBatchRepository;
+import com.monprojet.factory.repository.SqlServerBulkCopyLoader;
+import com.monprojet.factory.repository.TelemetryBulkLoader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class ImportConfig {
+
+    // Exécuteur dédié aux imports CSV : borné pour ne pas épuiser les threads Tomcat ni le pool Hikari
+    @Bean(name = "importJobExecutor")
+    public ThreadPoolTaskExecutor importJobExecutor(
+            @Value("${factory.import.jobs.concurrency:2}") int concurrency,
+            @Value("${factory.import.jobs.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    // Mode de chargement : bulk copy si la base est SQL Server (mode auto), sinon lots JDBC portables ;
+    // mesures du compresseur dans les segments si factory.storage.backend=segment
+    @Bean
+    public TelemetryBulkLoader telemetryBulkLoader(
+            DataSource dataSource,
+            CompresseurDataBatchRepository compresseurRepository,
+            EquipmentDataBatchRepository equipmentRepository,
+            SpectralFeatureBatchRepository spectralRepository,
+            @Value("${factory.import.loader:auto}") String mode,
+            @Value("${factory.import.bulk-copy-timeout-seconds:600}") int bulkCopyTimeoutSeconds) {
+        boolean bulkCopy = "bulk-copy".equals(mode) || ("auto".equals(mode) && isSqlServer(dataSource));
+        TelemetryBulkLoader loader = bulkCopy
+                ? new SqlServerBulkCopyLoader(dataSource, bulkCopyTimeoutSeconds)
+                : new JdbcBatchTelemetryLoader(compresseurRepository, equipmentRepository, spectralRepository);
+        if (compresseurRepository.isSegmentBackend()) {
+            loader = new SegmentTelemetryLoader(compresseurRepository, loader);
+        }
+        System.out.println("Mode de chargement des imports : " + loader.getMode());
+        return loader;
+    }
+
+    private static boolean isSqlServer(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getDatabaseProductName().contains("Microsoft SQL Server");
+        } catch (SQLException e) {
+            System.err.println("Base inaccessible, chargement par lots JDBC : " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Pool fork-join pour l'analyse des blocs CSV en parallèle
+    @Bean(name = "importParsePool", destroyMethod = "shutdown")
+    public ForkJoinPool importParsePool(
+            @Value("${factory.import.parse-parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+
+    // Pool fork-join des trames de spectrogramme (GET /api/compresseur/spectrogram), séparé de celui des imports
+    @Bean(name = "spectrogramPool", destroyMethod = "shutdown")
+    public ForkJoinPool spectrogramPool(
+            @Value("${factory.spectrogram.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+}
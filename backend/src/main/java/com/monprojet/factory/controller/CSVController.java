@@ -1,19 +1,43 @@
  package com.monprojet.factory.controller;
 
+import com.monprojet.factory.dto.DaySummary;
+import com.monprojet.factory.dto.KeysetPage;
 import com.monprojet.factory.entity.CompresseurData;
+import com.monprojet.factory.entity.Sensor;
+import com.monprojet.factory.repository.CompresseurSegmentStore;
+import com.monprojet.factory.repository.EquipmentRepository;
+import com.monprojet.factory.repository.SensorRepository;
 import com.monprojet.factory.service.CSVService;
-import com.monprojet.factory.repository.CompresseurDataRepository;
+import com.monprojet.factory.service.CompresseurDeduplicationService;
+import com.monprojet.factory.service.CompresseurExportService;
+import com.monprojet.factory.service.CompresseurQueryService;
+import com.monprojet.factory.service.DateCatalog;
+import com.monprojet.factory.service.HotTelemetryCache;
+import com.monprojet.factory.service.RollupService;
+import com.monprojet.factory.service.SpectrumCache;
+import com.monprojet.factory.service.SpectrogramService;
+import com.monprojet.factory.service.SpectrumService;
+import com.monprojet.factory.service.TelemetryQueryService;
+import com.monprojet.factory.service.TelemetryRetentionService;
+import com.monprojet.factory.utils.Downsampler;
+import com.monprojet.factory.service.ImportJob;
+import com.monprojet.factory.service.ImportJobService;
+import com.monprojet.factory.utils.CompressedUploads;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*") // Permet les appels CORS depuis n'importe quel domaine
 @RestController
@@ -24,163 +48,268 @@ public class CSVController {
     private CSVService csvService;  // Injection de la dépendance CSVService
 
     @Autowired
-    private CompresseurDataRepository compresseurDataRepo;
+    private ImportJobService importJobService;
 
-    // Endpoint pour l'upload du fichier CSV
+    @Autowired
+    private CompresseurDeduplicationService deduplicationService;
+
+    @Autowired
+    private CompresseurQueryService compresseurQueryService;
+
+    @Autowired
+    private TelemetryQueryService telemetryQueryService;
+
+    @Autowired
+    private HotTelemetryCache hotTelemetryCache;
+
+    @Autowired
+    private CompresseurExportService compresseurExportService;
+
+    @Autowired
+    private DateCatalog dateCatalog;
+
+    @Autowired
+    private TelemetryRetentionService telemetryRetentionService;
+
+    @Autowired
+    private CompresseurSegmentStore segmentStore;
+
+    @Autowired
+    private SpectrumService spectrumService;
+
+    @Autowired
+    private SpectrumCache spectrumCache;
+
+    @Autowired
+    private SpectrogramService spectrogramService;
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    // Endpoint pour l'upload du fichier CSV : l'import est lancé en tâche de fond.
+    // equipmentId/sensorId (optionnels) : compresseur et capteur de rattachement des mesures ;
+    // sans eux, les lignes vont au compresseur historique (sauf colonnes equipment_id/sensor_id dans le fichier)
     @PostMapping("/upload")
-    public String uploadCompressorData(@RequestParam("compressorFullData") MultipartFile compressorFullData) throws IOException {
+    public ResponseEntity<?> uploadCompressorData(@RequestParam("compressorFullData") MultipartFile compressorFullData,
+                                                  @RequestParam(value = "force", defaultValue = "false") boolean force,
+                                                  @RequestParam(required = false) Long equipmentId,
+                                                  @RequestParam(required = false) Long sensorId) throws IOException {
         // Log pour vérifier si le fichier est bien reçu
         if (compressorFullData == null || compressorFullData.isEmpty()) {
             throw new IllegalArgumentException("Le fichier 'compressorFullData' est manquant ou vide.");
         }
         System.out.println("Fichier reçu : " + compressorFullData.getOriginalFilename());
+        if (!CompressedUploads.isSupported(compressorFullData.getOriginalFilename(), compressorFullData.getContentType())) {
+            return ResponseEntity.badRequest().body("Seuls les fichiers CSV (éventuellement .csv.gz ou .zip) sont autorisés");
+        }
+        if (sensorId != null) {
+            Sensor sensor = sensorRepository.findById(sensorId).orElse(null);
+            if (sensor == null) {
+                return ResponseEntity.badRequest().body("Capteur introuvable : " + sensorId);
+            }
+            if (equipmentId == null) {
+                equipmentId = sensor.getEquipmentId();
+            } else if (!equipmentId.equals(sensor.getEquipmentId())) {
+                return ResponseEntity.badRequest().body("Le capteur " + sensorId + " n'appartient pas à l'équipement " + equipmentId);
+            }
+        }
+        if (equipmentId != null && !equipmentRepository.existsById(equipmentId)) {
+            return ResponseEntity.badRequest().body("Équipement introuvable : " + equipmentId);
+        }
+        if ((equipmentId != null || sensorId != null) && segmentStore.isEnabled()) {
+            return ResponseEntity.badRequest().body("Le stockage en segments ne gère que le compresseur historique");
+        }
 
-        // Création du fichier temporaire
-        File tempFile = File.createTempFile("compressorfulldata", ".csv");
-        compressorFullData.transferTo(tempFile);
+        Long equipment = equipmentId;
+        try {
+            // Un type par compresseur : le même fichier peut être importé pour deux compresseurs différents
+            ImportJob job = importJobService.submit(RollupService.compresseurSeries(equipment), compressorFullData, force,
+                    (in, importJob) -> csvService.importCompressorData(in, importJob, equipment, sensorId));
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/imports/" + job.getId()))
+                    .body(job);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Trop d'imports en cours, réessayez plus tard");
+        }
+    }
 
-        // Appel de la méthode d'instance pour importer les données
-        csvService.importCompressorData(tempFile);  // Utilisation de l'instance de CSVService
+    // Endpoint pour récupérer les données du compresseur, par plage de temps et par pages
+    // (from/to en ISO, to exclu ; curseur de la page suivante dans l'en-tête X-Next-Cursor).
+    // Avec points=N : série réduite côté serveur à N points par canal (method=lttb ou minmax).
+    // equipmentId : compresseur rattaché à un équipement (compresseur historique sinon), de même pour les endpoints suivants
+    @GetMapping("/data")
+    public ResponseEntity<?> getCompresseurData(
+            @RequestParam(required = false) Long equipmentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer points,
+            @RequestParam(required = false) String method) {
+        KeysetPage<CompresseurData> page;
+        try {
+            if (points != null) {
+                return ResponseEntity.ok(telemetryQueryService.compresseur(equipmentId, from, to, points, Downsampler.Method.parse(method)));
+            }
+            page = compresseurQueryService.findPage(equipmentId, from, to, limit, cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("X-Has-More", Boolean.toString(page.isHasMore()));
+        if (page.getNextCursor() != null) {
+            response.header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
 
-        return "Données du compresseur insérées dans FactoryEYE avec succès !";
+    // Même plage que /data, au format binaire en colonnes (voir ColumnarEncoder) : delta=true pour des temps en écarts i32
+    @GetMapping(value = "/data.bin", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> getCompresseurColumns(
+            @RequestParam(required = false) Long equipmentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "50000") int limit,
+            @RequestParam(required = false) Integer points,
+            @RequestParam(required = false) String method,
+            @RequestParam(defaultValue = "true") boolean delta) {
+        try {
+            return ResponseEntity.ok(telemetryQueryService
+                    .compresseurColumns(equipmentId, from, to, points, Downsampler.Method.parse(method), limit).encode(delta));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
     }
 
-    // Endpoint pour récupérer les données du compresseur
-    // In your CSVController.java
-    @GetMapping("/data")
-    public List<CompresseurData> getCompresseurData() {
-        return compresseurDataRepo.findAll(); // Make sure this returns the data in the format you need
+    // Journées disponibles (plus récente en premier), servies par le catalogue en mémoire
+    @GetMapping("/dates")
+    public List<DaySummary> getAvailableDates(@RequestParam(required = false) Long equipmentId) {
+        return dateCatalog.days(RollupService.compresseurSeries(equipmentId));
+    }
+
+    // Volume du stockage en segments (factory.storage.backend=segment) : jours, mesures, octets par mesure
+    @GetMapping("/storage")
+    public Map<String, Object> getStorageStats() {
+        return segmentStore.storageStats();
+    }
+
+    // Dernière mesure du compresseur (servie depuis la mémoire quand elle y est)
+    @GetMapping("/latest")
+    public ResponseEntity<?> getLatest(@RequestParam(required = false) Long equipmentId) {
+        Map<String, Object> latest = hotTelemetryCache.latest(RollupService.compresseurSeries(equipmentId));
+        return latest != null ? ResponseEntity.ok(latest) : ResponseEntity.notFound().build();
     }
 
-    // Endpoint pour supprimer toutes les données du compresseur
+    // Mesures brutes des `minutes` dernières minutes, en colonnes (t + une colonne par canal)
+    @GetMapping("/recent")
+    public ResponseEntity<?> getRecent(@RequestParam(required = false) Long equipmentId,
+                                       @RequestParam(defaultValue = "60") long minutes) {
+        try {
+            return ResponseEntity.ok(hotTelemetryCache.recent(RollupService.compresseurSeries(equipmentId), minutes * 60));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Suppression des mesures dans [from, to[ par lots, même périmètre que les lectures : le compresseur equipmentId,
+    // le compresseur historique sans equipmentId, tous les compresseurs avec all=true.
+    // Sans aucune borne ni equipmentId : refusé sauf all=true (toute la table)
     @DeleteMapping("/data")
-    public String deleteAllCompressorData() {
-        compresseurDataRepo.deleteAll();
-        return "Toutes les données du compresseur ont été supprimées avec succès.";
+    public ResponseEntity<String> deleteCompressorData(
+            @RequestParam(required = false) Long equipmentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean all) {
+        if (equipmentId == null && from == null && to == null && !all) {
+            return ResponseEntity.badRequest()
+                    .body("Préciser from, to ou equipmentId, ou all=true pour supprimer les mesures de tous les compresseurs");
+        }
+        long deleted = equipmentId == null && all
+                ? telemetryRetentionService.deleteCompresseur(from, to)
+                : telemetryRetentionService.deleteCompresseurSeries(equipmentId, from, to);
+        if (from == null && to == null) {
+            String series = equipmentId != null ? RollupService.compresseurSeries(equipmentId) : RollupService.COMPRESSEUR + "%";
+            // Les fichiers déjà vus peuvent de nouveau être importés
+            importJobService.forgetImports(series);
+            deduplicationService.reset();
+            hotTelemetryCache.clear(series);
+            return ResponseEntity.ok("Toutes les données du compresseur ont été supprimées avec succès (" + deleted + " mesures).");
+        }
+        return ResponseEntity.ok(deleted + " mesures du compresseur supprimées.");
     }
 
-    // Ajoutez cette méthode dans votre CSVController.java
-
-@GetMapping("/data-with-psd")
-public List<Map<String, Object>> getCompresseurDataWithPSD() {
-    List<CompresseurData> data = compresseurDataRepo.findAll();
-    
-    return data.stream().map(item -> {
-        Map<String, Object> result = new HashMap<>();
-        result.put("id", item.getId());
-        result.put("timestamp", item.getTimestamp().toString());
-        result.put("pressure", item.getPressure());
-        result.put("currentValue", item.getCurrentValue());
-        result.put("vibrationX", item.getVibrationX());
-        result.put("vibrationY", item.getVibrationY());
-        result.put("vibrationZ", item.getVibrationZ());
-        
-        // Générer les données PSD simulées (comme dans votre Python)
-        result.put("vxRMS", generateRMS(item.getVibrationX()));
-        result.put("vyRMS", generateRMS(item.getVibrationY()));
-        result.put("running", true); // Simulé
-        
-        // Générer les spectres PSD
-        result.put("spectrumVX", generatePSD(item.getVibrationX(), "VX"));
-        result.put("spectrumVY", generatePSD(item.getVibrationY(), "VY"));
-        
-        return result;
-    }).collect(Collectors.toList());
-}
+    // Spectre de Welch d'un canal sur [from, to[ (vibrationX par défaut), gardé en cache jusqu'à un import
+    // ou une suppression dans la fenêtre : les rafraîchissements d'une même vue ne relisent pas la base
+    @GetMapping("/spectrum")
+    public ResponseEntity<?> getSpectrum(
+            @RequestParam(required = false) Long equipmentId,
+            @RequestParam(defaultValue = "vibrationX") String channel,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer nperseg) {
+        try {
+            return ResponseEntity.ok(spectrumService.compresseur(equipmentId, channel, from, to, nperseg));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
-private Double generateRMS(Double vibration) {
-    return vibration != null ? Math.sqrt(vibration * vibration) : 0.1;
-}
+    // Occupation du cache des spectres : entrées, octets, succès, évictions
+    @GetMapping("/spectrum/cache")
+    public Map<String, Object> getSpectrumCacheStats() {
+        return spectrumCache.stats();
+    }
 
-private Map<String, Object> generatePSD(Double vibration, String axis) {
-    Map<String, Object> spectrum = new HashMap<>();
-    
-    try {
-        double vibrationMagnitude = Math.max(Math.abs(vibration != null ? vibration : 1.0), 0.1);
-        
-        // Simuler la génération de PSD comme dans Python
-        int nPoints = 512;
-        List<Double> freqs = new ArrayList<>();
-        List<Double> psd = new ArrayList<>();
-        
-        double rpm = 1250;
-        double fundamentalFreq = rpm / 60;
-        double harmonic2 = fundamentalFreq * 2;
-        double harmonic3 = fundamentalFreq * 3;
-        
-        for (int i = 0; i < nPoints; i++) {
-            double freq = (i * 1000.0) / nPoints;
-            freqs.add(freq);
-            
-            if (freq == 0) {
-                psd.add(1e-12);
-                continue;
+    // Spectrogramme d'un canal sur [from, to[ (vibrationX par défaut), au format binaire de SpectrogramEncoder :
+    // densités en f32, ou db=true pour des dB quantifiés en octets sur range dB sous dbMax (maximum de la fenêtre par défaut)
+    @GetMapping(value = "/spectrogram", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> getSpectrogram(
+            @RequestParam(required = false) Long equipmentId,
+            @RequestParam(defaultValue = "vibrationX") String channel,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer nperseg,
+            @RequestParam(required = false) Integer hop,
+            @RequestParam(defaultValue = "false") boolean db,
+            @RequestParam(defaultValue = "80") double range,
+            @RequestParam(required = false) Double dbMax) {
+        try {
+            if (!(range > 0)) {
+                throw new IllegalArgumentException("range doit être positif");
             }
-            
-            double value = 1e-12;
-            double vibFactor = vibrationMagnitude * (axis.equals("VX") ? 1.0 : 0.8);
-            
-            // Composantes spectrales simulées
-            value += Math.exp(-Math.pow((freq - fundamentalFreq) / 2, 2)) * 0.1 * vibFactor;
-            value += Math.exp(-Math.pow((freq - harmonic2) / 1.5, 2)) * 0.05 * vibFactor;
-            value += Math.exp(-Math.pow((freq - harmonic3) / 1.5, 2)) * 0.03 * vibFactor;
-            value += Math.exp(-Math.pow((freq - 100) / 3, 2)) * 0.02 * vibFactor;
-            value += Math.exp(-Math.pow((freq - 150) / 3, 2)) * 0.01 * vibFactor;
-            
-            // Bruit de fond
-            value += (0.001 * vibFactor) / (freq + 1);
-            value += Math.random() * 0.002 * vibFactor;
-            
-            psd.add(Math.max(value, 1e-12));
+            return ResponseEntity.ok(spectrogramService
+                    .compresseur(equipmentId, channel, from, to, nperseg, hop, db).encode(dbMax, range));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
         }
-        
-        spectrum.put("freqs", freqs);
-        spectrum.put("psd", psd);
-        
-    } catch (Exception e) {
-        // PSD par défaut en cas d'erreur
-        List<Double> defaultFreqs = new ArrayList<>();
-        List<Double> defaultPsd = new ArrayList<>();
-        for (int i = 0; i < 512; i++) {
-            defaultFreqs.add((i * 1000.0) / 512);
-            defaultPsd.add(1e-6);
-        }
-        spectrum.put("freqs", defaultFreqs);
-        spectrum.put("psd", defaultPsd);
     }
-    
-    return spectrum;
-}
 
-// Endpoint temporaire pour tester
-@GetMapping("/data-simple")
-public List<Map<String, Object>> getSimpleData() {
-    try {
-        List<CompresseurData> data = compresseurDataRepo.findAll();
-        
-        return data.stream().map(item -> {
-            Map<String, Object> result = new HashMap<>();
-            result.put("id", item.getId());
-            result.put("timestamp", item.getTimestamp() != null ? item.getTimestamp().toString() : "");
-            result.put("pressure", item.getPressure() != null ? item.getPressure() : 0.0);
-            result.put("currentValue", item.getCurrentValue() != null ? item.getCurrentValue() : 0.0);
-            result.put("vibrationX", item.getVibrationX() != null ? item.getVibrationX() : 0.0);
-            result.put("vibrationY", item.getVibrationY() != null ? item.getVibrationY() : 0.0);
-            result.put("vibrationZ", item.getVibrationZ() != null ? item.getVibrationZ() : 0.0);
-            
-            // Valeurs par défaut pour les tests
-            result.put("vxRMS", 0.1);
-            result.put("vyRMS", 0.1);
-            result.put("running", true);
-            
-            return result;
-        }).collect(Collectors.toList());
-        
-    } catch (Exception e) {
-        e.printStackTrace();
-        throw new RuntimeException("Erreur lors de la récupération des données: " + e.getMessage());
+    // Mesures de chaque ligne et spectres de Welch des vibrations X/Y sur la fenêtre glissante des dernières mesures,
+    // écrits au fil de la lecture en base (from/to optionnels ; equipmentId absent = compresseur historique)
+    @GetMapping("/data-with-psd")
+    public ResponseEntity<StreamingResponseBody> getCompresseurDataWithPSD(
+            @RequestParam(required = false) Long equipmentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> compresseurExportService.writeWithPsd(out, equipmentId, from, to));
+    }
+
+    // Export complet des mesures d'un compresseur (valeurs absentes à 0), écrit au fil de la lecture en base
+    @GetMapping("/data-simple")
+    public ResponseEntity<StreamingResponseBody> getSimpleData(
+            @RequestParam(required = false) Long equipmentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> compresseurExportService.writeSimple(out, equipmentId, from, to));
     }
-}
 
     // Endpoint de test
     @GetMapping("/test")
@@ -3,16 +3,26 @@ package com.monprojet.factory.controller;
 import com.monprojet.factory.entity.EquipmentData;
 import com.monprojet.factory.repository.EquipmentDataRepository;
 import com.monprojet.factory.service.CsvImportService;
+import com.monprojet.factory.service.ImportJob;
+import com.monprojet.factory.service.ImportJobService;
+import com.monprojet.factory.service.TelemetryQueryService;
+import com.monprojet.factory.service.TelemetryRetentionService;
+import com.monprojet.factory.utils.CompressedUploads;
+import com.monprojet.factory.utils.Downsampler;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -21,33 +31,70 @@ public class EquipmentDataController {
 
     private final CsvImportService csvImportService;
     private final EquipmentDataRepository repository;
+    private final ImportJobService importJobService;
+    private final TelemetryQueryService telemetryQueryService;
+    private final TelemetryRetentionService telemetryRetentionService;
 
-    // Constructeur corrigé avec les deux dépendances
     public EquipmentDataController(CsvImportService csvImportService,
-                                   EquipmentDataRepository repository) {
+                                   EquipmentDataRepository repository,
+                                   ImportJobService importJobService,
+                                   TelemetryQueryService telemetryQueryService,
+                                   TelemetryRetentionService telemetryRetentionService) {
         this.csvImportService = csvImportService;
         this.repository = repository;
+        this.importJobService = importJobService;
+        this.telemetryQueryService = telemetryQueryService;
+        this.telemetryRetentionService = telemetryRetentionService;
     }
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<String> uploadCsv(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadCsv(@RequestParam("file") MultipartFile file,
+                                       @RequestParam(value = "force", defaultValue = "false") boolean force) {
         try {
             if (file.isEmpty()) {
                 return ResponseEntity.badRequest().body("Le fichier est vide");
             }
 
-            if (!"text/csv".equals(file.getContentType())) {
-                return ResponseEntity.badRequest().body("Seuls les fichiers CSV sont autorisés");
+            if (!CompressedUploads.isSupported(file.getOriginalFilename(), file.getContentType())) {
+                return ResponseEntity.badRequest().body("Seuls les fichiers CSV (éventuellement .csv.gz ou .zip) sont autorisés");
             }
 
-            csvImportService.importCsv(file);
-            return ResponseEntity.ok("Import réussi");
+            // L'import tourne en arrière-plan : on retourne tout de suite l'identifiant du job
+            ImportJob job = importJobService.submit("equipment", file, force, csvImportService::importCsv);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/imports/" + job.getId()))
+                    .body(job);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Trop d'imports en cours, réessayez plus tard");
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                     .body("Erreur lors de l'import: " + e.getMessage());
         }
     }
 
+    // Suppression par lots des mesures d'un équipement (tous si equipmentId est absent) dans [start, end[.
+    // Sans aucune borne ni equipmentId, toute la table : refusé sauf all=true
+    @DeleteMapping("/data")
+    public ResponseEntity<Map<String, Object>> deleteEquipmentData(
+            @RequestParam(required = false) String equipmentId,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "false") boolean all) {
+        if ((equipmentId == null || equipmentId.isBlank()) && start == null && end == null && !all) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "Préciser start, end ou equipmentId, ou all=true pour supprimer toutes les mesures"));
+        }
+        long deleted = telemetryRetentionService.deleteEquipment(equipmentId, start, end);
+        if ((equipmentId == null || equipmentId.isBlank()) && start == null && end == null) {
+            // Table vidée : les fichiers déjà vus peuvent de nouveau être importés
+            importJobService.forgetImports("equipment");
+        }
+        return ResponseEntity.ok(Map.of("deleted", deleted));
+    }
+
     @GetMapping
     public ResponseEntity<Page<EquipmentData>> getAllEquipmentData(
             @RequestParam(defaultValue = "0") int page,
@@ -64,15 +111,47 @@ public class EquipmentDataController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // Mesures d'un équipement au format binaire en colonnes (voir ColumnarEncoder), réduites si points est fourni
+    @GetMapping(value = "/search.bin", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> searchEquipmentColumns(
+            @RequestParam(required = false) String equipmentId,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "50000") int limit,
+            @RequestParam(required = false) Integer points,
+            @RequestParam(required = false) String method,
+            @RequestParam(defaultValue = "true") boolean delta) {
+        try {
+            return ResponseEntity.ok(telemetryQueryService.equipmentColumns(
+                    equipmentId, start, end, points, Downsampler.Method.parse(method), limit).encode(delta));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+    }
+
+    // Avec points=N : série réduite côté serveur (method=lttb ou minmax) au lieu d'une page de lignes
     @GetMapping("/search")
-    public ResponseEntity<Page<EquipmentData>> searchEquipmentData(
+    public ResponseEntity<?> searchEquipmentData(
             @RequestParam(required = false) String equipmentId,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Integer points,
+            @RequestParam(required = false) String method) {
+
+        if (points != null) {
+            try {
+                return ResponseEntity.ok(telemetryQueryService.equipment(
+                        equipmentId, start, end, points, Downsampler.Method.parse(method)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
 
         Pageable pageable = PageRequest.of(page, size);
 
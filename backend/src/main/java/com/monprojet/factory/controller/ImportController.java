@@ -0,0 +1,48 @@
+package com.monprojet.factory.controller;
+
+import com.monprojet.factory.service.ImportJob;
+import com.monprojet.factory.service.ImportJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/imports")
+@CrossOrigin(origins = "*")
+public class ImportController {
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    // Liste des imports récents (en cours et terminés)
+    @GetMapping
+    public List<ImportJob> getImports() {
+        return importJobService.getJobs();
+    }
+
+    // Progression d'un import : lignes lues / insérées / rejetées, débit et temps restant estimé
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJob> getImport(@PathVariable String id) {
+        return importJobService.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Rapport CSV des lignes rejetées (numéro d'enregistrement, motif, contenu), une fois l'import terminé
+    @GetMapping("/{id}/rejected")
+    public ResponseEntity<Resource> downloadRejectedRows(@PathVariable String id) {
+        return importJobService.getJob(id)
+                .flatMap(job -> job.rejections().getReportFile())
+                .map(path -> ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + id + "-rejected.csv\"")
+                        .contentType(MediaType.parseMediaType("text/csv"))
+                        .body((Resource) new FileSystemResource(path)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,42 @@
+package com.monprojet.factory.controller;
+
+import com.monprojet.factory.service.RollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/rollups")
+public class RollupController {
+
+    private final RollupService rollupService;
+
+    public RollupController(RollupService rollupService) {
+        this.rollupService = rollupService;
+    }
+
+    // Série agrégée (min, max, moyenne, RMS, nombre) en ~points seaux :
+    // series = compresseur ou equipment:<nom>, from/to en ISO (to exclu), étendue complète par défaut
+    @GetMapping
+    public ResponseEntity<?> getRollups(
+            @RequestParam(defaultValue = RollupService.COMPRESSEUR) String series,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1000") int points) {
+        try {
+            return ResponseEntity.ok(rollupService.query(series, from, to, points));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Recalcul complet depuis les mesures (à lancer hors import)
+    @PostMapping("/rebuild")
+    public Map<String, Long> rebuild() {
+        return Map.of("rows", rollupService.rebuild());
+    }
+}
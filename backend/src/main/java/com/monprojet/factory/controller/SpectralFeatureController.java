@@ -0,0 +1,90 @@
+package com.monprojet.factory.controller;
+
+import com.monprojet.factory.dto.SpectralFeatureDto;
+import com.monprojet.factory.service.ImportJob;
+import com.monprojet.factory.service.ImportJobService;
+import com.monprojet.factory.service.SpectralExtractionService;
+import com.monprojet.factory.service.SpectralFeatureImportService;
+import com.monprojet.factory.service.SpectralFeatureService;
+import com.monprojet.factory.utils.CompressedUploads;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/spectral")
+public class SpectralFeatureController {
+
+    private static final int MAX_HISTORY = 10_000;
+
+    private final SpectralFeatureImportService importService;
+    private final SpectralFeatureService spectralFeatureService;
+    private final ImportJobService importJobService;
+    private final SpectralExtractionService extractionService;
+
+    public SpectralFeatureController(SpectralFeatureImportService importService,
+                                     SpectralFeatureService spectralFeatureService,
+                                     ImportJobService importJobService,
+                                     SpectralExtractionService extractionService) {
+        this.importService = importService;
+        this.spectralFeatureService = spectralFeatureService;
+        this.importJobService = importJobService;
+        this.extractionService = extractionService;
+    }
+
+    // Import d'un fichier mesures_simulees.csv (ou .csv.gz / .zip) en tâche de fond
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file,
+                                    @RequestParam(value = "force", defaultValue = "false") boolean force) throws IOException {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body("Le fichier est vide");
+        }
+        if (!CompressedUploads.isSupported(file.getOriginalFilename(), file.getContentType())) {
+            return ResponseEntity.badRequest().body("Seuls les fichiers CSV (éventuellement .csv.gz ou .zip) sont autorisés");
+        }
+        try {
+            ImportJob job = importJobService.submit("spectral", file, force, importService::importSpectralFeatures);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/imports/" + job.getId()))
+                    .body(job);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Trop d'imports en cours, réessayez plus tard");
+        }
+    }
+
+    // Historique des caractéristiques spectrales (f0, RMS, pics, bandes)
+    @GetMapping("/history")
+    public List<SpectralFeatureDto> getHistory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "500") int limit) {
+        return spectralFeatureService.getHistory(from, to, Math.max(1, Math.min(limit, MAX_HISTORY)));
+    }
+
+    // Caractéristiques spectrales calculées depuis les mesures du compresseur (equipmentId optionnel, historique sinon)
+    // sur [from, to[ : bandes d'énergie et pics du spectre de Welch, écrites dans l'historique ci-dessus
+    @PostMapping("/extract")
+    public ResponseEntity<?> extract(
+            @RequestParam(required = false) Long equipmentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            Map<String, Object> result = extractionService.extract(equipmentId, from, to);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.monprojet.factory.controller;
+
+import com.monprojet.factory.service.VibrationFeatureService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/features")
+public class VibrationFeatureController {
+
+    private final VibrationFeatureService featureService;
+
+    public VibrationFeatureController(VibrationFeatureService featureService) {
+        this.featureService = featureService;
+    }
+
+    // Indicateurs vibratoires par fenêtre (RMS, crête, crête à crête, facteur de crête, asymétrie, kurtosis) :
+    // equipmentId optionnel (compresseur historique sinon), channel = vibrationX/Y/Z (toutes par défaut),
+    // from/to en ISO (to exclu)
+    @GetMapping
+    public ResponseEntity<?> getFeatures(
+            @RequestParam(required = false) Long equipmentId,
+            @RequestParam(required = false) String channel,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(featureService.query(equipmentId, channel, from, to, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Recalcul complet depuis les mesures (à lancer hors import, par exemple pour les données importées avant)
+    @PostMapping("/rebuild")
+    public Map<String, Long> rebuild() {
+        return Map.of("rows", featureService.rebuild());
+    }
+}
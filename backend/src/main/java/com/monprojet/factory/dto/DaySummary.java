@@ -0,0 +1,46 @@
+package com.monprojet.factory.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Journée disponible dans le catalogue : nombre de mesures, première et dernière mesure, min/max par canal
+public class DaySummary {
+
+    public static class Range {
+        private final double min;
+        private final double max;
+
+        public Range(double min, double max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        public double getMin() { return min; }
+        public double getMax() { return max; }
+    }
+
+    private final LocalDate date;
+    private final long rows;
+    private final LocalDateTime first;
+    private final LocalDateTime last;
+    private final Map<String, Range> channels = new LinkedHashMap<>();
+
+    public DaySummary(LocalDate date, long rows, LocalDateTime first, LocalDateTime last) {
+        this.date = date;
+        this.rows = rows;
+        this.first = first;
+        this.last = last;
+    }
+
+    public void addChannel(String name, Range range) {
+        channels.put(name, range);
+    }
+
+    public LocalDate getDate() { return date; }
+    public long getRows() { return rows; }
+    public LocalDateTime getFirst() { return first; }
+    public LocalDateTime getLast() { return last; }
+    public Map<String, Range> getChannels() { return channels; }
+}
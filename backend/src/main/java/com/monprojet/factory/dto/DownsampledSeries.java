@@ -0,0 +1,48 @@
+package com.monprojet.factory.dto;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Série réduite côté serveur : une liste (t, v) par canal, chacun ayant ses propres instants retenus
+public class DownsampledSeries {
+
+    public static class Channel {
+        private final LocalDateTime[] t;
+        private final double[] v;
+
+        public Channel(LocalDateTime[] t, double[] v) {
+            this.t = t;
+            this.v = v;
+        }
+
+        public LocalDateTime[] getT() { return t; }
+        public double[] getV() { return v; }
+    }
+
+    private final String method;
+    private final int points;
+    private final long rawCount;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final Map<String, Channel> channels = new LinkedHashMap<>();
+
+    public DownsampledSeries(String method, int points, long rawCount, LocalDateTime from, LocalDateTime to) {
+        this.method = method;
+        this.points = points;
+        this.rawCount = rawCount;
+        this.from = from;
+        this.to = to;
+    }
+
+    public void addChannel(String name, Channel channel) {
+        channels.put(name, channel);
+    }
+
+    public String getMethod() { return method; }
+    public int getPoints() { return points; }
+    public long getRawCount() { return rawCount; }
+    public LocalDateTime getFrom() { return from; }
+    public LocalDateTime getTo() { return to; }
+    public Map<String, Channel> getChannels() { return channels; }
+}
@@ -0,0 +1,38 @@
+package com.monprojet.factory.dto;
+
+// Bilan d'un import CSV : volumes traités et débit obtenu
+public class ImportResult {
+    private final long rowsParsed;
+    private final long rowsInserted;
+    private final long rowsRejected;
+    private final long rowsDuplicate;
+    private final long elapsedMs;
+
+    public ImportResult(long rowsParsed, long rowsInserted, long rowsRejected, long elapsedMs) {
+        this(rowsParsed, rowsInserted, rowsRejected, 0, elapsedMs);
+    }
+
+    public ImportResult(long rowsParsed, long rowsInserted, long rowsRejected, long rowsDuplicate, long elapsedMs) {
+        this.rowsParsed = rowsParsed;
+        this.rowsInserted = rowsInserted;
+        this.rowsRejected = rowsRejected;
+        this.rowsDuplicate = rowsDuplicate;
+        this.elapsedMs = elapsedMs;
+    }
+
+    public long getRowsParsed() { return rowsParsed; }
+    public long getRowsInserted() { return rowsInserted; }
+    public long getRowsRejected() { return rowsRejected; }
+    public long getRowsDuplicate() { return rowsDuplicate; }
+    public long getElapsedMs() { return elapsedMs; }
+
+    public double getRowsPerSecond() {
+        return elapsedMs > 0 ? rowsInserted * 1000.0 / elapsedMs : rowsInserted;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lignes lues, %d insérées, %d rejetées, %d doublons en %d ms (%.0f lignes/s)",
+                rowsParsed, rowsInserted, rowsRejected, rowsDuplicate, elapsedMs, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,20 @@
+package com.monprojet.factory.dto;
+
+import java.util.List;
+
+// Page d'une requête par curseur : nextCursor reprend après la dernière ligne (null si la page est vide)
+public class KeysetPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+    private final boolean hasMore;
+
+    public KeysetPage(List<T> items, String nextCursor, boolean hasMore) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return hasMore; }
+}
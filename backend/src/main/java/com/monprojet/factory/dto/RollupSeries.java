@@ -0,0 +1,61 @@
+package com.monprojet.factory.dto;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Série agrégée par seaux de temps : min, max, moyenne, RMS et nombre de mesures par canal.
+// resolution = minute, hour, day (agrégats en base) ou raw (seaux calculés à la volée sur les mesures)
+public class RollupSeries {
+
+    public static class Channel {
+        private final LocalDateTime[] t;
+        private final double[] min;
+        private final double[] max;
+        private final double[] avg;
+        private final double[] rms;
+        private final long[] count;
+
+        public Channel(LocalDateTime[] t, double[] min, double[] max, double[] avg, double[] rms, long[] count) {
+            this.t = t;
+            this.min = min;
+            this.max = max;
+            this.avg = avg;
+            this.rms = rms;
+            this.count = count;
+        }
+
+        public LocalDateTime[] getT() { return t; }
+        public double[] getMin() { return min; }
+        public double[] getMax() { return max; }
+        public double[] getAvg() { return avg; }
+        public double[] getRms() { return rms; }
+        public long[] getCount() { return count; }
+    }
+
+    private final String series;
+    private final String resolution;
+    private final int bucketSeconds;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final Map<String, Channel> channels = new LinkedHashMap<>();
+
+    public RollupSeries(String series, String resolution, int bucketSeconds, LocalDateTime from, LocalDateTime to) {
+        this.series = series;
+        this.resolution = resolution;
+        this.bucketSeconds = bucketSeconds;
+        this.from = from;
+        this.to = to;
+    }
+
+    public void addChannel(String name, Channel channel) {
+        channels.put(name, channel);
+    }
+
+    public String getSeries() { return series; }
+    public String getResolution() { return resolution; }
+    public int getBucketSeconds() { return bucketSeconds; }
+    public LocalDateTime getFrom() { return from; }
+    public LocalDateTime getTo() { return to; }
+    public Map<String, Channel> getChannels() { return channels; }
+}
@@ -0,0 +1,25 @@
+package com.monprojet.factory.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+public class SpectralFeatureDto {
+    private Long id;
+    private LocalDateTime timestamp;
+    private Double vibrationX;
+    private Double vibrationY;
+    private Double vibrationZ;
+    private Boolean running;
+    private String source;
+    private Double f0Hz;
+    private Double f0Psd;
+    private Double vxRms;
+    private Double vyRms;
+    // [[f_hz, psd], ...]
+    private double[][] peaks;
+    // band_0_10 ... band_1000_2000
+    private Map<String, Double> bands;
+}
@@ -0,0 +1,51 @@
+package com.monprojet.factory.dto;
+
+import java.time.LocalDateTime;
+
+// Densité spectrale (Welch) d'un canal sur une fenêtre [from, to[ : freqs[k] en Hz, psd[k] en unité²/Hz.
+// missing : mesures absentes parmi samples, comblées par interpolation avant le calcul.
+// Partagée par le cache des spectres : ne pas modifier les tableaux
+public class Spectrum {
+
+    private final String series;
+    private final String channel;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final double sampleRate;
+    private final int nperseg;
+    private final int noverlap;
+    private final int samples;
+    private final int missing;
+    private final int segments;
+    private final double[] freqs;
+    private final double[] psd;
+
+    public Spectrum(String series, String channel, LocalDateTime from, LocalDateTime to, double sampleRate,
+                    int nperseg, int noverlap, int samples, int missing, int segments, double[] freqs, double[] psd) {
+        this.series = series;
+        this.channel = channel;
+        this.from = from;
+        this.to = to;
+        this.sampleRate = sampleRate;
+        this.nperseg = nperseg;
+        this.noverlap = noverlap;
+        this.samples = samples;
+        this.missing = missing;
+        this.segments = segments;
+        this.freqs = freqs;
+        this.psd = psd;
+    }
+
+    public String getSeries() { return series; }
+    public String getChannel() { return channel; }
+    public LocalDateTime getFrom() { return from; }
+    public LocalDateTime getTo() { return to; }
+    public double getSampleRate() { return sampleRate; }
+    public int getNperseg() { return nperseg; }
+    public int getNoverlap() { return noverlap; }
+    public int getSamples() { return samples; }
+    public int getMissing() { return missing; }
+    public int getSegments() { return segments; }
+    public double[] getFreqs() { return freqs; }
+    public double[] getPsd() { return psd; }
+}
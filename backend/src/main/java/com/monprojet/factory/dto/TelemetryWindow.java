@@ -0,0 +1,33 @@
+package com.monprojet.factory.dto;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Mesures brutes d'une fenêtre récente, en colonnes : t[i] et une colonne de valeurs par canal.
+// source = memory (tampon des mesures récentes) ou database
+public class TelemetryWindow {
+
+    private final String source;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final LocalDateTime[] t;
+    private final Map<String, double[]> channels = new LinkedHashMap<>();
+
+    public TelemetryWindow(String source, LocalDateTime from, LocalDateTime to, LocalDateTime[] t) {
+        this.source = source;
+        this.from = from;
+        this.to = to;
+        this.t = t;
+    }
+
+    public void addChannel(String name, double[] values) {
+        channels.put(name, values);
+    }
+
+    public String getSource() { return source; }
+    public LocalDateTime getFrom() { return from; }
+    public LocalDateTime getTo() { return to; }
+    public LocalDateTime[] getT() { return t; }
+    public Map<String, double[]> getChannels() { return channels; }
+}
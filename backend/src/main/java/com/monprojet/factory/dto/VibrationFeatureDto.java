@@ -0,0 +1,22 @@
+package com.monprojet.factory.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Indicateurs d'une voie de vibration sur une fenêtre (null quand ils ne sont pas définis, signal constant par exemple)
+@Data
+public class VibrationFeatureDto {
+    private String series;
+    private String channel;
+    private LocalDateTime windowStart;
+    private int windowSeconds;
+    private long count;
+    private Double mean;
+    private Double rms;
+    private Double peak;
+    private Double peakToPeak;
+    private Double crestFactor;
+    private Double skewness;
+    private Double kurtosis;
+}
@@ -1,16 +1,43 @@
 package com.monprojet.factory.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "COMPRESSEURDATA")
+// Index (timestamp, id) : plages de temps et pagination par curseur sans tri ni parcours complet.
+// Index (equipment_id, timestamp, id) : mêmes lectures limitées à un compresseur, quel que soit le nombre de machines
+@Table(name = "COMPRESSEURDATA", indexes = {
+        @Index(name = "ix_compresseurdata_timestamp_id", columnList = "timestamp, id"),
+        @Index(name = "ix_compresseurdata_equipment_timestamp", columnList = "equipment_id, timestamp, id")
+})
 public class CompresseurData {
 
         @Id
         @GeneratedValue(strategy = GenerationType.IDENTITY)
         private Long id;
 
+        // Série de la mesure : null = compresseur historique, sans équipement rattaché
+        @Column(name = "equipment_id")
+        private Long equipmentId;
+
+        @Column(name = "sensor_id")
+        private Long sensorId;
+
+        // Liens en lecture seule, sans contrainte de clé étrangère : l'ingestion par lots (bulk copy) n'a pas
+        // à vérifier chaque ligne, les identifiants sont contrôlés à l'upload
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "equipment_id", insertable = false, updatable = false,
+                foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+        @JsonIgnore
+        private Equipment equipment;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "sensor_id", insertable = false, updatable = false,
+                foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+        @JsonIgnore
+        private Sensor sensor;
+
         private LocalDateTime timestamp;
         private Double pressure;
         private Double currentValue;
@@ -29,6 +56,15 @@ public class CompresseurData {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    public Long getEquipmentId() { return equipmentId; }
+    public void setEquipmentId(Long equipmentId) { this.equipmentId = equipmentId; }
+
+    public Long getSensorId() { return sensorId; }
+    public void setSensorId(Long sensorId) { this.sensorId = sensorId; }
+
+    public Equipment getEquipment() { return equipment; }
+    public Sensor getSensor() { return sensor; }
+
     public LocalDateTime getTimestamp() { return timestamp; }
     public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
 
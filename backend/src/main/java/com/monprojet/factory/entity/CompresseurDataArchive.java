@@ -0,0 +1,42 @@
+package com.monprojet.factory.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Mesures du compresseur sorties de COMPRESSEURDATA par la rétention (factory.retention.archive=true).
+// Alimentée uniquement en SQL (INSERT ... SELECT) : l'entité sert à créer la table.
+@Data
+@Entity
+@Table(name = "COMPRESSEURDATA_ARCHIVE", indexes = @Index(name = "ix_compresseurdata_archive_timestamp", columnList = "timestamp"))
+public class CompresseurDataArchive {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "equipment_id")
+    private Long equipmentId;
+
+    @Column(name = "sensor_id")
+    private Long sensorId;
+
+    private LocalDateTime timestamp;
+    private Double pressure;
+
+    @Column(name = "current_value")
+    private Double currentValue;
+
+    @Column(name = "vibration_x")
+    private Double vibrationX;
+
+    @Column(name = "vibration_y")
+    private Double vibrationY;
+
+    @Column(name = "vibration_z")
+    private Double vibrationZ;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+}
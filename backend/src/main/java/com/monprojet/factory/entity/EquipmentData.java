@@ -12,7 +12,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "equipment_data")
+// Index sur le temps : plages de temps (lecture, suppression par lots) avec ou sans filtre équipement
+@Table(name = "equipment_data", indexes = {
+        @Index(name = "ix_equipment_data_timestamp", columnList = "timestamp"),
+        @Index(name = "ix_equipment_data_equipment_timestamp", columnList = "equipment, timestamp")})
 public class EquipmentData {
 
     @Id
@@ -0,0 +1,29 @@
+package com.monprojet.factory.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Mesures d'équipements sorties de equipment_data par la rétention (même principe que CompresseurDataArchive)
+@Data
+@Entity
+@Table(name = "equipment_data_archive", indexes = @Index(name = "ix_equipment_data_archive_timestamp", columnList = "timestamp"))
+public class EquipmentDataArchive {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private LocalDateTime timestamp;
+    private Double temperature;
+    private Double pressure;
+    private Double vibration;
+    private Double humidity;
+    private String equipment;
+    private String location;
+    private Boolean faulty;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+}
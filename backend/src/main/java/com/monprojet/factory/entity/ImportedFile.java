@@ -0,0 +1,41 @@
+package com.monprojet.factory.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Empreinte des fichiers déjà importés : un renvoi à l'identique n'est pas réinséré
+@Entity
+@Table(name = "imported_files",
+        uniqueConstraints = @UniqueConstraint(name = "uk_imported_files_type_hash", columnNames = {"import_type", "content_hash"}))
+@Data
+public class ImportedFile {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "import_type", nullable = false, length = 32)
+    private String type;
+
+    // SHA-256 du contenu, en hexadécimal
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "size_bytes")
+    private long sizeBytes;
+
+    @Column(name = "job_id", length = 36)
+    private String jobId;
+
+    @Column(name = "rows_inserted")
+    private long rowsInserted;
+
+    @CreationTimestamp
+    @Column(name = "imported_at", updatable = false)
+    private LocalDateTime importedAt;
+}
@@ -0,0 +1,70 @@
+package com.monprojet.factory.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Caractéristiques spectrales calculées côté acquisition (format mesures_simulees.csv)
+@Data
+@Entity
+@Table(name = "spectral_features", indexes = @Index(name = "ix_spectral_features_timestamp", columnList = "timestamp"))
+public class SpectralFeature {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private LocalDateTime timestamp;
+
+    @Column(name = "vibration_x")
+    private Double vibrationX;
+
+    @Column(name = "vibration_y")
+    private Double vibrationY;
+
+    @Column(name = "vibration_z")
+    private Double vibrationZ;
+
+    private Boolean running;
+    private String source;
+
+    // Fondamentale et sa densité spectrale
+    @Column(name = "f0_hz")
+    private Double f0Hz;
+
+    @Column(name = "f0_psd")
+    private Double f0Psd;
+
+    @Column(name = "vx_rms")
+    private Double vxRms;
+
+    @Column(name = "vy_rms")
+    private Double vyRms;
+
+    // [[f_hz, psd], ...] sous forme compacte (voir PeakArrayParser)
+    @Column(name = "peaks_json", length = 4000)
+    private String peaksJson;
+
+    // Énergie par bande de fréquence (Hz)
+    @Column(name = "band_0_10")
+    private Double band0To10;
+
+    @Column(name = "band_10_50")
+    private Double band10To50;
+
+    @Column(name = "band_50_100")
+    private Double band50To100;
+
+    @Column(name = "band_100_200")
+    private Double band100To200;
+
+    @Column(name = "band_200_500")
+    private Double band200To500;
+
+    @Column(name = "band_500_1000")
+    private Double band500To1000;
+
+    @Column(name = "band_1000_2000")
+    private Double band1000To2000;
+}
@@ -0,0 +1,56 @@
+package com.monprojet.factory.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Agrégat d'un canal sur un seau de temps (1 min, 1 h ou 1 jour), mis à jour à chaque import.
+// La moyenne et le RMS se déduisent de la somme et de la somme des carrés.
+@Data
+@Entity
+@Table(name = "telemetry_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_telemetry_rollups_bucket",
+                columnNames = {"series_key", "bucket_seconds", "channel", "bucket_start"}))
+public class TelemetryRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // "compresseur" ou "equipment:<nom>"
+    @Column(name = "series_key", nullable = false, length = 128)
+    private String seriesKey;
+
+    @Column(name = "channel", nullable = false, length = 32)
+    private String channel;
+
+    // 60, 3600 ou 86400
+    @Column(name = "bucket_seconds", nullable = false)
+    private int bucketSeconds;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "min_value")
+    private double minValue;
+
+    @Column(name = "max_value")
+    private double maxValue;
+
+    @Column(name = "sum_value")
+    private double sumValue;
+
+    @Column(name = "sum_squares")
+    private double sumSquares;
+
+    @Column(name = "sample_count")
+    private long sampleCount;
+
+    // Première et dernière mesure du seau
+    @Column(name = "first_at")
+    private LocalDateTime firstAt;
+
+    @Column(name = "last_at")
+    private LocalDateTime lastAt;
+}
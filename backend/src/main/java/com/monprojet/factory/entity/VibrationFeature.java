@@ -0,0 +1,82 @@
+package com.monprojet.factory.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Indicateurs vibratoires d'un canal du compresseur sur une fenêtre fixe, calculés à l'import.
+// Les moments (moyenne, m2, m3, m4) permettent de fusionner les mesures d'un import ultérieur dans la même fenêtre ;
+// les indicateurs sont stockés déjà calculés pour être lus tels quels par les tableaux de bord et les alertes.
+@Data
+@Entity
+@Table(name = "vibration_features",
+        uniqueConstraints = @UniqueConstraint(name = "uk_vibration_features_window",
+                columnNames = {"series_key", "window_seconds", "channel", "window_start"}))
+public class VibrationFeature {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // "compresseur" ou "compresseur:<equipmentId>"
+    @Column(name = "series_key", nullable = false, length = 128)
+    private String seriesKey;
+
+    // vibrationX, vibrationY ou vibrationZ
+    @Column(name = "channel", nullable = false, length = 32)
+    private String channel;
+
+    @Column(name = "window_seconds", nullable = false)
+    private int windowSeconds;
+
+    @Column(name = "window_start", nullable = false)
+    private LocalDateTime windowStart;
+
+    @Column(name = "sample_count")
+    private long sampleCount;
+
+    @Column(name = "mean_value")
+    private double meanValue;
+
+    // Sommes des écarts à la moyenne au carré, au cube et à la puissance 4
+    @Column(name = "m2")
+    private double m2;
+
+    @Column(name = "m3")
+    private double m3;
+
+    @Column(name = "m4")
+    private double m4;
+
+    @Column(name = "min_value")
+    private double minValue;
+
+    @Column(name = "max_value")
+    private double maxValue;
+
+    @Column(name = "rms")
+    private Double rms;
+
+    @Column(name = "peak")
+    private Double peak;
+
+    @Column(name = "peak_to_peak")
+    private Double peakToPeak;
+
+    @Column(name = "crest_factor")
+    private Double crestFactor;
+
+    @Column(name = "skewness")
+    private Double skewness;
+
+    @Column(name = "kurtosis")
+    private Double kurtosis;
+
+    // Première et dernière mesure de la fenêtre
+    @Column(name = "first_at")
+    private LocalDateTime firstAt;
+
+    @Column(name = "last_at")
+    private LocalDateTime lastAt;
+}
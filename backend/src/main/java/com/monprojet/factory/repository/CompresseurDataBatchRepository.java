@@ -0,0 +1,285 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.service.CompresseurBatch;
+import com.monprojet.factory.utils.FastParsers;
+import com.monprojet.factory.utils.LongHashSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Écriture JDBC par lots dans COMPRESSEURDATA, et lectures en flux des mesures brutes d'un compresseur (série).
+// L'id est en IDENTITY : Hibernate ne peut pas regrouper les INSERT, on passe donc par JDBC directement.
+// Avec factory.storage.backend=segment, mesures écrites et lues dans les segments compressés (CompresseurSegmentStore).
+@Repository
+public class CompresseurDataBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO COMPRESSEURDATA (equipment_id, sensor_id, timestamp, pressure, current_value, vibration_x, "
+                    + "vibration_y, vibration_z) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // SQL Server limite une requête à 2100 paramètres
+    private static final int IN_CHUNK = 1000;
+    private static final int FETCH_SIZE = 10_000;
+    private static final int SCAN_BATCH = 10_000;
+
+    // (équipement, horodatage) d'une mesure ; CompresseurBatch.NO_ID pour le compresseur historique
+    @FunctionalInterface
+    public interface SeriesTimestampConsumer {
+        void accept(long equipmentId, long timestamp);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CompresseurSegmentStore segmentStore;
+
+    public CompresseurDataBatchRepository(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, null);
+    }
+
+    @Autowired
+    public CompresseurDataBatchRepository(JdbcTemplate jdbcTemplate, CompresseurSegmentStore segmentStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.segmentStore = segmentStore != null && segmentStore.isEnabled() ? segmentStore : null;
+    }
+
+    public boolean isSegmentBackend() {
+        return segmentStore != null;
+    }
+
+    // Un lot = une transaction = un aller-retour réseau
+    @Transactional
+    public int insertBatch(CompresseurBatch batch) {
+        int size = batch.size();
+        if (size == 0) {
+            return 0;
+        }
+        if (segmentStore != null) {
+            // Les segments ne portent qu'une série : le compresseur historique
+            for (int i = 0; i < size; i++) {
+                if (batch.equipmentId(i) != CompresseurBatch.NO_ID || batch.sensorId(i) != CompresseurBatch.NO_ID) {
+                    throw new IllegalArgumentException("Stockage en segments : mesures rattachées à un équipement "
+                            + "non prises en charge (factory.storage.backend=sql)");
+                }
+            }
+            return segmentStore.append(batch);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                setId(ps, 1, batch.equipmentId(i));
+                setId(ps, 2, batch.sensorId(i));
+                ps.setTimestamp(3, Timestamp.valueOf(FastParsers.toLocalDateTime(batch.timestamp(i))));
+                setDouble(ps, 4, batch.pressure(i));
+                setDouble(ps, 5, batch.current(i));
+                setDouble(ps, 6, batch.vibrationX(i));
+                setDouble(ps, 7, batch.vibrationY(i));
+                setDouble(ps, 8, batch.vibrationZ(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return size;
+            }
+        });
+        return size;
+    }
+
+    // Mesures d'un compresseur (null = compresseur historique) dans [from, to[ (secondes), par ordre chronologique,
+    // au plus maxRows, livrées par lots réutilisés. Lecture sur l'index (equipment_id, timestamp, id).
+    public void scan(Long equipmentId, long from, long to, int maxRows, Consumer<CompresseurBatch> consumer) {
+        if (segmentStore != null) {
+            if (equipmentId == null) {
+                segmentStore.scan(from, to, maxRows, consumer);
+            }
+            return;
+        }
+        CompresseurBatch batch = new CompresseurBatch(SCAN_BATCH);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT equipment_id, sensor_id, timestamp, pressure, current_value, "
+                    + "vibration_x, vibration_y, vibration_z FROM COMPRESSEURDATA WHERE " + seriesFilter(equipmentId)
+                    + " AND timestamp >= ? AND timestamp < ? ORDER BY timestamp");
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setMaxRows(maxRows);
+            int index = bindSeries(ps, 1, equipmentId);
+            ps.setTimestamp(index, Timestamp.valueOf(FastParsers.toLocalDateTime(from)));
+            ps.setTimestamp(index + 1, Timestamp.valueOf(FastParsers.toLocalDateTime(to)));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            batch.add(rs.getLong(1), rs.getLong(2), FastParsers.toEpochSecond(rs.getTimestamp(3).toLocalDateTime()),
+                    value(rs, 4), value(rs, 5), value(rs, 6), value(rs, 7), value(rs, 8));
+            if (batch.isFull()) {
+                consumer.accept(batch);
+                batch.clear();
+            }
+        });
+        if (batch.size() > 0) {
+            consumer.accept(batch);
+        }
+    }
+
+    // Horodatages (secondes) des maxRows premières mesures du compresseur dans [from, to[ : de quoi mesurer le pas
+    // d'échantillonnage (SampleClock) avant de parcourir toute la plage
+    public long[] firstTimestamps(Long equipmentId, long from, long to, int maxRows) {
+        long[][] timestamps = {new long[Math.min(maxRows, SCAN_BATCH)]};
+        int[] size = {0};
+        scan(equipmentId, from, to, maxRows, batch -> {
+            if (size[0] + batch.size() > timestamps[0].length) {
+                timestamps[0] = Arrays.copyOf(timestamps[0], Math.max(size[0] + batch.size(), timestamps[0].length * 2));
+            }
+            for (int r = 0; r < batch.size(); r++) {
+                timestamps[0][size[0]++] = batch.timestamp(r);
+            }
+        });
+        return Arrays.copyOf(timestamps[0], size[0]);
+    }
+
+    // {nombre de mesures, premier horodatage, dernier horodatage} du compresseur dans [from, to[
+    // (Long.MAX_VALUE / MIN_VALUE si vide)
+    public long[] stats(Long equipmentId, long from, long to) {
+        if (segmentStore != null) {
+            return equipmentId == null ? segmentStore.stats(from, to) : new long[]{0, Long.MAX_VALUE, Long.MIN_VALUE};
+        }
+        return jdbcTemplate.queryForObject("SELECT COUNT(*), MIN(timestamp), MAX(timestamp) FROM COMPRESSEURDATA WHERE "
+                        + seriesFilter(equipmentId) + " AND timestamp >= ? AND timestamp < ?",
+                (rs, i) -> new long[]{rs.getLong(1),
+                        rs.getTimestamp(2) != null ? FastParsers.toEpochSecond(rs.getTimestamp(2).toLocalDateTime()) : Long.MAX_VALUE,
+                        rs.getTimestamp(3) != null ? FastParsers.toEpochSecond(rs.getTimestamp(3).toLocalDateTime()) : Long.MIN_VALUE},
+                seriesParams(equipmentId, Timestamp.valueOf(FastParsers.toLocalDateTime(from)),
+                        Timestamp.valueOf(FastParsers.toLocalDateTime(to))));
+    }
+
+    // Backend segments uniquement (la table passe par TelemetryPurgeRepository) : mesures de [from, to[
+    // supprimées, ou jours entiers antérieurs à `to` déplacés dans l'archive
+    public long deleteSegments(long from, long to, boolean archive) {
+        if (segmentStore == null) {
+            throw new IllegalStateException("Stockage en segments désactivé");
+        }
+        return archive ? segmentStore.archiveBefore(to) : segmentStore.deleteRange(from, to);
+    }
+
+    // Dernier horodatage du compresseur (secondes), Long.MIN_VALUE si aucune mesure
+    public long latestTimestamp(Long equipmentId) {
+        if (segmentStore != null) {
+            return equipmentId == null ? segmentStore.latestTimestamp() : Long.MIN_VALUE;
+        }
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(timestamp) FROM COMPRESSEURDATA WHERE " + seriesFilter(equipmentId),
+                (rs, i) -> rs.getTimestamp(1) == null ? null : FastParsers.toEpochSecond(rs.getTimestamp(1).toLocalDateTime()),
+                seriesParams(equipmentId));
+        return max != null ? max : Long.MIN_VALUE;
+    }
+
+    // Compresseurs qui ont des mesures (null = compresseur historique)
+    public List<Long> findEquipmentIds() {
+        if (segmentStore != null) {
+            return segmentStore.count() > 0 ? Collections.singletonList(null) : List.of();
+        }
+        return jdbcTemplate.query("SELECT DISTINCT equipment_id FROM COMPRESSEURDATA", (rs, i) -> {
+            long id = rs.getLong(1);
+            return rs.wasNull() ? null : id;
+        });
+    }
+
+    public long count() {
+        if (segmentStore != null) {
+            return segmentStore.count();
+        }
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA", Long.class);
+        return count != null ? count : 0;
+    }
+
+    // Parcours en flux de toutes les mesures (équipement, horodatage en secondes), sans charger les entités
+    public void forEachTimestamp(SeriesTimestampConsumer consumer) {
+        if (segmentStore != null) {
+            segmentStore.forEachTimestamp(ts -> consumer.accept(CompresseurBatch.NO_ID, ts));
+            return;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT equipment_id, timestamp FROM COMPRESSEURDATA WHERE timestamp IS NOT NULL");
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), FastParsers.toEpochSecond(rs.getTimestamp(2).toLocalDateTime())));
+    }
+
+    // Parmi les horodatages candidats, ceux déjà présents pour ce compresseur (requêtes IN par paquets)
+    public LongHashSet findExistingTimestamps(Long equipmentId, long[] candidates, int count) {
+        if (segmentStore != null) {
+            return equipmentId == null ? segmentStore.findExistingTimestamps(candidates, count) : new LongHashSet(16);
+        }
+        LongHashSet existing = new LongHashSet(16);
+        for (int from = 0; from < count; from += IN_CHUNK) {
+            int to = Math.min(count, from + IN_CHUNK);
+            StringBuilder sql = new StringBuilder("SELECT timestamp FROM COMPRESSEURDATA WHERE ")
+                    .append(seriesFilter(equipmentId)).append(" AND timestamp IN (");
+            Object[] timestamps = new Object[to - from];
+            for (int i = from; i < to; i++) {
+                sql.append(i == from ? "?" : ", ?");
+                timestamps[i - from] = Timestamp.valueOf(FastParsers.toLocalDateTime(candidates[i]));
+            }
+            sql.append(')');
+            jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs ->
+                    existing.add(FastParsers.toEpochSecond(rs.getTimestamp(1).toLocalDateTime())),
+                    seriesParams(equipmentId, timestamps));
+        }
+        return existing;
+    }
+
+    // Série du compresseur historique (equipment_id NULL) ou d'un équipement : préfixe de l'index composite
+    private static String seriesFilter(Long equipmentId) {
+        return equipmentId == null ? "equipment_id IS NULL" : "equipment_id = ?";
+    }
+
+    private static Object[] seriesParams(Long equipmentId, Object... params) {
+        if (equipmentId == null) {
+            return params;
+        }
+        Object[] all = new Object[params.length + 1];
+        all[0] = equipmentId;
+        System.arraycopy(params, 0, all, 1, params.length);
+        return all;
+    }
+
+    // Paramètre de la série s'il y en a un ; retourne l'indice du paramètre suivant
+    private static int bindSeries(PreparedStatement ps, int index, Long equipmentId) throws SQLException {
+        if (equipmentId == null) {
+            return index;
+        }
+        ps.setLong(index, equipmentId);
+        return index + 1;
+    }
+
+    // CompresseurBatch.NO_ID = NULL
+    private static void setId(PreparedStatement ps, int index, long id) throws SQLException {
+        if (id == CompresseurBatch.NO_ID) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, id);
+        }
+    }
+
+    // NULL = NaN
+    private static double value(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    // NaN = valeur absente
+    private static void setDouble(PreparedStatement ps, int index, double value) throws SQLException {
+        if (Double.isNaN(value)) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+}
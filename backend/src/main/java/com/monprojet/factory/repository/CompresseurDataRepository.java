@@ -1,16 +1,50 @@
  package com.monprojet.factory.repository;
 
 import com.monprojet.factory.entity.CompresseurData;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
-import java.time.ZonedDateTime;
+import java.time.LocalDateTime;
 
 
 @Repository
 public interface CompresseurDataRepository extends JpaRepository<CompresseurData, Long> {
     List<CompresseurData> findAllByOrderByTimestampAsc();
-    List<CompresseurData> findAllByTimestampBetween(ZonedDateTime start, ZonedDateTime end);
+    List<CompresseurData> findAllByTimestampBetween(LocalDateTime start, LocalDateTime end);
+
+    // Pagination par curseur (timestamp, id) : chaque page est une recherche dans l'index, quelle que soit sa position.
+    // Sans equipmentId : compresseur historique (equipment_id NULL), sur l'index (equipment_id, timestamp, id)
+    @Query("SELECT c FROM CompresseurData c WHERE c.equipmentId IS NULL AND c.timestamp >= :from AND c.timestamp < :to "
+            + "ORDER BY c.timestamp ASC, c.id ASC")
+    List<CompresseurData> findPage(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT c FROM CompresseurData c WHERE c.equipmentId IS NULL AND c.timestamp >= :timestamp "
+            + "AND (c.timestamp > :timestamp OR c.id > :id) AND c.timestamp < :to ORDER BY c.timestamp ASC, c.id ASC")
+    List<CompresseurData> findPageAfter(@Param("timestamp") LocalDateTime timestamp, @Param("id") Long id,
+                                        @Param("to") LocalDateTime to, Pageable pageable);
+
+    // Dernières mesures avant to (ordre décroissant)
+    @Query("SELECT c FROM CompresseurData c WHERE c.equipmentId IS NULL AND c.timestamp < :to ORDER BY c.timestamp DESC, c.id DESC")
+    List<CompresseurData> findLatest(@Param("to") LocalDateTime to, Pageable pageable);
+
+    // Mêmes pages pour un compresseur rattaché à un équipement
+    @Query("SELECT c FROM CompresseurData c WHERE c.equipmentId = :equipmentId AND c.timestamp >= :from AND c.timestamp < :to "
+            + "ORDER BY c.timestamp ASC, c.id ASC")
+    List<CompresseurData> findEquipmentPage(@Param("equipmentId") Long equipmentId, @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT c FROM CompresseurData c WHERE c.equipmentId = :equipmentId AND c.timestamp >= :timestamp "
+            + "AND (c.timestamp > :timestamp OR c.id > :id) AND c.timestamp < :to ORDER BY c.timestamp ASC, c.id ASC")
+    List<CompresseurData> findEquipmentPageAfter(@Param("equipmentId") Long equipmentId, @Param("timestamp") LocalDateTime timestamp,
+                                                 @Param("id") Long id, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT c FROM CompresseurData c WHERE c.equipmentId = :equipmentId AND c.timestamp < :to "
+            + "ORDER BY c.timestamp DESC, c.id DESC")
+    List<CompresseurData> findEquipmentLatest(@Param("equipmentId") Long equipmentId, @Param("to") LocalDateTime to,
+                                              Pageable pageable);
 
 }
 
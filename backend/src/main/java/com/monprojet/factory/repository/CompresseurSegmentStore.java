@@ -0,0 +1,776 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.service.CompresseurBatch;
+import com.monprojet.factory.utils.GorillaCodec;
+import com.monprojet.factory.utils.LongHashSet;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+// Stockage des mesures du compresseur en fichiers de segments compressés (factory.storage.backend=segment) :
+//   <directory>/<aaaa-mm-jj>_g<génération>/<canal>.seg   un répertoire par jour, un fichier en ajout seul par canal
+//   bloc : "FSG1", nbPoints u32, tMin i64, tMax i64, longueur u32, CRC32 u32, flux GorillaCodec (horodatage, valeur)
+// Un lot écrit donne un bloc par canal, avec les mêmes horodatages : l'index creux d'un jour (tMin, tMax, nbPoints,
+// position dans chaque fichier) est commun aux canaux et reconstruit au démarrage à partir des seuls en-têtes.
+// Les lectures mappent les fichiers en mémoire et ne décodent que les blocs qui recoupent la plage demandée.
+// Horodatages en secondes (FastParsers), NaN = valeur absente.
+@Repository
+public class CompresseurSegmentStore {
+
+    public static final String[] CHANNELS = {"pressure", "currentValue", "vibrationX", "vibrationY", "vibrationZ"};
+
+    private static final int MAGIC = 0x31475346; // "FSG1" en little-endian
+    private static final int HEADER_BYTES = 32;
+    private static final int DAY_SECONDS = 86_400;
+    // Points par bloc au plus : granularité de l'index creux
+    private static final int BLOCK_ROWS = 4096;
+    private static final int SCAN_BATCH = 10_000;
+
+    // Index creux d'un jour ; les tableaux ne font que croître, un lecteur lit les `blocks` premiers blocs qu'il a vus
+    private static final class Segment {
+        private final long day;
+        private final int generation;
+        private final Path path;
+        private long[] minTime = new long[16];
+        private long[] maxTime = new long[16];
+        private int[] counts = new int[16];
+        private long[][] offsets = new long[CHANNELS.length][16];
+        private int blocks;
+        private long rows;
+        private final long[] sizes = new long[CHANNELS.length];
+        private final MappedByteBuffer[] mapped = new MappedByteBuffer[CHANNELS.length];
+
+        Segment(long day, int generation, Path path) {
+            this.day = day;
+            this.generation = generation;
+            this.path = path;
+        }
+
+        void addBlock(int count, long min, long max, long[] channelOffsets) {
+            if (blocks == counts.length) {
+                int capacity = blocks * 2;
+                minTime = Arrays.copyOf(minTime, capacity);
+                maxTime = Arrays.copyOf(maxTime, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                for (int c = 0; c < CHANNELS.length; c++) {
+                    offsets[c] = Arrays.copyOf(offsets[c], capacity);
+                }
+            }
+            minTime[blocks] = min;
+            maxTime[blocks] = max;
+            counts[blocks] = count;
+            for (int c = 0; c < CHANNELS.length; c++) {
+                offsets[c][blocks] = channelOffsets[c];
+            }
+            blocks++;
+            rows += count;
+        }
+
+        // Fichier du canal mappé au moins jusqu'à `size` octets (remappé quand il a grandi)
+        synchronized ByteBuffer map(int channel, long size) throws IOException {
+            MappedByteBuffer buffer = mapped[channel];
+            if (buffer == null || buffer.capacity() < size) {
+                try (FileChannel file = FileChannel.open(file(path, channel), StandardOpenOption.READ)) {
+                    buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                }
+                mapped[channel] = buffer;
+            }
+            return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        long bytes() {
+            long total = 0;
+            for (long size : sizes) {
+                total += size;
+            }
+            return total;
+        }
+    }
+
+    // Vue figée d'un jour pour une lecture : blocs visibles au moment de la lecture (les tableaux de l'index
+    // sont remplacés quand ils grandissent, jamais modifiés en deçà de `blocks`)
+    private record Snapshot(Segment segment, int blocks, long[] sizes, long[] minTime, long[] maxTime, int[] counts,
+                            long[][] offsets) {
+
+        Snapshot(Segment segment) {
+            this(segment, segment.blocks, segment.sizes.clone(), segment.minTime, segment.maxTime, segment.counts,
+                    segment.offsets.clone());
+        }
+    }
+
+    // Lot encodé hors verrou : un tampon (en-tête + données) par canal
+    private record EncodedBlock(long day, int count, long min, long max, ByteBuffer[] channels) {
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Path archiveDirectory;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Jour (jours depuis l'epoch) -> segment courant
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    // Jour retiré dont les fichiers n'ont pas pu être effacés : première génération libre au-dessus du marqueur
+    private final Map<Long, Integer> nextGeneration = new HashMap<>();
+
+    public CompresseurSegmentStore(@Value("${factory.storage.backend:sql}") String backend,
+                                   @Value("${factory.storage.segment.directory:data/segments/compresseur}") String directory) {
+        this.enabled = "segment".equalsIgnoreCase(backend);
+        this.directory = Paths.get(directory);
+        this.archiveDirectory = this.directory.resolve("archive");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Index reconstruit à partir des en-têtes ; un bloc incomplet en fin de fichier (arrêt brutal) est écarté
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            Files.createDirectories(directory);
+            segments.clear();
+            List<Path> stale = new ArrayList<>();
+            try (DirectoryStream<Path> days = Files.newDirectoryStream(directory, "*_g*")) {
+                for (Path dir : days) {
+                    String name = dir.getFileName().toString();
+                    int separator = name.lastIndexOf("_g");
+                    long day;
+                    int generation;
+                    try {
+                        day = LocalDate.parse(name.substring(0, separator)).toEpochDay();
+                        generation = Integer.parseInt(name.substring(separator + 2));
+                    } catch (DateTimeParseException | NumberFormatException e) {
+                        continue;
+                    }
+                    Segment current = segments.get(day);
+                    if (current != null && current.generation > generation) {
+                        stale.add(dir);
+                        continue;
+                    }
+                    if (current != null) {
+                        stale.add(current.path);
+                    }
+                    segments.put(day, new Segment(day, generation, dir));
+                }
+            }
+            // Anciennes générations (réécritures, suppressions) que le système n'avait pas pu effacer
+            stale.forEach(CompresseurSegmentStore::deleteQuietly);
+            List<Long> empty = new ArrayList<>();
+            for (Segment segment : segments.values()) {
+                load(segment);
+                if (segment.blocks == 0) {
+                    empty.add(segment.day);
+                }
+            }
+            for (Long day : empty) {
+                deleteQuietly(segments.remove(day).path);
+            }
+            long rows = segments.values().stream().mapToLong(s -> s.rows).sum();
+            System.out.println("Segments compresseur ouverts : " + segments.size() + " jours, " + rows + " mesures en "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ouverture des segments impossible : " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ajoute un lot : un bloc par jour (et par BLOCK_ROWS lignes) et par canal. L'encodage se fait hors verrou.
+    public int append(CompresseurBatch batch) {
+        int size = batch.size();
+        List<EncodedBlock> blocks = new ArrayList<>();
+        int start = 0;
+        while (start < size) {
+            long day = Math.floorDiv(batch.timestamp(start), DAY_SECONDS);
+            int end = start + 1;
+            while (end < size && end - start < BLOCK_ROWS && Math.floorDiv(batch.timestamp(end), DAY_SECONDS) == day) {
+                end++;
+            }
+            blocks.add(encode(day, batch, start, end));
+            start = end;
+        }
+        if (blocks.isEmpty()) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try {
+            for (EncodedBlock block : blocks) {
+                Segment segment = segments.get(block.day());
+                if (segment == null) {
+                    int generation = nextGeneration.getOrDefault(block.day(), 0);
+                    segment = new Segment(block.day(), generation, segmentPath(block.day(), generation));
+                    Files.createDirectories(segment.path);
+                    segments.put(block.day(), segment);
+                }
+                write(segment, block);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Écriture des segments impossible", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return size;
+    }
+
+    // Mesures de [from, to[ par ordre chronologique, au plus maxRows, livrées par lots réutilisés
+    // (le consommateur ne doit pas garder le lot)
+    public void scan(long from, long to, int maxRows, Consumer<CompresseurBatch> consumer) {
+        CompresseurBatch out = new CompresseurBatch(SCAN_BATCH);
+        long[] emitted = {0};
+        for (Snapshot snapshot : snapshots(from, to)) {
+            if (emitted[0] >= maxRows) {
+                break;
+            }
+            long[] minTime = snapshot.minTime();
+            long[] maxTime = snapshot.maxTime();
+            // Blocs qui recoupent la plage, triés par début ; des blocs qui se chevauchent sont fusionnés puis triés
+            List<Integer> selected = new ArrayList<>();
+            for (int b = 0; b < snapshot.blocks(); b++) {
+                if (maxTime[b] >= from && minTime[b] < to) {
+                    selected.add(b);
+                }
+            }
+            selected.sort((a, b) -> Long.compare(minTime[a], minTime[b]));
+            int i = 0;
+            while (i < selected.size() && emitted[0] < maxRows) {
+                int j = i + 1;
+                long groupMax = maxTime[selected.get(i)];
+                int groupRows = snapshot.counts()[selected.get(i)];
+                while (j < selected.size() && minTime[selected.get(j)] <= groupMax) {
+                    groupMax = Math.max(groupMax, maxTime[selected.get(j)]);
+                    groupRows += snapshot.counts()[selected.get(j)];
+                    j++;
+                }
+                emitGroup(snapshot, selected.subList(i, j), groupRows, from, to, maxRows, emitted, out, consumer);
+                i = j;
+            }
+        }
+        if (out.size() > 0) {
+            consumer.accept(out);
+            out.clear();
+        }
+    }
+
+    // {nombre de mesures, premier horodatage, dernier horodatage} dans [from, to[ ; seuls les blocs à cheval sont décodés
+    public long[] stats(long from, long to) {
+        long[] stats = {0, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (Snapshot snapshot : snapshots(from, to)) {
+            for (int b = 0; b < snapshot.blocks(); b++) {
+                long min = snapshot.minTime()[b];
+                long max = snapshot.maxTime()[b];
+                if (max < from || min >= to) {
+                    continue;
+                }
+                if (min >= from && max < to) {
+                    stats[0] += snapshot.counts()[b];
+                    stats[1] = Math.min(stats[1], min);
+                    stats[2] = Math.max(stats[2], max);
+                } else {
+                    forEachTime(snapshot, b, t -> {
+                        if (t >= from && t < to) {
+                            stats[0]++;
+                            stats[1] = Math.min(stats[1], t);
+                            stats[2] = Math.max(stats[2], t);
+                        }
+                    });
+                }
+            }
+        }
+        return stats;
+    }
+
+    // Dernier horodatage stocké (index du dernier jour), Long.MIN_VALUE si vide
+    public long latestTimestamp() {
+        lock.readLock().lock();
+        try {
+            Map.Entry<Long, Segment> last = segments.lastEntry();
+            long latest = Long.MIN_VALUE;
+            if (last != null) {
+                Segment segment = last.getValue();
+                for (int b = 0; b < segment.blocks; b++) {
+                    latest = Math.max(latest, segment.maxTime[b]);
+                }
+            }
+            return latest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return segments.values().stream().mapToLong(s -> s.rows).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Tous les horodatages, dans l'ordre des blocs (chargement du filtre de dédoublonnage)
+    public void forEachTimestamp(LongConsumer consumer) {
+        for (Snapshot snapshot : snapshots(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            for (int b = 0; b < snapshot.blocks(); b++) {
+                forEachTime(snapshot, b, consumer);
+            }
+        }
+    }
+
+    // Parmi les horodatages candidats, ceux déjà stockés : seuls les blocs qui recoupent leur étendue sont décodés
+    public LongHashSet findExistingTimestamps(long[] candidates, int count) {
+        LongHashSet existing = new LongHashSet(16);
+        if (count == 0) {
+            return existing;
+        }
+        LongHashSet wanted = new LongHashSet(count * 2);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            wanted.add(candidates[i]);
+            min = Math.min(min, candidates[i]);
+            max = Math.max(max, candidates[i]);
+        }
+        long from = min;
+        long to = max + 1;
+        for (Snapshot snapshot : snapshots(from, to)) {
+            for (int b = 0; b < snapshot.blocks(); b++) {
+                if (snapshot.maxTime()[b] >= from && snapshot.minTime()[b] < to) {
+                    forEachTime(snapshot, b, t -> {
+                        if (wanted.contains(t)) {
+                            existing.add(t);
+                        }
+                    });
+                }
+            }
+        }
+        return existing;
+    }
+
+    // Supprime les mesures de [from, to[ : jours entiers retirés, jours à cheval réécrits sans ces mesures
+    public long deleteRange(long from, long to) {
+        lock.writeLock().lock();
+        try {
+            long deleted = 0;
+            for (Segment segment : overlapping(from, to)) {
+                long dayStart = segment.day * DAY_SECONDS;
+                if (from <= dayStart && to >= dayStart + DAY_SECONDS) {
+                    deleted += segment.rows;
+                    retire(segment, null);
+                } else {
+                    deleted += rewrite(segment, from, to);
+                }
+            }
+            return deleted;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Suppression dans les segments impossible", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Rétention : déplace dans <directory>/archive les jours entièrement antérieurs à `before`
+    public long archiveBefore(long before) {
+        lock.writeLock().lock();
+        try {
+            long archived = 0;
+            for (Segment segment : overlapping(Long.MIN_VALUE, before)) {
+                if ((segment.day + 1) * DAY_SECONDS <= before) {
+                    archived += segment.rows;
+                    retire(segment, archiveDirectory.resolve(segment.path.getFileName()));
+                }
+            }
+            return archived;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Archivage des segments impossible", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Volume stocké : jours, mesures, octets sur disque et octets par mesure (toutes voies confondues)
+    public Map<String, Object> storageStats() {
+        lock.readLock().lock();
+        try {
+            long rows = 0;
+            long bytes = 0;
+            for (Segment segment : segments.values()) {
+                rows += segment.rows;
+                bytes += segment.bytes();
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("backend", enabled ? "segment" : "sql");
+            stats.put("days", segments.size());
+            stats.put("rows", rows);
+            stats.put("bytes", bytes);
+            stats.put("bytesPerRow", rows > 0 ? (double) bytes / rows : 0.0);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Snapshot> snapshots(long from, long to) {
+        lock.readLock().lock();
+        try {
+            List<Snapshot> snapshots = new ArrayList<>();
+            for (Segment segment : overlapping(from, to)) {
+                snapshots.add(new Snapshot(segment));
+            }
+            return snapshots;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Segment> overlapping(long from, long to) {
+        if (from >= to) {
+            return List.of();
+        }
+        long firstDay = from == Long.MIN_VALUE ? Long.MIN_VALUE : Math.floorDiv(from, DAY_SECONDS);
+        long lastDay = to == Long.MAX_VALUE ? Long.MAX_VALUE : Math.floorDiv(to - 1, DAY_SECONDS);
+        return new ArrayList<>(segments.subMap(firstDay, true, lastDay, true).values());
+    }
+
+    private void emitGroup(Snapshot snapshot, List<Integer> blocks, int groupRows, long from, long to, int maxRows,
+                           long[] emitted, CompresseurBatch out, Consumer<CompresseurBatch> consumer) {
+        long[] t = new long[groupRows];
+        double[][] values = new double[CHANNELS.length][groupRows];
+        int n = 0;
+        boolean sorted = true;
+        for (int b : blocks) {
+            GorillaCodec.Decoder[] decoders = decoders(snapshot, b);
+            for (int r = 0; r < snapshot.counts()[b]; r++) {
+                for (GorillaCodec.Decoder decoder : decoders) {
+                    decoder.next();
+                }
+                long time = decoders[0].time();
+                if (time < from || time >= to) {
+                    continue;
+                }
+                sorted &= n == 0 || time >= t[n - 1];
+                t[n] = time;
+                for (int c = 0; c < CHANNELS.length; c++) {
+                    values[c][n] = decoders[c].value();
+                }
+                n++;
+            }
+        }
+        int[] order = sorted ? null : sortByTime(t, n, snapshot.segment().day * DAY_SECONDS);
+        for (int k = 0; k < n && emitted[0] < maxRows; k++) {
+            int r = order != null ? order[k] : k;
+            out.add(t[r], values[0][r], values[1][r], values[2][r], values[3][r], values[4][r]);
+            emitted[0]++;
+            if (out.isFull()) {
+                consumer.accept(out);
+                out.clear();
+            }
+        }
+    }
+
+    // Ordre chronologique stable : dans un jour, (t - début du jour) tient sur 17 bits, l'indice sur les bits bas
+    private static int[] sortByTime(long[] t, int n, long dayStart) {
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((t[i] - dayStart) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    private void forEachTime(Snapshot snapshot, int block, LongConsumer consumer) {
+        GorillaCodec.Decoder decoder = decoder(snapshot, block, 0);
+        while (decoder.next()) {
+            consumer.accept(decoder.time());
+        }
+    }
+
+    private GorillaCodec.Decoder[] decoders(Snapshot snapshot, int block) {
+        GorillaCodec.Decoder[] decoders = new GorillaCodec.Decoder[CHANNELS.length];
+        for (int c = 0; c < CHANNELS.length; c++) {
+            decoders[c] = decoder(snapshot, block, c);
+        }
+        return decoders;
+    }
+
+    private GorillaCodec.Decoder decoder(Snapshot snapshot, int block, int channel) {
+        Segment segment = snapshot.segment();
+        try {
+            ByteBuffer buffer = segment.map(channel, snapshot.sizes()[channel]);
+            int offset = (int) snapshot.offsets()[channel][block];
+            return new GorillaCodec.Decoder(buffer, offset + HEADER_BYTES, snapshot.counts()[block]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture des segments impossible : " + segment.path, e);
+        }
+    }
+
+    private static EncodedBlock encode(long day, CompresseurBatch batch, int start, int end) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = start; i < end; i++) {
+            min = Math.min(min, batch.timestamp(i));
+            max = Math.max(max, batch.timestamp(i));
+        }
+        ByteBuffer[] channels = new ByteBuffer[CHANNELS.length];
+        for (int c = 0; c < CHANNELS.length; c++) {
+            GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+            for (int i = start; i < end; i++) {
+                encoder.add(batch.timestamp(i), value(batch, c, i));
+            }
+            channels[c] = block(encoder, min, max);
+        }
+        return new EncodedBlock(day, end - start, min, max, channels);
+    }
+
+    private static ByteBuffer block(GorillaCodec.Encoder encoder, long min, long max) {
+        int length = encoder.byteLength();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_BYTES);
+        encoder.writeTo(buffer);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, length);
+        buffer.putInt(0, MAGIC).putInt(4, encoder.count()).putLong(8, min).putLong(16, max)
+                .putInt(24, length).putInt(28, (int) crc.getValue());
+        buffer.position(0);
+        return buffer;
+    }
+
+    private static double value(CompresseurBatch batch, int channel, int i) {
+        switch (channel) {
+            case 0: return batch.pressure(i);
+            case 1: return batch.current(i);
+            case 2: return batch.vibrationX(i);
+            case 3: return batch.vibrationY(i);
+            default: return batch.vibrationZ(i);
+        }
+    }
+
+    // Ajout en fin de chaque fichier canal, puis publication du bloc dans l'index
+    private static void write(Segment segment, EncodedBlock block) throws IOException {
+        long[] channelOffsets = new long[CHANNELS.length];
+        for (int c = 0; c < CHANNELS.length; c++) {
+            ByteBuffer buffer = block.channels()[c];
+            try (FileChannel file = FileChannel.open(file(segment.path, c),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                long position = segment.sizes[c];
+                channelOffsets[c] = position;
+                while (buffer.hasRemaining()) {
+                    position += file.write(buffer, position);
+                }
+                file.force(false);
+                segment.sizes[c] = position;
+            }
+        }
+        segment.addBlock(block.count(), block.min(), block.max(), channelOffsets);
+    }
+
+    // Réécrit un jour dans une nouvelle génération sans les mesures de [from, to[ ; retourne le nombre retiré
+    private long rewrite(Segment segment, long from, long to) throws IOException {
+        Snapshot snapshot = new Snapshot(segment);
+        CompresseurBatch kept = new CompresseurBatch((int) Math.min(Integer.MAX_VALUE - 8, segment.rows));
+        long removed = 0;
+        for (int b = 0; b < snapshot.blocks(); b++) {
+            GorillaCodec.Decoder[] decoders = decoders(snapshot, b);
+            for (int r = 0; r < segment.counts[b]; r++) {
+                for (GorillaCodec.Decoder decoder : decoders) {
+                    decoder.next();
+                }
+                long time = decoders[0].time();
+                if (time >= from && time < to) {
+                    removed++;
+                } else {
+                    kept.add(time, decoders[0].value(), decoders[1].value(), decoders[2].value(),
+                            decoders[3].value(), decoders[4].value());
+                }
+            }
+        }
+        if (removed == 0) {
+            return 0;
+        }
+        if (kept.size() == 0) {
+            retire(segment, null);
+            return removed;
+        }
+        Segment replacement = new Segment(segment.day, segment.generation + 1, segmentPath(segment.day, segment.generation + 1));
+        Files.createDirectories(replacement.path);
+        // Réécriture triée : compacte au passage les blocs qui se chevauchaient
+        int[] order = sortByTime(timestamps(kept), kept.size(), segment.day * DAY_SECONDS);
+        CompresseurBatch sorted = new CompresseurBatch(BLOCK_ROWS);
+        for (int k = 0; k < order.length; k++) {
+            int r = order[k];
+            sorted.add(kept.timestamp(r), kept.pressure(r), kept.current(r), kept.vibrationX(r), kept.vibrationY(r), kept.vibrationZ(r));
+            if (sorted.isFull() || k == order.length - 1) {
+                write(replacement, encode(segment.day, sorted, 0, sorted.size()));
+                sorted.clear();
+            }
+        }
+        // L'ancienne génération, masquée par la nouvelle, est effacée maintenant ou au prochain démarrage
+        segments.put(segment.day, replacement);
+        deleteQuietly(segment.path);
+        return removed;
+    }
+
+    private static long[] timestamps(CompresseurBatch batch) {
+        long[] t = new long[batch.size()];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = batch.timestamp(i);
+        }
+        return t;
+    }
+
+    // Retire un jour de l'index : déplacé vers target (archive) ou supprimé. Un fichier encore mappé ne peut pas
+    // être effacé sous Windows : une génération vide plus récente le masque alors jusqu'au prochain démarrage.
+    private void retire(Segment segment, Path target) throws IOException {
+        segments.remove(segment.day);
+        if (target != null) {
+            Files.createDirectories(target.getParent());
+            copyDirectory(segment.path, target);
+        }
+        if (!deleteQuietly(segment.path)) {
+            Files.createDirectories(segmentPath(segment.day, segment.generation + 1));
+            nextGeneration.put(segment.day, segment.generation + 2);
+        }
+    }
+
+    private static void copyDirectory(Path source, Path target) throws IOException {
+        Files.createDirectories(target);
+        for (int c = 0; c < CHANNELS.length; c++) {
+            Path file = file(source, c);
+            if (Files.exists(file)) {
+                Files.copy(file, file(target, c));
+            }
+        }
+    }
+
+    private static boolean deleteQuietly(Path dir) {
+        try {
+            if (Files.isDirectory(dir)) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                    for (Path file : files) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            Files.deleteIfExists(dir);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Lecture des en-têtes de chaque canal ; les canaux sont ramenés au nombre de blocs complets qu'ils ont en commun
+    private static void load(Segment segment) throws IOException {
+        int common = Integer.MAX_VALUE;
+        List<List<long[]>> perChannel = new ArrayList<>();
+        for (int c = 0; c < CHANNELS.length; c++) {
+            List<long[]> blocks = new ArrayList<>();
+            Path path = file(segment.path, c);
+            if (Files.exists(path)) {
+                try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+                    long size = file.size();
+                    long position = 0;
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                    while (position + HEADER_BYTES <= size) {
+                        header.clear();
+                        file.read(header, position);
+                        int length = header.getInt(24);
+                        if (header.getInt(0) != MAGIC || length < 0 || position + HEADER_BYTES + length > size) {
+                            break;
+                        }
+                        if (position + HEADER_BYTES + length == size && !checksumMatches(file, position, length, header.getInt(28))) {
+                            break;
+                        }
+                        blocks.add(new long[]{position, header.getInt(4), header.getLong(8), header.getLong(16),
+                                position + HEADER_BYTES + length});
+                        position += HEADER_BYTES + length;
+                    }
+                }
+            }
+            perChannel.add(blocks);
+            common = Math.min(common, blocks.size());
+        }
+        // Blocs de même rang : mêmes en-têtes dans tous les canaux, sinon on s'arrête au premier désaccord
+        int valid = 0;
+        while (valid < common) {
+            long[] reference = perChannel.get(0).get(valid);
+            boolean same = true;
+            for (int c = 1; c < CHANNELS.length && same; c++) {
+                long[] other = perChannel.get(c).get(valid);
+                same = other[1] == reference[1] && other[2] == reference[2] && other[3] == reference[3];
+            }
+            if (!same) {
+                break;
+            }
+            valid++;
+        }
+        for (int b = 0; b < valid; b++) {
+            long[] channelOffsets = new long[CHANNELS.length];
+            for (int c = 0; c < CHANNELS.length; c++) {
+                channelOffsets[c] = perChannel.get(c).get(b)[0];
+            }
+            long[] reference = perChannel.get(0).get(b);
+            segment.addBlock((int) reference[1], reference[2], reference[3], channelOffsets);
+        }
+        for (int c = 0; c < CHANNELS.length; c++) {
+            long end = valid > 0 ? perChannel.get(c).get(valid - 1)[4] : 0;
+            segment.sizes[c] = end;
+            Path path = file(segment.path, c);
+            if (Files.exists(path) && Files.size(path) > end) {
+                try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    file.truncate(end);
+                }
+            }
+        }
+    }
+
+    private static boolean checksumMatches(FileChannel file, long position, int length, int expected) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        while (payload.hasRemaining()) {
+            if (file.read(payload, position + HEADER_BYTES + payload.position()) < 0) {
+                return false;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, length);
+        return (int) crc.getValue() == expected;
+    }
+
+    private Path segmentPath(long day, int generation) {
+        return directory.resolve(LocalDate.ofEpochDay(day) + "_g" + generation);
+    }
+
+    private static Path file(Path segmentPath, int channel) {
+        return segmentPath.resolve(CHANNELS[channel] + ".seg");
+    }
+}
@@ -0,0 +1,54 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.service.EquipmentBatch;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+// Écriture JDBC par lots dans equipment_data (même principe que CompresseurDataBatchRepository)
+@Repository
+public class EquipmentDataBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO equipment_data (timestamp, temperature, pressure, vibration, humidity, equipment, location, faulty) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EquipmentDataBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public int insertBatch(EquipmentBatch batch) {
+        int size = batch.size();
+        if (size == 0) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setTimestamp(1, Timestamp.valueOf(FastParsers.toLocalDateTime(batch.timestamp(i))));
+                ps.setDouble(2, batch.temperature(i));
+                ps.setDouble(3, batch.pressure(i));
+                ps.setDouble(4, batch.vibration(i));
+                ps.setDouble(5, batch.humidity(i));
+                ps.setString(6, batch.equipment(i));
+                ps.setString(7, batch.location(i));
+                ps.setBoolean(8, batch.faulty(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return size;
+            }
+        });
+        return size;
+    }
+}
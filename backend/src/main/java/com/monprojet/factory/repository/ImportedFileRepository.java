@@ -0,0 +1,17 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.entity.ImportedFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface ImportedFileRepository extends JpaRepository<ImportedFile, Long> {
+    Optional<ImportedFile> findByTypeAndContentHash(String type, String contentHash);
+
+    @Transactional
+    long deleteByType(String type);
+
+    @Transactional
+    long deleteByTypeStartingWith(String prefix);
+}
@@ -0,0 +1,41 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.service.CompresseurBatch;
+import com.monprojet.factory.service.EquipmentBatch;
+import com.monprojet.factory.service.SpectralBatch;
+
+// Mode portable : INSERT par lots JDBC (fonctionne sur toute base JDBC)
+public class JdbcBatchTelemetryLoader implements TelemetryBulkLoader {
+
+    private final CompresseurDataBatchRepository compresseurRepository;
+    private final EquipmentDataBatchRepository equipmentRepository;
+    private final SpectralFeatureBatchRepository spectralRepository;
+
+    public JdbcBatchTelemetryLoader(CompresseurDataBatchRepository compresseurRepository,
+                                    EquipmentDataBatchRepository equipmentRepository,
+                                    SpectralFeatureBatchRepository spectralRepository) {
+        this.compresseurRepository = compresseurRepository;
+        this.equipmentRepository = equipmentRepository;
+        this.spectralRepository = spectralRepository;
+    }
+
+    @Override
+    public int loadCompresseur(CompresseurBatch batch) {
+        return compresseurRepository.insertBatch(batch);
+    }
+
+    @Override
+    public int loadEquipment(EquipmentBatch batch) {
+        return equipmentRepository.insertBatch(batch);
+    }
+
+    @Override
+    public int loadSpectral(SpectralBatch batch) {
+        return spectralRepository.insertBatch(batch);
+    }
+
+    @Override
+    public String getMode() {
+        return "jdbc";
+    }
+}
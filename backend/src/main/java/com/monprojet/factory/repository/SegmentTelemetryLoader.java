@@ -0,0 +1,38 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.service.CompresseurBatch;
+import com.monprojet.factory.service.EquipmentBatch;
+import com.monprojet.factory.service.SpectralBatch;
+
+// Mode segment : mesures du compresseur écrites dans les segments compressés (via CompresseurDataBatchRepository),
+// equipment_data et spectral_features toujours chargées en base par le chargeur SQL choisi
+public class SegmentTelemetryLoader implements TelemetryBulkLoader {
+
+    private final CompresseurDataBatchRepository compresseurRepository;
+    private final TelemetryBulkLoader delegate;
+
+    public SegmentTelemetryLoader(CompresseurDataBatchRepository compresseurRepository, TelemetryBulkLoader delegate) {
+        this.compresseurRepository = compresseurRepository;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int loadCompresseur(CompresseurBatch batch) {
+        return compresseurRepository.insertBatch(batch);
+    }
+
+    @Override
+    public int loadEquipment(EquipmentBatch batch) {
+        return delegate.loadEquipment(batch);
+    }
+
+    @Override
+    public int loadSpectral(SpectralBatch batch) {
+        return delegate.loadSpectral(batch);
+    }
+
+    @Override
+    public String getMode() {
+        return "segment+" + delegate.getMode();
+    }
+}
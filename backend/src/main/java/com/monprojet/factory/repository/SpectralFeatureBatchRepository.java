@@ -0,0 +1,81 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.service.SpectralBatch;
+import com.monprojet.factory.utils.FastParsers;
+import com.monprojet.factory.utils.PeakArrayParser;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+// Écriture JDBC par lots dans spectral_features (même principe que CompresseurDataBatchRepository)
+@Repository
+public class SpectralFeatureBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO spectral_features (timestamp, vibration_x, vibration_y, vibration_z, running, source, "
+                    + "f0_hz, f0_psd, vx_rms, vy_rms, peaks_json, " + String.join(", ", SpectralBatch.BAND_COLUMNS) + ") "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SpectralFeatureBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public int insertBatch(SpectralBatch batch) {
+        int size = batch.size();
+        if (size == 0) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setTimestamp(1, Timestamp.valueOf(FastParsers.toLocalDateTime(batch.timestamp(i))));
+                setDouble(ps, 2, batch.vibrationX(i));
+                setDouble(ps, 3, batch.vibrationY(i));
+                setDouble(ps, 4, batch.vibrationZ(i));
+                ps.setBoolean(5, batch.running(i));
+                ps.setString(6, batch.source(i));
+                setDouble(ps, 7, batch.f0Hz(i));
+                setDouble(ps, 8, batch.f0Psd(i));
+                setDouble(ps, 9, batch.vxRms(i));
+                setDouble(ps, 10, batch.vyRms(i));
+                // peakCount < 0 : colonne peaks_json vide dans le fichier
+                ps.setString(11, batch.peakCount(i) < 0 ? null
+                        : PeakArrayParser.format(batch.peakFreqs(), batch.peakPsd(), batch.peakOffset(i), batch.peakCount(i)));
+                for (int band = 0; band < SpectralBatch.BAND_COLUMNS.length; band++) {
+                    setDouble(ps, 12 + band, batch.band(i, band));
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return size;
+            }
+        });
+        return size;
+    }
+
+    // Lignes d'une source dans [from, to[ (secondes) : remplacées par une nouvelle extraction
+    @Transactional
+    public int deleteBySource(String source, long from, long to) {
+        return jdbcTemplate.update("DELETE FROM spectral_features WHERE source = ? AND timestamp >= ? AND timestamp < ?",
+                source, Timestamp.valueOf(FastParsers.toLocalDateTime(from)), Timestamp.valueOf(FastParsers.toLocalDateTime(to)));
+    }
+
+    // NaN = valeur absente
+    private static void setDouble(PreparedStatement ps, int index, double value) throws SQLException {
+        if (Double.isNaN(value)) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.entity.SpectralFeature;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SpectralFeatureRepository extends JpaRepository<SpectralFeature, Long> {
+    List<SpectralFeature> findByTimestampBetweenOrderByTimestampAsc(LocalDateTime from, LocalDateTime to, Pageable pageable);
+
+    List<SpectralFeature> findAllByOrderByTimestampDesc(Pageable pageable);
+}
@@ -0,0 +1,226 @@
+package com.monprojet.factory.repository;
+
+import com.microsoft.sqlserver.jdbc.ISQLServerBulkData;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopy;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopyOptions;
+import com.microsoft.sqlserver.jdbc.SQLServerConnection;
+import com.monprojet.factory.service.CompresseurBatch;
+import com.monprojet.factory.service.EquipmentBatch;
+import com.monprojet.factory.service.SpectralBatch;
+import com.monprojet.factory.utils.FastParsers;
+import com.monprojet.factory.utils.PeakArrayParser;
+import org.springframework.jdbc.UncategorizedSQLException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Mode SQL Server : les lots sont envoyés avec SQLServerBulkCopy (protocole BULK INSERT),
+// sans passer par des requêtes INSERT ligne à ligne.
+public class SqlServerBulkCopyLoader implements TelemetryBulkLoader {
+
+    private static final String[] COMPRESSEUR_COLUMNS = {
+            "equipment_id", "sensor_id", "timestamp", "pressure", "current_value", "vibration_x", "vibration_y", "vibration_z"
+    };
+    private static final int[] COMPRESSEUR_TYPES = {
+            Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE
+    };
+    private static final String[] EQUIPMENT_COLUMNS = {
+            "timestamp", "temperature", "pressure", "vibration", "humidity", "equipment", "location", "faulty"
+    };
+    private static final int[] EQUIPMENT_TYPES = {
+            Types.TIMESTAMP, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.VARCHAR, Types.VARCHAR, Types.BIT
+    };
+
+    private static final String[] SPECTRAL_COLUMNS = {
+            "timestamp", "vibration_x", "vibration_y", "vibration_z", "running", "source",
+            "f0_hz", "f0_psd", "vx_rms", "vy_rms", "peaks_json",
+            "band_0_10", "band_10_50", "band_50_100", "band_100_200", "band_200_500", "band_500_1000", "band_1000_2000"
+    };
+    private static final int[] SPECTRAL_TYPES = {
+            Types.TIMESTAMP, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.BIT, Types.VARCHAR,
+            Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.NVARCHAR,
+            Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE
+    };
+
+    private final DataSource dataSource;
+    private final int timeoutSeconds;
+
+    public SqlServerBulkCopyLoader(DataSource dataSource, int timeoutSeconds) {
+        this.dataSource = dataSource;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public int loadCompresseur(CompresseurBatch batch) {
+        return write("COMPRESSEURDATA", new BatchBulkData(COMPRESSEUR_COLUMNS, COMPRESSEUR_TYPES, batch.size()) {
+            @Override
+            Object[] row(int i) {
+                return new Object[]{
+                        id(batch.equipmentId(i)),
+                        id(batch.sensorId(i)),
+                        timestamp(batch.timestamp(i)),
+                        value(batch.pressure(i)),
+                        value(batch.current(i)),
+                        value(batch.vibrationX(i)),
+                        value(batch.vibrationY(i)),
+                        value(batch.vibrationZ(i))
+                };
+            }
+        });
+    }
+
+    @Override
+    public int loadEquipment(EquipmentBatch batch) {
+        return write("equipment_data", new BatchBulkData(EQUIPMENT_COLUMNS, EQUIPMENT_TYPES, batch.size()) {
+            @Override
+            Object[] row(int i) {
+                return new Object[]{
+                        timestamp(batch.timestamp(i)),
+                        batch.temperature(i),
+                        batch.pressure(i),
+                        batch.vibration(i),
+                        batch.humidity(i),
+                        batch.equipment(i),
+                        batch.location(i),
+                        batch.faulty(i)
+                };
+            }
+        });
+    }
+
+    @Override
+    public int loadSpectral(SpectralBatch batch) {
+        return write("spectral_features", new BatchBulkData(SPECTRAL_COLUMNS, SPECTRAL_TYPES, batch.size()) {
+            @Override
+            Object[] row(int i) {
+                Object[] row = new Object[SPECTRAL_COLUMNS.length];
+                row[0] = timestamp(batch.timestamp(i));
+                row[1] = value(batch.vibrationX(i));
+                row[2] = value(batch.vibrationY(i));
+                row[3] = value(batch.vibrationZ(i));
+                row[4] = batch.running(i);
+                row[5] = batch.source(i);
+                row[6] = value(batch.f0Hz(i));
+                row[7] = value(batch.f0Psd(i));
+                row[8] = value(batch.vxRms(i));
+                row[9] = value(batch.vyRms(i));
+                row[10] = batch.peakCount(i) < 0 ? null
+                        : PeakArrayParser.format(batch.peakFreqs(), batch.peakPsd(), batch.peakOffset(i), batch.peakCount(i));
+                for (int band = 0; band < SpectralBatch.BAND_COLUMNS.length; band++) {
+                    row[11 + band] = value(batch.band(i, band));
+                }
+                return row;
+            }
+        });
+    }
+
+    @Override
+    public String getMode() {
+        return "bulk-copy";
+    }
+
+    private int write(String table, BatchBulkData data) {
+        if (data.size == 0) {
+            return 0;
+        }
+        try (Connection connection = dataSource.getConnection();
+             SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(connection.unwrap(SQLServerConnection.class))) {
+            SQLServerBulkCopyOptions options = new SQLServerBulkCopyOptions();
+            options.setBatchSize(data.size);
+            options.setBulkCopyTimeout(timeoutSeconds);
+            options.setKeepNulls(true);
+            // Un lot = une transaction, comme en mode JDBC
+            options.setUseInternalTransaction(connection.getAutoCommit());
+            bulkCopy.setBulkCopyOptions(options);
+            bulkCopy.setDestinationTableName(table);
+            for (int column = 1; column <= data.names.length; column++) {
+                bulkCopy.addColumnMapping(column, data.names[column - 1]);
+            }
+            bulkCopy.writeToServer(data);
+            return data.size;
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Bulk copy " + table, null, e);
+        }
+    }
+
+    private static Timestamp timestamp(long epochSecond) {
+        return Timestamp.valueOf(FastParsers.toLocalDateTime(epochSecond));
+    }
+
+    // CompresseurBatch.NO_ID = NULL
+    private static Long id(long id) {
+        return id == CompresseurBatch.NO_ID ? null : id;
+    }
+
+    // NaN = valeur absente
+    private static Double value(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    // Source bulk copy qui parcourt un lot en colonnes (ordinaux 1..n)
+    private abstract static class BatchBulkData implements ISQLServerBulkData {
+        private final String[] names;
+        private final int[] types;
+        private final int size;
+        private int current = -1;
+
+        BatchBulkData(String[] names, int[] types, int size) {
+            this.names = names;
+            this.types = types;
+            this.size = size;
+        }
+
+        abstract Object[] row(int i);
+
+        @Override
+        public Set<Integer> getColumnOrdinals() {
+            Set<Integer> ordinals = new LinkedHashSet<>();
+            for (int column = 1; column <= names.length; column++) {
+                ordinals.add(column);
+            }
+            return ordinals;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return names[column - 1];
+        }
+
+        @Override
+        public int getColumnType(int column) {
+            return types[column - 1];
+        }
+
+        @Override
+        public int getPrecision(int column) {
+            switch (types[column - 1]) {
+                case Types.VARCHAR:
+                    return 255;
+                case Types.NVARCHAR:
+                    return 4000;
+                default:
+                    return 0;
+            }
+        }
+
+        @Override
+        public int getScale(int column) {
+            return 0;
+        }
+
+        @Override
+        public Object[] getRowData() {
+            return row(current);
+        }
+
+        @Override
+        public boolean next() {
+            return ++current < size;
+        }
+    }
+}
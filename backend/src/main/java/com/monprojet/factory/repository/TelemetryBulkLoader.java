@@ -0,0 +1,19 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.service.CompresseurBatch;
+import com.monprojet.factory.service.EquipmentBatch;
+import com.monprojet.factory.service.SpectralBatch;
+
+// Chargement en masse des lots de télémétrie (COMPRESSEURDATA, equipment_data, spectral_features).
+// Deux implémentations : bulk copy SQL Server, ou lots JDBC portables (toute base, y compris embarquée).
+public interface TelemetryBulkLoader {
+
+    // Retourne le nombre de lignes écrites ; un lot = une transaction
+    int loadCompresseur(CompresseurBatch batch);
+
+    int loadEquipment(EquipmentBatch batch);
+
+    int loadSpectral(SpectralBatch batch);
+
+    String getMode();
+}
@@ -0,0 +1,80 @@
+package com.monprojet.factory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Suppression ensembliste des mesures par plage de temps, un lot borné par transaction :
+// un DELETE par lot sur l'index du temps, jamais d'entités chargées ni de verrou tenu pendant toute la purge
+@Repository
+public class TelemetryPurgeRepository {
+
+    public enum Table {
+        COMPRESSEUR("COMPRESSEURDATA", "COMPRESSEURDATA_ARCHIVE", "equipment_id",
+                "equipment_id, sensor_id, timestamp, pressure, current_value, vibration_x, vibration_y, vibration_z"),
+        EQUIPMENT("equipment_data", "equipment_data_archive", "equipment",
+                "timestamp, temperature, pressure, vibration, humidity, equipment, location, faulty");
+
+        private final String name;
+        private final String archive;
+        // Colonne de la série (compresseur ou équipement) : filtre optionnel des suppressions
+        private final String seriesColumn;
+        private final String columns;
+
+        Table(String name, String archive, String seriesColumn, String columns) {
+            this.name = name;
+            this.archive = archive;
+            this.seriesColumn = seriesColumn;
+            this.columns = columns;
+        }
+    }
+
+    // Série des mesures sans série (colonne NULL) : le compresseur historique dans COMPRESSEURDATA
+    public static final Object UNASSIGNED = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TelemetryPurgeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Supprime (et archive si demandé) les chunkRows plus anciennes mesures de [from, to[, série optionnelle
+    // (nom d'équipement pour equipment_data, equipment_id pour COMPRESSEURDATA, UNASSIGNED pour la colonne NULL).
+    // Retourne le nombre de lignes supprimées : moins de chunkRows = plage vide.
+    @Transactional
+    public int deleteChunk(Table table, LocalDateTime from, LocalDateTime to, Object series, int chunkRows, boolean archive) {
+        String filter = series == null ? ""
+                : series == UNASSIGNED ? " AND " + table.seriesColumn + " IS NULL"
+                : " AND " + table.seriesColumn + " = ?";
+        List<Object> params = new ArrayList<>(List.of(Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        if (series != null && series != UNASSIGNED) {
+            params.add(series);
+        }
+        // Borne haute du lot : chunkRows-ième horodatage de la plage (lu sur l'index), lot entier jusqu'à cette date
+        List<Object> boundParams = new ArrayList<>(params);
+        boundParams.add(chunkRows - 1);
+        List<Timestamp> bound = jdbcTemplate.queryForList("SELECT timestamp FROM " + table.name
+                + " WHERE timestamp >= ? AND timestamp < ?" + filter
+                + " ORDER BY timestamp OFFSET ? ROWS FETCH NEXT 1 ROWS ONLY", Timestamp.class, boundParams.toArray());
+        String where;
+        if (bound.isEmpty()) {
+            where = " WHERE timestamp >= ? AND timestamp < ?" + filter;
+        } else {
+            where = " WHERE timestamp >= ? AND timestamp <= ?" + filter;
+            params.set(1, bound.get(0));
+        }
+        if (archive) {
+            List<Object> archiveParams = new ArrayList<>();
+            archiveParams.add(Timestamp.valueOf(LocalDateTime.now()));
+            archiveParams.addAll(params);
+            jdbcTemplate.update("INSERT INTO " + table.archive + " (" + table.columns + ", archived_at) SELECT "
+                    + table.columns + ", ? FROM " + table.name + where, archiveParams.toArray());
+        }
+        return jdbcTemplate.update("DELETE FROM " + table.name + where, params.toArray());
+    }
+}
@@ -0,0 +1,173 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.service.RollupAccumulator;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lecture et mise à jour incrémentale de telemetry_rollups en JDBC (un MERGE par seau)
+@Repository
+public class TelemetryRollupRepository {
+
+    // Un seul MERGE par seau : cumul si le seau existe, insertion sinon. Sous SQL Server, HOLDLOCK garde la clé
+    // verrouillée de la recherche à l'écriture : deux fusions simultanées ne peuvent pas insérer le même seau
+    // (clé unique uk_telemetry_rollups_bucket en dernier recours). %s : indication de verrou selon la base.
+    private static final String MERGE_SQL = "MERGE INTO telemetry_rollups%s AS t "
+            + "USING (VALUES (CAST(? AS VARCHAR(128)), CAST(? AS INT), CAST(? AS VARCHAR(32)), CAST(? AS DATETIME2), "
+            + "CAST(? AS FLOAT), CAST(? AS FLOAT), CAST(? AS FLOAT), CAST(? AS FLOAT), CAST(? AS BIGINT), "
+            + "CAST(? AS DATETIME2), CAST(? AS DATETIME2))) "
+            + "AS s (series_key, bucket_seconds, channel, bucket_start, min_value, max_value, sum_value, sum_squares, "
+            + "sample_count, first_at, last_at) "
+            + "ON t.series_key = s.series_key AND t.bucket_seconds = s.bucket_seconds AND t.channel = s.channel "
+            + "AND t.bucket_start = s.bucket_start "
+            + "WHEN MATCHED THEN UPDATE SET "
+            + "min_value = CASE WHEN t.min_value <= s.min_value THEN t.min_value ELSE s.min_value END, "
+            + "max_value = CASE WHEN t.max_value >= s.max_value THEN t.max_value ELSE s.max_value END, "
+            + "sum_value = t.sum_value + s.sum_value, sum_squares = t.sum_squares + s.sum_squares, "
+            + "sample_count = t.sample_count + s.sample_count, "
+            + "first_at = CASE WHEN t.first_at IS NOT NULL AND t.first_at <= s.first_at THEN t.first_at ELSE s.first_at END, "
+            + "last_at = CASE WHEN t.last_at IS NOT NULL AND t.last_at >= s.last_at THEN t.last_at ELSE s.last_at END "
+            + "WHEN NOT MATCHED THEN INSERT (series_key, bucket_seconds, channel, bucket_start, min_value, max_value, "
+            + "sum_value, sum_squares, sample_count, first_at, last_at) VALUES (s.series_key, s.bucket_seconds, s.channel, "
+            + "s.bucket_start, s.min_value, s.max_value, s.sum_value, s.sum_squares, s.sample_count, s.first_at, s.last_at);";
+    private static final int FETCH_SIZE = 10_000;
+
+    // Un seau lu en base (first/last : première et dernière mesure, en secondes)
+    public interface BucketConsumer {
+        void accept(String channel, long start, double min, double max, double sum, double sumSquares, long count,
+                    long first, long last);
+    }
+
+    // Une ligne à écrire : canal c d'un seau cumulé
+    private static final class Cell {
+        private final RollupAccumulator.Group group;
+        private final int channel;
+
+        Cell(RollupAccumulator.Group group, int channel) {
+            this.group = group;
+            this.channel = channel;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    // MERGE adapté à la base, déterminé à la première fusion
+    private volatile String mergeSql;
+
+    public TelemetryRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Fusionne les seaux cumulés avec ceux déjà en base, dans une seule transaction
+    @Transactional
+    public int merge(List<RollupAccumulator.Group> groups) {
+        List<Cell> cells = new ArrayList<>();
+        for (RollupAccumulator.Group group : groups) {
+            for (int c = 0; c < group.channelCount(); c++) {
+                if (group.count(c) > 0) {
+                    cells.add(new Cell(group, c));
+                }
+            }
+        }
+        if (cells.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(mergeSql(), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Cell cell = cells.get(i);
+                RollupAccumulator.Group group = cell.group;
+                int c = cell.channel;
+                ps.setString(1, group.series());
+                ps.setInt(2, group.bucketSeconds());
+                ps.setString(3, group.channel(c));
+                ps.setTimestamp(4, Timestamp.valueOf(FastParsers.toLocalDateTime(group.start())));
+                ps.setDouble(5, group.min(c));
+                ps.setDouble(6, group.max(c));
+                ps.setDouble(7, group.sum(c));
+                ps.setDouble(8, group.sumSquares(c));
+                ps.setLong(9, group.count(c));
+                ps.setTimestamp(10, Timestamp.valueOf(FastParsers.toLocalDateTime(group.first())));
+                ps.setTimestamp(11, Timestamp.valueOf(FastParsers.toLocalDateTime(group.last())));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return cells.size();
+            }
+        });
+        return cells.size();
+    }
+
+    private String mergeSql() {
+        String sql = mergeSql;
+        if (sql == null) {
+            Boolean sqlServer = jdbcTemplate.execute((ConnectionCallback<Boolean>) con ->
+                    con.getMetaData().getDatabaseProductName().contains("Microsoft SQL Server"));
+            sql = String.format(MERGE_SQL, Boolean.TRUE.equals(sqlServer) ? " WITH (HOLDLOCK)" : "");
+            mergeSql = sql;
+        }
+        return sql;
+    }
+
+    // Seaux d'une série dans [from, to[ (secondes), triés par canal puis par date
+    public void forEachBucket(String series, int bucketSeconds, long from, long to, BucketConsumer consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT channel, bucket_start, min_value, max_value, sum_value, "
+                    + "sum_squares, sample_count, first_at, last_at FROM telemetry_rollups "
+                    + "WHERE series_key = ? AND bucket_seconds = ? AND bucket_start >= ? AND bucket_start < ? "
+                    + "ORDER BY channel, bucket_start");
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setString(1, series);
+            ps.setInt(2, bucketSeconds);
+            ps.setTimestamp(3, Timestamp.valueOf(FastParsers.toLocalDateTime(from)));
+            ps.setTimestamp(4, Timestamp.valueOf(FastParsers.toLocalDateTime(to)));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            long start = FastParsers.toEpochSecond(rs.getTimestamp(2).toLocalDateTime());
+            // Seaux écrits avant l'ajout de first_at / last_at : bornes du seau
+            Timestamp first = rs.getTimestamp(8);
+            Timestamp last = rs.getTimestamp(9);
+            consumer.accept(rs.getString(1), start, rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getDouble(6),
+                    rs.getLong(7), first != null ? FastParsers.toEpochSecond(first.toLocalDateTime()) : start,
+                    last != null ? FastParsers.toEpochSecond(last.toLocalDateTime()) : start + bucketSeconds - 1);
+        });
+    }
+
+    // Étendue d'une série à la résolution donnée : {premier seau, fin du dernier seau}, null si aucune donnée
+    public long[] findExtent(String series, int bucketSeconds) {
+        return jdbcTemplate.queryForObject("SELECT MIN(bucket_start), MAX(bucket_start) FROM telemetry_rollups "
+                        + "WHERE series_key = ? AND bucket_seconds = ?",
+                (rs, i) -> rs.getTimestamp(1) == null ? null : new long[]{
+                        FastParsers.toEpochSecond(rs.getTimestamp(1).toLocalDateTime()),
+                        FastParsers.toEpochSecond(rs.getTimestamp(2).toLocalDateTime()) + bucketSeconds},
+                series, bucketSeconds);
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM telemetry_rollups", Long.class);
+        return count != null ? count : 0;
+    }
+
+    // Série exacte ("compresseur") ou préfixe ("equipment:%")
+    @Transactional
+    public int deleteSeries(String seriesPattern) {
+        return jdbcTemplate.update("DELETE FROM telemetry_rollups WHERE series_key LIKE ?", seriesPattern);
+    }
+
+    // Seaux de la série (toutes résolutions) qui commencent dans [from, to[ (secondes)
+    @Transactional
+    public int deleteRange(String seriesPattern, long from, long to) {
+        return jdbcTemplate.update("DELETE FROM telemetry_rollups WHERE series_key LIKE ? AND bucket_start >= ? AND bucket_start < ?",
+                seriesPattern, Timestamp.valueOf(FastParsers.toLocalDateTime(from)), Timestamp.valueOf(FastParsers.toLocalDateTime(to)));
+    }
+}
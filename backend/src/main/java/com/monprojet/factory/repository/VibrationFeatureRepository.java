@@ -0,0 +1,203 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.dto.VibrationFeatureDto;
+import com.monprojet.factory.service.VibrationFeatureAccumulator;
+import com.monprojet.factory.spectral.RunningMoments;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lecture et mise à jour incrémentale de vibration_features en JDBC.
+// Les moments ne s'additionnent pas comme des sommes : les fenêtres déjà en base sont relues, fusionnées en mémoire
+// (RunningMoments.merge) puis réécrites ; les nouvelles sont insérées.
+@Repository
+public class VibrationFeatureRepository {
+
+    private static final String SELECT_SQL = "SELECT channel, window_start, sample_count, mean_value, m2, m3, m4, "
+            + "min_value, max_value, first_at, last_at FROM vibration_features "
+            + "WHERE series_key = ? AND window_seconds = ? AND window_start >= ? AND window_start <= ?";
+    private static final String UPDATE_SQL = "UPDATE vibration_features SET sample_count = ?, mean_value = ?, m2 = ?, m3 = ?, "
+            + "m4 = ?, min_value = ?, max_value = ?, rms = ?, peak = ?, peak_to_peak = ?, crest_factor = ?, skewness = ?, "
+            + "kurtosis = ?, first_at = ?, last_at = ? "
+            + "WHERE series_key = ? AND window_seconds = ? AND channel = ? AND window_start = ?";
+    private static final String INSERT_SQL = "INSERT INTO vibration_features (sample_count, mean_value, m2, m3, m4, "
+            + "min_value, max_value, rms, peak, peak_to_peak, crest_factor, skewness, kurtosis, first_at, last_at, "
+            + "series_key, window_seconds, channel, window_start) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Une ligne à écrire : voie c d'une fenêtre cumulée
+    private record Cell(VibrationFeatureAccumulator.Window window, int channel) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VibrationFeatureRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Fusionne les fenêtres cumulées avec celles déjà en base.
+    // Les fusions sont sérialisées dans l'application : deux imports simultanés ne peuvent pas insérer la même fenêtre.
+    @Transactional
+    public synchronized int merge(int windowSeconds, List<VibrationFeatureAccumulator.Window> windows) {
+        Map<String, Map<Long, VibrationFeatureAccumulator.Window>> bySeries = new HashMap<>();
+        for (VibrationFeatureAccumulator.Window window : windows) {
+            bySeries.computeIfAbsent(window.series(), k -> new HashMap<>()).put(window.start(), window);
+        }
+        List<Cell> updates = new ArrayList<>();
+        List<Cell> inserts = new ArrayList<>();
+        String[] channels = VibrationFeatureAccumulator.CHANNELS;
+        for (Map.Entry<String, Map<Long, VibrationFeatureAccumulator.Window>> entry : bySeries.entrySet()) {
+            Map<Long, VibrationFeatureAccumulator.Window> byStart = entry.getValue();
+            long from = byStart.keySet().stream().mapToLong(Long::longValue).min().orElseThrow();
+            long to = byStart.keySet().stream().mapToLong(Long::longValue).max().orElseThrow();
+            Map<Long, boolean[]> stored = new HashMap<>();
+            jdbcTemplate.query(SELECT_SQL, rs -> {
+                VibrationFeatureAccumulator.Window window = byStart.get(FastParsers.toEpochSecond(rs.getTimestamp(2).toLocalDateTime()));
+                int channel = Arrays.asList(channels).indexOf(rs.getString(1));
+                if (window == null || channel < 0) {
+                    return;
+                }
+                window.merge(channel, new RunningMoments(rs.getLong(3), rs.getDouble(4), rs.getDouble(5), rs.getDouble(6),
+                                rs.getDouble(7), rs.getDouble(8), rs.getDouble(9)),
+                        FastParsers.toEpochSecond(rs.getTimestamp(10).toLocalDateTime()),
+                        FastParsers.toEpochSecond(rs.getTimestamp(11).toLocalDateTime()));
+                stored.computeIfAbsent(window.start(), k -> new boolean[channels.length])[channel] = true;
+            }, entry.getKey(), windowSeconds, timestamp(from), timestamp(to));
+            for (VibrationFeatureAccumulator.Window window : byStart.values()) {
+                boolean[] existing = stored.get(window.start());
+                for (int c = 0; c < channels.length; c++) {
+                    if (window.moments(c).count() == 0) {
+                        continue;
+                    }
+                    (existing != null && existing[c] ? updates : inserts).add(new Cell(window, c));
+                }
+            }
+        }
+        write(UPDATE_SQL, updates, windowSeconds);
+        write(INSERT_SQL, inserts, windowSeconds);
+        return updates.size() + inserts.size();
+    }
+
+    // Fenêtres d'une série dans [from, to[ (secondes), par date puis par voie ; channel null = toutes les voies
+    public List<VibrationFeatureDto> find(String series, int windowSeconds, String channel, long from, long to, int limit) {
+        String sql = "SELECT channel, window_start, sample_count, mean_value, rms, peak, peak_to_peak, crest_factor, "
+                + "skewness, kurtosis FROM vibration_features WHERE series_key = ? AND window_seconds = ? "
+                + (channel != null ? "AND channel = ? " : "")
+                + "AND window_start >= ? AND window_start < ? ORDER BY window_start, channel";
+        List<Object> params = new ArrayList<>(List.of(series, windowSeconds));
+        if (channel != null) {
+            params.add(channel);
+        }
+        params.add(timestamp(from));
+        params.add(timestamp(to));
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setMaxRows(limit);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, (rs, i) -> {
+            VibrationFeatureDto dto = new VibrationFeatureDto();
+            dto.setSeries(series);
+            dto.setChannel(rs.getString(1));
+            dto.setWindowStart(rs.getTimestamp(2).toLocalDateTime());
+            dto.setWindowSeconds(windowSeconds);
+            dto.setCount(rs.getLong(3));
+            dto.setMean(rs.getDouble(4));
+            dto.setRms(nullable(rs, 5));
+            dto.setPeak(nullable(rs, 6));
+            dto.setPeakToPeak(nullable(rs, 7));
+            dto.setCrestFactor(nullable(rs, 8));
+            dto.setSkewness(nullable(rs, 9));
+            dto.setKurtosis(nullable(rs, 10));
+            return dto;
+        });
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vibration_features", Long.class);
+        return count != null ? count : 0;
+    }
+
+    // Série exacte ("compresseur:3") ou préfixe ("compresseur%")
+    @Transactional
+    public int deleteSeries(String seriesPattern) {
+        return jdbcTemplate.update("DELETE FROM vibration_features WHERE series_key LIKE ?", seriesPattern);
+    }
+
+    // Fenêtres de la série qui commencent dans [from, to[ (secondes)
+    @Transactional
+    public int deleteRange(String seriesPattern, long from, long to) {
+        return jdbcTemplate.update("DELETE FROM vibration_features WHERE series_key LIKE ? AND window_start >= ? AND window_start < ?",
+                seriesPattern, timestamp(from), timestamp(to));
+    }
+
+    private void write(String sql, List<Cell> cells, int windowSeconds) {
+        if (cells.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Cell cell = cells.get(i);
+                VibrationFeatureAccumulator.Window window = cell.window();
+                RunningMoments m = window.moments(cell.channel());
+                ps.setLong(1, m.count());
+                ps.setDouble(2, m.mean());
+                ps.setDouble(3, m.m2());
+                ps.setDouble(4, m.m3());
+                ps.setDouble(5, m.m4());
+                ps.setDouble(6, m.min());
+                ps.setDouble(7, m.max());
+                setFeature(ps, 8, m.rms());
+                setFeature(ps, 9, m.peak());
+                setFeature(ps, 10, m.peakToPeak());
+                setFeature(ps, 11, m.crestFactor());
+                setFeature(ps, 12, m.skewness());
+                setFeature(ps, 13, m.kurtosis());
+                ps.setTimestamp(14, timestamp(window.first()));
+                ps.setTimestamp(15, timestamp(window.last()));
+                ps.setString(16, window.series());
+                ps.setInt(17, windowSeconds);
+                ps.setString(18, VibrationFeatureAccumulator.CHANNELS[cell.channel()]);
+                ps.setTimestamp(19, timestamp(window.start()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return cells.size();
+            }
+        });
+    }
+
+    // Indicateur non défini (NaN) : NULL en base
+    private static void setFeature(PreparedStatement ps, int index, double value) throws SQLException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+
+    private static Double nullable(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Timestamp timestamp(long seconds) {
+        return Timestamp.valueOf(FastParsers.toLocalDateTime(seconds));
+    }
+}
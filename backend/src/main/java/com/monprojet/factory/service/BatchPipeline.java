@@ -0,0 +1,173 @@
+package com.monprojet.factory.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+// Pipeline producteur/consommateurs borné : le thread appelant (parseur) remplit des lots,
+// N threads d'écriture les consomment via une file de capacité fixe.
+// Les lots écrits sont recyclés : la mémoire est bornée par (capacité de la file + nombre d'écrivains + 1) lots.
+// finish() et abort() ne rendent la main qu'une fois les écrivains arrêtés : après eux, plus aucune écriture en cours.
+public class BatchPipeline<B extends BatchPipeline.Batch> {
+
+    // Lot réutilisable (colonnes primitives)
+    public interface Batch {
+        int size();
+        boolean isFull();
+        void clear();
+    }
+
+    private static final long OFFER_TIMEOUT_MS = 200;
+    private static final long STOP_LOG_SECONDS = 10;
+
+    private final Object endOfStream = new Object();
+    private final BlockingQueue<Object> queue;
+    private final Queue<B> free = new ConcurrentLinkedQueue<>();
+    private final ExecutorService writers;
+    private final List<Future<Long>> results = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Supplier<B> batchFactory;
+    private final ToIntFunction<B> sink;
+    private final int writerThreads;
+    private final String name;
+    private B current;
+
+    public BatchPipeline(String name, int writerThreads, int queueCapacity,
+                         Supplier<B> batchFactory, ToIntFunction<B> sink) {
+        this.writerThreads = Math.max(1, writerThreads);
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchFactory = batchFactory;
+        this.sink = sink;
+        this.current = batchFactory.get();
+
+        AtomicInteger counter = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(this.writerThreads, r -> {
+            Thread t = new Thread(r, name + "-writer-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < this.writerThreads; i++) {
+            results.add(writers.submit(this::drain));
+        }
+    }
+
+    // Lot en cours de remplissage par le parseur
+    public B current() {
+        return current;
+    }
+
+    // Transmet le lot courant aux écrivains s'il est plein ; bloque si les écrivains sont en retard (contre-pression)
+    public void flushIfFull() throws InterruptedException {
+        if (current.isFull()) {
+            flush();
+        }
+    }
+
+    // Vide le dernier lot, attend la fin des écrivains et retourne le nombre de lignes écrites
+    public long finish() throws InterruptedException {
+        try {
+            if (current.size() > 0) {
+                flush();
+            }
+            for (int i = 0; i < writerThreads; i++) {
+                enqueue(endOfStream);
+            }
+            long written = 0;
+            for (Future<Long> result : results) {
+                try {
+                    written += result.get();
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                }
+            }
+            rethrowFailure();
+            return written;
+        } finally {
+            stopWriters();
+        }
+    }
+
+    // Interrompt le pipeline (erreur côté parseur) : les lots en attente sont abandonnés, le lot en cours
+    // d'écriture est mené à son terme ou interrompu, et l'appel attend l'arrêt des écrivains
+    public void abort() {
+        failure.compareAndSet(null, new CancellationException("Import interrompu"));
+        queue.clear();
+        stopWriters();
+    }
+
+    // Un écrivain dans un appel JDBC peut ignorer l'interruption : on attend qu'il en sorte, même si le thread
+    // appelant est lui-même interrompu (l'interruption lui est rendue ensuite)
+    private void stopWriters() {
+        writers.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (writers.awaitTermination(STOP_LOG_SECONDS, TimeUnit.SECONDS)) {
+                    break;
+                }
+                System.err.println("Pipeline " + name + " : attente de la fin des écritures en cours");
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush() throws InterruptedException {
+        enqueue(current);
+        B recycled = free.poll();
+        current = recycled != null ? recycled : batchFactory.get();
+    }
+
+    private void enqueue(Object batch) throws InterruptedException {
+        while (!queue.offer(batch, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            rethrowFailure();
+        }
+        rethrowFailure();
+    }
+
+    @SuppressWarnings("unchecked")
+    private long drain() throws InterruptedException {
+        long written = 0;
+        while (true) {
+            // Arrêt demandé pendant une écriture dont l'appel a effacé l'interruption : ne pas se rebloquer sur la file
+            if (writers.isShutdown()) {
+                return written;
+            }
+            Object item = queue.take();
+            if (item == endOfStream) {
+                return written;
+            }
+            B batch = (B) item;
+            if (failure.get() == null) {
+                try {
+                    written += sink.applyAsInt(batch);
+                } catch (Throwable e) {
+                    // Error comprise (OutOfMemoryError...) : sans échec enregistré, le parseur attendrait indéfiniment
+                    failure.compareAndSet(null, e);
+                }
+            }
+            // Lot rendu au parseur (ou ignoré si on vide la file après une erreur)
+            batch.clear();
+            free.offer(batch);
+        }
+    }
+
+    private void rethrowFailure() {
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t != null) {
+            throw new IllegalStateException(t.getMessage(), t);
+        }
+    }
+}
@@ -1,64 +1,193 @@
  package com.monprojet.factory.service;
 
-import com.monprojet.factory.entity.CompresseurData;
-import com.monprojet.factory.repository.CompresseurDataRepository;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import com.monprojet.factory.dto.ImportResult;
+import com.monprojet.factory.exception.InvalidCSVFormatException;
+import com.monprojet.factory.repository.TelemetryBulkLoader;
+import com.monprojet.factory.utils.CsvTokenizer;
+import com.monprojet.factory.utils.FastParsers;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class CSVService {
 
     @Autowired
-    private CompresseurDataRepository compresseurDataRepo;
+    private TelemetryBulkLoader bulkLoader;
 
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    @Autowired
+    private CompresseurDeduplicationService deduplicationService;
 
-    // Méthode modifiée pour prendre en charge un seul fichier compressé
-    public void importCompressorData(File compressorFullDataFile) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(compressorFullDataFile), StandardCharsets.UTF_8));
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+    @Autowired(required = false)
+    private List<TelemetryIngestListener> ingestListeners;
 
-            // Parcourir chaque ligne du fichier CSV
-            for (CSVRecord record : csvParser) {
-                try {
-                    CompresseurData data = new CompresseurData();
-                    // On suppose que le fichier contient un timestamp, de la pression, du courant, et des vibrations
-                    String timestampString = record.get("timestamp");
-                    if (timestampString == null || timestampString.isEmpty()) {
-                        continue;  // Ignore les enregistrements sans timestamp
-                    }
-                    data.setTimestamp(LocalDateTime.parse(timestampString, formatter));
-
-                    // Validation et récupération des autres valeurs
-                    try {
-                        data.setPressure(Double.parseDouble(record.get("pressure")));  // Basse fréquence
-                        data.setCurrentValue(Double.parseDouble(record.get("current")));  // Haute fréquence
-                        data.setVibrationX(Double.parseDouble(record.get("vibration_x")));  // Haute fréquence
-                        data.setVibrationY(Double.parseDouble(record.get("vibration_y")));  // Haute fréquence
-                        data.setVibrationZ(Double.parseDouble(record.get("vibration_z")));  // Haute fréquence
-                    } catch (NumberFormatException e) {
-                        System.err.println("Erreur de format dans les données CSV pour le timestamp : " + timestampString);
-                        continue;  // Ignore les enregistrements avec des données mal formatées
+    // Nombre de lignes envoyées par lot (une transaction par lot)
+    @Value("${factory.import.batch-size:1000}")
+    private int batchSize;
+
+    // Threads d'écriture alimentés par le parseur
+    @Value("${factory.import.writer-threads:4}")
+    private int writerThreads;
+
+    // Nombre maximal de lots en attente entre le parseur et les écrivains
+    @Value("${factory.import.queue-capacity:8}")
+    private int queueCapacity;
+
+    // Lecture directe du flux (multipart ou autre) : pas de fichier temporaire
+    public ImportResult importCompressorData(InputStream compressorFullData, ImportJob job) throws IOException {
+        return importCompressorData(compressorFullData, job, null, null);
+    }
+
+    // equipmentId / sensorId : série des lignes sans colonnes equipment_id / sensor_id (null = compresseur historique).
+    // Un fichier qui a ces colonnes peut mêler plusieurs compresseurs : chaque ligne est rattachée à sa série.
+    public ImportResult importCompressorData(InputStream compressorFullData, ImportJob job,
+                                             Long equipmentId, Long sensorId) throws IOException {
+        long defaultEquipment = equipmentId != null ? equipmentId : CompresseurBatch.NO_ID;
+        long defaultSensor = sensorId != null ? sensorId : CompresseurBatch.NO_ID;
+        long start = System.currentTimeMillis();
+        long parsed = 0;
+        long rejected = 0;
+        long inserted;
+        // Doublons : même horodatage plus haut dans le fichier (parseur) ou déjà en base (écrivains)
+        AtomicLong duplicates = new AtomicLong();
+        CompresseurDeduplicationService.Session dedup = deduplicationService.openSession();
+        TelemetryIngestListener.Session ingest = TelemetryIngestListener.beginAll(ingestListeners, "compresseur");
+        BatchPipeline<CompresseurBatch> pipeline = new BatchPipeline<>(
+                "compresseur-import", writerThreads, queueCapacity, () -> new CompresseurBatch(batchSize), batch -> {
+                    int written;
+                    if (dedup != null) {
+                        // Un autre import ne peut pas écrire les mêmes plages entre la vérification et l'insertion
+                        try (CompresseurDeduplicationService.Lease lease = deduplicationService.lock(batch)) {
+                            int existing = dedup.removeExisting(batch);
+                            duplicates.addAndGet(existing);
+                            job.addDuplicates(existing);
+                            if (batch.size() == 0) {
+                                return 0;
+                            }
+                            written = bulkLoader.loadCompresseur(batch);
+                        }
+                    } else {
+                        written = bulkLoader.loadCompresseur(batch);
                     }
+                    job.addInserted(written);
+                    ingest.compresseurWritten(batch);
+                    return written;
+                });
+
+        try (Reader reader = new InputStreamReader(compressorFullData, StandardCharsets.UTF_8)) {
+            CsvTokenizer csv = new CsvTokenizer(reader);
+            if (!csv.next()) {
+                throw new InvalidCSVFormatException("Fichier CSV vide");
+            }
+            // Position des colonnes d'après l'en-tête
+            List<String> headers = Arrays.asList(csv.toArray());
+            int timestampColumn = column(headers, "timestamp");
+            int pressureColumn = column(headers, "pressure");
+            int currentColumn = headers.contains("current") ? column(headers, "current") : column(headers, "current_value");
+            int vibrationXColumn = column(headers, "vibration_x");
+            int vibrationYColumn = column(headers, "vibration_y");
+            int vibrationZColumn = column(headers, "vibration_z");
+            int equipmentColumn = headers.indexOf("equipment_id");
+            int sensorColumn = headers.indexOf("sensor_id");
+
+            // Parcourir chaque ligne du fichier CSV
+            while (csv.next()) {
+                parsed++;
+                job.addParsed(1);
+                // On suppose que le fichier contient un timestamp, de la pression, du courant, et des vibrations
+                if (csv.isEmpty(timestampColumn)) {
+                    rejected++;
+                    job.reject(csv.recordNumber(), RejectedRowSink.Reason.MISSING_TIMESTAMP, csv.recordText());
+                    continue;  // Ignore les enregistrements sans timestamp
+                }
+                long timestamp = csv.getTimestamp(timestampColumn);
+                if (timestamp == FastParsers.INVALID_TIMESTAMP) {
+                    rejected++;
+                    job.reject(csv.recordNumber(), RejectedRowSink.Reason.INVALID_TIMESTAMP, csv.recordText());
+                    continue;
+                }
 
-                    // Sauvegarde des données dans la base
-                    compresseurDataRepo.save(data);
-                } catch (Exception e) {
-                    System.err.println("Erreur lors du traitement de l'enregistrement CSV : " + e.getMessage());
+                // Validation et récupération des autres valeurs
+                double pressure = csv.getDouble(pressureColumn);  // Basse fréquence
+                double current = csv.getDouble(currentColumn);  // Haute fréquence
+                double vibrationX = csv.getDouble(vibrationXColumn);  // Haute fréquence
+                double vibrationY = csv.getDouble(vibrationYColumn);  // Haute fréquence
+                double vibrationZ = csv.getDouble(vibrationZColumn);  // Haute fréquence
+                if (Double.isNaN(pressure) || Double.isNaN(current) || Double.isNaN(vibrationX)
+                        || Double.isNaN(vibrationY) || Double.isNaN(vibrationZ)) {
+                    rejected++;
+                    job.reject(csv.recordNumber(), RejectedRowSink.Reason.INVALID_NUMBER, csv.recordText());
+                    continue;  // Ignore les enregistrements avec des données mal formatées
                 }
+
+                long equipment = id(csv, equipmentColumn, defaultEquipment);
+                long sensor = id(csv, sensorColumn, defaultSensor);
+                if (equipment < 0 || sensor < 0) {
+                    rejected++;
+                    job.reject(csv.recordNumber(), RejectedRowSink.Reason.INVALID_NUMBER, csv.recordText());
+                    continue;
+                }
+
+                if (dedup != null && !dedup.firstInFile(equipment, timestamp)) {
+                    duplicates.incrementAndGet();
+                    job.addDuplicates(1);
+                    continue;  // Horodatage répété dans le fichier
+                }
+
+                // Sauvegarde des données dans la base par lots, via les threads d'écriture
+                pipeline.current().add(equipment, sensor, timestamp, pressure, current, vibrationX, vibrationY, vibrationZ);
+                pipeline.flushIfFull();
             }
+            inserted = pipeline.finish();
         } catch (IOException e) {
+            pipeline.abort();
             System.err.println("Erreur lors de la lecture du fichier CSV : " + e.getMessage());
             throw e;  // Propagation de l'exception après journalisation
+        } catch (InterruptedException e) {
+            pipeline.abort();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import du compresseur interrompu");
+        } catch (RuntimeException e) {
+            pipeline.abort();
+            throw e;
+        } finally {
+            // Écrivains arrêtés (finish ou abort) : plus aucune écriture de cet import
+            if (dedup != null) {
+                dedup.close();
+            }
+            ingest.close();
+        }
+
+        ImportResult result = new ImportResult(parsed, inserted, rejected, duplicates.get(), System.currentTimeMillis() - start);
+        System.out.println("Import compresseur terminé : " + result);
+        return result;
+    }
+
+    // Identifiant de la colonne (absente ou vide : valeur par défaut), -1 s'il est invalide
+    private static long id(CsvTokenizer csv, int column, long defaultId) {
+        if (column < 0 || column >= csv.fieldCount() || csv.isEmpty(column)) {
+            return defaultId;
+        }
+        try {
+            long id = Long.parseLong(csv.getString(column).trim());
+            return id > 0 ? id : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int column(List<String> headers, String name) {
+        int index = headers.indexOf(name);
+        if (index < 0) {
+            throw new InvalidCSVFormatException("Colonne manquante dans le fichier CSV : " + name);
         }
+        return index;
     }
 }
 
@@ -0,0 +1,90 @@
+package com.monprojet.factory.service;
+
+import java.util.function.IntPredicate;
+
+// Lot de mesures compresseur en colonnes primitives (aucun objet par ligne).
+// Chaque ligne porte sa série : équipement et capteur (NO_ID = compresseur historique, sans équipement rattaché).
+public class CompresseurBatch implements BatchPipeline.Batch {
+
+    public static final long NO_ID = 0;
+
+    private final long[] equipmentIds;
+    private final long[] sensorIds;
+    private final long[] timestamps;
+    private final double[] pressure;
+    private final double[] current;
+    private final double[] vibrationX;
+    private final double[] vibrationY;
+    private final double[] vibrationZ;
+    private int size;
+
+    public CompresseurBatch(int capacity) {
+        equipmentIds = new long[capacity];
+        sensorIds = new long[capacity];
+        timestamps = new long[capacity];
+        pressure = new double[capacity];
+        current = new double[capacity];
+        vibrationX = new double[capacity];
+        vibrationY = new double[capacity];
+        vibrationZ = new double[capacity];
+    }
+
+    // timestamp en secondes (voir FastParsers.parseTimestamp)
+    public void add(long timestamp, double p, double c, double vx, double vy, double vz) {
+        add(NO_ID, NO_ID, timestamp, p, c, vx, vy, vz);
+    }
+
+    public void add(long equipmentId, long sensorId, long timestamp, double p, double c, double vx, double vy, double vz) {
+        equipmentIds[size] = equipmentId;
+        sensorIds[size] = sensorId;
+        timestamps[size] = timestamp;
+        pressure[size] = p;
+        current[size] = c;
+        vibrationX[size] = vx;
+        vibrationY[size] = vy;
+        vibrationZ[size] = vz;
+        size++;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean isFull() { return size == timestamps.length; }
+
+    @Override
+    public void clear() { size = 0; }
+
+    // Compacte le lot en ne gardant que les lignes retenues ; retourne le nombre de lignes retirées
+    public int retainIf(IntPredicate keep) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!keep.test(i)) {
+                continue;
+            }
+            if (kept != i) {
+                equipmentIds[kept] = equipmentIds[i];
+                sensorIds[kept] = sensorIds[i];
+                timestamps[kept] = timestamps[i];
+                pressure[kept] = pressure[i];
+                current[kept] = current[i];
+                vibrationX[kept] = vibrationX[i];
+                vibrationY[kept] = vibrationY[i];
+                vibrationZ[kept] = vibrationZ[i];
+            }
+            kept++;
+        }
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    public long equipmentId(int i) { return equipmentIds[i]; }
+    public long sensorId(int i) { return sensorIds[i]; }
+    public long timestamp(int i) { return timestamps[i]; }
+    public double pressure(int i) { return pressure[i]; }
+    public double current(int i) { return current[i]; }
+    public double vibrationX(int i) { return vibrationX[i]; }
+    public double vibrationY(int i) { return vibrationY[i]; }
+    public double vibrationZ(int i) { return vibrationZ[i]; }
+}
@@ -0,0 +1,237 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.utils.BloomFilter;
+import com.monprojet.factory.utils.LongHashSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Dédoublonnage des mesures compresseur par horodatage, au sein de chaque compresseur (équipement).
+// Un filtre de Bloom en mémoire écarte sans requête les horodatages jamais vus ;
+// seuls les candidats positifs (vrais doublons ou faux positifs) sont vérifiés en base, par lot.
+// Vérification et écriture d'un lot se font sous le verrou des plages (compresseur, heure) qu'il couvre :
+// deux imports simultanés qui se recouvrent ne peuvent pas insérer tous les deux la même mesure.
+// Le filtre n'est (re)chargé qu'à l'ouverture d'une session quand aucune autre n'est ouverte : une session en cours
+// alimente toujours le filtre que verront les suivantes. Un filtre périmé (après suppression) ou saturé ne donne que
+// des faux positifs, vérifiés en base : il reste utilisé tant que des imports tournent.
+// Taille bornée par max-rows : au-delà, le taux de faux positifs augmente au lieu de la mémoire.
+@Service
+public class CompresseurDeduplicationService {
+
+    private static final int LOCK_STRIPES = 256;
+    private static final long LOCK_SPAN_SECONDS = 3600;
+
+    private final CompresseurDataBatchRepository repository;
+    private final boolean enabled;
+    private final long expectedRows;
+    private final long maxRows;
+    private final double falsePositiveRate;
+
+    // Filtre partagé par les sessions ouvertes ; remplacé sous le moniteur, quand openSessions vaut 0
+    private BloomFilter filter;
+    private boolean stale;
+    // Incrémenté sous le moniteur, décrémenté à la fermeture de chaque session
+    private final AtomicInteger openSessions = new AtomicInteger();
+    // Nombre d'horodatages ajoutés au filtre depuis son chargement
+    private final AtomicLong filterSize = new AtomicLong();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public CompresseurDeduplicationService(CompresseurDataBatchRepository repository,
+                                           @Value("${factory.import.dedup.enabled:true}") boolean enabled,
+                                           @Value("${factory.import.dedup.expected-rows:10000000}") long expectedRows,
+                                           @Value("${factory.import.dedup.max-rows:50000000}") long maxRows,
+                                           @Value("${factory.import.dedup.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.maxRows = Math.max(1, maxRows);
+        this.expectedRows = Math.min(expectedRows, this.maxRows);
+        this.falsePositiveRate = falsePositiveRate;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Une session par import, à fermer une fois ses écritures terminées ; null si le dédoublonnage est désactivé
+    public Session openSession() {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            if (openSessions.get() == 0 && needsLoad()) {
+                load();
+            }
+            openSessions.incrementAndGet();
+            return new Session(filter);
+        }
+    }
+
+    // À appeler après une suppression massive : le filtre sera rechargé au prochain import lancé seul
+    public synchronized void reset() {
+        stale = true;
+    }
+
+    // Jamais chargé, périmé, ou saturé alors qu'il peut encore grandir
+    private boolean needsLoad() {
+        return filter == null || stale
+                || (filterSize.get() > filter.getExpectedInsertions() && filter.getExpectedInsertions() < maxRows);
+    }
+
+    // Un seul parcours de la table, aucune session ouverte : aucune insertion ne peut lui échapper
+    private void load() {
+        long start = System.currentTimeMillis();
+        long existing = repository.count();
+        long size = Math.min(maxRows, Math.max(expectedRows, existing * 2));
+        if (existing > maxRows) {
+            System.err.println("Dédoublonnage : " + existing + " mesures pour un filtre borné à " + maxRows
+                    + " (factory.import.dedup.max-rows), plus de vérifications en base");
+        }
+        BloomFilter loaded = new BloomFilter(size, falsePositiveRate);
+        AtomicLong loadedCount = new AtomicLong();
+        repository.forEachTimestamp((equipmentId, ts) -> {
+            loaded.put(key(equipmentId, ts));
+            loadedCount.incrementAndGet();
+        });
+        filterSize.set(loadedCount.get());
+        filter = loaded;
+        stale = false;
+        System.out.println("Filtre de dédoublonnage chargé : " + loadedCount.get() + " horodatages, "
+                + (loaded.getBitCount() >>> 23) + " Mo, en " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // Verrous des plages couvertes par le lot, pris dans l'ordre des indices (pas d'interblocage entre écrivains)
+    public Lease lock(CompresseurBatch batch) {
+        boolean[] needed = new boolean[LOCK_STRIPES];
+        for (int i = 0; i < batch.size(); i++) {
+            long range = key(batch.equipmentId(i), Math.floorDiv(batch.timestamp(i), LOCK_SPAN_SECONDS));
+            needed[(int) Math.floorMod(range ^ (range >>> 32), (long) LOCK_STRIPES)] = true;
+        }
+        int[] held = new int[LOCK_STRIPES];
+        int count = 0;
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            if (needed[stripe]) {
+                locks[stripe].lock();
+                held[count++] = stripe;
+            }
+        }
+        return new Lease(held, count);
+    }
+
+    // Verrous d'un lot, rendus une fois son écriture validée en base
+    public final class Lease implements AutoCloseable {
+        private final int[] held;
+        private final int count;
+
+        private Lease(int[] held, int count) {
+            this.held = held;
+            this.count = count;
+        }
+
+        @Override
+        public void close() {
+            for (int i = count - 1; i >= 0; i--) {
+                locks[held[i]].unlock();
+            }
+        }
+    }
+
+    // Clé (équipement, horodatage) ; égale à l'horodatage pour le compresseur historique
+    static long key(long equipmentId, long timestamp) {
+        return timestamp + equipmentId * 0x9E3779B97F4A7C15L;
+    }
+
+    public class Session implements AutoCloseable {
+
+        private final BloomFilter bloom;
+        // Clés déjà vues dans ce fichier (thread du parseur uniquement)
+        private final LongHashSet seen = new LongHashSet(4096);
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Session(BloomFilter bloom) {
+            this.bloom = bloom;
+        }
+
+        // Après l'arrêt des écrivains de l'import : le filtre peut de nouveau être remplacé
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                openSessions.decrementAndGet();
+            }
+        }
+
+        // Thread du parseur : false si l'horodatage figure déjà plus haut dans le même fichier, pour ce compresseur
+        public boolean firstInFile(long timestamp) {
+            return firstInFile(CompresseurBatch.NO_ID, timestamp);
+        }
+
+        public boolean firstInFile(long equipmentId, long timestamp) {
+            return seen.add(key(equipmentId, timestamp));
+        }
+
+        // Thread d'écriture : retire du lot les lignes déjà présentes en base ; retourne le nombre retiré.
+        // Les lots d'un même import ne partagent aucun horodatage (voir firstInFile) ; entre imports, appeler
+        // sous lock(batch) jusqu'à la fin de l'écriture du lot.
+        public int removeExisting(CompresseurBatch batch) {
+            int size = batch.size();
+            long[] candidates = null;
+            int[] candidateRows = null;
+            int candidateCount = 0;
+            for (int i = 0; i < size; i++) {
+                if (bloom.mightContain(key(batch.equipmentId(i), batch.timestamp(i)))) {
+                    if (candidates == null) {
+                        candidates = new long[size];
+                        candidateRows = new int[size];
+                    }
+                    candidateRows[candidateCount] = i;
+                    candidates[candidateCount++] = batch.timestamp(i);
+                }
+            }
+
+            int removed = 0;
+            if (candidateCount > 0) {
+                // Vérification en base compresseur par compresseur (un lot n'en contient en général qu'un)
+                LongHashSet existing = new LongHashSet(16);
+                boolean[] checked = new boolean[candidateCount];
+                for (int c = 0; c < candidateCount; c++) {
+                    if (checked[c]) {
+                        continue;
+                    }
+                    long equipmentId = batch.equipmentId(candidateRows[c]);
+                    long[] times = new long[candidateCount - c];
+                    int count = 0;
+                    for (int d = c; d < candidateCount; d++) {
+                        if (!checked[d] && batch.equipmentId(candidateRows[d]) == equipmentId) {
+                            checked[d] = true;
+                            times[count++] = candidates[d];
+                        }
+                    }
+                    LongHashSet found = repository.findExistingTimestamps(
+                            equipmentId == CompresseurBatch.NO_ID ? null : equipmentId, times, count);
+                    for (int d = 0; d < count; d++) {
+                        if (found.contains(times[d])) {
+                            existing.add(key(equipmentId, times[d]));
+                        }
+                    }
+                }
+                if (existing.size() > 0) {
+                    removed = batch.retainIf(i -> !existing.contains(key(batch.equipmentId(i), batch.timestamp(i))));
+                }
+            }
+
+            // Le filtre est mis à jour avant l'insertion : un échec d'écriture ne laisse que des faux positifs
+            for (int i = 0; i < batch.size(); i++) {
+                bloom.put(key(batch.equipmentId(i), batch.timestamp(i)));
+            }
+            filterSize.addAndGet(batch.size());
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.monprojet.factory.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.spectral.Gaps;
+import com.monprojet.factory.spectral.SampleClock;
+import com.monprojet.factory.spectral.WelchPsd;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+// Export JSON des mesures du compresseur écrit au fil d'un curseur JDBC : chaque ligne est sérialisée
+// dès sa lecture, la mémoire reste constante quel que soit le nombre de lignes et les premiers octets partent aussitôt.
+// Avec factory.storage.backend=segment, les mesures viennent des segments (CompresseurDataBatchRepository.scan), sans id.
+@Service
+public class CompresseurExportService {
+
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    // %s : filtre de série (compresseur historique ou equipment_id = ?), lu sur l'index (equipment_id, timestamp, id)
+    private static final String SELECT_SQL = "SELECT id, timestamp, pressure, current_value, vibration_x, vibration_y, vibration_z "
+            + "FROM COMPRESSEURDATA WHERE %s AND timestamp >= ? AND timestamp < ? ORDER BY timestamp, id";
+    // Champs JSON des mesures, dans l'ordre des colonnes du SELECT
+    private static final String[] FIELDS = {"pressure", "currentValue", "vibrationX", "vibrationY", "vibrationZ"};
+    private static final int VIBRATION_X = 2;
+    private static final int VIBRATION_Y = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CompresseurDataBatchRepository batchRepository;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final double sampleRate;
+    private final WelchPsd welch;
+    private final int windowSamples;
+    private final double maxMissingRatio;
+
+    public CompresseurExportService(JdbcTemplate jdbcTemplate, CompresseurDataBatchRepository batchRepository,
+                                    ObjectMapper objectMapper,
+                                    @Value("${factory.export.fetch-size:5000}") int fetchSize,
+                                    @Value("${factory.spectrum.sample-rate-hz:1.0}") double sampleRate,
+                                    @Value("${factory.spectrum.nperseg:256}") int nperseg,
+                                    @Value("${factory.spectrum.noverlap:128}") int noverlap,
+                                    @Value("${factory.spectrum.window-samples:1024}") int windowSamples,
+                                    @Value("${factory.spectrum.max-missing-ratio:0.2}") double maxMissingRatio) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchRepository = batchRepository;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.sampleRate = sampleRate;
+        this.welch = new WelchPsd(nperseg, noverlap, sampleRate);
+        if (windowSamples < nperseg) {
+            throw new IllegalArgumentException("factory.spectrum.window-samples doit valoir au moins nperseg (" + nperseg + ")");
+        }
+        if (!(maxMissingRatio >= 0 && maxMissingRatio <= 1)) {
+            throw new IllegalArgumentException("factory.spectrum.max-missing-ratio doit être compris entre 0 et 1");
+        }
+        this.windowSamples = windowSamples;
+        this.maxMissingRatio = maxMissingRatio;
+    }
+
+    // Format de /data-simple : valeurs absentes remplacées par 0, RMS glissant des axes X et Y (voir writeWithPsd),
+    // état de marche par défaut
+    public void writeSimple(OutputStream out, Long equipmentId, LocalDateTime from, LocalDateTime to) throws IOException {
+        SampleClock clock = clock(equipmentId, from, to);
+        WelchPsd rated = welch.withSampleRate(clock.sampleRate());
+        SlidingSpectrum spectrumX = new SlidingSpectrum(rated, windowSamples, maxMissingRatio);
+        SlidingSpectrum spectrumY = new SlidingSpectrum(rated, windowSamples, maxMissingRatio);
+        stream(out, equipmentId, from, to, (json, row) -> {
+            writeCommonFields(json, row, true);
+            int slots = advance(clock, row);
+            spectrumX.add(slots, row.values[VIBRATION_X]);
+            spectrumY.add(slots, row.values[VIBRATION_Y]);
+            writeValue(json, "vxRMS", spectrumX.rms(), true);
+            writeValue(json, "vyRMS", spectrumY.rms(), true);
+            json.writeBooleanField("running", true);
+        });
+    }
+
+    // Format de /data-with-psd : mesures, RMS et spectres (Welch) des axes X et Y sur les windowSamples dernières mesures.
+    // RMS = moyenne quadratique de la fenêtre, composante continue comprise, comme les indicateurs vibratoires (null sans
+    // mesure) ; spectres recalculés toutes les nperseg - noverlap mesures, null tant que la fenêtre compte moins de nperseg
+    // mesures ou plus de max-missing-ratio mesures absentes.
+    // Fenêtres prises sur la grille du pas mesuré sur les horodatages (SampleClock) : lignes manquantes comptées comme
+    // absentes et comblées par interpolation avant le spectre, fenêtre vidée après un trou trop long.
+    public void writeWithPsd(OutputStream out, Long equipmentId, LocalDateTime from, LocalDateTime to) throws IOException {
+        SampleClock clock = clock(equipmentId, from, to);
+        WelchPsd rated = welch.withSampleRate(clock.sampleRate());
+        double[] freqs = rated.frequencies();
+        SlidingSpectrum spectrumX = new SlidingSpectrum(rated, windowSamples, maxMissingRatio);
+        SlidingSpectrum spectrumY = new SlidingSpectrum(rated, windowSamples, maxMissingRatio);
+        stream(out, equipmentId, from, to, (json, row) -> {
+            writeCommonFields(json, row, false);
+            int slots = advance(clock, row);
+            spectrumX.add(slots, row.values[VIBRATION_X]);
+            spectrumY.add(slots, row.values[VIBRATION_Y]);
+            writeValue(json, "vxRMS", spectrumX.rms(), false);
+            writeValue(json, "vyRMS", spectrumY.rms(), false);
+            json.writeBooleanField("running", true); // Simulé
+            json.writeFieldName("spectrumVX");
+            writeSpectrum(json, freqs, spectrumX.spectrum());
+            json.writeFieldName("spectrumVY");
+            writeSpectrum(json, freqs, spectrumY.spectrum());
+        });
+    }
+
+    // Pas mesuré sur les premières mesures exportées, tenu pour tout l'export
+    private SampleClock clock(Long equipmentId, LocalDateTime from, LocalDateTime to) {
+        long[] probe = batchRepository.firstTimestamps(equipmentId, FastParsers.toEpochSecond(from != null ? from : MIN_TIME),
+                FastParsers.toEpochSecond(to != null ? to : MAX_TIME), SampleClock.PROBE_ROWS);
+        return new SampleClock(SampleClock.measure(probe, probe.length, sampleRate), (int) (maxMissingRatio * welch.nperseg()));
+    }
+
+    // Rangs de la ligne sur la grille (mesure suivante si elle n'est pas datée)
+    private static int advance(SampleClock clock, Row row) {
+        return row.timestamp != null ? clock.advance(FastParsers.toEpochSecond(row.timestamp)) : 1;
+    }
+
+    // Fenêtre glissante d'un axe sur la grille du pas mesuré : tampon de 2 x window mesures recopié de moitié quand
+    // il est plein (coût amorti constant par mesure), spectre recalculé à chaque pas de Welch sur une copie comblée.
+    // Somme des carrés tenue à jour à chaque mesure, recalculée à chaque recopie (pas de dérive d'arrondi).
+    private static final class SlidingSpectrum {
+        private final WelchPsd welch;
+        private final int window;
+        private final double maxMissingRatio;
+        private final double[] samples;
+        private final double[] filled;
+        private final double[] psd;
+        private int end;
+        private int sinceUpdate;
+        private boolean computed;
+        private boolean available;
+        private double sumSquares;
+        private int count;
+
+        SlidingSpectrum(WelchPsd welch, int window, double maxMissingRatio) {
+            this.welch = welch;
+            this.window = window;
+            this.maxMissingRatio = maxMissingRatio;
+            this.samples = new double[2 * window];
+            this.filled = new double[window];
+            this.psd = new double[welch.bins()];
+        }
+
+        // Mesure placée slots rangs après la précédente (SampleClock.advance) : slots - 1 mesures absentes avant elle,
+        // fenêtre vidée au début d'une nouvelle série
+        void add(int slots, double value) {
+            if (slots == SampleClock.RESTART) {
+                end = 0;
+                sumSquares = 0;
+                count = 0;
+                computed = false;
+                sinceUpdate = 0;
+                slots = 1;
+            }
+            for (int missing = Math.min(slots - 1, window); missing > 0; missing--) {
+                push(Double.NaN);
+            }
+            push(value);
+        }
+
+        private void push(double value) {
+            if (end == samples.length) {
+                System.arraycopy(samples, end - window, samples, 0, window);
+                end = window;
+                sumSquares = 0;
+                count = 0;
+                for (int i = 0; i < window; i++) {
+                    accumulate(samples[i], 1);
+                }
+            }
+            samples[end++] = value;
+            accumulate(value, 1);
+            // Mesure sortie de la fenêtre
+            if (end > window) {
+                accumulate(samples[end - window - 1], -1);
+            }
+            sinceUpdate++;
+        }
+
+        private void accumulate(double value, int sign) {
+            if (!Double.isNaN(value)) {
+                sumSquares += sign * value * value;
+                count += sign;
+            }
+        }
+
+        // RMS des mesures présentes dans la fenêtre, NaN s'il n'y en a aucune
+        double rms() {
+            return count == 0 ? Double.NaN : Math.sqrt(Math.max(0, sumSquares) / count);
+        }
+
+        double[] spectrum() {
+            int length = Math.min(end, window);
+            if (welch.segments(length) == 0) {
+                return null;
+            }
+            if (!computed || sinceUpdate >= welch.step()) {
+                System.arraycopy(samples, end - length, filled, 0, length);
+                available = Gaps.count(filled, 0, length) <= maxMissingRatio * length;
+                if (available) {
+                    Gaps.fill(filled, 0, length);
+                    welch.compute(filled, 0, length, psd);
+                }
+                sinceUpdate = 0;
+                computed = true;
+            }
+            return available ? psd : null;
+        }
+    }
+
+    // Une mesure exportée, réutilisée d'une ligne à l'autre : id null pour les segments, valeurs absentes en NaN
+    private static final class Row {
+        private Long id;
+        private LocalDateTime timestamp;
+        private final double[] values = new double[FIELDS.length];
+    }
+
+    private interface RowWriter {
+        void write(JsonGenerator json, Row row) throws IOException;
+    }
+
+    // Mesures d'un seul compresseur (null = compresseur historique) : les séries ne sont jamais mélangées
+    private void stream(OutputStream out, Long equipmentId, LocalDateTime from, LocalDateTime to, RowWriter rowWriter)
+            throws IOException {
+        Row row = new Row();
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartArray();
+            if (batchRepository.isSegmentBackend()) {
+                batchRepository.scan(equipmentId, FastParsers.toEpochSecond(from != null ? from : MIN_TIME),
+                        FastParsers.toEpochSecond(to != null ? to : MAX_TIME), Integer.MAX_VALUE, batch -> {
+                            for (int i = 0; i < batch.size(); i++) {
+                                row.id = null;
+                                row.timestamp = FastParsers.toLocalDateTime(batch.timestamp(i));
+                                row.values[0] = batch.pressure(i);
+                                row.values[1] = batch.current(i);
+                                row.values[VIBRATION_X] = batch.vibrationX(i);
+                                row.values[VIBRATION_Y] = batch.vibrationY(i);
+                                row.values[4] = batch.vibrationZ(i);
+                                writeRow(json, row, rowWriter);
+                            }
+                        });
+                json.writeEndArray();
+                return;
+            }
+            jdbcTemplate.query(con -> {
+                // Curseur en avant seulement, lu par paquets de fetchSize lignes
+                String sql = String.format(SELECT_SQL, equipmentId == null ? "equipment_id IS NULL" : "equipment_id = ?");
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                int index = 1;
+                if (equipmentId != null) {
+                    ps.setLong(index++, equipmentId);
+                }
+                ps.setTimestamp(index, Timestamp.valueOf(from != null ? from : MIN_TIME));
+                ps.setTimestamp(index + 1, Timestamp.valueOf(to != null ? to : MAX_TIME));
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                row.id = rs.getLong(1);
+                Timestamp timestamp = rs.getTimestamp(2);
+                row.timestamp = timestamp != null ? timestamp.toLocalDateTime() : null;
+                for (int c = 0; c < FIELDS.length; c++) {
+                    row.values[c] = value(rs, 3 + c);
+                }
+                writeRow(json, row, rowWriter);
+            });
+            json.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeRow(JsonGenerator json, Row row, RowWriter rowWriter) {
+        try {
+            json.writeStartObject();
+            rowWriter.write(json, row);
+            json.writeEndObject();
+        } catch (IOException e) {
+            // Client déconnecté : on arrête la lecture
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // NULL = NaN
+    private static double value(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    private static void writeCommonFields(JsonGenerator json, Row row, boolean zeroIfNull) throws IOException {
+        if (row.id != null) {
+            json.writeNumberField("id", row.id);
+        } else {
+            json.writeNullField("id");
+        }
+        json.writeStringField("timestamp", row.timestamp != null ? row.timestamp.toString() : "");
+        for (int c = 0; c < FIELDS.length; c++) {
+            writeValue(json, FIELDS[c], row.values[c], zeroIfNull);
+        }
+    }
+
+    private static void writeValue(JsonGenerator json, String name, double value, boolean zeroIfNull) throws IOException {
+        if (!Double.isNaN(value)) {
+            json.writeNumberField(name, value);
+        } else if (zeroIfNull) {
+            json.writeNumberField(name, 0.0);
+        } else {
+            json.writeNullField(name);
+        }
+    }
+
+    private static void writeSpectrum(JsonGenerator json, double[] freqs, double[] psd) throws IOException {
+        if (psd == null) {
+            json.writeNull();
+            return;
+        }
+        json.writeStartObject();
+        json.writeFieldName("freqs");
+        json.writeArray(freqs, 0, freqs.length);
+        json.writeFieldName("psd");
+        json.writeArray(psd, 0, psd.length);
+        json.writeEndObject();
+    }
+}
@@ -0,0 +1,193 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.dto.KeysetPage;
+import com.monprojet.factory.entity.CompresseurData;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.CompresseurDataRepository;
+import com.monprojet.factory.utils.FastParsers;
+import com.monprojet.factory.utils.TimeCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Lecture des mesures compresseur par plages de temps, toujours bornée en nombre de lignes.
+// Table COMPRESSEURDATA via JPA, ou segments (factory.storage.backend=segment) via CompresseurDataBatchRepository.scan
+@Service
+public class CompresseurQueryService {
+
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    // Première fenêtre lue pour les dernières mesures des segments, élargie jusqu'à en contenir assez
+    private static final long LATEST_WINDOW_SECONDS = 3600;
+
+    private final CompresseurDataRepository repository;
+    private final CompresseurDataBatchRepository batchRepository;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public CompresseurQueryService(CompresseurDataRepository repository, CompresseurDataBatchRepository batchRepository,
+                                   @Value("${factory.query.default-limit:5000}") int defaultLimit,
+                                   @Value("${factory.query.max-limit:50000}") int maxLimit) {
+        this.repository = repository;
+        this.batchRepository = batchRepository;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    // Mesures d'un compresseur (null = compresseur historique) par ordre chronologique dans [from, to[.
+    // cursor : reprend après la dernière ligne d'une page précédente (from est alors ignoré).
+    // Sans from ni cursor : les limit mesures les plus récentes avant to.
+    public KeysetPage<CompresseurData> findPage(Long equipmentId, LocalDateTime from, LocalDateTime to, Integer limit, String cursor) {
+        int size = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+        LocalDateTime end = to != null ? to : MAX_TIME;
+        if (batchRepository.isSegmentBackend()) {
+            return findSegmentPage(equipmentId, from, end, size, cursor);
+        }
+        // Une ligne de plus que demandé : indique s'il reste des données sans COUNT(*)
+        PageRequest page = PageRequest.of(0, size + 1);
+
+        List<CompresseurData> rows;
+        if (cursor != null && !cursor.isBlank()) {
+            TimeCursor after = TimeCursor.decode(cursor);
+            rows = equipmentId == null
+                    ? repository.findPageAfter(after.getTimestamp(), after.getId(), end, page)
+                    : repository.findEquipmentPageAfter(equipmentId, after.getTimestamp(), after.getId(), end, page);
+        } else if (from != null) {
+            rows = equipmentId == null
+                    ? repository.findPage(from, end, page)
+                    : repository.findEquipmentPage(equipmentId, from, end, page);
+        } else {
+            rows = new ArrayList<>(equipmentId == null
+                    ? repository.findLatest(end, page)
+                    : repository.findEquipmentLatest(equipmentId, end, page));
+            if (rows.size() > size) {
+                rows.remove(rows.size() - 1);
+            }
+            Collections.reverse(rows);
+            // Page de fin : le curseur sert à récupérer les mesures arrivées depuis
+            return new KeysetPage<>(rows, cursorAfter(rows), false);
+        }
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
+        return new KeysetPage<>(rows, cursorAfter(rows), hasMore);
+    }
+
+    // Segments : pas d'identifiant de ligne. Le curseur porte l'horodatage de la dernière ligne et, à la place de l'id,
+    // son rang parmi les mesures de la même seconde (les segments sont relus dans un ordre stable).
+    private KeysetPage<CompresseurData> findSegmentPage(Long equipmentId, LocalDateTime from, LocalDateTime to, int size,
+                                                        String cursor) {
+        long end = FastParsers.toEpochSecond(to);
+        if (cursor != null && !cursor.isBlank()) {
+            TimeCursor after = TimeCursor.decode(cursor);
+            return segmentPage(equipmentId, FastParsers.toEpochSecond(after.getTimestamp()), after.getId(), end, size);
+        }
+        if (from != null) {
+            return segmentPage(equipmentId, FastParsers.toEpochSecond(from), 0, end, size);
+        }
+        long[] stats = batchRepository.stats(equipmentId, FastParsers.toEpochSecond(MIN_TIME), end);
+        if (stats[0] == 0) {
+            return new KeysetPage<>(List.of(), null, false);
+        }
+        // Fenêtre de fin élargie (x4) jusqu'à contenir size mesures ou toute la série
+        long start = Math.max(stats[1], end - LATEST_WINDOW_SECONDS);
+        long span = LATEST_WINDOW_SECONDS;
+        while (start > stats[1] && batchRepository.stats(equipmentId, start, end)[0] < size) {
+            span *= 4;
+            start = Math.max(stats[1], end - span);
+        }
+        SegmentRows rows = new SegmentRows(start, 0, Integer.MAX_VALUE);
+        batchRepository.scan(equipmentId, start, end, Integer.MAX_VALUE, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                rows.add(batch, i);
+                if (rows.items.size() > size) {
+                    rows.items.removeFirst();
+                }
+            }
+        });
+        return new KeysetPage<>(new ArrayList<>(rows.items), rows.cursor(), false);
+    }
+
+    // Mesures de [start, end[ en sautant les `skip` premières de la seconde start (déjà livrées)
+    private KeysetPage<CompresseurData> segmentPage(Long equipmentId, long start, long skip, long end, int size) {
+        SegmentRows rows = new SegmentRows(start, skip, size + 1);
+        batchRepository.scan(equipmentId, start, end, (int) Math.min(Integer.MAX_VALUE, skip + size + 1), batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                rows.add(batch, i);
+            }
+        });
+        boolean hasMore = rows.items.size() > size;
+        if (hasMore) {
+            rows.items.removeLast();
+        }
+        return new KeysetPage<>(new ArrayList<>(rows.items), rows.cursor(), hasMore);
+    }
+
+    // Lignes lues dans les segments, avec le rang de la dernière retenue dans sa seconde
+    private static final class SegmentRows {
+        private final ArrayDeque<CompresseurData> items = new ArrayDeque<>();
+        private final long skipSecond;
+        private final int limit;
+        private long skip;
+        private long second = Long.MIN_VALUE;
+        private long rank;
+        private long lastRank;
+
+        SegmentRows(long skipSecond, long skip, int limit) {
+            this.skipSecond = skipSecond;
+            this.skip = skip;
+            this.limit = limit;
+        }
+
+        void add(CompresseurBatch batch, int i) {
+            long timestamp = batch.timestamp(i);
+            rank = timestamp == second ? rank + 1 : 1;
+            second = timestamp;
+            if (timestamp == skipSecond && skip > 0) {
+                skip--;
+                return;
+            }
+            if (items.size() < limit) {
+                items.addLast(toEntity(batch, i));
+                lastRank = rank;
+            }
+        }
+
+        String cursor() {
+            return items.isEmpty() ? null : new TimeCursor(items.getLast().getTimestamp(), lastRank).encode();
+        }
+    }
+
+    private static CompresseurData toEntity(CompresseurBatch batch, int i) {
+        CompresseurData data = new CompresseurData();
+        data.setEquipmentId(batch.equipmentId(i) == CompresseurBatch.NO_ID ? null : batch.equipmentId(i));
+        data.setSensorId(batch.sensorId(i) == CompresseurBatch.NO_ID ? null : batch.sensorId(i));
+        data.setTimestamp(FastParsers.toLocalDateTime(batch.timestamp(i)));
+        data.setPressure(nullIfNaN(batch.pressure(i)));
+        data.setCurrentValue(nullIfNaN(batch.current(i)));
+        data.setVibrationX(nullIfNaN(batch.vibrationX(i)));
+        data.setVibrationY(nullIfNaN(batch.vibrationY(i)));
+        data.setVibrationZ(nullIfNaN(batch.vibrationZ(i)));
+        return data;
+    }
+
+    private static Double nullIfNaN(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static String cursorAfter(List<CompresseurData> rows) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        CompresseurData last = rows.get(rows.size() - 1);
+        return new TimeCursor(last.getTimestamp(), last.getId()).encode();
+    }
+}
@@ -1,117 +1,267 @@
 package com.monprojet.factory.service;
 
-import com.monprojet.factory.entity.EquipmentData;
 import com.monprojet.factory.exception.CsvProcessingException;
 import com.monprojet.factory.exception.InvalidCSVFormatException;
-import com.monprojet.factory.repository.EquipmentDataRepository;
+import com.monprojet.factory.repository.TelemetryBulkLoader;
+import com.monprojet.factory.utils.CsvTokenizer;
+import com.monprojet.factory.utils.FastParsers;
+import com.monprojet.factory.utils.LineChunkReader;
+import com.monprojet.factory.utils.StringCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 @Service
 public class CsvImportService {
 
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final String[] EXPECTED_HEADERS = {
             "timestamp", "temperature", "pressure",
             "vibration", "humidity", "equipment", "location", "faulty"
     };
     private static final int MIN_TIME_GAP_SECONDS = 20;
+    private static final int STRING_CACHE_SIZE = 256;
+    private static final int READ_AHEAD_CHUNK = 64 * 1024;
 
-    private final EquipmentDataRepository repository;
-    private LocalDateTime lastRecordTime;
+    private final TelemetryBulkLoader bulkLoader;
+    private final ForkJoinPool parsePool;
+
+    // Optionnels, comme dans CSVService : sans écouteur (agrégats, cache...), l'import écrit seulement les lignes
+    @Autowired(required = false)
+    private List<TelemetryIngestListener> ingestListeners;
+
+    @Value("${factory.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${factory.import.writer-threads:4}")
+    private int writerThreads;
+
+    @Value("${factory.import.queue-capacity:8}")
+    private int queueCapacity;
+
+    // Au-delà de cette taille (décompressée, entrée par entrée pour une archive), le CSV est découpé et analysé en parallèle
+    @Value("${factory.import.parallel-threshold-bytes:1048576}")
+    private long parallelThresholdBytes;
+
+    @Value("${factory.import.parallel-chunk-bytes:1048576}")
+    private int parallelChunkBytes;
 
     @Autowired
-    public CsvImportService(EquipmentDataRepository repository) {
-        this.repository = repository;
+    public CsvImportService(TelemetryBulkLoader bulkLoader,
+                            @Qualifier("importParsePool") ForkJoinPool parsePool) {
+        this.bulkLoader = bulkLoader;
+        this.parsePool = parsePool;
     }
 
-    public void importCsv(MultipartFile file) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            processCsv(reader);
+    public void importCsv(InputStream input, ImportJob job) {
+        TelemetryIngestListener.Session ingest = TelemetryIngestListener.beginAll(ingestListeners, "equipment");
+        BatchPipeline<EquipmentBatch> pipeline = new BatchPipeline<>(
+                "equipment-import", writerThreads, queueCapacity, () -> new EquipmentBatch(batchSize), batch -> {
+                    int written = bulkLoader.loadEquipment(batch);
+                    job.addInserted(written);
+                    ingest.equipmentWritten(batch);
+                    return written;
+                });
+        try {
+            // Taille du fichier reçu inutilisable ici : compressée pour un .gz, celle de toute l'archive pour un .zip
+            BufferedInputStream buffered = new BufferedInputStream(input, READ_AHEAD_CHUNK);
+            if (reaches(buffered, parallelThresholdBytes)) {
+                processCsvParallel(buffered, job, pipeline);
+            } else {
+                processCsv(new InputStreamReader(buffered, StandardCharsets.UTF_8), job, pipeline);
+            }
+            pipeline.finish();
         } catch (Exception e) {
-            throw new CsvProcessingException("CSV processing failed: " + e.getMessage());
+            pipeline.abort();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new CsvProcessingException("CSV processing failed: " + e.getMessage(), e);
+        } finally {
+            ingest.close();
+        }
+    }
+
+    // true si le flux compte au moins size octets : lus en avance (au plus size) puis rendus au parseur
+    static boolean reaches(BufferedInputStream in, long size) throws IOException {
+        if (size <= 0) {
+            return true;
+        }
+        int limit = (int) Math.min(size, Integer.MAX_VALUE - 8);
+        in.mark(limit);
+        try {
+            byte[] scratch = new byte[READ_AHEAD_CHUNK];
+            long read = 0;
+            int n;
+            while (read < limit && (n = in.read(scratch, 0, (int) Math.min(scratch.length, limit - read))) > 0) {
+                read += n;
+            }
+            return read >= limit;
+        } finally {
+            in.reset();
         }
     }
 
-    private void processCsv(BufferedReader reader) {
+    // Mode séquentiel : lecture et validation ligne par ligne, par paquets de batchSize lignes
+    private void processCsv(Reader reader, ImportJob job, BatchPipeline<EquipmentBatch> pipeline) {
         try {
-            String headerLine = reader.readLine();
-            if (headerLine == null) throw new InvalidCSVFormatException("Empty CSV file");
-            validateHeaders(headerLine.split(","));
+            CsvTokenizer csv = new CsvTokenizer(reader);
+            if (!csv.next()) throw new InvalidCSVFormatException("Empty CSV file");
+            validateHeaders(csv);
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                processLine(line.split(","));
+            // État propre à cet import : deux imports simultanés ne se perturbent plus
+            TimeGapValidator gapValidator = new TimeGapValidator();
+            StringCache strings = new StringCache(STRING_CACHE_SIZE);
+            EquipmentBatch parsed = new EquipmentBatch(batchSize);
+            long record = 2;
+            while (csv.next()) {
+                parseLine(csv, parsed, strings);
+                if (parsed.isFull()) {
+                    record = acceptAll(parsed, record, gapValidator, job, pipeline);
+                    parsed.clear();
+                }
             }
+            acceptAll(parsed, record, gapValidator, job, pipeline);
         } catch (Exception e) {
-            throw new CsvProcessingException("Error reading CSV: " + e.getMessage());
+            throw new CsvProcessingException("Error reading CSV: " + e.getMessage(), e);
         }
     }
 
-    private void validateHeaders(String[] headers) {
-        if (!Arrays.equals(headers, EXPECTED_HEADERS)) {
-            throw new InvalidCSVFormatException("Invalid headers. Expected: "
-                    + Arrays.toString(EXPECTED_HEADERS));
+    // Mode parallèle : blocs découpés sur les fins de ligne, analysés sur le pool fork-join,
+    // puis fusionnés dans l'ordre du fichier pour appliquer la règle d'écart temporel.
+    private void processCsvParallel(InputStream input, ImportJob job, BatchPipeline<EquipmentBatch> pipeline) {
+        Deque<ForkJoinTask<EquipmentBatch>> inFlight = new ArrayDeque<>();
+        int maxInFlight = parsePool.getParallelism() * 2;
+        try {
+            LineChunkReader chunks = new LineChunkReader(input, parallelChunkBytes);
+            String headerLine = chunks.readLine();
+            if (headerLine == null) throw new InvalidCSVFormatException("Empty CSV file");
+            CsvTokenizer header = new CsvTokenizer(headerLine.toCharArray(), 0, headerLine.length());
+            header.next();
+            validateHeaders(header);
+
+            TimeGapValidator gapValidator = new TimeGapValidator();
+            long record = 2;
+            LineChunkReader.Chunk chunk;
+            while ((chunk = chunks.next()) != null) {
+                LineChunkReader.Chunk current = chunk;
+                inFlight.add(parsePool.submit(() -> parseChunk(current)));
+                if (inFlight.size() >= maxInFlight) {
+                    record = acceptAll(inFlight.poll().join(), record, gapValidator, job, pipeline);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                record = acceptAll(inFlight.poll().join(), record, gapValidator, job, pipeline);
+            }
+        } catch (Exception e) {
+            inFlight.forEach(task -> task.cancel(true));
+            throw new CsvProcessingException("Error reading CSV: " + e.getMessage(), e);
         }
     }
 
-    private void processLine(String[] fields) {
+    // Analyse d'un bloc : une entrée par ligne, marquée invalide si la ligne est rejetée
+    private EquipmentBatch parseChunk(LineChunkReader.Chunk chunk) {
+        CharBuffer text = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(chunk.getData(), 0, chunk.getLength()));
+        CsvTokenizer csv = new CsvTokenizer(text.array(), text.arrayOffset() + text.position(), text.remaining());
+        EquipmentBatch rows = new EquipmentBatch(batchSize, true);
+        StringCache strings = new StringCache(STRING_CACHE_SIZE);
         try {
-            EquipmentData data = mapToEquipment(fields);
-            validateTimeGap(data.getTimestamp());
-            repository.save(data);
-            lastRecordTime = data.getTimestamp();
-        } catch (Exception e) {
-            System.err.println("Skipped invalid line: " + Arrays.toString(fields));
+            while (csv.next()) {
+                parseLine(csv, rows, strings);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // impossible : le bloc est déjà en mémoire
         }
+        return rows;
     }
 
-    private EquipmentData mapToEquipment(String[] fields) {
-        return EquipmentData.builder()
-                .timestamp(parseTimestamp(fields[0]))
-                .temperature(parseDouble(fields[1]))
-                .pressure(parseDouble(fields[2]))
-                .vibration(parseDouble(fields[3]))
-                .humidity(parseDouble(fields[4]))
-                .equipment(fields[5])
-                .location(fields[6])
-                .faulty(parseBoolean(fields[7]))
-                .build();
+    // Lignes dans l'ordre du fichier ; firstRecord = numéro de la première (l'en-tête est l'enregistrement 1)
+    private long acceptAll(EquipmentBatch rows, long firstRecord, TimeGapValidator gapValidator,
+                           ImportJob job, BatchPipeline<EquipmentBatch> pipeline) throws InterruptedException {
+        for (int i = 0; i < rows.size(); i++) {
+            if (!rows.isValid(i)) {
+                job.reject(firstRecord + i, rows.invalidReason(i), rows.invalidContent(i));
+                continue;
+            }
+            if (!gapValidator.accept(rows.equipment(i), rows.timestamp(i))) {
+                job.reject(firstRecord + i, RejectedRowSink.Reason.TIME_GAP,
+                        rows.equipment(i) + " " + FastParsers.toLocalDateTime(rows.timestamp(i)));
+                continue;
+            }
+            pipeline.current().addFrom(rows, i);
+            pipeline.flushIfFull();
+        }
+        job.addParsed(rows.size());
+        return firstRecord + rows.size();
     }
 
-    private void validateTimeGap(LocalDateTime timestamp) {
-        if (lastRecordTime != null &&
-                timestamp.isBefore(lastRecordTime.plusSeconds(MIN_TIME_GAP_SECONDS))) {
-            throw new IllegalArgumentException("Time gap too small");
+    private void validateHeaders(CsvTokenizer header) {
+        if (!Arrays.equals(header.toArray(), EXPECTED_HEADERS)) {
+            throw new InvalidCSVFormatException("Invalid headers. Expected: "
+                    + Arrays.toString(EXPECTED_HEADERS));
         }
     }
 
-    private LocalDateTime parseTimestamp(String value) {
-        try {
-            return LocalDateTime.parse(value, FORMATTER);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Invalid timestamp format: " + value);
+    // Ajoute la ligne courante au lot, ou une entrée invalide si elle ne peut pas être lue
+    private void parseLine(CsvTokenizer csv, EquipmentBatch target, StringCache strings) {
+        // Comme String.split(",") : les champs vides en fin de ligne ne comptent pas
+        int fields = csv.fieldCount();
+        while (fields > 0 && csv.isEmpty(fields - 1)) {
+            fields--;
+        }
+        if (fields < EXPECTED_HEADERS.length) {
+            target.addInvalid(RejectedRowSink.Reason.MISSING_FIELDS, csv.recordText());
+            return;
+        }
+        long timestamp = csv.getTimestamp(0);
+        if (timestamp == FastParsers.INVALID_TIMESTAMP) {
+            target.addInvalid(RejectedRowSink.Reason.INVALID_TIMESTAMP, csv.recordText());
+            return;
         }
+        double temperature = csv.getDouble(1);
+        double pressure = csv.getDouble(2);
+        double vibration = csv.getDouble(3);
+        double humidity = csv.getDouble(4);
+        if (Double.isNaN(temperature) || Double.isNaN(pressure) || Double.isNaN(vibration) || Double.isNaN(humidity)) {
+            target.addInvalid(RejectedRowSink.Reason.INVALID_NUMBER, csv.recordText());
+            return;
+        }
+        char[] buffer = csv.buffer();
+        target.add(timestamp, temperature, pressure, vibration, humidity,
+                strings.get(buffer, csv.start(5), csv.length(5)),
+                strings.get(buffer, csv.start(6), csv.length(6)),
+                parseBoolean(csv));
     }
 
-    private Double parseDouble(String value) {
-        try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid number format: " + value);
+    // Règle des MIN_TIME_GAP_SECONDS appliquée par équipement, dans l'ordre du fichier
+    private static final class TimeGapValidator {
+        private final Map<String, long[]> lastRecordTime = new HashMap<>();
+
+        boolean accept(String equipment, long timestamp) {
+            long[] last = lastRecordTime.get(equipment);
+            if (last == null) {
+                lastRecordTime.put(equipment, new long[]{timestamp});
+                return true;
+            }
+            if (timestamp < last[0] + MIN_TIME_GAP_SECONDS) {
+                return false;
+            }
+            last[0] = timestamp;
+            return true;
         }
     }
 
-    private Boolean parseBoolean(String value) {
-        return value != null && (value.equalsIgnoreCase("true")
-                || value.equals("1")
-                || value.equalsIgnoreCase("yes"));
+    private boolean parseBoolean(CsvTokenizer csv) {
+        return csv.fieldEquals(7, "1")
+                || csv.fieldEqualsIgnoreCase(7, "true")
+                || csv.fieldEqualsIgnoreCase(7, "yes");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.dto.DaySummary;
+import com.monprojet.factory.repository.TelemetryRollupRepository;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Catalogue en mémoire des journées disponibles par série (nombre de mesures, première/dernière mesure, min/max par canal).
+// Chargé une fois depuis les agrégats journaliers, puis tenu à jour à chaque écriture d'agrégats :
+// aucune requête ne parcourt les mesures pour retrouver les dates.
+@Service
+public class DateCatalog {
+
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final int DAY_SECONDS = RollupResolution.DAY.seconds();
+
+    private static final class Day {
+        private final Map<String, double[]> ranges = new LinkedHashMap<>();
+        private long rows;
+        private long first = Long.MAX_VALUE;
+        private long last = Long.MIN_VALUE;
+
+        void add(String channel, double min, double max, long firstAt, long lastAt) {
+            double[] range = ranges.computeIfAbsent(channel, k -> new double[]{Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY});
+            range[0] = Math.min(range[0], min);
+            range[1] = Math.max(range[1], max);
+            first = Math.min(first, firstAt);
+            last = Math.max(last, lastAt);
+        }
+    }
+
+    private final TelemetryRollupRepository repository;
+    // Série -> début du jour (secondes) -> résumé ; seules les séries chargées sont tenues à jour
+    private final Map<String, TreeMap<Long, Day>> catalog = new HashMap<>();
+    // Écritures en cours et écritures terminées : un chargement n'est gardé que si aucune écriture ne l'a chevauché
+    private int writing;
+    private long written;
+
+    public DateCatalog(TelemetryRollupRepository repository) {
+        this.repository = repository;
+    }
+
+    // Journées de la série, de la plus récente à la plus ancienne.
+    // Le verrou ne couvre que la carte : le chargement en base se fait hors verrou.
+    public List<DaySummary> days(String series) {
+        long version;
+        synchronized (this) {
+            TreeMap<Long, Day> days = catalog.get(series);
+            if (days != null) {
+                return summaries(days);
+            }
+            version = writing == 0 ? written : -1;
+        }
+        TreeMap<Long, Day> loaded = load(series);
+        synchronized (this) {
+            TreeMap<Long, Day> days = catalog.get(series);
+            if (days != null) {
+                return summaries(days);
+            }
+            // Une écriture a pu être lue à moitié, ou être reportée avant que la série soit connue :
+            // résultat rendu mais pas gardé, la prochaine lecture rechargera
+            if (version >= 0 && writing == 0 && written == version) {
+                catalog.put(series, loaded);
+            }
+            return summaries(loaded);
+        }
+    }
+
+    private static List<DaySummary> summaries(TreeMap<Long, Day> days) {
+        List<DaySummary> summaries = new ArrayList<>(days.size());
+        for (Map.Entry<Long, Day> entry : days.descendingMap().entrySet()) {
+            Day day = entry.getValue();
+            DaySummary summary = new DaySummary(LocalDate.ofEpochDay(Math.floorDiv(entry.getKey(), DAY_SECONDS)), day.rows,
+                    FastParsers.toLocalDateTime(day.first), FastParsers.toLocalDateTime(day.last));
+            day.ranges.forEach((channel, range) -> summary.addChannel(channel, new DaySummary.Range(range[0], range[1])));
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    // Écrit des agrégats (hors verrou), puis reporte les seaux journaliers dans les séries déjà chargées.
+    // Un chargement qui chevauche l'écriture n'est pas gardé : le catalogue ne compte jamais un seau deux fois.
+    public void write(List<RollupAccumulator.Group> groups, Runnable writer) {
+        synchronized (this) {
+            writing++;
+        }
+        boolean done = false;
+        try {
+            writer.run();
+            done = true;
+        } finally {
+            synchronized (this) {
+                if (done) {
+                    apply(groups);
+                } else {
+                    // Écriture en échec : état en base incertain, tout sera rechargé
+                    catalog.clear();
+                }
+                writing--;
+                written++;
+            }
+        }
+    }
+
+    private void apply(List<RollupAccumulator.Group> groups) {
+        for (RollupAccumulator.Group group : groups) {
+            TreeMap<Long, Day> days = catalog.get(group.series());
+            if (group.bucketSeconds() != DAY_SECONDS || days == null) {
+                continue;
+            }
+            Day day = days.computeIfAbsent(group.start(), k -> new Day());
+            long rows = 0;
+            for (int c = 0; c < group.channelCount(); c++) {
+                if (group.count(c) > 0) {
+                    day.add(group.channel(c), group.min(c), group.max(c), group.first(), group.last());
+                    rows = Math.max(rows, group.count(c));
+                }
+            }
+            day.rows += rows;
+        }
+    }
+
+    // Série exacte ou préfixe terminé par % ("%" = tout) : rechargée à la prochaine lecture
+    public synchronized void forget(String seriesPattern) {
+        if (seriesPattern.endsWith("%")) {
+            String prefix = seriesPattern.substring(0, seriesPattern.length() - 1);
+            catalog.keySet().removeIf(series -> series.startsWith(prefix));
+        } else {
+            catalog.remove(seriesPattern);
+        }
+    }
+
+    private TreeMap<Long, Day> load(String series) {
+        TreeMap<Long, Day> days = new TreeMap<>();
+        // Nombre de mesures du jour = celui du canal le plus renseigné
+        Map<Long, Long> rows = new HashMap<>();
+        repository.forEachBucket(series, DAY_SECONDS, FastParsers.toEpochSecond(MIN_TIME), FastParsers.toEpochSecond(MAX_TIME),
+                (channel, start, min, max, sum, sumSquares, count, first, last) -> {
+                    days.computeIfAbsent(start, k -> new Day()).add(channel, min, max, first, last);
+                    rows.merge(start, count, Math::max);
+                });
+        rows.forEach((start, count) -> days.get(start).rows = count);
+        return days;
+    }
+}
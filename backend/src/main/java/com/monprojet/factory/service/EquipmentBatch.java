@@ -0,0 +1,113 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.utils.FastParsers;
+
+import java.util.Arrays;
+
+// Lot de mesures equipment_data en colonnes primitives.
+// Une ligne invalide peut être conservée (horodatage FastParsers.INVALID_TIMESTAMP) pour garder l'ordre du fichier.
+public class EquipmentBatch implements BatchPipeline.Batch {
+
+    private long[] timestamps;
+    private double[] temperature;
+    private double[] pressure;
+    private double[] vibration;
+    private double[] humidity;
+    private String[] equipment;
+    private String[] location;
+    private boolean[] faulty;
+    // Motif et texte des lignes invalides, alloués à la première ligne rejetée
+    private RejectedRowSink.Reason[] invalidReasons;
+    private String[] invalidContents;
+    private final boolean growable;
+    private int size;
+
+    public EquipmentBatch(int capacity) {
+        this(capacity, false);
+    }
+
+    public EquipmentBatch(int capacity, boolean growable) {
+        this.growable = growable;
+        allocate(Math.max(1, capacity));
+    }
+
+    public void add(long timestamp, double temperatureValue, double pressureValue, double vibrationValue,
+                    double humidityValue, String equipmentName, String locationName, boolean faultyValue) {
+        if (size == timestamps.length) {
+            allocate(size * 2);
+        }
+        timestamps[size] = timestamp;
+        temperature[size] = temperatureValue;
+        pressure[size] = pressureValue;
+        vibration[size] = vibrationValue;
+        humidity[size] = humidityValue;
+        equipment[size] = equipmentName;
+        location[size] = locationName;
+        faulty[size] = faultyValue;
+        size++;
+    }
+
+    public void addInvalid(RejectedRowSink.Reason reason, String content) {
+        add(FastParsers.INVALID_TIMESTAMP, 0, 0, 0, 0, null, null, false);
+        if (invalidReasons == null) {
+            invalidReasons = new RejectedRowSink.Reason[timestamps.length];
+            invalidContents = new String[timestamps.length];
+        }
+        invalidReasons[size - 1] = reason;
+        invalidContents[size - 1] = content;
+    }
+
+    public void addFrom(EquipmentBatch source, int i) {
+        add(source.timestamps[i], source.temperature[i], source.pressure[i], source.vibration[i],
+                source.humidity[i], source.equipment[i], source.location[i], source.faulty[i]);
+    }
+
+    public boolean isValid(int i) {
+        return timestamps[i] != FastParsers.INVALID_TIMESTAMP;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean isFull() { return !growable && size == timestamps.length; }
+
+    @Override
+    public void clear() {
+        Arrays.fill(equipment, 0, size, null);
+        Arrays.fill(location, 0, size, null);
+        if (invalidContents != null) {
+            Arrays.fill(invalidContents, 0, size, null);
+        }
+        size = 0;
+    }
+
+    public long timestamp(int i) { return timestamps[i]; }
+    public double temperature(int i) { return temperature[i]; }
+    public double pressure(int i) { return pressure[i]; }
+    public double vibration(int i) { return vibration[i]; }
+    public double humidity(int i) { return humidity[i]; }
+    public String equipment(int i) { return equipment[i]; }
+    public String location(int i) { return location[i]; }
+    public boolean faulty(int i) { return faulty[i]; }
+    public RejectedRowSink.Reason invalidReason(int i) { return invalidReasons[i]; }
+    public String invalidContent(int i) { return invalidContents[i]; }
+
+    private void allocate(int capacity) {
+        if (timestamps != null && !growable) {
+            throw new IllegalStateException("Lot plein");
+        }
+        timestamps = timestamps == null ? new long[capacity] : Arrays.copyOf(timestamps, capacity);
+        temperature = temperature == null ? new double[capacity] : Arrays.copyOf(temperature, capacity);
+        pressure = pressure == null ? new double[capacity] : Arrays.copyOf(pressure, capacity);
+        vibration = vibration == null ? new double[capacity] : Arrays.copyOf(vibration, capacity);
+        humidity = humidity == null ? new double[capacity] : Arrays.copyOf(humidity, capacity);
+        equipment = equipment == null ? new String[capacity] : Arrays.copyOf(equipment, capacity);
+        location = location == null ? new String[capacity] : Arrays.copyOf(location, capacity);
+        faulty = faulty == null ? new boolean[capacity] : Arrays.copyOf(faulty, capacity);
+        if (invalidReasons != null) {
+            invalidReasons = Arrays.copyOf(invalidReasons, capacity);
+            invalidContents = Arrays.copyOf(invalidContents, capacity);
+        }
+    }
+}
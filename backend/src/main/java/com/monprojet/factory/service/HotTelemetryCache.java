@@ -0,0 +1,274 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.dto.TelemetryWindow;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.utils.FastParsers;
+import com.monprojet.factory.utils.TelemetryRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+// Dernières heures de mesures de chaque compresseur gardées en mémoire (un tampon par série), alimentées à l'ingestion :
+// dernière valeur et fenêtres récentes servies sans requête SQL ni entités CompresseurData
+@Service
+public class HotTelemetryCache implements TelemetryIngestListener {
+
+    private static final String[] COLUMNS = {"pressure", "current_value", "vibration_x", "vibration_y", "vibration_z"};
+
+    private final CompresseurDataBatchRepository repository;
+    private final boolean enabled;
+    private final long windowSeconds;
+    private final int maxRows;
+    private final Map<String, TelemetryRing> rings = new ConcurrentHashMap<>();
+    // Tant que le chargement initial n'est pas terminé, le tampon n'est pas complet : lecture en base
+    private volatile boolean ready;
+
+    public HotTelemetryCache(CompresseurDataBatchRepository repository,
+                             @Value("${factory.hot-cache.enabled:true}") boolean enabled,
+                             @Value("${factory.hot-cache.window-hours:1}") int windowHours,
+                             @Value("${factory.hot-cache.max-rows-per-series:500000}") int maxRows) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.windowSeconds = windowHours * 3600L;
+        this.maxRows = maxRows;
+    }
+
+    @Override
+    public Session begin(String type) {
+        if (!enabled || !RollupService.COMPRESSEUR.equals(type)) {
+            return NONE;
+        }
+        return new Session() {
+            @Override
+            public void compresseurWritten(CompresseurBatch batch) {
+                insert(batch);
+            }
+        };
+    }
+
+    // Dernière mesure : {timestamp, pressure, currentValue, ...}, null si la série est vide.
+    // series : RollupService.compresseurSeries(equipmentId)
+    public Map<String, Object> latest(String series) {
+        Long equipmentId = RollupService.equipmentIdOf(series);
+        double[] values = new double[COLUMNS.length];
+        TelemetryRing ring = rings.get(series);
+        long timestamp = ready && ring != null ? ring.latest(values) : Long.MIN_VALUE;
+        String source = "memory";
+        if (timestamp == Long.MIN_VALUE) {
+            // Tampon vide ou pas encore chargé : la base fait foi
+            long max = repository.latestTimestamp(equipmentId);
+            if (max != Long.MIN_VALUE) {
+                TelemetryRing.Window window = load(equipmentId, max, max + 1);
+                int last = window.size() - 1;
+                for (int c = 0; c < COLUMNS.length && last >= 0; c++) {
+                    values[c] = window.values()[c][last];
+                }
+                timestamp = last >= 0 ? max : Long.MIN_VALUE;
+            }
+            source = "database";
+            if (timestamp == Long.MIN_VALUE) {
+                return null;
+            }
+        }
+        Map<String, Object> latest = new LinkedHashMap<>();
+        latest.put("timestamp", FastParsers.toLocalDateTime(timestamp));
+        for (int c = 0; c < COLUMNS.length; c++) {
+            latest.put(RollupService.COMPRESSEUR_CHANNELS[c], values[c]);
+        }
+        latest.put("source", source);
+        return latest;
+    }
+
+    // Les `seconds` dernières secondes de la série (par rapport à sa dernière mesure)
+    public TelemetryWindow recent(String series, long seconds) {
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("La durée doit être positive");
+        }
+        Long equipmentId = RollupService.equipmentIdOf(series);
+        TelemetryRing ring = rings.get(series);
+        double[] ignored = new double[COLUMNS.length];
+        long last = ready && ring != null ? ring.latest(ignored) : Long.MIN_VALUE;
+        if (last != Long.MIN_VALUE) {
+            long to = last + 1;
+            TelemetryRing.Window window = ring.range(to - seconds, to);
+            if (window != null) {
+                return toDto("memory", to - seconds, to, window);
+            }
+        } else {
+            last = repository.latestTimestamp(equipmentId);
+            if (last == Long.MIN_VALUE) {
+                return new TelemetryWindow("database", null, null, new LocalDateTime[0]);
+            }
+        }
+        long to = last + 1;
+        return toDto("database", to - seconds, to, load(equipmentId, to - seconds, to));
+    }
+
+    // Mesures de [from, to[ supprimées en base (secondes) ; series exacte ou préfixe terminé par % ("compresseur%")
+    public void remove(String series, long from, long to) {
+        forEachRing(series, ring -> ring.removeRange(from, to));
+    }
+
+    public void clear(String series) {
+        forEachRing(series, TelemetryRing::clear);
+    }
+
+    private void forEachRing(String seriesPattern, Consumer<TelemetryRing> action) {
+        if (seriesPattern.endsWith("%")) {
+            String prefix = seriesPattern.substring(0, seriesPattern.length() - 1);
+            rings.forEach((series, ring) -> {
+                if (series.startsWith(prefix)) {
+                    action.accept(ring);
+                }
+            });
+        } else {
+            TelemetryRing ring = rings.get(seriesPattern);
+            if (ring != null) {
+                action.accept(ring);
+            }
+        }
+    }
+
+    // Chargement initial des windowSeconds dernières secondes, en tâche de fond
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                long rows = 0;
+                List<Long> equipmentIds = repository.findEquipmentIds();
+                for (Long equipmentId : equipmentIds) {
+                    long max = repository.latestTimestamp(equipmentId);
+                    if (max == Long.MIN_VALUE) {
+                        continue;
+                    }
+                    TelemetryRing ring = ring(RollupService.compresseurSeries(equipmentId));
+                    long from = max - windowSeconds;
+                    TelemetryRing.Window window = load(equipmentId, from, max + 1);
+                    ring.insert(window.t(), window.values(), window.size());
+                    ring.markCompleteSince(from);
+                    rows += ring.size();
+                }
+                ready = true;
+                System.out.println("Mesures récentes en mémoire : " + equipmentIds.size() + " compresseur(s), "
+                        + rows + " lignes en " + (System.currentTimeMillis() - start) + " ms");
+            } catch (RuntimeException e) {
+                System.err.println("Chargement des mesures récentes impossible : " + e.getMessage());
+            }
+        }, "hot-cache-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Lot écrit : lignes réparties par compresseur, copiées en colonnes triées par horodatage
+    // (les fichiers le sont déjà presque toujours)
+    void insert(CompresseurBatch batch) {
+        long first = batch.size() > 0 ? batch.equipmentId(0) : CompresseurBatch.NO_ID;
+        boolean single = true;
+        for (int i = 1; i < batch.size() && single; i++) {
+            single = batch.equipmentId(i) == first;
+        }
+        if (single) {
+            insert(batch, IntStream.range(0, batch.size()).toArray());
+            return;
+        }
+        Map<Long, List<Integer>> rowsBySeries = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            rowsBySeries.computeIfAbsent(batch.equipmentId(i), k -> new ArrayList<>()).add(i);
+        }
+        rowsBySeries.values().forEach(rows -> insert(batch, rows.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    // rows : lignes du lot appartenant toutes au même compresseur
+    private void insert(CompresseurBatch batch, int[] rows) {
+        int size = rows.length;
+        if (size == 0) {
+            return;
+        }
+        long equipmentId = batch.equipmentId(rows[0]);
+        String series = RollupService.compresseurSeries(equipmentId == CompresseurBatch.NO_ID ? null : equipmentId);
+        long[] t = new long[size];
+        double[][] values = new double[COLUMNS.length][size];
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = batch.timestamp(rows[i - 1]) <= batch.timestamp(rows[i]);
+        }
+        int[] order = rows;
+        if (!sorted) {
+            order = Arrays.stream(rows).boxed()
+                    .sorted((a, b) -> Long.compare(batch.timestamp(a), batch.timestamp(b)))
+                    .mapToInt(Integer::intValue).toArray();
+        }
+        for (int i = 0; i < size; i++) {
+            int row = order[i];
+            t[i] = batch.timestamp(row);
+            values[0][i] = batch.pressure(row);
+            values[1][i] = batch.current(row);
+            values[2][i] = batch.vibrationX(row);
+            values[3][i] = batch.vibrationY(row);
+            values[4][i] = batch.vibrationZ(row);
+        }
+        ring(series).insert(t, values, size);
+    }
+
+    private TelemetryRing ring(String series) {
+        return rings.computeIfAbsent(series, key -> new TelemetryRing(COLUMNS.length, maxRows, windowSeconds));
+    }
+
+    private TelemetryRing.Window load(Long equipmentId, long from, long to) {
+        long[][] t = {new long[1024]};
+        double[][][] values = {new double[COLUMNS.length][1024]};
+        int[] size = {0};
+        repository.scan(equipmentId, from, to, Integer.MAX_VALUE, batch -> {
+            int needed = size[0] + batch.size();
+            if (needed > t[0].length) {
+                int capacity = Math.max(needed, t[0].length * 2);
+                t[0] = Arrays.copyOf(t[0], capacity);
+                for (int c = 0; c < COLUMNS.length; c++) {
+                    values[0][c] = Arrays.copyOf(values[0][c], capacity);
+                }
+            }
+            for (int r = 0; r < batch.size(); r++) {
+                int i = size[0]++;
+                t[0][i] = batch.timestamp(r);
+                values[0][0][i] = batch.pressure(r);
+                values[0][1][i] = batch.current(r);
+                values[0][2][i] = batch.vibrationX(r);
+                values[0][3][i] = batch.vibrationY(r);
+                values[0][4][i] = batch.vibrationZ(r);
+            }
+        });
+        double[][] trimmed = new double[COLUMNS.length][];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            trimmed[c] = Arrays.copyOf(values[0][c], size[0]);
+        }
+        return new TelemetryRing.Window(Arrays.copyOf(t[0], size[0]), trimmed);
+    }
+
+    private static TelemetryWindow toDto(String source, long from, long to, TelemetryRing.Window window) {
+        LocalDateTime[] times = new LocalDateTime[window.size()];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = FastParsers.toLocalDateTime(window.t()[i]);
+        }
+        TelemetryWindow dto = new TelemetryWindow(source, FastParsers.toLocalDateTime(from), FastParsers.toLocalDateTime(to), times);
+        for (int c = 0; c < COLUMNS.length; c++) {
+            dto.addChannel(RollupService.COMPRESSEUR_CHANNELS[c], window.values()[c]);
+        }
+        return dto;
+    }
+
+}
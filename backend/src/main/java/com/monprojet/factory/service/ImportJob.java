@@ -0,0 +1,135 @@
+package com.monprojet.factory.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Suivi d'un import asynchrone : compteurs mis à jour en direct par le parseur et les écrivains
+public class ImportJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, DUPLICATE, FAILED }
+
+    private final String id;
+    private final String type;
+    private final String fileName;
+    private final long totalBytes;
+    private final Instant submittedAt = Instant.now();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsInserted = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final AtomicLong rowsDuplicate = new AtomicLong();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile String contentHash;
+    private volatile String duplicateOf;
+    // Remplacé par ImportJobService par un puits avec rapport CSV
+    private volatile RejectedRowSink rejections = new RejectedRowSink(null, 1, 20, 0);
+
+    public ImportJob(String id, String type, String fileName, long totalBytes) {
+        this.id = id;
+        this.type = type;
+        this.fileName = fileName;
+        this.totalBytes = totalBytes;
+    }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void markCompleted() {
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    // Fichier déjà importé : rien n'est relu ni inséré
+    void markDuplicate(String originalJobId) {
+        finishedAt = Instant.now();
+        duplicateOf = originalJobId;
+        status = Status.DUPLICATE;
+    }
+
+    void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    void setRejections(RejectedRowSink rejections) {
+        this.rejections = rejections;
+    }
+
+    void markFailed(String message) {
+        finishedAt = Instant.now();
+        error = message;
+        status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.DUPLICATE || status == Status.FAILED;
+    }
+
+    // Compteurs alimentés par les services d'import
+    public AtomicLong bytesReadCounter() { return bytesRead; }
+    public void addParsed(long n) { rowsParsed.addAndGet(n); }
+    public void addInserted(long n) { rowsInserted.addAndGet(n); }
+
+    // Ligne rejetée : comptée et transmise au rapport sans I/O sur le thread appelant
+    public void reject(long record, RejectedRowSink.Reason reason, String content) {
+        rowsRejected.incrementAndGet();
+        rejections.reject(record, reason, content);
+    }
+
+    public RejectedRowSink rejections() { return rejections; }
+    public void addDuplicates(long n) { rowsDuplicate.addAndGet(n); }
+
+    public String getId() { return id; }
+    public String getType() { return type; }
+    public String getFileName() { return fileName; }
+    public Status getStatus() { return status; }
+    public String getError() { return error; }
+    public Instant getSubmittedAt() { return submittedAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public long getTotalBytes() { return totalBytes; }
+    public long getBytesRead() { return bytesRead.get(); }
+    public long getRowsParsed() { return rowsParsed.get(); }
+    public long getRowsInserted() { return rowsInserted.get(); }
+    public long getRowsRejected() { return rowsRejected.get(); }
+    public long getRowsDuplicate() { return rowsDuplicate.get(); }
+    public Map<RejectedRowSink.Reason, Long> getRejectedByReason() { return rejections.getCountsByReason(); }
+    public List<RejectedRowSink.Sample> getRejectedSamples() { return rejections.getSamples(); }
+    public boolean isRejectedReportAvailable() { return rejections.getReportFile().isPresent(); }
+    public String getContentHash() { return contentHash; }
+    public String getDuplicateOf() { return duplicateOf; }
+
+    public long getElapsedMs() {
+        if (startedAt == null) {
+            return 0;
+        }
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        return Duration.between(startedAt, end).toMillis();
+    }
+
+    public double getRowsPerSecond() {
+        long elapsed = getElapsedMs();
+        return elapsed > 0 ? getRowsInserted() * 1000.0 / elapsed : 0.0;
+    }
+
+    // Estimation à partir de la proportion d'octets déjà lus
+    public Long getEtaSeconds() {
+        if (isFinished()) {
+            return 0L;
+        }
+        long read = getBytesRead();
+        if (startedAt == null || read <= 0 || totalBytes <= 0) {
+            return null;
+        }
+        long remaining = Math.max(0, totalBytes - read);
+        return Math.round(getElapsedMs() / 1000.0 * remaining / read);
+    }
+}
@@ -0,0 +1,214 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.entity.ImportedFile;
+import com.monprojet.factory.repository.ImportedFileRepository;
+import com.monprojet.factory.utils.CompressedUploads;
+import com.monprojet.factory.utils.CountingInputStream;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class ImportJobService {
+
+    // Traitement d'un fichier importé, exécuté sur le thread du job
+    @FunctionalInterface
+    public interface ImportTask {
+        void run(InputStream input, ImportJob job) throws Exception;
+    }
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    // Fichiers (type + empreinte) en cours d'import -> id du job qui les traite
+    private final Map<String, String> inProgress = new ConcurrentHashMap<>();
+    private final TaskExecutor executor;
+    private final ImportedFileRepository importedFileRepository;
+    private final Path spoolDir;
+    private final int history;
+    private final int rejectedQueueCapacity;
+    private final int rejectedSamples;
+    private final long rejectedReportRows;
+
+    public ImportJobService(@Qualifier("importJobExecutor") TaskExecutor executor,
+                            ImportedFileRepository importedFileRepository,
+                            @Value("${factory.import.jobs.spool-dir:${java.io.tmpdir}/factoryeye-imports}") String spoolDir,
+                            @Value("${factory.import.jobs.history:100}") int history,
+                            @Value("${factory.import.rejected.queue-capacity:10000}") int rejectedQueueCapacity,
+                            @Value("${factory.import.rejected.samples:20}") int rejectedSamples,
+                            @Value("${factory.import.rejected.max-report-rows:1000000}") long rejectedReportRows) {
+        this.executor = executor;
+        this.importedFileRepository = importedFileRepository;
+        this.spoolDir = Paths.get(spoolDir);
+        this.history = history;
+        this.rejectedQueueCapacity = rejectedQueueCapacity;
+        this.rejectedSamples = rejectedSamples;
+        this.rejectedReportRows = rejectedReportRows;
+    }
+
+    public ImportJob submit(String type, MultipartFile file, ImportTask task) throws IOException {
+        return submit(type, file, false, task);
+    }
+
+    // Enregistre le fichier reçu et planifie son import ; retourne immédiatement.
+    // force = réimporter même si un fichier identique a déjà été traité
+    public ImportJob submit(String type, MultipartFile file, boolean force, ImportTask task) throws IOException {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), type, file.getOriginalFilename(), file.getSize());
+
+        // La partie multipart disparaît à la fin de la requête : on la déplace dans le répertoire des jobs
+        Files.createDirectories(spoolDir);
+        Path spooled = spoolDir.resolve(job.getId() + ".upload");
+        file.transferTo(spooled);
+        job.setRejections(new RejectedRowSink(spoolDir.resolve(job.getId() + ".rejected.csv"),
+                rejectedQueueCapacity, rejectedSamples, rejectedReportRows));
+
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, spooled, force, task));
+        } catch (RuntimeException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+        evictFinishedJobs();
+        return job;
+    }
+
+    public Optional<ImportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public List<ImportJob> getJobs() {
+        List<ImportJob> list = new ArrayList<>(jobs.values());
+        list.sort(Comparator.comparing(ImportJob::getSubmittedAt).reversed());
+        return list;
+    }
+
+    // Oublie les empreintes d'un type de données (après une suppression, le même fichier peut être réimporté)
+    // type exact, ou préfixe terminé par % ("compresseur%" : tous les compresseurs)
+    public void forgetImports(String type) {
+        long removed = type.endsWith("%")
+                ? importedFileRepository.deleteByTypeStartingWith(type.substring(0, type.length() - 1))
+                : importedFileRepository.deleteByType(type);
+        System.out.println(removed + " empreinte(s) de fichiers '" + type + "' supprimée(s)");
+    }
+
+    private void run(ImportJob job, Path spooled, boolean force, ImportTask task) {
+        job.markRunning();
+        String key = null;
+        try {
+            // Empreinte calculée sur le fichier spoolé : relecture séquentielle, servie par le cache disque
+            String hash = sha256(spooled);
+            job.setContentHash(hash);
+            key = job.getType() + ':' + hash;
+            String running = inProgress.putIfAbsent(key, job.getId());
+            if (running != null) {
+                key = null;
+                if (!force) {
+                    markDuplicate(job, running);
+                    return;
+                }
+            }
+            if (!force) {
+                Optional<ImportedFile> previous = importedFileRepository.findByTypeAndContentHash(job.getType(), hash);
+                if (previous.isPresent()) {
+                    markDuplicate(job, previous.get().getJobId());
+                    return;
+                }
+            }
+
+            // Progression comptée sur les octets du fichier reçu (compressé ou non) ;
+            // .gz et .zip sont décompressés à la volée, chaque CSV d'une archive alimente le même job
+            try (InputStream input = new BufferedInputStream(
+                    new CountingInputStream(Files.newInputStream(spooled), job.bytesReadCounter()), 64 * 1024)) {
+                CompressedUploads.forEachCsv(input, job.getFileName(), (name, csv) -> task.run(csv, job));
+            }
+            // Rapport des lignes rejetées complet avant d'annoncer la fin du job
+            job.rejections().close();
+            recordImport(job, hash);
+            job.markCompleted();
+        } catch (Exception e) {
+            System.err.println("Échec de l'import " + job.getId() + " : " + e.getMessage());
+            job.rejections().close();
+            job.markFailed(e.getMessage());
+        } finally {
+            if (key != null) {
+                inProgress.remove(key);
+            }
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                System.err.println("Impossible de supprimer " + spooled + " : " + e.getMessage());
+            }
+        }
+    }
+
+    private void markDuplicate(ImportJob job, String originalJobId) {
+        System.out.println("Fichier " + job.getFileName() + " déjà importé (job " + originalJobId + "), import ignoré");
+        job.markDuplicate(originalJobId);
+    }
+
+    // Un échec ici n'invalide pas l'import : au pire le fichier pourra être réimporté (et dédoublonné ligne à ligne)
+    private void recordImport(ImportJob job, String hash) {
+        try {
+            ImportedFile record = importedFileRepository.findByTypeAndContentHash(job.getType(), hash)
+                    .orElseGet(ImportedFile::new);
+            record.setType(job.getType());
+            record.setContentHash(hash);
+            record.setFileName(job.getFileName());
+            record.setSizeBytes(job.getTotalBytes());
+            record.setJobId(job.getId());
+            record.setRowsInserted(job.getRowsInserted());
+            importedFileRepository.save(record);
+        } catch (RuntimeException e) {
+            System.err.println("Impossible d'enregistrer l'empreinte du fichier " + job.getFileName() + " : " + e.getMessage());
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Ne conserve que l'historique des derniers jobs terminés
+    private void evictFinishedJobs() {
+        List<ImportJob> finished = new ArrayList<>();
+        for (ImportJob job : jobs.values()) {
+            if (job.isFinished()) {
+                finished.add(job);
+            }
+        }
+        if (finished.size() <= history) {
+            return;
+        }
+        finished.sort(Comparator.comparing(ImportJob::getSubmittedAt));
+        for (int i = 0; i < finished.size() - history; i++) {
+            ImportJob evicted = finished.get(i);
+            jobs.remove(evicted.getId());
+            evicted.rejections().deleteReport();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.monprojet.factory.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lignes rejetées d'un import : compteurs par motif, premiers exemples en mémoire
+// et rapport CSV écrit par un thread dédié. Le parseur ne fait jamais d'I/O :
+// si la file est pleine, la ligne est seulement comptée (le rapport le signale).
+public class RejectedRowSink implements AutoCloseable {
+
+    public enum Reason {
+        MISSING_TIMESTAMP,
+        INVALID_TIMESTAMP,
+        INVALID_NUMBER,
+        MISSING_FIELDS,
+        INVALID_PEAKS,
+        TIME_GAP
+    }
+
+    // Exemple de ligne rejetée, exposé dans le suivi du job
+    public static final class Sample {
+        private final long record;
+        private final Reason reason;
+        private final String content;
+
+        Sample(long record, Reason reason, String content) {
+            this.record = record;
+            this.reason = reason;
+            this.content = content;
+        }
+
+        public long getRecord() { return record; }
+        public Reason getReason() { return reason; }
+        public String getContent() { return content; }
+    }
+
+    private static final Sample END_OF_STREAM = new Sample(-1, null, null);
+
+    private final Path reportFile;
+    private final int maxSamples;
+    private final long maxReportRows;
+    private final BlockingQueue<Sample> queue;
+    private final AtomicLongArray counts = new AtomicLongArray(Reason.values().length);
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final List<Sample> samples = new ArrayList<>();
+    private volatile int sampleCount;
+    private Thread writer;
+    private volatile boolean closed;
+    private volatile IOException writeError;
+
+    // reportFile null : compteurs et exemples uniquement
+    public RejectedRowSink(Path reportFile, int queueCapacity, int maxSamples, long maxReportRows) {
+        this.reportFile = reportFile;
+        this.maxSamples = maxSamples;
+        this.maxReportRows = maxReportRows;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    // Appelable depuis n'importe quel thread d'analyse ; ne bloque jamais
+    public void reject(long record, Reason reason, String content) {
+        counts.incrementAndGet(reason.ordinal());
+        Sample sample = null;
+        if (sampleCount < maxSamples) {
+            sample = new Sample(record, reason, content);
+            synchronized (samples) {
+                if (samples.size() < maxSamples) {
+                    samples.add(sample);
+                    sampleCount = samples.size();
+                }
+            }
+        }
+        if (reportFile == null || closed) {
+            return;
+        }
+        if (queued.incrementAndGet() > maxReportRows) {
+            dropped.incrementAndGet();
+            return;
+        }
+        startWriter();
+        if (!queue.offer(sample != null ? sample : new Sample(record, reason, content))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Motifs rencontrés uniquement
+    public Map<Reason, Long> getCountsByReason() {
+        Map<Reason, Long> result = new EnumMap<>(Reason.class);
+        for (Reason reason : Reason.values()) {
+            long count = counts.get(reason.ordinal());
+            if (count > 0) {
+                result.put(reason, count);
+            }
+        }
+        return result;
+    }
+
+    public List<Sample> getSamples() {
+        synchronized (samples) {
+            return new ArrayList<>(samples);
+        }
+    }
+
+    // Lignes absentes du rapport (file pleine ou limite de taille atteinte)
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // Rapport disponible une fois l'import terminé
+    public Optional<Path> getReportFile() {
+        return closed && writer != null && writeError == null && Files.exists(reportFile)
+                ? Optional.of(reportFile) : Optional.empty();
+    }
+
+    // Vide la file, termine le rapport et arrête le thread d'écriture
+    @Override
+    public void close() {
+        Thread started;
+        synchronized (this) {
+            closed = true;
+            started = writer;
+        }
+        if (started == null) {
+            return;
+        }
+        try {
+            // Le thread peut s'être arrêté sur une erreur d'écriture : ne pas attendre une file pleine
+            while (started.isAlive() && !queue.offer(END_OF_STREAM, 100, TimeUnit.MILLISECONDS)) {
+                // attente d'une place dans la file
+            }
+            started.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writeError != null) {
+            System.err.println("Rapport des lignes rejetées incomplet : " + writeError.getMessage());
+        }
+    }
+
+    public void deleteReport() {
+        if (reportFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(reportFile);
+        } catch (IOException e) {
+            System.err.println("Impossible de supprimer " + reportFile + " : " + e.getMessage());
+        }
+    }
+
+    // Thread démarré à la première ligne rejetée : un fichier propre n'en crée aucun
+    private synchronized void startWriter() {
+        if (writer != null || closed) {
+            return;
+        }
+        writer = new Thread(this::writeReport, "import-rejected-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void writeReport() {
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8), 64 * 1024)) {
+            out.write("record,reason,content\n");
+            while (true) {
+                Sample sample = queue.take();
+                if (sample == END_OF_STREAM) {
+                    break;
+                }
+                out.write(Long.toString(sample.record));
+                out.write(',');
+                out.write(sample.reason.name());
+                out.write(',');
+                writeQuoted(out, sample.content);
+                out.write('\n');
+            }
+            long missing = dropped.get();
+            if (missing > 0) {
+                out.write("# " + missing + " lignes rejetées non reprises dans ce rapport\n");
+            }
+        } catch (IOException e) {
+            writeError = e;
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeQuoted(Writer out, String value) throws IOException {
+        out.write('"');
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.write('"');
+                }
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,194 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.utils.FastParsers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Cumul en mémoire de min, max, somme, somme des carrés et nombre de valeurs par seau de temps et par canal.
+// Ces grandeurs s'additionnent : deux cumuls d'un même seau se fusionnent sans relire les mesures,
+// ce qui permet de mettre à jour les agrégats en base de façon incrémentale.
+public class RollupAccumulator {
+
+    // Lignes à agréger : horodatage en secondes (FastParsers), série de la ligne, valeurs par canal (NaN = absente)
+    public interface Rows {
+        int size();
+        long timestamp(int row);
+        String series(int row);
+        double value(int row, int channel);
+    }
+
+    // Un seau d'une série : statistiques de chaque canal
+    public static final class Group {
+        private final String series;
+        private final int bucketSeconds;
+        private final long start;
+        private final String[] channels;
+        private final double[] min;
+        private final double[] max;
+        private final double[] sum;
+        private final double[] sumSquares;
+        private final long[] count;
+        // Première et dernière mesure du seau (secondes)
+        private long first = Long.MAX_VALUE;
+        private long last = Long.MIN_VALUE;
+
+        Group(String series, int bucketSeconds, long start, String[] channels) {
+            this.series = series;
+            this.bucketSeconds = bucketSeconds;
+            this.start = start;
+            this.channels = channels;
+            this.min = new double[channels.length];
+            this.max = new double[channels.length];
+            this.sum = new double[channels.length];
+            this.sumSquares = new double[channels.length];
+            this.count = new long[channels.length];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        void add(int channel, double value) {
+            if (value < min[channel]) {
+                min[channel] = value;
+            }
+            if (value > max[channel]) {
+                max[channel] = value;
+            }
+            sum[channel] += value;
+            sumSquares[channel] += value * value;
+            count[channel]++;
+        }
+
+        void touch(long timestamp) {
+            if (timestamp < first) {
+                first = timestamp;
+            }
+            if (timestamp > last) {
+                last = timestamp;
+            }
+        }
+
+        void merge(Group other) {
+            first = Math.min(first, other.first);
+            last = Math.max(last, other.last);
+            for (int c = 0; c < channels.length; c++) {
+                if (other.count[c] == 0) {
+                    continue;
+                }
+                min[c] = Math.min(min[c], other.min[c]);
+                max[c] = Math.max(max[c], other.max[c]);
+                sum[c] += other.sum[c];
+                sumSquares[c] += other.sumSquares[c];
+                count[c] += other.count[c];
+            }
+        }
+
+        public String series() { return series; }
+        public int bucketSeconds() { return bucketSeconds; }
+        public long start() { return start; }
+        public int channelCount() { return channels.length; }
+        public String channel(int c) { return channels[c]; }
+        public double min(int c) { return min[c]; }
+        public double max(int c) { return max[c]; }
+        public double sum(int c) { return sum[c]; }
+        public double sumSquares(int c) { return sumSquares[c]; }
+        public long count(int c) { return count[c]; }
+        public long first() { return first; }
+        public long last() { return last; }
+    }
+
+    private static final class Key {
+        private final String series;
+        private final int bucketSeconds;
+        private final long start;
+
+        Key(String series, int bucketSeconds, long start) {
+            this.series = series;
+            this.bucketSeconds = bucketSeconds;
+            this.start = start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return start == other.start && bucketSeconds == other.bucketSeconds && series.equals(other.series);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(series, bucketSeconds, start);
+        }
+    }
+
+    private final int[] bucketSeconds;
+    private Map<Key, Group> groups = new HashMap<>();
+
+    public RollupAccumulator(int... bucketSeconds) {
+        this.bucketSeconds = bucketSeconds.clone();
+    }
+
+    // Cumule un lot : les lignes consécutives d'un même seau (cas courant, fichiers triés par date)
+    // sont cumulées sans recherche dans la table, la fusion dans l'état partagé se fait une fois par lot
+    public void add(Rows rows, String[] channels) {
+        int resolutions = bucketSeconds.length;
+        Map<Key, Group> local = new HashMap<>();
+        String[] lastSeries = new String[resolutions];
+        long[] lastStart = new long[resolutions];
+        Group[] last = new Group[resolutions];
+        double[] values = new double[channels.length];
+        for (int row = 0; row < rows.size(); row++) {
+            long timestamp = rows.timestamp(row);
+            String series = rows.series(row);
+            if (timestamp == FastParsers.INVALID_TIMESTAMP || series == null) {
+                continue;
+            }
+            for (int c = 0; c < channels.length; c++) {
+                values[c] = rows.value(row, c);
+            }
+            for (int r = 0; r < resolutions; r++) {
+                long start = timestamp - Math.floorMod(timestamp, (long) bucketSeconds[r]);
+                Group group = last[r];
+                if (group == null || start != lastStart[r] || !series.equals(lastSeries[r])) {
+                    int seconds = bucketSeconds[r];
+                    group = local.computeIfAbsent(new Key(series, seconds, start),
+                            k -> new Group(series, seconds, start, channels));
+                    last[r] = group;
+                    lastStart[r] = start;
+                    lastSeries[r] = series;
+                }
+                group.touch(timestamp);
+                for (int c = 0; c < channels.length; c++) {
+                    if (!Double.isNaN(values[c])) {
+                        group.add(c, values[c]);
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            for (Map.Entry<Key, Group> entry : local.entrySet()) {
+                Group existing = groups.putIfAbsent(entry.getKey(), entry.getValue());
+                if (existing != null) {
+                    existing.merge(entry.getValue());
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return groups.size();
+    }
+
+    // Retire et retourne les seaux cumulés (à écrire en base)
+    public synchronized List<Group> drain() {
+        List<Group> drained = new ArrayList<>(groups.values());
+        groups = new HashMap<>();
+        return drained;
+    }
+}
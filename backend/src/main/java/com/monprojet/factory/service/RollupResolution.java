@@ -0,0 +1,27 @@
+package com.monprojet.factory.service;
+
+// Résolutions des agrégats maintenus à l'ingestion, de la plus fine à la plus grossière
+public enum RollupResolution {
+    MINUTE(60),
+    HOUR(3_600),
+    DAY(86_400);
+
+    private final int seconds;
+
+    RollupResolution(int seconds) {
+        this.seconds = seconds;
+    }
+
+    public int seconds() {
+        return seconds;
+    }
+
+    public static RollupResolution ofSeconds(int seconds) {
+        for (RollupResolution resolution : values()) {
+            if (resolution.seconds == seconds) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+}
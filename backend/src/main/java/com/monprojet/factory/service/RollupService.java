@@ -0,0 +1,635 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.dto.RollupSeries;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.TelemetryRollupRepository;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+// Agrégats multi-résolution (1 min, 1 h, 1 jour) maintenus à l'ingestion, et choix de la résolution à la lecture :
+// la plus grossière qui fournit encore le nombre de points demandé, les mesures brutes seulement pour les plages courtes
+// (moins de `points` minutes)
+@Service
+public class RollupService implements TelemetryIngestListener {
+
+    // Compresseur historique (mesures sans équipement) ; les autres compresseurs sont "compresseur:<equipmentId>"
+    public static final String COMPRESSEUR = "compresseur";
+    public static final String COMPRESSEUR_PREFIX = "compresseur:";
+    public static final String EQUIPMENT_PREFIX = "equipment:";
+
+    static final String[] COMPRESSEUR_CHANNELS = {"pressure", "currentValue", "vibrationX", "vibrationY", "vibrationZ"};
+    static final String[] EQUIPMENT_CHANNELS = {"temperature", "pressure", "vibration", "humidity"};
+
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final int[] RESOLUTIONS;
+    static {
+        RollupResolution[] values = RollupResolution.values();
+        RESOLUTIONS = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            RESOLUTIONS[i] = values[i].seconds();
+        }
+    }
+    // Au-delà de ce nombre de seaux en mémoire, un import écrit ses agrégats sans attendre la fin
+    private static final int FLUSH_GROUPS = 20_000;
+    private static final int SCAN_BATCH = 10_000;
+    private static final int FETCH_SIZE = 10_000;
+    // Délai entre deux essais d'un recalcul après suppression pendant un import
+    private static final long REFRESH_RETRY_MILLIS = 1000;
+
+    private final TelemetryRollupRepository repository;
+    private final DateCatalog dateCatalog;
+    private final JdbcTemplate jdbcTemplate;
+    private final CompresseurDataBatchRepository compresseurRepository;
+    private final boolean enabled;
+    private final boolean backfillOnStartup;
+    private final int maxPoints;
+    // Imports en lecture (de begin à close), reconstructions en écriture : une reconstruction attend les imports
+    // en cours et les nouveaux imports attendent qu'elle se termine, sans quoi un lot serait compté deux fois.
+    // Verrouillé dès la construction si le calcul initial est prévu : rien n'est importé avant qu'il ait tourné.
+    private final StampedLock ingestGate = new StampedLock();
+    private final long startupStamp;
+    // Recalculs après suppression, exécutés un à la fois hors des imports (voir refresh)
+    private final ScheduledExecutorService refreshExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rollup-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<PendingRefresh> pendingRefreshes = new ArrayList<>();
+    // Recalculs en attente (null s'il n'y en a pas) et dernier recalcul lancé
+    private CompletableFuture<Void> queuedRefresh;
+    private CompletableFuture<Void> runningRefresh = CompletableFuture.completedFuture(null);
+
+    public RollupService(TelemetryRollupRepository repository, DateCatalog dateCatalog, JdbcTemplate jdbcTemplate,
+                         CompresseurDataBatchRepository compresseurRepository,
+                         @Value("${factory.rollups.enabled:true}") boolean enabled,
+                         @Value("${factory.rollups.backfill-on-startup:true}") boolean backfillOnStartup,
+                         @Value("${factory.query.max-points:20000}") int maxPoints) {
+        this.repository = repository;
+        this.dateCatalog = dateCatalog;
+        this.jdbcTemplate = jdbcTemplate;
+        this.compresseurRepository = compresseurRepository;
+        this.enabled = enabled;
+        this.backfillOnStartup = backfillOnStartup;
+        this.maxPoints = maxPoints;
+        this.startupStamp = enabled && backfillOnStartup ? ingestGate.writeLock() : 0;
+    }
+
+    @Override
+    public Session begin(String type) {
+        if (!enabled || !(COMPRESSEUR.equals(type) || "equipment".equals(type))) {
+            return NONE;
+        }
+        long stamp = ingestGate.tryReadLock();
+        if (stamp == 0) {
+            System.out.println("Import " + type + " en attente de la reconstruction des agrégats");
+            stamp = ingestGate.readLock();
+        }
+        return new RollupSession(stamp);
+    }
+
+    // Cumul propre à un import, alimenté par les threads d'écriture après chaque lot écrit
+    private final class RollupSession implements Session {
+        private final RollupAccumulator accumulator = new RollupAccumulator(RESOLUTIONS);
+        // Verrou de lecture d'un import (0 pour les sessions des reconstructions, déjà sous le verrou d'écriture)
+        private final long stamp;
+        private volatile boolean closed;
+
+        RollupSession(long stamp) {
+            this.stamp = stamp;
+        }
+
+        @Override
+        public void compresseurWritten(CompresseurBatch batch) {
+            accumulator.add(compresseurRows(batch), COMPRESSEUR_CHANNELS);
+            afterAdd();
+        }
+
+        @Override
+        public void equipmentWritten(EquipmentBatch batch) {
+            accumulator.add(equipmentRows(batch), EQUIPMENT_CHANNELS);
+            afterAdd();
+        }
+
+        // Un lot écrit après la clôture (import interrompu) est fusionné aussitôt
+        private void afterAdd() {
+            if (closed || accumulator.size() >= FLUSH_GROUPS) {
+                flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                flush();
+            } finally {
+                if (stamp != 0) {
+                    ingestGate.unlockRead(stamp);
+                }
+            }
+        }
+
+        private void flush() {
+            List<RollupAccumulator.Group> groups = accumulator.drain();
+            if (!groups.isEmpty()) {
+                dateCatalog.write(groups, () -> repository.merge(groups));
+            }
+        }
+    }
+
+    // Série agrégée sur [from, to[ en `points` seaux environ (moins si la plage est plus courte que points secondes)
+    public RollupSeries query(String series, LocalDateTime from, LocalDateTime to, int points) {
+        if (series == null || !(isCompresseur(series) || (series.startsWith(EQUIPMENT_PREFIX) && series.length() > EQUIPMENT_PREFIX.length()))) {
+            throw new IllegalArgumentException("Série inconnue : " + series
+                    + " (compresseur, compresseur:<equipmentId> ou equipment:<nom>)");
+        }
+        if (isCompresseur(series)) {
+            equipmentIdOf(series);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("from doit précéder to");
+        }
+        int target = Math.max(1, Math.min(points, maxPoints));
+
+        // Plage par défaut : étendue connue des agrégats à la minute, sinon celle des mesures
+        long[] extent = null;
+        if (from == null || to == null) {
+            extent = repository.findExtent(series, RollupResolution.MINUTE.seconds());
+            if (extent == null) {
+                extent = rawExtent(series);
+            }
+            if (extent == null) {
+                return new RollupSeries(series, "raw", 0, from, to);
+            }
+        }
+        long fromSecond = from != null ? FastParsers.toEpochSecond(from) : extent[0];
+        long toSecond = to != null ? FastParsers.toEpochSecond(to) : extent[1];
+        long span = Math.max(1, toSecond - fromSecond);
+
+        // Largeur des seaux renvoyés, puis agrégat stocké le plus grossier qui tient dans cette largeur
+        long width = Math.max(1, (span + target - 1) / target);
+        for (int r = RESOLUTIONS.length - 1; r >= 0; r--) {
+            int seconds = RESOLUTIONS[r];
+            if (seconds <= width) {
+                return fromRollups(series, RollupResolution.ofSeconds(seconds), width - width % seconds, fromSecond, toSecond);
+            }
+        }
+        return fromRaw(series, (int) Math.min(Integer.MAX_VALUE, width), fromSecond, toSecond);
+    }
+
+    // Les agrégats s'additionnent : les seaux stockés sont regroupés exactement en seaux de `width` secondes
+    private RollupSeries fromRollups(String series, RollupResolution resolution, long width, long from, long to) {
+        int seconds = resolution.seconds();
+        // Le seau qui contient `from` est inclus
+        long start = from - Math.floorMod(from, width);
+        Map<String, ChannelBuilder> builders = new LinkedHashMap<>();
+        for (String channel : channelsOf(series)) {
+            builders.put(channel, new ChannelBuilder());
+        }
+        repository.forEachBucket(series, seconds, start, to, (channel, bucketStart, min, max, sum, sumSquares, count, first, last) -> {
+            ChannelBuilder builder = builders.get(channel);
+            if (builder != null) {
+                builder.add(bucketStart - Math.floorMod(bucketStart, width), min, max, sum, sumSquares, count);
+            }
+        });
+        RollupSeries result = new RollupSeries(series, resolution.name().toLowerCase(), (int) Math.min(Integer.MAX_VALUE, width),
+                FastParsers.toLocalDateTime(from), FastParsers.toLocalDateTime(to));
+        builders.forEach((channel, builder) -> result.addChannel(channel, builder.build()));
+        return result;
+    }
+
+    // Plage trop courte pour les agrégats : seaux de `width` secondes calculés sur les mesures
+    private RollupSeries fromRaw(String series, int width, long from, long to) {
+        RollupAccumulator accumulator = new RollupAccumulator(width);
+        scan(series, from, to, accumulator);
+        List<RollupAccumulator.Group> groups = accumulator.drain();
+        groups.sort(Comparator.comparingLong(RollupAccumulator.Group::start));
+        String[] channels = channelsOf(series);
+        RollupSeries result = new RollupSeries(series, "raw", width,
+                FastParsers.toLocalDateTime(from), FastParsers.toLocalDateTime(to));
+        for (int c = 0; c < channels.length; c++) {
+            ChannelBuilder builder = new ChannelBuilder();
+            for (RollupAccumulator.Group group : groups) {
+                if (group.count(c) > 0) {
+                    builder.add(group.start(), group.min(c), group.max(c), group.sum(c), group.sumSquares(c), group.count(c));
+                }
+            }
+            result.addChannel(channels[c], builder.build());
+        }
+        return result;
+    }
+
+    // Reconstruit tous les agrégats à partir des mesures (données antérieures aux agrégats, ou après incident),
+    // imports suspendus le temps de la reconstruction
+    public long rebuild() {
+        long stamp = ingestGate.writeLock();
+        try {
+            return rebuildLocked();
+        } finally {
+            ingestGate.unlockWrite(stamp);
+        }
+    }
+
+    private long rebuildLocked() {
+        long start = System.currentTimeMillis();
+        deleteSeries("%");
+        long from = FastParsers.toEpochSecond(MIN_TIME);
+        long to = FastParsers.toEpochSecond(MAX_TIME);
+        long rows = 0;
+        for (Long equipmentId : compresseurRepository.findEquipmentIds()) {
+            try (Session session = new RollupSession(0)) {
+                rows += scanCompresseur(equipmentId, from, to, session::compresseurWritten);
+            }
+        }
+        try (Session session = new RollupSession(0)) {
+            rows += scanEquipment(null, from, to, session::equipmentWritten);
+        }
+        System.out.println("Agrégats reconstruits : " + rows + " mesures en " + (System.currentTimeMillis() - start) + " ms");
+        return rows;
+    }
+
+    // Série exacte ou préfixe terminé par % ("equipment:%", "%" = tout)
+    public void deleteSeries(String series) {
+        dateCatalog.write(List.of(), () -> repository.deleteSeries(series));
+        dateCatalog.forget(series);
+    }
+
+    // Mesures supprimées dans [from, to[ (secondes) : les journées touchées sont recalculées sur ce qui reste.
+    // series : COMPRESSEUR, "compresseur:<id>", "compresseur%" (tous les compresseurs),
+    // "equipment:<nom>" ou "equipment:%" (tous les équipements)
+    // Recalcul en tâche de fond, lancé dès qu'aucun import n'est en cours : la suppression n'attend pas les imports
+    // (plusieurs minutes parfois) et les imports n'attendent pas derrière elle. D'ici là, les agrégats de ces journées
+    // comptent encore les mesures supprimées. Le résultat est terminé une fois les agrégats recalculés.
+    public CompletableFuture<Void> refresh(String series, long from, long to) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int day = RollupResolution.DAY.seconds();
+        // Les seaux 1 min / 1 h sont inclus dans les journées : recalculer des journées entières suffit
+        long dayFrom = from - Math.floorMod(from, day);
+        long dayTo = Math.min(to - Math.floorMod(to, day) + (Math.floorMod(to, day) == 0 ? 0 : day),
+                FastParsers.toEpochSecond(MAX_TIME));
+        synchronized (pendingRefreshes) {
+            // Plages contiguës ou qui se recouvrent d'une même série fusionnées
+            for (PendingRefresh pending : pendingRefreshes) {
+                if (pending.series.equals(series) && dayFrom <= pending.to && pending.from <= dayTo) {
+                    pending.from = Math.min(pending.from, dayFrom);
+                    pending.to = Math.max(pending.to, dayTo);
+                    return queuedRefresh;
+                }
+            }
+            pendingRefreshes.add(new PendingRefresh(series, dayFrom, dayTo));
+            if (queuedRefresh == null) {
+                queuedRefresh = new CompletableFuture<>();
+                refreshExecutor.execute(this::runRefreshes);
+            }
+            return queuedRefresh;
+        }
+    }
+
+    // Recalculs en attente ou en cours (terminé s'il n'y en a pas)
+    public CompletableFuture<Void> pendingRefresh() {
+        synchronized (pendingRefreshes) {
+            return queuedRefresh != null ? queuedRefresh : runningRefresh;
+        }
+    }
+
+    // Verrou d'écriture seulement s'il est libre : sinon nouvel essai plus tard, sans bloquer les nouveaux imports
+    private void runRefreshes() {
+        long stamp = ingestGate.tryWriteLock();
+        if (stamp == 0) {
+            refreshExecutor.schedule(this::runRefreshes, REFRESH_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        List<PendingRefresh> refreshes;
+        CompletableFuture<Void> done;
+        RuntimeException failure = null;
+        try {
+            synchronized (pendingRefreshes) {
+                refreshes = new ArrayList<>(pendingRefreshes);
+                pendingRefreshes.clear();
+                done = queuedRefresh;
+                queuedRefresh = null;
+                runningRefresh = done;
+            }
+            for (PendingRefresh pending : refreshes) {
+                try {
+                    refreshLocked(pending.series, pending.from, pending.to);
+                } catch (RuntimeException e) {
+                    System.err.println("Recalcul des agrégats de " + pending.series + " impossible : " + e.getMessage());
+                    failure = e;
+                }
+            }
+        } finally {
+            ingestGate.unlockWrite(stamp);
+        }
+        if (failure != null) {
+            done.completeExceptionally(failure);
+        } else {
+            done.complete(null);
+        }
+    }
+
+    private void refreshLocked(String series, long dayFrom, long dayTo) {
+        dateCatalog.write(List.of(), () -> repository.deleteRange(series, dayFrom, dayTo));
+        try (Session session = new RollupSession(0)) {
+            if (series.equals(COMPRESSEUR + "%")) {
+                for (Long equipmentId : compresseurRepository.findEquipmentIds()) {
+                    scanCompresseur(equipmentId, dayFrom, dayTo, session::compresseurWritten);
+                }
+            } else if (isCompresseur(series)) {
+                scanCompresseur(equipmentIdOf(series), dayFrom, dayTo, session::compresseurWritten);
+            } else {
+                String equipment = series.substring(EQUIPMENT_PREFIX.length());
+                scanEquipment("%".equals(equipment) ? null : equipment, dayFrom, dayTo, session::equipmentWritten);
+            }
+        }
+        dateCatalog.forget(series);
+    }
+
+    // Journées [from, to[ d'une série à recalculer
+    private static final class PendingRefresh {
+        private final String series;
+        private long from;
+        private long to;
+
+        PendingRefresh(String series, long from, long to) {
+            this.series = series;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    public void deleteAllEquipment() {
+        deleteSeries(EQUIPMENT_PREFIX + "%");
+    }
+
+    // Base existante sans agrégats : calcul initial en tâche de fond, les imports attendent qu'il soit terminé
+    // (verrou d'écriture pris à la construction, rendu ici)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (startupStamp == 0) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                if (repository.count() == 0) {
+                    rebuildLocked();
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Calcul initial des agrégats impossible : " + e.getMessage());
+            } finally {
+                ingestGate.unlockWrite(startupStamp);
+            }
+        }, "rollup-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void scan(String series, long from, long to, RollupAccumulator accumulator) {
+        if (isCompresseur(series)) {
+            scanCompresseur(equipmentIdOf(series), from, to, batch -> accumulator.add(compresseurRows(batch), COMPRESSEUR_CHANNELS));
+        } else {
+            scanEquipment(series.substring(EQUIPMENT_PREFIX.length()), from, to,
+                    batch -> accumulator.add(equipmentRows(batch), EQUIPMENT_CHANNELS));
+        }
+    }
+
+    // Lecture triée via le dépôt : table COMPRESSEURDATA ou segments selon factory.storage.backend
+    private long scanCompresseur(Long equipmentId, long from, long to, Consumer<CompresseurBatch> consumer) {
+        long[] rows = new long[1];
+        compresseurRepository.scan(equipmentId, from, to, Integer.MAX_VALUE, batch -> {
+            rows[0] += batch.size();
+            consumer.accept(batch);
+        });
+        return rows[0];
+    }
+
+    private long scanEquipment(String equipment, long from, long to, Consumer<EquipmentBatch> consumer) {
+        EquipmentBatch batch = new EquipmentBatch(SCAN_BATCH);
+        long[] rows = new long[1];
+        stream("SELECT timestamp, temperature, pressure, vibration, humidity, equipment FROM equipment_data "
+                + "WHERE timestamp >= ? AND timestamp < ?" + (equipment != null ? " AND equipment = ?" : "")
+                + " ORDER BY timestamp", from, to, equipment, rs -> {
+            batch.add(FastParsers.toEpochSecond(rs.getTimestamp(1).toLocalDateTime()),
+                    value(rs, 2), value(rs, 3), value(rs, 4), value(rs, 5), rs.getString(6), null, false);
+            rows[0]++;
+            if (batch.isFull()) {
+                consumer.accept(batch);
+                batch.clear();
+            }
+        });
+        if (batch.size() > 0) {
+            consumer.accept(batch);
+        }
+        return rows[0];
+    }
+
+    private void stream(String sql, long from, long to, String filterValue, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(FastParsers.toLocalDateTime(from)));
+            ps.setTimestamp(2, Timestamp.valueOf(FastParsers.toLocalDateTime(to)));
+            if (filterValue != null) {
+                ps.setString(3, filterValue);
+            }
+            return ps;
+        }, handler);
+    }
+
+    private long[] rawExtent(String series) {
+        if (isCompresseur(series)) {
+            long[] stats = compresseurRepository.stats(equipmentIdOf(series),
+                    FastParsers.toEpochSecond(MIN_TIME), FastParsers.toEpochSecond(MAX_TIME));
+            return stats[0] == 0 ? null : new long[]{stats[1], stats[2] + 1};
+        }
+        return jdbcTemplate.queryForObject("SELECT MIN(timestamp), MAX(timestamp) FROM equipment_data WHERE equipment = ?",
+                (rs, i) -> rs.getTimestamp(1) == null ? null : new long[]{
+                        FastParsers.toEpochSecond(rs.getTimestamp(1).toLocalDateTime()),
+                        FastParsers.toEpochSecond(rs.getTimestamp(2).toLocalDateTime()) + 1},
+                series.substring(EQUIPMENT_PREFIX.length()));
+    }
+
+    private static String[] channelsOf(String series) {
+        return isCompresseur(series) ? COMPRESSEUR_CHANNELS : EQUIPMENT_CHANNELS;
+    }
+
+    // Série d'un compresseur : COMPRESSEUR pour le compresseur historique (equipmentId null)
+    public static String compresseurSeries(Long equipmentId) {
+        return equipmentId == null ? COMPRESSEUR : COMPRESSEUR_PREFIX + equipmentId;
+    }
+
+    static boolean isCompresseur(String series) {
+        return series.equals(COMPRESSEUR) || series.startsWith(COMPRESSEUR_PREFIX);
+    }
+
+    // Équipement d'une série compresseur (null = compresseur historique)
+    static Long equipmentIdOf(String series) {
+        if (series.equals(COMPRESSEUR)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(series.substring(COMPRESSEUR_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Série compresseur invalide : " + series);
+        }
+    }
+
+    // NULL = NaN (ignoré par les agrégats)
+    private static double value(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    static RollupAccumulator.Rows compresseurRows(CompresseurBatch batch) {
+        return new RollupAccumulator.Rows() {
+            // Un lot ne contient en général qu'un compresseur : série recalculée seulement quand il change
+            private long lastEquipment = CompresseurBatch.NO_ID;
+            private String lastSeries = COMPRESSEUR;
+
+            @Override
+            public int size() { return batch.size(); }
+
+            @Override
+            public long timestamp(int row) { return batch.timestamp(row); }
+
+            @Override
+            public String series(int row) {
+                long equipment = batch.equipmentId(row);
+                if (equipment != lastEquipment) {
+                    lastEquipment = equipment;
+                    lastSeries = equipment == CompresseurBatch.NO_ID ? COMPRESSEUR : COMPRESSEUR_PREFIX + equipment;
+                }
+                return lastSeries;
+            }
+
+            @Override
+            public double value(int row, int channel) {
+                switch (channel) {
+                    case 0: return batch.pressure(row);
+                    case 1: return batch.current(row);
+                    case 2: return batch.vibrationX(row);
+                    case 3: return batch.vibrationY(row);
+                    default: return batch.vibrationZ(row);
+                }
+            }
+        };
+    }
+
+    static RollupAccumulator.Rows equipmentRows(EquipmentBatch batch) {
+        return new RollupAccumulator.Rows() {
+            // Les noms d'équipement sont partagés (StringCache) : on évite une concaténation par ligne
+            private String lastEquipment;
+            private String lastSeries;
+
+            @Override
+            public int size() { return batch.size(); }
+
+            @Override
+            public long timestamp(int row) { return batch.timestamp(row); }
+
+            @Override
+            public String series(int row) {
+                String equipment = batch.equipment(row);
+                if (equipment == null) {
+                    return null;
+                }
+                if (!equipment.equals(lastEquipment)) {
+                    lastEquipment = equipment;
+                    lastSeries = EQUIPMENT_PREFIX + equipment;
+                }
+                return lastSeries;
+            }
+
+            @Override
+            public double value(int row, int channel) {
+                switch (channel) {
+                    case 0: return batch.temperature(row);
+                    case 1: return batch.pressure(row);
+                    case 2: return batch.vibration(row);
+                    default: return batch.humidity(row);
+                }
+            }
+        };
+    }
+
+    // Colonnes d'un canal construites seau par seau (entrées triées ; même début = même seau, cumulé)
+    private static final class ChannelBuilder {
+        private long[] starts = new long[64];
+        private double[] min = new double[64];
+        private double[] max = new double[64];
+        private double[] sum = new double[64];
+        private double[] sumSquares = new double[64];
+        private long[] count = new long[64];
+        private int size;
+
+        void add(long start, double minValue, double maxValue, double sumValue, double sumSquaresValue, long n) {
+            int last = size - 1;
+            if (last >= 0 && starts[last] == start) {
+                min[last] = Math.min(min[last], minValue);
+                max[last] = Math.max(max[last], maxValue);
+                sum[last] += sumValue;
+                sumSquares[last] += sumSquaresValue;
+                count[last] += n;
+                return;
+            }
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                min = Arrays.copyOf(min, capacity);
+                max = Arrays.copyOf(max, capacity);
+                sum = Arrays.copyOf(sum, capacity);
+                sumSquares = Arrays.copyOf(sumSquares, capacity);
+                count = Arrays.copyOf(count, capacity);
+            }
+            starts[size] = start;
+            min[size] = minValue;
+            max[size] = maxValue;
+            sum[size] = sumValue;
+            sumSquares[size] = sumSquaresValue;
+            count[size] = n;
+            size++;
+        }
+
+        RollupSeries.Channel build() {
+            LocalDateTime[] times = new LocalDateTime[size];
+            double[] avg = new double[size];
+            double[] rms = new double[size];
+            for (int i = 0; i < size; i++) {
+                times[i] = FastParsers.toLocalDateTime(starts[i]);
+                avg[i] = sum[i] / count[i];
+                rms[i] = Math.sqrt(sumSquares[i] / count[i]);
+            }
+            return new RollupSeries.Channel(times, Arrays.copyOf(min, size), Arrays.copyOf(max, size),
+                    avg, rms, Arrays.copyOf(count, size));
+        }
+    }
+}
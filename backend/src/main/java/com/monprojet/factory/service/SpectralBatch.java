@@ -0,0 +1,112 @@
+package com.monprojet.factory.service;
+
+import java.util.Arrays;
+
+// Lot de mesures spectrales (format mesures_simulees.csv) en colonnes primitives.
+// Les pics sont stockés à plat : MAX_PEAKS emplacements par ligne.
+public class SpectralBatch implements BatchPipeline.Batch {
+
+    public static final int MAX_PEAKS = 16;
+    // Bandes d'énergie, dans l'ordre des colonnes du fichier
+    public static final String[] BAND_COLUMNS = {
+            "band_0_10", "band_10_50", "band_50_100", "band_100_200", "band_200_500", "band_500_1000", "band_1000_2000"
+    };
+
+    private final long[] timestamps;
+    private final double[] vibrationX;
+    private final double[] vibrationY;
+    private final double[] vibrationZ;
+    private final boolean[] running;
+    private final String[] source;
+    private final double[] f0Hz;
+    private final double[] f0Psd;
+    private final double[] vxRms;
+    private final double[] vyRms;
+    private final int[] peakCount;
+    private final double[] peakFreqs;
+    private final double[] peakPsd;
+    private final double[][] bands;
+    private int size;
+
+    public SpectralBatch(int capacity) {
+        timestamps = new long[capacity];
+        vibrationX = new double[capacity];
+        vibrationY = new double[capacity];
+        vibrationZ = new double[capacity];
+        running = new boolean[capacity];
+        source = new String[capacity];
+        f0Hz = new double[capacity];
+        f0Psd = new double[capacity];
+        vxRms = new double[capacity];
+        vyRms = new double[capacity];
+        peakCount = new int[capacity];
+        peakFreqs = new double[capacity * MAX_PEAKS];
+        peakPsd = new double[capacity * MAX_PEAKS];
+        bands = new double[BAND_COLUMNS.length][capacity];
+    }
+
+    // Ouvre une nouvelle ligne ; les colonnes sont ensuite remplies par les setters sur l'index retourné
+    public int add(long timestamp) {
+        timestamps[size] = timestamp;
+        peakCount[size] = 0;
+        return size++;
+    }
+
+    // Annule la dernière ligne ouverte (ligne rejetée en cours d'analyse)
+    public void removeLast() {
+        size--;
+        source[size] = null;
+    }
+
+    public void setVibration(int i, double x, double y, double z) {
+        vibrationX[i] = x;
+        vibrationY[i] = y;
+        vibrationZ[i] = z;
+    }
+
+    public void setRunning(int i, boolean value) { running[i] = value; }
+    public void setSource(int i, String value) { source[i] = value; }
+
+    public void setFundamental(int i, double hz, double psd) {
+        f0Hz[i] = hz;
+        f0Psd[i] = psd;
+    }
+
+    public void setRms(int i, double vx, double vy) {
+        vxRms[i] = vx;
+        vyRms[i] = vy;
+    }
+
+    public void setPeakCount(int i, int count) { peakCount[i] = count; }
+    public void setBand(int i, int band, double value) { bands[band][i] = value; }
+
+    // Tableaux de réception des pics de la ligne i (à partir de peakOffset(i))
+    public double[] peakFreqs() { return peakFreqs; }
+    public double[] peakPsd() { return peakPsd; }
+    public int peakOffset(int i) { return i * MAX_PEAKS; }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean isFull() { return size == timestamps.length; }
+
+    @Override
+    public void clear() {
+        Arrays.fill(source, 0, size, null);
+        size = 0;
+    }
+
+    public long timestamp(int i) { return timestamps[i]; }
+    public double vibrationX(int i) { return vibrationX[i]; }
+    public double vibrationY(int i) { return vibrationY[i]; }
+    public double vibrationZ(int i) { return vibrationZ[i]; }
+    public boolean running(int i) { return running[i]; }
+    public String source(int i) { return source[i]; }
+    public double f0Hz(int i) { return f0Hz[i]; }
+    public double f0Psd(int i) { return f0Psd[i]; }
+    public double vxRms(int i) { return vxRms[i]; }
+    public double vyRms(int i) { return vyRms[i]; }
+    public int peakCount(int i) { return peakCount[i]; }
+    public double band(int i, int band) { return bands[band][i]; }
+}
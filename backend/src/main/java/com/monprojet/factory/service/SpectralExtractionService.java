@@ -0,0 +1,262 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.SpectralFeatureBatchRepository;
+import com.monprojet.factory.repository.TelemetryBulkLoader;
+import com.monprojet.factory.spectral.Gaps;
+import com.monprojet.factory.spectral.SampleClock;
+import com.monprojet.factory.spectral.SpectralFeatureExtractor;
+import com.monprojet.factory.spectral.WelchPsd;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Caractéristiques spectrales calculées côté serveur, au format de spectral_features (celui de l'acquisition Python) :
+// les mesures du compresseur sont découpées en fenêtres consécutives de window-samples mesures, et pour chacune
+//   spectre de Welch de la vibration X -> énergie par bande, topK pics interpolés, f0 = pic dont les harmoniques
+//   2·f0 et 3·f0 sont les plus fortes parmi ces pics (SpectralFeatureExtractor.fundamental)
+//   RMS des vibrations X et Y, dernières valeurs brutes de la fenêtre
+// Fenêtres prises sur la grille du pas mesuré sur les horodatages (SampleClock) : lignes manquantes comptées comme
+// absentes, fenêtre entamée abandonnée à un trou trop long, fréquences des pics et des bandes au pas mesuré.
+// Mesures X absentes comblées par interpolation (Gaps) avant le spectre ; une fenêtre qui en compte plus de
+// max-missing-ratio est écartée (pas de ligne) et comptée dans skippedWindows.
+// Lignes écrites par lots via le chargeur en masse des imports, avec source = "welch:<série>".
+@Service
+public class SpectralExtractionService {
+
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    public static final String SOURCE_PREFIX = "welch:";
+
+    private final CompresseurDataBatchRepository compresseurRepository;
+    private final SpectralFeatureBatchRepository spectralRepository;
+    private final TelemetryBulkLoader bulkLoader;
+    private final double sampleRate;
+    private final double[][] bands;
+    private final WelchPsd welch;
+    private final SpectralFeatureExtractor extractor;
+    private final int windowSamples;
+    private final int topPeaks;
+    private final int batchSize;
+    private final double maxMissingRatio;
+
+    public SpectralExtractionService(CompresseurDataBatchRepository compresseurRepository,
+                                     SpectralFeatureBatchRepository spectralRepository,
+                                     TelemetryBulkLoader bulkLoader,
+                                     @Value("${factory.spectrum.sample-rate-hz:1.0}") double sampleRate,
+                                     @Value("${factory.spectrum.nperseg:256}") int nperseg,
+                                     @Value("${factory.spectrum.noverlap:128}") int noverlap,
+                                     @Value("${factory.spectrum.window-samples:1024}") int windowSamples,
+                                     @Value("${factory.spectral.bands:0-10,10-50,50-100,100-200,200-500,500-1000,1000-2000}") String bands,
+                                     @Value("${factory.spectral.top-peaks:6}") int topPeaks,
+                                     @Value("${factory.import.batch-size:1000}") int batchSize,
+                                     @Value("${factory.spectrum.max-missing-ratio:0.2}") double maxMissingRatio) {
+        this.compresseurRepository = compresseurRepository;
+        this.spectralRepository = spectralRepository;
+        this.bulkLoader = bulkLoader;
+        this.sampleRate = sampleRate;
+        this.bands = parseBands(bands);
+        this.welch = new WelchPsd(nperseg, noverlap, sampleRate);
+        this.extractor = new SpectralFeatureExtractor(sampleRate / nperseg, welch.bins(), this.bands);
+        if (windowSamples < nperseg) {
+            throw new IllegalArgumentException("factory.spectrum.window-samples doit valoir au moins nperseg (" + nperseg + ")");
+        }
+        if (!(maxMissingRatio >= 0 && maxMissingRatio <= 1)) {
+            throw new IllegalArgumentException("factory.spectrum.max-missing-ratio doit être compris entre 0 et 1");
+        }
+        if (topPeaks < 0 || topPeaks > SpectralBatch.MAX_PEAKS) {
+            throw new IllegalArgumentException("factory.spectral.top-peaks doit être compris entre 0 et " + SpectralBatch.MAX_PEAKS);
+        }
+        this.windowSamples = windowSamples;
+        this.topPeaks = topPeaks;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxMissingRatio = maxMissingRatio;
+    }
+
+    // "0-10,10-50,..." : une bande par colonne band_* de spectral_features, dans le même ordre
+    static double[][] parseBands(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != SpectralBatch.BAND_COLUMNS.length) {
+            throw new IllegalArgumentException("factory.spectral.bands : " + SpectralBatch.BAND_COLUMNS.length
+                    + " bandes attendues (" + String.join(", ", SpectralBatch.BAND_COLUMNS) + ")");
+        }
+        double[][] bands = new double[parts.length][];
+        for (int i = 0; i < parts.length; i++) {
+            String[] bounds = parts[i].trim().split("-");
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("Bande invalide : " + parts[i] + " (attendu : bas-haut, en Hz)");
+            }
+            bands[i] = new double[]{Double.parseDouble(bounds[0].trim()), Double.parseDouble(bounds[1].trim())};
+        }
+        return bands;
+    }
+
+    // Extraction sur [from, to[ (bornes optionnelles) pour un compresseur (null = historique) ;
+    // les lignes d'une extraction précédente sur la même plage sont remplacées
+    public synchronized Map<String, Object> extract(Long equipmentId, LocalDateTime from, LocalDateTime to) {
+        long start = System.currentTimeMillis();
+        long fromSecond = FastParsers.toEpochSecond(from != null ? from : MIN_TIME);
+        long toSecond = FastParsers.toEpochSecond(to != null ? to : MAX_TIME);
+        if (fromSecond >= toSecond) {
+            throw new IllegalArgumentException("from doit précéder to");
+        }
+        String source = SOURCE_PREFIX + RollupService.compresseurSeries(equipmentId);
+        int replaced = spectralRepository.deleteBySource(source, fromSecond, toSecond);
+
+        // Pas mesuré sur les premières mesures de la plage, tenu pour toute l'extraction
+        long[] probe = compresseurRepository.firstTimestamps(equipmentId, fromSecond, toSecond, SampleClock.PROBE_ROWS);
+        SampleClock clock = new SampleClock(SampleClock.measure(probe, probe.length, sampleRate),
+                (int) (maxMissingRatio * welch.nperseg()));
+        Extraction extraction = new Extraction(source, clock);
+        compresseurRepository.scan(equipmentId, fromSecond, toSecond, Integer.MAX_VALUE, extraction::add);
+        extraction.flush();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("source", source);
+        result.put("rows", extraction.rows);
+        result.put("sampleRate", clock.sampleRate());
+        result.put("windows", extraction.written);
+        result.put("skippedWindows", extraction.skipped);
+        result.put("replaced", replaced);
+        result.put("durationMs", System.currentTimeMillis() - start);
+        System.out.println("Extraction spectrale " + source + " : " + extraction.written + " fenêtres sur "
+                + extraction.rows + " mesures en " + result.get("durationMs") + " ms"
+                + (extraction.skipped > 0 ? " (" + extraction.skipped + " fenêtres écartées, trop de mesures absentes)" : ""));
+        return result;
+    }
+
+    // État d'une extraction : fenêtre en cours (grille du pas mesuré), spectre et lot de sortie réutilisés
+    // d'une fenêtre à l'autre
+    private final class Extraction {
+        private final String source;
+        private final SampleClock clock;
+        private final WelchPsd welch;
+        private final SpectralFeatureExtractor extractor;
+        private final double[] x = new double[windowSamples];
+        private final double[] y = new double[windowSamples];
+        private final double[] psd = new double[SpectralExtractionService.this.welch.bins()];
+        private final double[] energies = new double[bands.length];
+        private final SpectralBatch batch = new SpectralBatch(batchSize);
+        private int size;
+        private double currentSum;
+        private int currentCount;
+        private long lastTimestamp;
+        private double lastX;
+        private double lastY;
+        private double lastZ;
+        private long rows;
+        private long written;
+        private long skipped;
+
+        Extraction(String source, SampleClock clock) {
+            this.source = source;
+            this.clock = clock;
+            this.welch = SpectralExtractionService.this.welch.withSampleRate(clock.sampleRate());
+            this.extractor = welch == SpectralExtractionService.this.welch ? SpectralExtractionService.this.extractor
+                    : new SpectralFeatureExtractor(clock.sampleRate() / welch.nperseg(), welch.bins(), bands);
+        }
+
+        void add(CompresseurBatch rowsBatch) {
+            for (int r = 0; r < rowsBatch.size(); r++) {
+                long timestamp = rowsBatch.timestamp(r);
+                int slots = clock.advance(timestamp);
+                if (slots == SampleClock.RESTART) {
+                    // Début, ou trou trop long : la fenêtre entamée n'est pas complétée par-dessus le trou
+                    reset();
+                    slots = 1;
+                }
+                // Mesures manquantes entre deux lignes : absentes dans la fenêtre
+                for (int missing = slots - 1; missing > 0; missing--) {
+                    push(Double.NaN, Double.NaN, timestamp - Math.round(missing * clock.step()));
+                }
+                double current = rowsBatch.current(r);
+                if (!Double.isNaN(current)) {
+                    currentSum += current;
+                    currentCount++;
+                }
+                lastX = rowsBatch.vibrationX(r);
+                lastY = rowsBatch.vibrationY(r);
+                lastZ = rowsBatch.vibrationZ(r);
+                rows++;
+                push(rowsBatch.vibrationX(r), rowsBatch.vibrationY(r), timestamp);
+            }
+        }
+
+        private void push(double vx, double vy, long timestamp) {
+            x[size] = vx;
+            y[size] = vy;
+            size++;
+            lastTimestamp = timestamp;
+            if (size == windowSamples) {
+                window();
+            }
+        }
+
+        // Fenêtre complète -> une ligne de spectral_features, datée de sa dernière mesure (présente ou absente)
+        private void window() {
+            if (Gaps.count(x, 0, size) > maxMissingRatio * size) {
+                skipped++;
+                reset();
+                return;
+            }
+            int row = batch.add(lastTimestamp);
+            batch.setVibration(row, lastX, lastY, lastZ);
+            // En marche si le courant moyen de la fenêtre est positif (pas de courant mesuré : supposé en marche)
+            batch.setRunning(row, currentCount == 0 || currentSum / currentCount > 0);
+            batch.setSource(row, source);
+            // RMS sur les seules mesures présentes, avant de combler les trous
+            batch.setRms(row, rms(x, size), rms(y, size));
+            Gaps.fill(x, 0, size);
+            welch.compute(x, 0, size, psd);
+            int offset = batch.peakOffset(row);
+            int peaks = extractor.peaks(psd, topPeaks, batch.peakFreqs(), batch.peakPsd(), offset);
+            batch.setPeakCount(row, peaks);
+            int f0 = extractor.fundamental(batch.peakFreqs(), batch.peakPsd(), offset, peaks);
+            if (f0 >= 0) {
+                batch.setFundamental(row, batch.peakFreqs()[offset + f0], batch.peakPsd()[offset + f0]);
+            } else {
+                batch.setFundamental(row, Double.NaN, Double.NaN);
+            }
+            extractor.bandEnergies(psd, energies);
+            for (int b = 0; b < energies.length; b++) {
+                batch.setBand(row, b, energies[b]);
+            }
+            reset();
+            if (batch.isFull()) {
+                flush();
+            }
+        }
+
+        private void reset() {
+            size = 0;
+            currentSum = 0;
+            currentCount = 0;
+        }
+
+        // Écrit les lignes en attente ; les mesures d'une dernière fenêtre incomplète sont ignorées
+        void flush() {
+            if (batch.size() > 0) {
+                written += bulkLoader.loadSpectral(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Moyenne quadratique des valeurs présentes (NaN si aucune)
+    private static double rms(double[] values, int size) {
+        double squares = 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            double v = values[i];
+            if (!Double.isNaN(v)) {
+                squares += v * v;
+                count++;
+            }
+        }
+        return count > 0 ? Math.sqrt(squares / count) : Double.NaN;
+    }
+}
@@ -0,0 +1,186 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.dto.ImportResult;
+import com.monprojet.factory.exception.InvalidCSVFormatException;
+import com.monprojet.factory.repository.TelemetryBulkLoader;
+import com.monprojet.factory.utils.CsvTokenizer;
+import com.monprojet.factory.utils.FastParsers;
+import com.monprojet.factory.utils.PeakArrayParser;
+import com.monprojet.factory.utils.StringCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+// Import du format mesures_simulees.csv (f0, RMS, pics, énergie par bande) écrit par l'acquisition Python
+@Service
+public class SpectralFeatureImportService {
+
+    private final TelemetryBulkLoader bulkLoader;
+    private final List<TelemetryIngestListener> ingestListeners;
+
+    @Value("${factory.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${factory.import.writer-threads:4}")
+    private int writerThreads;
+
+    @Value("${factory.import.queue-capacity:8}")
+    private int queueCapacity;
+
+    public SpectralFeatureImportService(TelemetryBulkLoader bulkLoader, List<TelemetryIngestListener> ingestListeners) {
+        this.bulkLoader = bulkLoader;
+        this.ingestListeners = ingestListeners;
+    }
+
+    public ImportResult importSpectralFeatures(InputStream input, ImportJob job) throws IOException {
+        long start = System.currentTimeMillis();
+        long parsed = 0;
+        long rejected = 0;
+        long inserted;
+        TelemetryIngestListener.Session ingest = TelemetryIngestListener.beginAll(ingestListeners, "spectral");
+        BatchPipeline<SpectralBatch> pipeline = new BatchPipeline<>(
+                "spectral-import", writerThreads, queueCapacity, () -> new SpectralBatch(batchSize), batch -> {
+                    int written = bulkLoader.loadSpectral(batch);
+                    job.addInserted(written);
+                    ingest.spectralWritten(batch);
+                    return written;
+                });
+
+        try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            CsvTokenizer csv = new CsvTokenizer(reader);
+            if (!csv.next()) {
+                throw new InvalidCSVFormatException("Fichier CSV vide");
+            }
+            List<String> headers = Arrays.asList(csv.toArray());
+            int timestampColumn = column(headers, "timestamp", true);
+            int vibrationXColumn = column(headers, "vibration_x", false);
+            int vibrationYColumn = column(headers, "vibration_y", false);
+            int vibrationZColumn = column(headers, "vibration_z", false);
+            int runningColumn = column(headers, "running", false);
+            int sourceColumn = column(headers, "source", false);
+            int f0HzColumn = column(headers, "f0_hz", true);
+            int f0PsdColumn = column(headers, "f0_psd", true);
+            int vxRmsColumn = column(headers, "vx_rms", true);
+            int vyRmsColumn = column(headers, "vy_rms", true);
+            int peaksColumn = column(headers, "peaks_json", true);
+            int[] bandColumns = new int[SpectralBatch.BAND_COLUMNS.length];
+            for (int band = 0; band < bandColumns.length; band++) {
+                bandColumns[band] = column(headers, SpectralBatch.BAND_COLUMNS[band], true);
+            }
+            StringCache strings = new StringCache(64);
+
+            while (csv.next()) {
+                // Le script Python réécrit l'en-tête à chaque ouverture du fichier en ajout
+                if (csv.fieldEquals(timestampColumn, "timestamp")) {
+                    continue;
+                }
+                parsed++;
+                job.addParsed(1);
+
+                long timestamp = csv.getTimestamp(timestampColumn);
+                if (timestamp == FastParsers.INVALID_TIMESTAMP) {
+                    rejected++;
+                    job.reject(csv.recordNumber(), csv.isEmpty(timestampColumn)
+                            ? RejectedRowSink.Reason.MISSING_TIMESTAMP : RejectedRowSink.Reason.INVALID_TIMESTAMP, csv.recordText());
+                    continue;
+                }
+
+                SpectralBatch batch = pipeline.current();
+                int row = batch.add(timestamp);
+                RejectedRowSink.Reason reason = fill(csv, batch, row, vibrationXColumn, vibrationYColumn, vibrationZColumn,
+                        runningColumn, sourceColumn, f0HzColumn, f0PsdColumn, vxRmsColumn, vyRmsColumn, peaksColumn,
+                        bandColumns, strings);
+                if (reason != null) {
+                    batch.removeLast();
+                    rejected++;
+                    job.reject(csv.recordNumber(), reason, csv.recordText());
+                    continue;
+                }
+                pipeline.flushIfFull();
+            }
+            inserted = pipeline.finish();
+        } catch (IOException e) {
+            pipeline.abort();
+            System.err.println("Erreur lors de la lecture du fichier spectral : " + e.getMessage());
+            throw e;
+        } catch (InterruptedException e) {
+            pipeline.abort();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import spectral interrompu");
+        } catch (RuntimeException e) {
+            pipeline.abort();
+            throw e;
+        } finally {
+            ingest.close();
+        }
+
+        ImportResult result = new ImportResult(parsed, inserted, rejected, System.currentTimeMillis() - start);
+        System.out.println("Import spectral terminé : " + result);
+        return result;
+    }
+
+    // Remplit la ligne row ; retourne le motif de rejet, ou null si la ligne est valide
+    private static RejectedRowSink.Reason fill(CsvTokenizer csv, SpectralBatch batch, int row,
+                                               int vibrationX, int vibrationY, int vibrationZ, int running, int source,
+                                               int f0Hz, int f0Psd, int vxRms, int vyRms, int peaks,
+                                               int[] bands, StringCache strings) {
+        FieldReader fields = new FieldReader(csv);
+        batch.setVibration(row, fields.read(vibrationX), fields.read(vibrationY), fields.read(vibrationZ));
+        batch.setFundamental(row, fields.read(f0Hz), fields.read(f0Psd));
+        batch.setRms(row, fields.read(vxRms), fields.read(vyRms));
+        for (int band = 0; band < bands.length; band++) {
+            batch.setBand(row, band, fields.read(bands[band]));
+        }
+        if (fields.invalid) {
+            return RejectedRowSink.Reason.INVALID_NUMBER;
+        }
+
+        if (csv.isEmpty(peaks)) {
+            batch.setPeakCount(row, -1);
+        } else {
+            int count = PeakArrayParser.parse(csv.buffer(), csv.start(peaks), csv.length(peaks),
+                    batch.peakFreqs(), batch.peakPsd(), batch.peakOffset(row), SpectralBatch.MAX_PEAKS);
+            if (count < 0) {
+                return RejectedRowSink.Reason.INVALID_PEAKS;
+            }
+            batch.setPeakCount(row, count);
+        }
+
+        batch.setRunning(row, running >= 0 && (csv.fieldEquals(running, "1") || csv.fieldEqualsIgnoreCase(running, "true")));
+        batch.setSource(row, source >= 0 && !csv.isEmpty(source)
+                ? strings.get(csv.buffer(), csv.start(source), csv.length(source)) : null);
+        return null;
+    }
+
+    // Lecture des colonnes numériques d'une ligne : absent, vide ou "nan" = NaN (NULL en base),
+    // illisible = ligne invalide
+    private static final class FieldReader {
+        private final CsvTokenizer csv;
+        private boolean invalid;
+
+        FieldReader(CsvTokenizer csv) {
+            this.csv = csv;
+        }
+
+        double read(int column) {
+            if (column < 0 || csv.isEmpty(column) || csv.fieldEqualsIgnoreCase(column, "nan")) {
+                return Double.NaN;
+            }
+            double value = csv.getDouble(column);
+            invalid |= Double.isNaN(value);
+            return value;
+        }
+    }
+
+    private static int column(List<String> headers, String name, boolean required) {
+        int index = headers.indexOf(name);
+        if (index < 0 && required) {
+            throw new InvalidCSVFormatException("Colonne manquante dans le fichier CSV : " + name);
+        }
+        return index;
+    }
+}
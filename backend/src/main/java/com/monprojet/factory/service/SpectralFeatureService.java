@@ -0,0 +1,67 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.dto.SpectralFeatureDto;
+import com.monprojet.factory.entity.SpectralFeature;
+import com.monprojet.factory.repository.SpectralFeatureRepository;
+import com.monprojet.factory.utils.PeakArrayParser;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+public class SpectralFeatureService {
+
+    private final SpectralFeatureRepository repository;
+
+    public SpectralFeatureService(SpectralFeatureRepository repository) {
+        this.repository = repository;
+    }
+
+    // Historique chronologique ; sans bornes, les limit mesures les plus récentes
+    public List<SpectralFeatureDto> getHistory(LocalDateTime from, LocalDateTime to, int limit) {
+        List<SpectralFeature> rows;
+        if (from == null && to == null) {
+            rows = new ArrayList<>(repository.findAllByOrderByTimestampDesc(PageRequest.of(0, limit)));
+            Collections.reverse(rows);
+        } else {
+            rows = repository.findByTimestampBetweenOrderByTimestampAsc(
+                    from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0),
+                    to != null ? to : LocalDateTime.of(9999, 12, 31, 23, 59),
+                    PageRequest.of(0, limit));
+        }
+        List<SpectralFeatureDto> result = new ArrayList<>(rows.size());
+        for (SpectralFeature row : rows) {
+            result.add(toDto(row));
+        }
+        return result;
+    }
+
+    private SpectralFeatureDto toDto(SpectralFeature entity) {
+        SpectralFeatureDto dto = new SpectralFeatureDto();
+        dto.setId(entity.getId());
+        dto.setTimestamp(entity.getTimestamp());
+        dto.setVibrationX(entity.getVibrationX());
+        dto.setVibrationY(entity.getVibrationY());
+        dto.setVibrationZ(entity.getVibrationZ());
+        dto.setRunning(entity.getRunning());
+        dto.setSource(entity.getSource());
+        dto.setF0Hz(entity.getF0Hz());
+        dto.setF0Psd(entity.getF0Psd());
+        dto.setVxRms(entity.getVxRms());
+        dto.setVyRms(entity.getVyRms());
+        dto.setPeaks(PeakArrayParser.parse(entity.getPeaksJson(), SpectralBatch.MAX_PEAKS));
+
+        Map<String, Double> bands = new LinkedHashMap<>();
+        bands.put("band_0_10", entity.getBand0To10());
+        bands.put("band_10_50", entity.getBand10To50());
+        bands.put("band_50_100", entity.getBand50To100());
+        bands.put("band_100_200", entity.getBand100To200());
+        bands.put("band_200_500", entity.getBand200To500());
+        bands.put("band_500_1000", entity.getBand500To1000());
+        bands.put("band_1000_2000", entity.getBand1000To2000());
+        dto.setBands(bands);
+        return dto;
+    }
+}
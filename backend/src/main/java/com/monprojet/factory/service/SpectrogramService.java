@@ -0,0 +1,185 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.spectral.Gaps;
+import com.monprojet.factory.spectral.SampleClock;
+import com.monprojet.factory.spectral.Stft;
+import com.monprojet.factory.utils.FastParsers;
+import com.monprojet.factory.utils.SpectrogramEncoder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Spectrogramme (STFT) d'un canal du compresseur sur [from, to[ : une lecture de la fenêtre, puis les trames
+// calculées en parallèle sur le pool dédié. Sans pas imposé, les trames se recouvrent de moitié et le pas est
+// élargi au besoin pour rester sous max-frames trames et max-cells cellules trames x bins (une journée entière tient
+// en une réponse, et la matrice reste bornée en mémoire quel que soit nperseg) ; avec un pas imposé, refusé au-delà.
+// Fréquence d'échantillonnage mesurée sur les horodatages et trames découpées sur la grille de ce pas (SampleClock) :
+// lignes manquantes comptées comme absentes, pas de trame à cheval sur un trou trop long (temps des trames non réguliers).
+// Mesures absentes comblées par interpolation (Gaps) avant la STFT ; une trame qui en compte plus de
+// max-missing-ratio est vidée (densité nulle, plancher en dB) plutôt que tracée sur des valeurs inventées.
+@Service
+public class SpectrogramService {
+
+    private static final List<String> CHANNELS = List.of(RollupService.COMPRESSEUR_CHANNELS);
+    private static final int MIN_SEGMENT = 8;
+    private static final int MAX_SEGMENT = 65536;
+
+    private final CompresseurDataBatchRepository repository;
+    private final ForkJoinPool pool;
+    private final double sampleRate;
+    private final int nperseg;
+    private final int maxSamples;
+    private final int maxFrames;
+    private final long maxCells;
+    private final double maxMissingRatio;
+
+    public SpectrogramService(CompresseurDataBatchRepository repository,
+                              @Qualifier("spectrogramPool") ForkJoinPool pool,
+                              @Value("${factory.spectrum.sample-rate-hz:1.0}") double sampleRate,
+                              @Value("${factory.spectrum.nperseg:256}") int nperseg,
+                              @Value("${factory.spectrum.max-window-samples:2000000}") int maxSamples,
+                              @Value("${factory.spectrogram.max-frames:4096}") int maxFrames,
+                              @Value("${factory.spectrogram.max-cells:4194304}") long maxCells,
+                              @Value("${factory.spectrum.max-missing-ratio:0.2}") double maxMissingRatio) {
+        if (maxFrames < 1) {
+            throw new IllegalArgumentException("factory.spectrogram.max-frames doit être positif");
+        }
+        if (maxCells < 1) {
+            throw new IllegalArgumentException("factory.spectrogram.max-cells doit être positif");
+        }
+        if (!(maxMissingRatio >= 0 && maxMissingRatio <= 1)) {
+            throw new IllegalArgumentException("factory.spectrum.max-missing-ratio doit être compris entre 0 et 1");
+        }
+        this.repository = repository;
+        this.pool = pool;
+        this.sampleRate = sampleRate;
+        this.nperseg = nperseg;
+        this.maxSamples = maxSamples;
+        this.maxFrames = maxFrames;
+        this.maxCells = maxCells;
+        this.maxMissingRatio = maxMissingRatio;
+    }
+
+    // equipmentId null = compresseur historique ; segmentSize (puissance de 2) et hop (en mesures au pas mesuré) optionnels ;
+    // decibels : densités converties en dB, à quantifier en octets par l'encodeur
+    public SpectrogramEncoder compresseur(Long equipmentId, String channel, LocalDateTime from, LocalDateTime to,
+                                          Integer segmentSize, Integer hop, boolean decibels) {
+        int column = CHANNELS.indexOf(channel);
+        if (column < 0) {
+            throw new IllegalArgumentException("Canal inconnu : " + channel + " (attendu : " + CHANNELS + ")");
+        }
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Fenêtre [from, to[ requise, avec from < to");
+        }
+        int size = segmentSize != null ? segmentSize : nperseg;
+        if (size < MIN_SEGMENT || size > MAX_SEGMENT) {
+            throw new IllegalArgumentException("nperseg doit être compris entre " + MIN_SEGMENT + " et " + MAX_SEGMENT);
+        }
+        if (hop != null && hop < 1) {
+            throw new IllegalArgumentException("hop doit être positif");
+        }
+        // Trames au plus pour cette taille de trame (size / 2 + 1 bins chacune)
+        int bins = size / 2 + 1;
+        int frameLimit = (int) Math.min(maxFrames, maxCells / bins);
+        if (frameLimit < 1) {
+            throw new IllegalArgumentException("nperseg trop grand : " + bins + " bins par trame (au plus " + maxCells
+                    + " cellules trames x bins)");
+        }
+
+        double[][] samples = {new double[Math.min(maxSamples, 4096)]};
+        long[][] timestamps = {new long[samples[0].length]};
+        int[] count = {0};
+        repository.scan(equipmentId, FastParsers.toEpochSecond(from), FastParsers.toEpochSecond(to), maxSamples + 1, batch -> {
+            int needed = count[0] + batch.size();
+            if (needed > samples[0].length) {
+                int capacity = Math.max(needed, samples[0].length * 2);
+                samples[0] = Arrays.copyOf(samples[0], capacity);
+                timestamps[0] = Arrays.copyOf(timestamps[0], capacity);
+            }
+            for (int r = 0; r < batch.size(); r++) {
+                samples[0][count[0]] = value(batch, column, r);
+                timestamps[0][count[0]++] = batch.timestamp(r);
+            }
+        });
+        int n = count[0];
+        if (n > maxSamples) {
+            throw new IllegalArgumentException("Fenêtre trop longue : plus de " + maxSamples + " mesures");
+        }
+        // Trames prises sur la grille du pas mesuré : chacune couvre size x pas secondes, aucune ne traverse un trou
+        // qui la viderait à lui seul
+        SampleClock clock = new SampleClock(SampleClock.measure(timestamps[0], n, sampleRate), (int) (maxMissingRatio * size));
+        SampleClock.Grid grid = clock.regularize(timestamps[0], samples[0], n, maxSamples);
+        long spare = 0;
+        int runs = 0;
+        for (int r = 0; r < grid.runs(); r++) {
+            int length = grid.end(r) - grid.start(r);
+            if (length >= size) {
+                spare += length - size;
+                runs++;
+            }
+        }
+        if (runs == 0) {
+            throw new IllegalArgumentException("Au moins " + size + " mesures consécutives sont nécessaires dans la fenêtre ("
+                    + n + " trouvées, une toutes les " + clock.step() + " s)");
+        }
+
+        // Pas par défaut : moitié de trame, élargi pour ne pas dépasser frameLimit (une trame au moins par série)
+        int step = hop != null ? hop
+                : Math.max(size / 2, frameLimit > runs ? (int) Math.min(Integer.MAX_VALUE,
+                        (spare + frameLimit - runs - 1) / (frameLimit - runs)) : grid.size());
+        long total = 0;
+        for (int r = 0; r < grid.runs(); r++) {
+            int length = grid.end(r) - grid.start(r);
+            total += length >= size ? (length - size) / step + 1 : 0;
+        }
+        if (total > frameLimit) {
+            throw new IllegalArgumentException("Trop de trames : " + total + " de " + bins + " bins (au plus " + frameLimit
+                    + " à cette taille de trame, " + maxCells + " cellules), augmentez hop ou réduisez nperseg");
+        }
+        int frames = (int) total;
+        double[] x = grid.values();
+        // Mesures absentes cumulées (missing[i] = absentes avant i), relevées avant de combler les trous
+        int[] missing = new int[grid.size() + 1];
+        for (int i = 0; i < grid.size(); i++) {
+            missing[i + 1] = missing[i] + (Double.isNaN(x[i]) ? 1 : 0);
+        }
+        int[] starts = new int[frames];
+        long[] millis = new long[frames];
+        int f = 0;
+        for (int r = 0; r < grid.runs(); r++) {
+            int runStart = grid.start(r);
+            int runEnd = grid.end(r);
+            if (missing[runEnd] > missing[runStart]) {
+                Gaps.fill(x, runStart, runEnd - runStart);
+            }
+            for (int start = runStart; start + size <= runEnd; start += step) {
+                starts[f] = start;
+                millis[f++] = Math.round(grid.time(r, start + size / 2) * 1000);
+            }
+        }
+        Stft stft = new Stft(size, step, clock.sampleRate());
+        float[] matrix = stft.compute(x, starts, frames, decibels, pool);
+        for (f = 0; f < frames; f++) {
+            if (missing[starts[f] + size] - missing[starts[f]] > maxMissingRatio * size) {
+                Arrays.fill(matrix, f * bins, (f + 1) * bins, decibels ? Stft.DB_FLOOR : 0f);
+            }
+        }
+        return new SpectrogramEncoder(millis, matrix, stft.bins(), stft.sampleRate(), size, step, decibels);
+    }
+
+    private static double value(CompresseurBatch batch, int column, int row) {
+        return switch (column) {
+            case 0 -> batch.pressure(row);
+            case 1 -> batch.current(row);
+            case 2 -> batch.vibrationX(row);
+            case 3 -> batch.vibrationY(row);
+            default -> batch.vibrationZ(row);
+        };
+    }
+}
@@ -0,0 +1,157 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.dto.Spectrum;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Spectres déjà calculés, par (série, canal, fenêtre, paramètres de Welch) : un tableau de bord qui interroge
+// la même fenêtre historique relit la mémoire au lieu de relire la base et de refaire les FFT.
+// Taille bornée en octets (spectres pondérés par la taille de leurs tableaux), éviction du moins récemment lu.
+// Un import ou une suppression qui touche une fenêtre en cache retire les spectres concernés.
+@Service
+public class SpectrumCache implements TelemetryIngestListener {
+
+    // En-têtes d'objets, clé et champs du spectre, en plus des tableaux
+    private static final int ENTRY_OVERHEAD = 256;
+    // Invalidations récentes gardées pour écarter un spectre calculé pendant un import (voir put)
+    private static final int MAX_RECENT_INVALIDATIONS = 1024;
+
+    // from/to en secondes (FastParsers), to exclu
+    public record Key(String series, String channel, long from, long to, double sampleRate, int nperseg, int noverlap) {
+    }
+
+    private record Invalidation(long generation, String seriesPattern, long from, long to) {
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Spectrum> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ArrayDeque<Invalidation> recentInvalidations = new ArrayDeque<>();
+    private long bytes;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidated;
+
+    public SpectrumCache(@Value("${factory.spectrum.cache-max-bytes:33554432}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public Session begin(String type) {
+        if (maxBytes <= 0 || !RollupService.COMPRESSEUR.equals(type)) {
+            return NONE;
+        }
+        return new Session() {
+            @Override
+            public void compresseurWritten(CompresseurBatch batch) {
+                // Plage [min, max] écrite par compresseur (le plus souvent un seul par lot)
+                Map<Long, long[]> ranges = new HashMap<>(4);
+                for (int i = 0; i < batch.size(); i++) {
+                    long[] range = ranges.computeIfAbsent(batch.equipmentId(i), k -> new long[]{Long.MAX_VALUE, Long.MIN_VALUE});
+                    range[0] = Math.min(range[0], batch.timestamp(i));
+                    range[1] = Math.max(range[1], batch.timestamp(i));
+                }
+                ranges.forEach((equipmentId, range) -> invalidate(
+                        RollupService.compresseurSeries(equipmentId == CompresseurBatch.NO_ID ? null : equipmentId),
+                        range[0], range[1] + 1));
+            }
+        };
+    }
+
+    public synchronized Spectrum get(Key key) {
+        Spectrum spectrum = entries.get(key);
+        if (spectrum != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return spectrum;
+    }
+
+    // Compteur à relever avant de lire les mesures d'un spectre, puis à passer à put
+    public synchronized long generation() {
+        return generation;
+    }
+
+    // Ajout d'un spectre calculé à partir des mesures lues après generation() = since.
+    // Ignoré si une invalidation de sa fenêtre est survenue entre-temps : le calcul a pu voir un import en cours
+    public synchronized void put(Key key, Spectrum spectrum, long since) {
+        long weight = weight(spectrum);
+        if (maxBytes <= 0 || weight > maxBytes || invalidatedSince(key, since)) {
+            return;
+        }
+        Spectrum previous = entries.put(key, spectrum);
+        bytes += weight - (previous != null ? weight(previous) : 0);
+        Iterator<Spectrum> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= weight(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    // Mesures de [from, to[ (secondes) écrites ou supprimées ; series exacte ou préfixe terminé par % ("compresseur%")
+    public synchronized void invalidate(String seriesPattern, long from, long to) {
+        generation++;
+        recentInvalidations.addLast(new Invalidation(generation, seriesPattern, from, to));
+        if (recentInvalidations.size() > MAX_RECENT_INVALIDATIONS) {
+            recentInvalidations.removeFirst();
+        }
+        Iterator<Map.Entry<Key, Spectrum>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Spectrum> entry = it.next();
+            if (touches(seriesPattern, from, to, entry.getKey())) {
+                bytes -= weight(entry.getValue());
+                it.remove();
+                invalidated++;
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        stats.put("invalidated", invalidated);
+        return stats;
+    }
+
+    private boolean invalidatedSince(Key key, long since) {
+        if (since == generation) {
+            return false;
+        }
+        // Historique trop court pour remonter jusqu'à since : on ne sait pas, on s'abstient
+        if (recentInvalidations.isEmpty() || recentInvalidations.peekFirst().generation() > since + 1) {
+            return true;
+        }
+        for (Invalidation invalidation : recentInvalidations) {
+            if (invalidation.generation() > since
+                    && touches(invalidation.seriesPattern(), invalidation.from(), invalidation.to(), key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean touches(String seriesPattern, long from, long to, Key key) {
+        boolean series = seriesPattern.endsWith("%")
+                ? key.series().startsWith(seriesPattern.substring(0, seriesPattern.length() - 1))
+                : key.series().equals(seriesPattern);
+        return series && from < key.to() && key.from() < to;
+    }
+
+    private static long weight(Spectrum spectrum) {
+        return ENTRY_OVERHEAD + 8L * (spectrum.getFreqs().length + spectrum.getPsd().length);
+    }
+}
@@ -0,0 +1,161 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.dto.Spectrum;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.spectral.Gaps;
+import com.monprojet.factory.spectral.SampleClock;
+import com.monprojet.factory.spectral.WelchPsd;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Spectre de Welch d'un canal du compresseur sur une fenêtre [from, to[, servi par SpectrumCache quand il y est.
+// Fréquence d'échantillonnage mesurée sur les horodatages et mesures remises sur une grille régulière (SampleClock) :
+// lignes manquantes comptées comme absentes, séries coupées aux trous trop longs, spectres des séries moyennés.
+// Mesures absentes comblées par interpolation (Gaps) avant le spectre ; au-delà de max-missing-ratio, refusé.
+@Service
+public class SpectrumService {
+
+    private static final List<String> CHANNELS = List.of(RollupService.COMPRESSEUR_CHANNELS);
+    private static final int MIN_SEGMENT = 8;
+    private static final int MAX_SEGMENT = 65536;
+
+    private final CompresseurDataBatchRepository repository;
+    private final SpectrumCache cache;
+    private final double sampleRate;
+    private final int nperseg;
+    private final int noverlap;
+    private final int maxSamples;
+    private final double maxMissingRatio;
+    // Un estimateur par taille de segment, à la fréquence configurée (ramené à la fréquence mesurée au calcul)
+    private final Map<Integer, WelchPsd> estimators = new ConcurrentHashMap<>();
+
+    public SpectrumService(CompresseurDataBatchRepository repository, SpectrumCache cache,
+                           @Value("${factory.spectrum.sample-rate-hz:1.0}") double sampleRate,
+                           @Value("${factory.spectrum.nperseg:256}") int nperseg,
+                           @Value("${factory.spectrum.noverlap:128}") int noverlap,
+                           @Value("${factory.spectrum.max-window-samples:2000000}") int maxSamples,
+                           @Value("${factory.spectrum.max-missing-ratio:0.2}") double maxMissingRatio) {
+        if (!(maxMissingRatio >= 0 && maxMissingRatio <= 1)) {
+            throw new IllegalArgumentException("factory.spectrum.max-missing-ratio doit être compris entre 0 et 1");
+        }
+        this.repository = repository;
+        this.cache = cache;
+        this.sampleRate = sampleRate;
+        this.nperseg = nperseg;
+        this.noverlap = noverlap;
+        this.maxSamples = maxSamples;
+        this.maxMissingRatio = maxMissingRatio;
+        estimator(nperseg);
+    }
+
+    // equipmentId null = compresseur historique ; segmentSize optionnel (puissance de 2, recouvrement de moitié)
+    public Spectrum compresseur(Long equipmentId, String channel, LocalDateTime from, LocalDateTime to, Integer segmentSize) {
+        int column = CHANNELS.indexOf(channel);
+        if (column < 0) {
+            throw new IllegalArgumentException("Canal inconnu : " + channel + " (attendu : " + CHANNELS + ")");
+        }
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Fenêtre [from, to[ requise, avec from < to");
+        }
+        if (segmentSize != null && (segmentSize < MIN_SEGMENT || segmentSize > MAX_SEGMENT)) {
+            throw new IllegalArgumentException("nperseg doit être compris entre " + MIN_SEGMENT + " et " + MAX_SEGMENT);
+        }
+        WelchPsd welch = estimator(segmentSize != null ? segmentSize : nperseg);
+        String series = RollupService.compresseurSeries(equipmentId);
+        long fromSecond = FastParsers.toEpochSecond(from);
+        long toSecond = FastParsers.toEpochSecond(to);
+        SpectrumCache.Key key = new SpectrumCache.Key(series, channel, fromSecond, toSecond,
+                sampleRate, welch.nperseg(), welch.nperseg() - welch.step());
+        Spectrum cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = cache.generation();
+        double[][] samples = {new double[Math.min(maxSamples, 4096)]};
+        long[][] timestamps = {new long[samples[0].length]};
+        int[] size = {0};
+        repository.scan(equipmentId, fromSecond, toSecond, maxSamples + 1, batch -> {
+            int needed = size[0] + batch.size();
+            if (needed > samples[0].length) {
+                int capacity = Math.max(needed, samples[0].length * 2);
+                samples[0] = Arrays.copyOf(samples[0], capacity);
+                timestamps[0] = Arrays.copyOf(timestamps[0], capacity);
+            }
+            for (int r = 0; r < batch.size(); r++) {
+                samples[0][size[0]] = value(batch, column, r);
+                timestamps[0][size[0]++] = batch.timestamp(r);
+            }
+        });
+        if (size[0] > maxSamples) {
+            throw new IllegalArgumentException("Fenêtre trop longue : plus de " + maxSamples + " mesures");
+        }
+        // Pas mesuré sur les horodatages ; un trou qui écarterait à lui seul un segment coupe la série
+        SampleClock clock = new SampleClock(SampleClock.measure(timestamps[0], size[0], sampleRate),
+                (int) (maxMissingRatio * welch.nperseg()));
+        SampleClock.Grid grid = clock.regularize(timestamps[0], samples[0], size[0], maxSamples);
+        WelchPsd rated = welch.withSampleRate(clock.sampleRate());
+        double[] x = grid.values();
+        int used = 0;
+        int missing = 0;
+        for (int r = 0; r < grid.runs(); r++) {
+            int length = grid.end(r) - grid.start(r);
+            if (rated.segments(length) > 0) {
+                used += length;
+                missing += Gaps.count(x, grid.start(r), length);
+            }
+        }
+        if (used == 0) {
+            throw new IllegalArgumentException("Au moins " + welch.nperseg() + " mesures consécutives sont nécessaires dans la fenêtre ("
+                    + size[0] + " trouvées, une toutes les " + clock.step() + " s)");
+        }
+        if (missing > maxMissingRatio * used) {
+            throw new IllegalArgumentException("Trop de mesures absentes dans la fenêtre : " + missing + " sur " + used
+                    + " (au plus " + Math.round(maxMissingRatio * 100) + " %)");
+        }
+        // Spectre moyen des séries assez longues, pondéré par leur nombre de segments
+        double[] psd = new double[rated.bins()];
+        double[] part = new double[rated.bins()];
+        int segments = 0;
+        for (int r = 0; r < grid.runs(); r++) {
+            int length = grid.end(r) - grid.start(r);
+            if (rated.segments(length) == 0) {
+                continue;
+            }
+            Gaps.fill(x, grid.start(r), length);
+            int count = rated.compute(x, grid.start(r), length, part);
+            for (int k = 0; k < psd.length; k++) {
+                psd[k] += part[k] * count;
+            }
+            segments += count;
+        }
+        for (int k = 0; k < psd.length; k++) {
+            psd[k] /= segments;
+        }
+        Spectrum spectrum = new Spectrum(series, channel, from, to, rated.sampleRate(), welch.nperseg(),
+                welch.nperseg() - welch.step(), used, missing, segments, rated.frequencies(), psd);
+        cache.put(key, spectrum, generation);
+        return spectrum;
+    }
+
+    private WelchPsd estimator(int size) {
+        return estimators.computeIfAbsent(size, n -> new WelchPsd(n, n == nperseg ? noverlap : n / 2, sampleRate));
+    }
+
+    private static double value(CompresseurBatch batch, int column, int row) {
+        return switch (column) {
+            case 0 -> batch.pressure(row);
+            case 1 -> batch.current(row);
+            case 2 -> batch.vibrationX(row);
+            case 3 -> batch.vibrationY(row);
+            default -> batch.vibrationZ(row);
+        };
+    }
+}
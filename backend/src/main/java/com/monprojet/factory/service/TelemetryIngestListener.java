@@ -0,0 +1,85 @@
+package com.monprojet.factory.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Point d'extension de l'ingestion : les beans qui implémentent cette interface reçoivent
+// chaque lot effectivement écrit en base (agrégats, caches, catalogues...).
+// Les lots arrivent depuis les threads d'écriture, en parallèle et sans ordre garanti entre eux.
+public interface TelemetryIngestListener {
+
+    // Appelé au début d'un import ; type = "compresseur", "equipment" ou "spectral"
+    Session begin(String type);
+
+    interface Session extends AutoCloseable {
+        default void compresseurWritten(CompresseurBatch batch) {}
+        default void equipmentWritten(EquipmentBatch batch) {}
+        default void spectralWritten(SpectralBatch batch) {}
+
+        // Fin de l'import, réussi ou non : les lots déjà écrits restent en base et doivent être pris en compte
+        @Override
+        default void close() {}
+    }
+
+    Session NONE = new Session() {};
+
+    // Ouvre une session auprès de chaque écouteur ; une erreur d'un écouteur n'interrompt jamais l'import
+    static Session beginAll(List<TelemetryIngestListener> listeners, String type) {
+        if (listeners == null || listeners.isEmpty()) {
+            return NONE;
+        }
+        List<Session> sessions = new ArrayList<>(listeners.size());
+        for (TelemetryIngestListener listener : listeners) {
+            try {
+                sessions.add(listener.begin(type));
+            } catch (RuntimeException e) {
+                System.err.println("Écouteur d'ingestion ignoré (" + listener.getClass().getSimpleName() + ") : " + e.getMessage());
+            }
+        }
+        return new Session() {
+            @Override
+            public void compresseurWritten(CompresseurBatch batch) {
+                for (Session session : sessions) {
+                    try {
+                        session.compresseurWritten(batch);
+                    } catch (RuntimeException e) {
+                        System.err.println("Erreur d'un écouteur d'ingestion : " + e.getMessage());
+                    }
+                }
+            }
+
+            @Override
+            public void equipmentWritten(EquipmentBatch batch) {
+                for (Session session : sessions) {
+                    try {
+                        session.equipmentWritten(batch);
+                    } catch (RuntimeException e) {
+                        System.err.println("Erreur d'un écouteur d'ingestion : " + e.getMessage());
+                    }
+                }
+            }
+
+            @Override
+            public void spectralWritten(SpectralBatch batch) {
+                for (Session session : sessions) {
+                    try {
+                        session.spectralWritten(batch);
+                    } catch (RuntimeException e) {
+                        System.err.println("Erreur d'un écouteur d'ingestion : " + e.getMessage());
+                    }
+                }
+            }
+
+            @Override
+            public void close() {
+                for (Session session : sessions) {
+                    try {
+                        session.close();
+                    } catch (RuntimeException e) {
+                        System.err.println("Erreur à la clôture d'un écouteur d'ingestion : " + e.getMessage());
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,274 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.dto.DownsampledSeries;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.utils.ColumnarEncoder;
+import com.monprojet.factory.utils.Downsampler;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Séries de télémétrie pour les graphiques : les lignes sont lues en flux (colonnes primitives,
+// aucune entité) et réduites à la volée au nombre de points affichés
+@Service
+public class TelemetryQueryService {
+
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String[] COMPRESSEUR_CHANNELS = {"pressure", "currentValue", "vibrationX", "vibrationY", "vibrationZ"};
+    private static final String[] EQUIPMENT_COLUMNS = {"temperature", "pressure", "vibration", "humidity"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CompresseurDataBatchRepository compresseurRepository;
+    private final int maxPoints;
+    private final int maxLimit;
+
+    public TelemetryQueryService(JdbcTemplate jdbcTemplate,
+                                 CompresseurDataBatchRepository compresseurRepository,
+                                 @Value("${factory.query.max-points:20000}") int maxPoints,
+                                 @Value("${factory.query.max-limit:50000}") int maxLimit) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.compresseurRepository = compresseurRepository;
+        this.maxPoints = maxPoints;
+        this.maxLimit = maxLimit;
+    }
+
+    // Compresseur (equipmentId null = compresseur historique) : lu via le dépôt
+    // (table COMPRESSEURDATA ou segments selon factory.storage.backend)
+    public DownsampledSeries compresseur(Long equipmentId, LocalDateTime from, LocalDateTime to, int points, Downsampler.Method method) {
+        int target = Math.max(3, Math.min(points, maxPoints));
+        long fromSecond = FastParsers.toEpochSecond(from != null ? from : MIN_TIME);
+        long toSecond = FastParsers.toEpochSecond(to != null ? to : MAX_TIME);
+        long[] stats = compresseurRepository.stats(equipmentId, fromSecond, toSecond);
+        long count = stats[0];
+        long first = count > 0 ? stats[1] * 1000 : 0;
+        long last = count > 0 ? stats[2] * 1000 : 0;
+        DownsampledSeries series = new DownsampledSeries(method.name().toLowerCase(), target, count,
+                count > 0 ? fromMillis(first) : from, count > 0 ? fromMillis(last) : to);
+
+        Downsampler[] samplers = new Downsampler[COMPRESSEUR_CHANNELS.length];
+        for (int c = 0; c < samplers.length; c++) {
+            samplers[c] = Downsampler.create(method, target, count, first, last);
+        }
+        if (count > 0) {
+            compresseurRepository.scan(equipmentId, fromSecond, toSecond, Integer.MAX_VALUE, batch -> {
+                for (int r = 0; r < batch.size(); r++) {
+                    long x = batch.timestamp(r) * 1000;
+                    samplers[0].add(x, batch.pressure(r));
+                    samplers[1].add(x, batch.current(r));
+                    samplers[2].add(x, batch.vibrationX(r));
+                    samplers[3].add(x, batch.vibrationY(r));
+                    samplers[4].add(x, batch.vibrationZ(r));
+                }
+            });
+        }
+        finish(series, COMPRESSEUR_CHANNELS, samplers);
+        return series;
+    }
+
+    public DownsampledSeries equipment(String equipment, LocalDateTime from, LocalDateTime to, int points, Downsampler.Method method) {
+        return downsample("equipment_data", EQUIPMENT_COLUMNS, EQUIPMENT_COLUMNS,
+                equipment != null ? "equipment = ?" : null, equipment, from, to, points, method);
+    }
+
+    // Format binaire en colonnes : série réduite si points est fourni (une colonne de temps par canal),
+    // sinon mesures brutes de la plage, au plus `limit` lignes partageant une seule colonne de temps
+    public ColumnarEncoder compresseurColumns(Long equipmentId, LocalDateTime from, LocalDateTime to, Integer points,
+                                              Downsampler.Method method, int limit) {
+        if (points != null) {
+            return toColumns(compresseur(equipmentId, from, to, points, method));
+        }
+        int maxRows = Math.max(1, Math.min(limit, maxLimit));
+        long[][] times = {new long[Math.min(maxRows, 1024)]};
+        double[][] values = new double[COMPRESSEUR_CHANNELS.length][times[0].length];
+        int[] size = {0};
+        // Une ligne de plus que la limite : indique que la série est tronquée
+        compresseurRepository.scan(equipmentId, FastParsers.toEpochSecond(from != null ? from : MIN_TIME),
+                FastParsers.toEpochSecond(to != null ? to : MAX_TIME), maxRows + 1, batch -> {
+            for (int r = 0; r < batch.size(); r++) {
+                int i = size[0]++;
+                if (i >= maxRows) {
+                    continue;
+                }
+                if (i == times[0].length) {
+                    int capacity = (int) Math.min(maxRows, i * 2L);
+                    times[0] = Arrays.copyOf(times[0], capacity);
+                    for (int c = 0; c < values.length; c++) {
+                        values[c] = Arrays.copyOf(values[c], capacity);
+                    }
+                }
+                times[0][i] = batch.timestamp(r) * 1000;
+                values[0][i] = batch.pressure(r);
+                values[1][i] = batch.current(r);
+                values[2][i] = batch.vibrationX(r);
+                values[3][i] = batch.vibrationY(r);
+                values[4][i] = batch.vibrationZ(r);
+            }
+        });
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        int time = encoder.addTimeColumn(times[0], Math.min(size[0], maxRows));
+        for (int c = 0; c < values.length; c++) {
+            encoder.addChannel(COMPRESSEUR_CHANNELS[c], time, values[c]);
+        }
+        encoder.setTruncated(size[0] > maxRows);
+        return encoder;
+    }
+
+    public ColumnarEncoder equipmentColumns(String equipment, LocalDateTime from, LocalDateTime to, Integer points,
+                                            Downsampler.Method method, int limit) {
+        if (points != null) {
+            return toColumns(equipment(equipment, from, to, points, method));
+        }
+        return rawColumns("equipment_data", EQUIPMENT_COLUMNS, EQUIPMENT_COLUMNS,
+                equipment != null ? "equipment = ?" : null, equipment, from, to, limit);
+    }
+
+    private static ColumnarEncoder toColumns(DownsampledSeries series) {
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        series.getChannels().forEach((name, channel) -> {
+            LocalDateTime[] times = channel.getT();
+            long[] millis = new long[times.length];
+            for (int i = 0; i < times.length; i++) {
+                millis[i] = times[i].toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+            encoder.addChannel(name, encoder.addTimeColumn(millis, millis.length), channel.getV());
+        });
+        return encoder;
+    }
+
+    private ColumnarEncoder rawColumns(String table, String[] columns, String[] channels,
+                                       String filter, Object filterValue,
+                                       LocalDateTime from, LocalDateTime to, int limit) {
+        int maxRows = Math.max(1, Math.min(limit, maxLimit));
+        String sql = "SELECT timestamp, " + String.join(", ", columns) + " FROM " + table
+                + " WHERE timestamp >= ? AND timestamp < ?" + (filter != null ? " AND " + filter : "") + " ORDER BY timestamp";
+        long[][] times = {new long[Math.min(maxRows, 1024)]};
+        double[][] values = new double[columns.length][times[0].length];
+        int[] size = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            // Une ligne de plus que la limite : indique que la série est tronquée
+            ps.setMaxRows(maxRows + 1);
+            ps.setTimestamp(1, Timestamp.valueOf(from != null ? from : MIN_TIME));
+            ps.setTimestamp(2, Timestamp.valueOf(to != null ? to : MAX_TIME));
+            if (filter != null) {
+                ps.setObject(3, filterValue);
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            int i = size[0];
+            if (i == maxRows) {
+                size[0]++;
+                return;
+            }
+            if (i == times[0].length) {
+                int capacity = (int) Math.min(maxRows, i * 2L);
+                times[0] = Arrays.copyOf(times[0], capacity);
+                for (int c = 0; c < columns.length; c++) {
+                    values[c] = Arrays.copyOf(values[c], capacity);
+                }
+            }
+            times[0][i] = toMillis(rs.getTimestamp(1));
+            for (int c = 0; c < columns.length; c++) {
+                values[c][i] = value(rs, c + 2);
+            }
+            size[0]++;
+        });
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        int count = Math.min(size[0], maxRows);
+        int time = encoder.addTimeColumn(times[0], count);
+        for (int c = 0; c < columns.length; c++) {
+            encoder.addChannel(channels[c], time, values[c]);
+        }
+        encoder.setTruncated(size[0] > maxRows);
+        return encoder;
+    }
+
+    private DownsampledSeries downsample(String table, String[] columns, String[] channels,
+                                         String filter, Object filterValue,
+                                         LocalDateTime from, LocalDateTime to, int points, Downsampler.Method method) {
+        int target = Math.max(3, Math.min(points, maxPoints));
+        String where = " WHERE timestamp >= ? AND timestamp < ?" + (filter != null ? " AND " + filter : "");
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.valueOf(from != null ? from : MIN_TIME));
+        params.add(Timestamp.valueOf(to != null ? to : MAX_TIME));
+        if (filter != null) {
+            params.add(filterValue);
+        }
+
+        // Nombre de lignes (taille des seaux LTTB) et étendue réelle (intervalles MINMAX), servis par l'index
+        long[] stats = jdbcTemplate.queryForObject("SELECT COUNT(*), MIN(timestamp), MAX(timestamp) FROM " + table + where,
+                (rs, i) -> new long[]{rs.getLong(1), toMillis(rs.getTimestamp(2)), toMillis(rs.getTimestamp(3))},
+                params.toArray());
+        long count = stats[0];
+        DownsampledSeries series = new DownsampledSeries(method.name().toLowerCase(), target, count,
+                count > 0 ? fromMillis(stats[1]) : from, count > 0 ? fromMillis(stats[2]) : to);
+
+        Downsampler[] samplers = new Downsampler[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            samplers[c] = Downsampler.create(method, target, count, stats[1], stats[2]);
+        }
+        if (count > 0) {
+            String sql = "SELECT timestamp, " + String.join(", ", columns) + " FROM " + table + where + " ORDER BY timestamp";
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                ps.setFetchSize(FETCH_SIZE);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                long x = toMillis(rs.getTimestamp(1));
+                for (int c = 0; c < columns.length; c++) {
+                    samplers[c].add(x, value(rs, c + 2));
+                }
+            });
+        }
+
+        finish(series, channels, samplers);
+        return series;
+    }
+
+    private static void finish(DownsampledSeries series, String[] channels, Downsampler[] samplers) {
+        for (int c = 0; c < channels.length; c++) {
+            samplers[c].finish();
+            long[] xs = samplers[c].xs();
+            LocalDateTime[] times = new LocalDateTime[xs.length];
+            for (int i = 0; i < xs.length; i++) {
+                times[i] = fromMillis(xs[i]);
+            }
+            series.addChannel(channels[c], new DownsampledSeries.Channel(times, samplers[c].ys()));
+        }
+    }
+
+    // NULL = NaN (ignoré par le sous-échantillonnage)
+    private static double value(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    // Heure locale stockée en base, portée sur l'axe UTC pour le calcul
+    private static long toMillis(Timestamp timestamp) {
+        return timestamp == null ? 0 : timestamp.toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+}
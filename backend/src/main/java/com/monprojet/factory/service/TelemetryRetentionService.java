@@ -0,0 +1,133 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.TelemetryPurgeRepository;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+// Suppression de mesures par plage de temps (lots bornés, voir TelemetryPurgeRepository) et rétention planifiée.
+// Après chaque suppression : agrégats des journées touchées recalculés, mesures retirées du cache mémoire,
+// spectres en cache oubliés et indicateurs vibratoires des fenêtres touchées recalculés.
+@Service
+public class TelemetryRetentionService {
+
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final TelemetryPurgeRepository purgeRepository;
+    private final CompresseurDataBatchRepository compresseurRepository;
+    private final RollupService rollupService;
+    private final HotTelemetryCache hotTelemetryCache;
+    private final SpectrumCache spectrumCache;
+    private final VibrationFeatureService featureService;
+    private final int chunkRows;
+    private final int maxAgeDays;
+    private final boolean archive;
+
+    public TelemetryRetentionService(TelemetryPurgeRepository purgeRepository,
+                                     CompresseurDataBatchRepository compresseurRepository,
+                                     RollupService rollupService,
+                                     HotTelemetryCache hotTelemetryCache,
+                                     SpectrumCache spectrumCache,
+                                     VibrationFeatureService featureService,
+                                     @Value("${factory.retention.chunk-rows:4000}") int chunkRows,
+                                     @Value("${factory.retention.max-age-days:0}") int maxAgeDays,
+                                     @Value("${factory.retention.archive:false}") boolean archive) {
+        this.purgeRepository = purgeRepository;
+        this.compresseurRepository = compresseurRepository;
+        this.rollupService = rollupService;
+        this.hotTelemetryCache = hotTelemetryCache;
+        this.spectrumCache = spectrumCache;
+        this.featureService = featureService;
+        this.chunkRows = Math.max(1, chunkRows);
+        this.maxAgeDays = maxAgeDays;
+        this.archive = archive;
+    }
+
+    // Mesures de tous les compresseurs dans [from, to[ (bornes optionnelles)
+    public long deleteCompresseur(LocalDateTime from, LocalDateTime to) {
+        return deleteCompresseur(null, from, to);
+    }
+
+    // Mesures d'un compresseur (tous si equipmentId est null) dans [from, to[
+    public long deleteCompresseur(Long equipmentId, LocalDateTime from, LocalDateTime to) {
+        return purge(TelemetryPurgeRepository.Table.COMPRESSEUR, equipmentId, from, to, false);
+    }
+
+    // Mesures d'un seul compresseur dans [from, to[ : le compresseur historique si equipmentId est null,
+    // comme les lectures (GET /data, spectres, exports)
+    public long deleteCompresseurSeries(Long equipmentId, LocalDateTime from, LocalDateTime to) {
+        return purge(TelemetryPurgeRepository.Table.COMPRESSEUR,
+                equipmentId != null ? equipmentId : TelemetryPurgeRepository.UNASSIGNED, from, to, false);
+    }
+
+    // Mesures d'un équipement (tous si equipment est null) dans [from, to[
+    public long deleteEquipment(String equipment, LocalDateTime from, LocalDateTime to) {
+        return purge(TelemetryPurgeRepository.Table.EQUIPMENT, equipment, from, to, false);
+    }
+
+    // Mesures plus anciennes que factory.retention.max-age-days, supprimées ou archivées (0 = rétention désactivée)
+    @Scheduled(cron = "${factory.retention.cron:0 30 3 * * *}")
+    public void applyRetention() {
+        if (maxAgeDays <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+        try {
+            long compresseur = purge(TelemetryPurgeRepository.Table.COMPRESSEUR, null, null, cutoff, archive);
+            long equipment = purge(TelemetryPurgeRepository.Table.EQUIPMENT, null, null, cutoff, archive);
+            System.out.println("Rétention (" + maxAgeDays + " jours) : " + compresseur + " mesures compresseur et "
+                    + equipment + " mesures équipements " + (archive ? "archivées" : "supprimées") + " avant " + cutoff);
+        } catch (RuntimeException e) {
+            System.err.println("Rétention des mesures impossible : " + e.getMessage());
+        }
+    }
+
+    // Une purge à la fois : rétention planifiée et suppressions manuelles ne se marchent pas dessus
+    // series : nom d'équipement (equipment_data) ou equipment_id (COMPRESSEURDATA), null = toutes les séries,
+    // TelemetryPurgeRepository.UNASSIGNED = compresseur historique
+    private synchronized long purge(TelemetryPurgeRepository.Table table, Object series,
+                                    LocalDateTime from, LocalDateTime to, boolean archive) {
+        LocalDateTime start = from != null ? from : MIN_TIME;
+        LocalDateTime end = to != null ? to : MAX_TIME;
+        if (!start.isBefore(end)) {
+            return 0;
+        }
+        long began = System.currentTimeMillis();
+        long fromSecond = FastParsers.toEpochSecond(start);
+        long toSecond = FastParsers.toEpochSecond(end);
+        long total = 0;
+        if (table == TelemetryPurgeRepository.Table.COMPRESSEUR && compresseurRepository.isSegmentBackend()) {
+            // Segments : jours entiers retirés d'un bloc, pas de lots à borner (une seule série, le compresseur historique)
+            total = series == null || series == TelemetryPurgeRepository.UNASSIGNED
+                    ? compresseurRepository.deleteSegments(fromSecond, toSecond, archive) : 0;
+        } else {
+            int deleted;
+            do {
+                deleted = purgeRepository.deleteChunk(table, start, end, series, chunkRows, archive);
+                total += deleted;
+            } while (deleted >= chunkRows);
+        }
+
+        if (total > 0) {
+            if (table == TelemetryPurgeRepository.Table.COMPRESSEUR) {
+                String compresseur = series == null ? RollupService.COMPRESSEUR + "%"
+                        : series == TelemetryPurgeRepository.UNASSIGNED ? RollupService.COMPRESSEUR
+                        : RollupService.compresseurSeries((Long) series);
+                rollupService.refresh(compresseur, fromSecond, toSecond);
+                hotTelemetryCache.remove(compresseur, fromSecond, toSecond);
+                spectrumCache.invalidate(compresseur, fromSecond, toSecond);
+                featureService.refresh(compresseur, fromSecond, toSecond);
+            } else {
+                rollupService.refresh(RollupService.EQUIPMENT_PREFIX + (series != null ? series : "%"), fromSecond, toSecond);
+            }
+        }
+        System.out.println("Suppression dans " + table + " : " + total + " mesures en "
+                + (System.currentTimeMillis() - began) + " ms");
+        return total;
+    }
+}
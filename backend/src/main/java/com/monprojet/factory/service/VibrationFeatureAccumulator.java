@@ -0,0 +1,124 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.spectral.RunningMoments;
+import com.monprojet.factory.utils.FastParsers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Cumul en mémoire des moments des voies de vibration par fenêtre fixe et par compresseur.
+// Comme RollupAccumulator : cumul local à chaque lot, fusion dans l'état partagé une fois par lot.
+public class VibrationFeatureAccumulator {
+
+    public static final String[] CHANNELS = {"vibrationX", "vibrationY", "vibrationZ"};
+
+    // Une fenêtre d'un compresseur : moments de chaque voie
+    public static final class Window {
+        private final String series;
+        private final long start;
+        private final RunningMoments[] moments = new RunningMoments[CHANNELS.length];
+        private long first = Long.MAX_VALUE;
+        private long last = Long.MIN_VALUE;
+
+        Window(String series, long start) {
+            this.series = series;
+            this.start = start;
+            for (int c = 0; c < moments.length; c++) {
+                moments[c] = new RunningMoments();
+            }
+        }
+
+        void touch(long timestamp) {
+            first = Math.min(first, timestamp);
+            last = Math.max(last, timestamp);
+        }
+
+        // Fusion d'un cumul de la même fenêtre (autre lot, ou valeurs déjà en base)
+        public void merge(int channel, RunningMoments other, long otherFirst, long otherLast) {
+            moments[channel].merge(other);
+            first = Math.min(first, otherFirst);
+            last = Math.max(last, otherLast);
+        }
+
+        void merge(Window other) {
+            for (int c = 0; c < moments.length; c++) {
+                merge(c, other.moments[c], other.first, other.last);
+            }
+        }
+
+        public String series() { return series; }
+        public long start() { return start; }
+        public RunningMoments moments(int channel) { return moments[channel]; }
+        public long first() { return first; }
+        public long last() { return last; }
+    }
+
+    private record Key(String series, long start) {
+    }
+
+    private final int windowSeconds;
+    private Map<Key, Window> windows = new HashMap<>();
+
+    public VibrationFeatureAccumulator(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+
+    public int windowSeconds() {
+        return windowSeconds;
+    }
+
+    public void add(CompresseurBatch batch) {
+        Map<Key, Window> local = new HashMap<>();
+        Window current = null;
+        long currentEquipment = 0;
+        String series = null;
+        for (int row = 0; row < batch.size(); row++) {
+            long timestamp = batch.timestamp(row);
+            if (timestamp == FastParsers.INVALID_TIMESTAMP) {
+                continue;
+            }
+            long equipmentId = batch.equipmentId(row);
+            if (series == null || equipmentId != currentEquipment) {
+                series = RollupService.compresseurSeries(equipmentId == CompresseurBatch.NO_ID ? null : equipmentId);
+                currentEquipment = equipmentId;
+                current = null;
+            }
+            long start = timestamp - Math.floorMod(timestamp, (long) windowSeconds);
+            if (current == null || current.start != start) {
+                String windowSeries = series;
+                current = local.computeIfAbsent(new Key(series, start), k -> new Window(windowSeries, start));
+            }
+            current.touch(timestamp);
+            add(current, 0, batch.vibrationX(row));
+            add(current, 1, batch.vibrationY(row));
+            add(current, 2, batch.vibrationZ(row));
+        }
+        synchronized (this) {
+            for (Map.Entry<Key, Window> entry : local.entrySet()) {
+                Window existing = windows.putIfAbsent(entry.getKey(), entry.getValue());
+                if (existing != null) {
+                    existing.merge(entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static void add(Window window, int channel, double value) {
+        if (!Double.isNaN(value)) {
+            window.moments[channel].add(value);
+        }
+    }
+
+    public synchronized int size() {
+        return windows.size();
+    }
+
+    // Retire et retourne les fenêtres cumulées (à fusionner en base)
+    public synchronized List<Window> drain() {
+        List<Window> drained = new ArrayList<>(windows.values());
+        windows = new HashMap<>();
+        return drained;
+    }
+}
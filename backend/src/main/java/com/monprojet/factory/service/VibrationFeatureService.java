@@ -0,0 +1,147 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.dto.VibrationFeatureDto;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.VibrationFeatureRepository;
+import com.monprojet.factory.utils.FastParsers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Indicateurs vibratoires (RMS, crête, crête à crête, facteur de crête, asymétrie, kurtosis) par fenêtre fixe,
+// calculés au fil de l'import à partir des lots écrits et fusionnés dans vibration_features :
+// tableaux de bord et alertes les lisent sans relire les mesures brutes.
+@Service
+public class VibrationFeatureService implements TelemetryIngestListener {
+
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    // Fenêtres cumulées avant fusion intermédiaire en base (borne la mémoire d'un gros import)
+    private static final int FLUSH_WINDOWS = 20_000;
+
+    private final VibrationFeatureRepository repository;
+    private final CompresseurDataBatchRepository compresseurRepository;
+    private final boolean enabled;
+    private final int windowSeconds;
+    private final int maxLimit;
+    // Recalculs et reconstruction sérialisés (ils suppriment puis réécrivent des fenêtres)
+    private final Object rebuildLock = new Object();
+
+    public VibrationFeatureService(VibrationFeatureRepository repository,
+                                   CompresseurDataBatchRepository compresseurRepository,
+                                   @Value("${factory.features.enabled:true}") boolean enabled,
+                                   @Value("${factory.features.window-seconds:60}") int windowSeconds,
+                                   @Value("${factory.query.max-limit:50000}") int maxLimit) {
+        if (windowSeconds <= 0) {
+            throw new IllegalArgumentException("factory.features.window-seconds doit être positif");
+        }
+        this.repository = repository;
+        this.compresseurRepository = compresseurRepository;
+        this.enabled = enabled;
+        this.windowSeconds = windowSeconds;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public Session begin(String type) {
+        if (!enabled || !RollupService.COMPRESSEUR.equals(type)) {
+            return NONE;
+        }
+        return new FeatureSession();
+    }
+
+    // Cumul propre à un import, alimenté par les threads d'écriture après chaque lot écrit
+    private final class FeatureSession implements Session {
+        private final VibrationFeatureAccumulator accumulator = new VibrationFeatureAccumulator(windowSeconds);
+        private volatile boolean closed;
+
+        @Override
+        public void compresseurWritten(CompresseurBatch batch) {
+            accumulator.add(batch);
+            // Un lot écrit après la clôture (import interrompu) est fusionné aussitôt
+            if (closed || accumulator.size() >= FLUSH_WINDOWS) {
+                flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            flush();
+        }
+
+        private void flush() {
+            List<VibrationFeatureAccumulator.Window> windows = accumulator.drain();
+            if (!windows.isEmpty()) {
+                repository.merge(windowSeconds, windows);
+            }
+        }
+    }
+
+    // Fenêtres d'un compresseur (null = historique) qui commencent dans [from, to[, par date puis par voie.
+    // channel : vibrationX, vibrationY ou vibrationZ (toutes si null)
+    public List<VibrationFeatureDto> query(Long equipmentId, String channel, LocalDateTime from, LocalDateTime to, Integer limit) {
+        if (channel != null && !Arrays.asList(VibrationFeatureAccumulator.CHANNELS).contains(channel)) {
+            throw new IllegalArgumentException("Voie inconnue : " + channel + " (attendu : "
+                    + String.join(", ", VibrationFeatureAccumulator.CHANNELS) + ")");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("from doit précéder to");
+        }
+        int rows = limit != null ? limit : maxLimit;
+        if (rows <= 0 || rows > maxLimit) {
+            throw new IllegalArgumentException("limit doit être compris entre 1 et " + maxLimit);
+        }
+        return repository.find(RollupService.compresseurSeries(equipmentId), windowSeconds, channel,
+                FastParsers.toEpochSecond(from != null ? from : MIN_TIME),
+                FastParsers.toEpochSecond(to != null ? to : MAX_TIME), rows);
+    }
+
+    // Recalcul complet depuis les mesures (à lancer hors import) ; renvoie le nombre de mesures relues
+    public long rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            repository.deleteSeries("%");
+            long rows = recompute(compresseurRepository.findEquipmentIds(),
+                    FastParsers.toEpochSecond(MIN_TIME), FastParsers.toEpochSecond(MAX_TIME));
+            System.out.println("Indicateurs vibratoires reconstruits : " + rows + " mesures en "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return rows;
+        }
+    }
+
+    // Mesures supprimées dans [from, to[ (secondes) : les fenêtres touchées sont recalculées sur ce qui reste.
+    // series : "compresseur", "compresseur:<id>" ou "compresseur%" (tous les compresseurs)
+    public void refresh(String series, long from, long to) {
+        if (!enabled) {
+            return;
+        }
+        long windowFrom = from - Math.floorMod(from, (long) windowSeconds);
+        long remainder = Math.floorMod(to, (long) windowSeconds);
+        long windowTo = Math.min(remainder == 0 ? to : to - remainder + windowSeconds, FastParsers.toEpochSecond(MAX_TIME));
+        synchronized (rebuildLock) {
+            repository.deleteRange(series, windowFrom, windowTo);
+            List<Long> equipmentIds = series.equals(RollupService.COMPRESSEUR + "%")
+                    ? compresseurRepository.findEquipmentIds()
+                    : Collections.singletonList(RollupService.equipmentIdOf(series));
+            recompute(equipmentIds, windowFrom, windowTo);
+        }
+    }
+
+    private long recompute(List<Long> equipmentIds, long from, long to) {
+        long[] rows = new long[1];
+        for (Long equipmentId : equipmentIds) {
+            try (Session session = new FeatureSession()) {
+                compresseurRepository.scan(equipmentId, from, to, Integer.MAX_VALUE, batch -> {
+                    rows[0] += batch.size();
+                    session.compresseurWritten(batch);
+                });
+            }
+        }
+        return rows[0];
+    }
+}
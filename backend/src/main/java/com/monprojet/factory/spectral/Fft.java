@@ -0,0 +1,76 @@
+package com.monprojet.factory.spectral;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// FFT complexe radix-2 (Cooley-Tukey itératif, en place). Les facteurs de rotation et la permutation
+// d'inversion de bits sont calculés une seule fois par taille : une instance est partageable entre threads.
+public final class Fft {
+
+    private static final Map<Integer, Fft> INSTANCES = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] reversed;
+
+    private Fft(int size) {
+        this.size = size;
+        int half = size / 2;
+        cos = new double[half];
+        sin = new double[half];
+        for (int k = 0; k < half; k++) {
+            double angle = -2 * Math.PI * k / size;
+            cos[k] = Math.cos(angle);
+            sin[k] = Math.sin(angle);
+        }
+        reversed = new int[size];
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    // size : puissance de 2
+    public static Fft of(int size) {
+        if (size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("La taille de la FFT doit être une puissance de 2 : " + size);
+        }
+        return INSTANCES.computeIfAbsent(size, Fft::new);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Transformée directe de (re, im) sur les size premières cases, résultat en place
+    public void transform(double[] re, double[] im) {
+        for (int i = 0; i < size; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int length = 2; length <= size; length <<= 1) {
+            int half = length >>> 1;
+            int stride = size / length;
+            for (int start = 0; start < size; start += length) {
+                for (int k = 0, w = 0; k < half; k++, w += stride) {
+                    int a = start + k;
+                    int b = a + half;
+                    double tre = re[b] * cos[w] - im[b] * sin[w];
+                    double tim = re[b] * sin[w] + im[b] * cos[w];
+                    re[b] = re[a] - tre;
+                    im[b] = im[a] - tim;
+                    re[a] += tre;
+                    im[a] += tim;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.monprojet.factory.spectral;
+
+// Mesures absentes (NaN) d'une série régulière, à combler avant la FFT : une seule valeur NaN rendrait tout le
+// spectre NaN, et la remplacer par 0 (ou par la moyenne) ajoute une marche qui étale de la puissance sur tous les bins.
+// Les trous sont comblés par interpolation linéaire entre les mesures présentes qui les encadrent, par la mesure
+// la plus proche aux bords ; au-delà d'une certaine part de trous, c'est à l'appelant d'écarter la fenêtre.
+public final class Gaps {
+
+    private Gaps() {
+    }
+
+    // Nombre de valeurs absentes dans x[offset, offset + length[
+    public static int count(double[] x, int offset, int length) {
+        int missing = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (Double.isNaN(x[i])) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    // Comble x[offset, offset + length[ sur place ; renvoie le nombre de valeurs comblées.
+    // Sans aucune mesure présente, rien n'est comblé (renvoie 0).
+    public static int fill(double[] x, int offset, int length) {
+        int end = offset + length;
+        int previous = -1;
+        int filled = 0;
+        for (int i = offset; i < end; i++) {
+            if (Double.isNaN(x[i])) {
+                continue;
+            }
+            int gap = i - (previous < 0 ? offset : previous + 1);
+            if (gap > 0) {
+                if (previous < 0) {
+                    for (int j = offset; j < i; j++) {
+                        x[j] = x[i];
+                    }
+                } else {
+                    double slope = (x[i] - x[previous]) / (i - previous);
+                    for (int j = previous + 1; j < i; j++) {
+                        x[j] = x[previous] + slope * (j - previous);
+                    }
+                }
+                filled += gap;
+            }
+            previous = i;
+        }
+        if (previous >= 0 && previous < end - 1) {
+            for (int j = previous + 1; j < end; j++) {
+                x[j] = x[previous];
+            }
+            filled += end - 1 - previous;
+        }
+        return filled;
+    }
+}
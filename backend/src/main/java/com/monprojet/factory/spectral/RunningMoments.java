@@ -0,0 +1,121 @@
+package com.monprojet.factory.spectral;
+
+// Moments d'une suite de valeurs calculés en une passe, sans somme de puissances (stable numériquement) :
+// mise à jour de Welford étendue aux moments 3 et 4 (Terriberry), fusion de deux cumuls par les formules de Pébay (2008).
+// m2, m3, m4 : sommes des écarts à la moyenne à la puissance 2, 3, 4.
+public final class RunningMoments {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double m3;
+    private double m4;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public RunningMoments() {
+    }
+
+    // Cumul relu (par exemple en base)
+    public RunningMoments(long count, double mean, double m2, double m3, double m4, double min, double max) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+        this.m3 = m3;
+        this.m4 = m4;
+        this.min = min;
+        this.max = max;
+    }
+
+    public void add(double x) {
+        long n1 = count;
+        long n = ++count;
+        double delta = x - mean;
+        double deltaN = delta / n;
+        double deltaN2 = deltaN * deltaN;
+        double term = delta * deltaN * n1;
+        mean += deltaN;
+        m4 += term * deltaN2 * ((double) n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+        m3 += term * deltaN * (n - 2) - 3 * deltaN * m2;
+        m2 += term;
+        if (x < min) {
+            min = x;
+        }
+        if (x > max) {
+            max = x;
+        }
+    }
+
+    public void merge(RunningMoments other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            m3 = other.m3;
+            m4 = other.m4;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        double na = count;
+        double nb = other.count;
+        double n = na + nb;
+        double delta = other.mean - mean;
+        double delta2 = delta * delta;
+        double m4Merged = m4 + other.m4
+                + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (n * n * n)
+                + 6 * delta2 * (na * na * other.m2 + nb * nb * m2) / (n * n)
+                + 4 * delta * (na * other.m3 - nb * m3) / n;
+        double m3Merged = m3 + other.m3
+                + delta2 * delta * na * nb * (na - nb) / (n * n)
+                + 3 * delta * (na * other.m2 - nb * m2) / n;
+        m2 += other.m2 + delta2 * na * nb / n;
+        m3 = m3Merged;
+        m4 = m4Merged;
+        mean += delta * nb / n;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long count() { return count; }
+    public double mean() { return mean; }
+    public double m2() { return m2; }
+    public double m3() { return m3; }
+    public double m4() { return m4; }
+    public double min() { return min; }
+    public double max() { return max; }
+
+    // Moyenne quadratique des valeurs (composante continue comprise)
+    public double rms() {
+        return count == 0 ? Double.NaN : Math.sqrt(mean * mean + m2 / count);
+    }
+
+    // Plus grande valeur absolue
+    public double peak() {
+        return count == 0 ? Double.NaN : Math.max(Math.abs(min), Math.abs(max));
+    }
+
+    public double peakToPeak() {
+        return count == 0 ? Double.NaN : max - min;
+    }
+
+    // Facteur de crête : crête / RMS (NaN si le signal est nul)
+    public double crestFactor() {
+        double rms = rms();
+        return rms > 0 ? peak() / rms : Double.NaN;
+    }
+
+    // Asymétrie (estimateur biaisé, comme scipy.stats.skew) ; NaN si la variance est nulle
+    public double skewness() {
+        return m2 > 0 ? Math.sqrt((double) count) * m3 / Math.pow(m2, 1.5) : Double.NaN;
+    }
+
+    // Kurtosis de Pearson (3 pour un bruit gaussien, élevée pour des chocs) ; NaN si la variance est nulle
+    public double kurtosis() {
+        return m2 > 0 ? count * m4 / (m2 * m2) : Double.NaN;
+    }
+}
@@ -0,0 +1,136 @@
+package com.monprojet.factory.spectral;
+
+import java.util.Arrays;
+
+// Pas d'échantillonnage mesuré sur les horodatages (secondes) et placement des mesures sur la grille régulière de ce pas.
+// Les spectres supposent des mesures régulières, ce que ne sont pas les fichiers du compresseur (une mesure par minute
+// environ dans SearchEngine/data/vib_data_fallback.csv, avec des trous de 20 min à 27 jours) : le pas est l'écart
+// médian entre mesures consécutives, une mesure arrivée k pas après la précédente laisse k - 1 mesures absentes (NaN,
+// à combler par Gaps), et au-delà de maxGap mesures absentes la série est coupée : rien n'est calculé à cheval sur le trou.
+// Horodatages à la seconde : au-delà d'une mesure par seconde le pas ne se mesure pas (écart médian nul), on garde
+// alors la fréquence configurée et l'ordre des lignes, en ne coupant qu'aux trous.
+public final class SampleClock {
+
+    // Première mesure d'une série (début, ou reprise après un trou de plus de maxGap mesures)
+    public static final int RESTART = 0;
+    // Mesures lues pour mesurer le pas d'une plage parcourue en flux (exports, extraction), avant de la parcourir
+    public static final int PROBE_ROWS = 4096;
+    // Écarts au plus pris en compte pour la médiane, répartis sur toute la plage
+    private static final int MAX_STEPS = 65_536;
+
+    private final double step;
+    private final int maxGap;
+    private long last;
+    private boolean started;
+
+    // step en secondes ; maxGap : mesures absentes au plus comblées d'un seul tenant
+    public SampleClock(double step, int maxGap) {
+        if (!(step > 0)) {
+            throw new IllegalArgumentException("Pas d'échantillonnage invalide : " + step);
+        }
+        this.step = step;
+        this.maxGap = Math.max(0, maxGap);
+    }
+
+    // Pas de timestamps[0, length[ (triés) : écart médian, 1 / fallbackRate si moins de deux mesures ou écart médian nul
+    public static double measure(long[] timestamps, int length, double fallbackRate) {
+        int steps = length - 1;
+        if (steps < 1) {
+            return 1 / fallbackRate;
+        }
+        int stride = Math.max(1, steps / MAX_STEPS);
+        long[] sample = new long[(steps + stride - 1) / stride];
+        for (int i = 0; i < sample.length; i++) {
+            int at = i * stride;
+            sample[i] = timestamps[at + 1] - timestamps[at];
+        }
+        Arrays.sort(sample);
+        long median = sample[(sample.length - 1) / 2];
+        return median > 0 ? median : 1 / fallbackRate;
+    }
+
+    public double step() { return step; }
+    public double sampleRate() { return 1 / step; }
+    public int maxGap() { return maxGap; }
+
+    // Rangs à avancer sur la grille pour la mesure suivante, datée de timestamp : 1 = mesure suivante,
+    // k > 1 = k - 1 mesures absentes avant elle, RESTART = première mesure ou reprise après un trou trop long
+    public int advance(long timestamp) {
+        long elapsed = timestamp - last;
+        last = timestamp;
+        if (!started) {
+            started = true;
+            return RESTART;
+        }
+        // Plusieurs mesures par seconde : l'écart n'est connu qu'à la seconde près
+        long slots = step < 1 && elapsed <= 1 ? 1 : Math.max(1, Math.round(elapsed / step));
+        return slots - 1 > maxGap ? RESTART : (int) slots;
+    }
+
+    // La mesure suivante recommence une série
+    public void reset() {
+        started = false;
+    }
+
+    // Mesures x[0, length[ datées de timestamps, placées sur la grille de ce pas. Au plus maxSlots rangs, trous compris.
+    public Grid regularize(long[] timestamps, double[] x, int length, int maxSlots) {
+        reset();
+        Grid grid = new Grid(Math.min(maxSlots, Math.max(16, length + length / 4)));
+        for (int i = 0; i < length; i++) {
+            int slots = advance(timestamps[i]);
+            if (slots == RESTART) {
+                grid.restart(timestamps[i]);
+                slots = 1;
+            }
+            if (grid.size + slots > maxSlots) {
+                throw new IllegalArgumentException("Fenêtre trop longue : plus de " + maxSlots + " mesures, trous compris");
+            }
+            grid.ensureCapacity(grid.size + slots);
+            Arrays.fill(grid.values, grid.size, grid.size + slots - 1, Double.NaN);
+            grid.size += slots;
+            grid.values[grid.size - 1] = x[i];
+        }
+        return grid;
+    }
+
+    // Mesures régulières (NaN = absentes) découpées en séries sans trou trop long : la série r occupe
+    // values[start(r), end(r)[ et sa première mesure est datée de time(r)
+    public final class Grid {
+        private double[] values;
+        private int size;
+        private int[] starts = new int[8];
+        private long[] times = new long[8];
+        private int runs;
+
+        private Grid(int capacity) {
+            values = new double[capacity];
+        }
+
+        private void restart(long timestamp) {
+            if (runs == starts.length) {
+                starts = Arrays.copyOf(starts, runs * 2);
+                times = Arrays.copyOf(times, runs * 2);
+            }
+            starts[runs] = size;
+            times[runs] = timestamp;
+            runs++;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+            }
+        }
+
+        public double[] values() { return values; }
+        public int size() { return size; }
+        public int runs() { return runs; }
+        public int start(int run) { return starts[run]; }
+        public int end(int run) { return run + 1 < runs ? starts[run + 1] : size; }
+
+        // Date (secondes, fractionnaire si le pas l'est) d'une mesure de la série run
+        public double time(int run, int index) {
+            return times[run] + (index - starts[run]) * step;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.monprojet.factory.spectral;
+
+// Caractéristiques d'un spectre (densité de puissance, bins régulièrement espacés de df) :
+//   énergie par bande : somme de psd x df sur les bins dont la fréquence tombe dans [bas, haut[
+//   pics : maxima locaux, les topK plus forts, position et hauteur affinées par interpolation parabolique
+//          sur le logarithme de la densité (sommet d'une fenêtre de Hann quasi gaussien en échelle log)
+//   fondamentale : parmi ces pics, celui dont les harmoniques 2·f0 et 3·f0 retrouvées dans la liste cumulent
+//          la plus forte densité (le plus fort si aucun pic n'a d'harmonique)
+// Les bornes des bandes sont converties une fois en plages de bins ; les boucles de calcul ne font que des
+// additions et comparaisons sur des tableaux, sans allocation. Immuable et partageable entre threads.
+public final class SpectralFeatureExtractor {
+
+    // Rangs d'harmoniques cherchés au-dessus de la fondamentale
+    private static final int HARMONICS = 3;
+
+    private final double df;
+    private final int bins;
+    private final int[] bandStart;
+    private final int[] bandEnd;
+
+    // bands[i] = {bas, haut} en Hz ; bins = nombre de bins des spectres traités (nperseg / 2 + 1)
+    public SpectralFeatureExtractor(double df, int bins, double[][] bands) {
+        if (!(df > 0) || bins < 1) {
+            throw new IllegalArgumentException("Résolution ou nombre de bins invalide");
+        }
+        this.df = df;
+        this.bins = bins;
+        this.bandStart = new int[bands.length];
+        this.bandEnd = new int[bands.length];
+        for (int b = 0; b < bands.length; b++) {
+            if (bands[b].length != 2 || !(bands[b][0] < bands[b][1])) {
+                throw new IllegalArgumentException("Bande invalide : [" + bands[b][0] + ", " + bands[b][1] + "[");
+            }
+            bandStart[b] = firstBinAtOrAbove(bands[b][0]);
+            bandEnd[b] = firstBinAtOrAbove(bands[b][1]);
+        }
+    }
+
+    public int bands() {
+        return bandStart.length;
+    }
+
+    // Énergie de chaque bande écrite dans energies[0, bands()[ (0 pour une bande au-delà de Nyquist)
+    public void bandEnergies(double[] psd, double[] energies) {
+        for (int b = 0; b < bandStart.length; b++) {
+            int k = bandStart[b];
+            int end = bandEnd[b];
+            // Quatre sommes partielles indépendantes : la boucle n'attend pas le résultat de l'addition précédente
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            for (; k + 3 < end; k += 4) {
+                s0 += psd[k];
+                s1 += psd[k + 1];
+                s2 += psd[k + 2];
+                s3 += psd[k + 3];
+            }
+            for (; k < end; k++) {
+                s0 += psd[k];
+            }
+            energies[b] = (s0 + s1 + s2 + s3) * df;
+        }
+    }
+
+    // Les topK pics les plus forts (ordre décroissant de densité) écrits dans freqs/heights à partir de offset ;
+    // renvoie leur nombre. Le continu (bin 0) n'est pas un pic.
+    public int peaks(double[] psd, int topK, double[] freqs, double[] heights, int offset) {
+        if (topK <= 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int k = 1; k < bins - 1; k++) {
+            double value = psd[k];
+            if (!(value > psd[k - 1] && value >= psd[k + 1])) {
+                continue;
+            }
+            // Insertion dans la liste triée des topK plus forts (topK petit : décalage linéaire)
+            if (count == topK && value <= heights[offset + count - 1]) {
+                continue;
+            }
+            int i = count < topK ? count++ : count - 1;
+            while (i > 0 && heights[offset + i - 1] < value) {
+                heights[offset + i] = heights[offset + i - 1];
+                freqs[offset + i] = freqs[offset + i - 1];
+                i--;
+            }
+            heights[offset + i] = value;
+            // Indice du bin, converti en fréquence interpolée ci-dessous
+            freqs[offset + i] = k;
+        }
+        for (int p = 0; p < count; p++) {
+            int k = (int) freqs[offset + p];
+            interpolate(psd, k, freqs, heights, offset + p);
+        }
+        return count;
+    }
+
+    // Fondamentale des pics freqs/heights[offset, offset + count[ rendus par peaks (ordre décroissant) : score d'un pic
+    // f0 = sa densité + celle du plus fort pic à h·f0 pour h = 2..3, à (h + 1) / 2 bins près (l'erreur sur f0 est
+    // multipliée par h). Renvoie le rang du meilleur score, le plus fort à égalité ; -1 sans pic.
+    public int fundamental(double[] freqs, double[] heights, int offset, int count) {
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < count; c++) {
+            double f0 = freqs[offset + c];
+            double score = heights[offset + c];
+            for (int h = 2; h <= HARMONICS; h++) {
+                double tolerance = df * (h + 1) / 2;
+                double harmonic = 0;
+                for (int p = 0; p < count; p++) {
+                    if (p != c && Math.abs(freqs[offset + p] - h * f0) <= tolerance) {
+                        harmonic = Math.max(harmonic, heights[offset + p]);
+                    }
+                }
+                score += harmonic;
+            }
+            if (score > bestScore) {
+                best = c;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private void interpolate(double[] psd, int k, double[] freqs, double[] heights, int index) {
+        double a = psd[k - 1];
+        double b = psd[k];
+        double c = psd[k + 1];
+        boolean log = a > 0 && b > 0 && c > 0;
+        if (log) {
+            a = Math.log(a);
+            b = Math.log(b);
+            c = Math.log(c);
+        }
+        double curvature = a - 2 * b + c;
+        double delta = curvature < 0 ? 0.5 * (a - c) / curvature : 0;
+        double top = b - 0.25 * (a - c) * delta;
+        freqs[index] = (k + delta) * df;
+        heights[index] = log ? Math.exp(top) : top;
+    }
+
+    private int firstBinAtOrAbove(double frequency) {
+        return (int) Math.max(0, Math.min(bins, Math.ceil(frequency / df - 1e-9)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.monprojet.factory.spectral;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Transformée de Fourier à court terme : trames de nperseg mesures décalées de hop, chacune réduite à son
+// périodogramme (même normalisation que WelchPsd avec un seul segment : moyenne retirée, Hann, densité unilatérale).
+// Les trames sont indépendantes : elles sont réparties sur un pool fork-join et écrites directement dans une
+// matrice float ligne par trame (frames x bins), éventuellement en dB. Immuable et partageable entre threads.
+public final class Stft {
+
+    // Trames traitées d'un seul tenant par une tâche (en dessous, découper coûte plus que calculer)
+    private static final int FRAMES_PER_TASK = 16;
+    // Plancher des valeurs en dB (densité nulle ou absente)
+    public static final float DB_FLOOR = -300f;
+
+    private final WelchPsd periodogram;
+    private final int hop;
+
+    // nperseg : puissance de 2 ; hop >= 1 (peut dépasser nperseg : trames disjointes)
+    public Stft(int nperseg, int hop, double sampleRate) {
+        if (hop < 1) {
+            throw new IllegalArgumentException("Pas des trames invalide : " + hop);
+        }
+        this.periodogram = new WelchPsd(nperseg, 0, sampleRate);
+        this.hop = hop;
+    }
+
+    public int nperseg() { return periodogram.nperseg(); }
+    public int hop() { return hop; }
+    public int bins() { return periodogram.bins(); }
+    public double sampleRate() { return periodogram.sampleRate(); }
+
+    // Nombre de trames complètes dans length mesures
+    public int frames(int length) {
+        return length < nperseg() ? 0 : (length - nperseg()) / hop + 1;
+    }
+
+    // Première mesure de la trame
+    public int frameStart(int frame) {
+        return frame * hop;
+    }
+
+    // Spectrogramme de x[0, length[ : matrice frames(length) x bins(), densités ou 10·log10 des densités
+    public float[] compute(double[] x, int length, boolean decibels, ForkJoinPool pool) {
+        return compute(x, null, frames(length), decibels, pool);
+    }
+
+    // Trames commençant aux mesures starts[0, frames[ (séries coupées aux trous : départs non réguliers),
+    // toutes les frameStart(f) si starts est null
+    public float[] compute(double[] x, int[] starts, int frames, boolean decibels, ForkJoinPool pool) {
+        float[] matrix = new float[Math.multiplyExact(frames, bins())];
+        if (frames > 0) {
+            pool.invoke(new FrameTask(x, starts, matrix, 0, frames, decibels));
+        }
+        return matrix;
+    }
+
+    // Découpe récursive de [from, to[ en moitiés jusqu'à FRAMES_PER_TASK trames
+    private final class FrameTask extends RecursiveAction {
+        private final double[] x;
+        private final int[] starts;
+        private final float[] matrix;
+        private final int from;
+        private final int to;
+        private final boolean decibels;
+
+        FrameTask(double[] x, int[] starts, float[] matrix, int from, int to, boolean decibels) {
+            this.x = x;
+            this.starts = starts;
+            this.matrix = matrix;
+            this.from = from;
+            this.to = to;
+            this.decibels = decibels;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FRAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FrameTask(x, starts, matrix, from, middle, decibels),
+                        new FrameTask(x, starts, matrix, middle, to, decibels));
+                return;
+            }
+            int bins = bins();
+            double[] psd = new double[bins];
+            for (int frame = from; frame < to; frame++) {
+                periodogram.compute(x, starts != null ? starts[frame] : frameStart(frame), nperseg(), psd);
+                int row = frame * bins;
+                for (int k = 0; k < bins; k++) {
+                    matrix[row + k] = decibels ? decibels(psd[k]) : (float) psd[k];
+                }
+            }
+        }
+    }
+
+    private static float decibels(double psd) {
+        return psd > 0 ? (float) Math.max(DB_FLOOR, 10 * Math.log10(psd)) : DB_FLOOR;
+    }
+}
@@ -0,0 +1,121 @@
+package com.monprojet.factory.spectral;
+
+// Densité spectrale de puissance par la méthode de Welch, équivalente à
+// scipy.signal.welch(x, fs, window='hann', nperseg, noverlap, detrend='constant', scaling='density') :
+// segments de nperseg mesures décalés de nperseg - noverlap, moyenne retirée, fenêtre de Hann, |FFT|² moyenné,
+// spectre unilatéral (bins 0 à nperseg/2). Immuable et partageable : les tampons de calcul sont propres à chaque thread.
+public final class WelchPsd {
+
+    // Tampons réels/imaginaires réutilisés d'un appel à l'autre, agrandis au besoin
+    private static final ThreadLocal<double[][]> WORK = ThreadLocal.withInitial(() -> new double[2][0]);
+
+    private final int nperseg;
+    private final int step;
+    private final double sampleRate;
+    private final Fft fft;
+    private final double[] window;
+    private final double scale;
+
+    // nperseg : puissance de 2 ; noverlap dans [0, nperseg[ ; sampleRate en Hz
+    public WelchPsd(int nperseg, int noverlap, double sampleRate) {
+        if (noverlap < 0 || noverlap >= nperseg) {
+            throw new IllegalArgumentException("Recouvrement invalide : " + noverlap + " (nperseg = " + nperseg + ")");
+        }
+        if (!(sampleRate > 0)) {
+            throw new IllegalArgumentException("Fréquence d'échantillonnage invalide : " + sampleRate);
+        }
+        this.fft = Fft.of(nperseg);
+        this.nperseg = nperseg;
+        this.step = nperseg - noverlap;
+        this.sampleRate = sampleRate;
+        this.window = Windows.hann(nperseg);
+        double energy = 0;
+        for (double w : window) {
+            energy += w * w;
+        }
+        this.scale = 1.0 / (sampleRate * energy);
+    }
+
+    // Même estimateur pour des mesures espacées de 1 / sampleRate secondes (this si la fréquence est la même)
+    public WelchPsd withSampleRate(double sampleRate) {
+        return sampleRate == this.sampleRate ? this : new WelchPsd(nperseg, nperseg - step, sampleRate);
+    }
+
+    public int nperseg() { return nperseg; }
+    public int step() { return step; }
+    public double sampleRate() { return sampleRate; }
+
+    // Nombre de bins du spectre unilatéral
+    public int bins() {
+        return nperseg / 2 + 1;
+    }
+
+    public double frequency(int bin) {
+        return bin * sampleRate / nperseg;
+    }
+
+    public double[] frequencies() {
+        double[] freqs = new double[bins()];
+        for (int k = 0; k < freqs.length; k++) {
+            freqs[k] = frequency(k);
+        }
+        return freqs;
+    }
+
+    // Nombre de segments pour length mesures (0 si moins de nperseg : pas de spectre)
+    public int segments(int length) {
+        return length < nperseg ? 0 : (length - nperseg) / step + 1;
+    }
+
+    // Spectre de x[offset, offset + length[ écrit dans psd[0, bins()[ ; renvoie le nombre de segments moyennés.
+    // Les valeurs absentes (NaN) prennent la moyenne de leur segment. Les mesures au-delà du dernier segment complet sont ignorées.
+    public int compute(double[] x, int offset, int length, double[] psd) {
+        int segments = segments(length);
+        if (segments == 0) {
+            throw new IllegalArgumentException("Au moins " + nperseg + " mesures sont nécessaires (" + length + " reçues)");
+        }
+        int bins = bins();
+        double[][] work = WORK.get();
+        if (work[0].length < nperseg) {
+            work[0] = new double[nperseg];
+            work[1] = new double[nperseg];
+        }
+        double[] re = work[0];
+        double[] im = work[1];
+        for (int k = 0; k < bins; k++) {
+            psd[k] = 0;
+        }
+        for (int s = 0; s < segments; s++) {
+            int start = offset + s * step;
+            double sum = 0;
+            int present = 0;
+            for (int i = 0; i < nperseg; i++) {
+                double v = x[start + i];
+                if (!Double.isNaN(v)) {
+                    sum += v;
+                    present++;
+                }
+            }
+            double mean = present > 0 ? sum / present : 0;
+            for (int i = 0; i < nperseg; i++) {
+                double v = x[start + i];
+                re[i] = Double.isNaN(v) ? 0 : (v - mean) * window[i];
+                im[i] = 0;
+            }
+            fft.transform(re, im);
+            for (int k = 0; k < bins; k++) {
+                psd[k] += re[k] * re[k] + im[k] * im[k];
+            }
+        }
+        // Unilatéral : puissance des fréquences négatives reportée sur les positives, sauf continu et Nyquist
+        double norm = scale / segments;
+        psd[0] *= norm;
+        for (int k = 1; k < bins - 1; k++) {
+            psd[k] *= 2 * norm;
+        }
+        if (bins > 1) {
+            psd[bins - 1] *= norm;
+        }
+        return segments;
+    }
+}
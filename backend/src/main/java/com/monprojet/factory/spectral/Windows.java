@@ -0,0 +1,27 @@
+package com.monprojet.factory.spectral;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Fenêtres d'apodisation calculées une fois par taille. Les tableaux renvoyés sont partagés : ne pas les modifier.
+public final class Windows {
+
+    private static final Map<Integer, double[]> HANN = new ConcurrentHashMap<>();
+
+    private Windows() {
+    }
+
+    // Hann périodique (comme scipy.signal.get_window('hann', n), adaptée à l'analyse spectrale)
+    public static double[] hann(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Taille de fenêtre invalide : " + size);
+        }
+        return HANN.computeIfAbsent(size, n -> {
+            double[] window = new double[n];
+            for (int i = 0; i < n; i++) {
+                window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / n);
+            }
+            return window;
+        });
+    }
+}
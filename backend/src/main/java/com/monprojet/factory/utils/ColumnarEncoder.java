@@ -0,0 +1,142 @@
+package com.monprojet.factory.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Format binaire en colonnes pour les graphiques (little-endian, chaque colonne alignée sur 8 octets
+// pour être lue telle quelle par un BigInt64Array / Int32Array / Float32Array côté navigateur) :
+//
+//   en-tête    "FEYE", version u8 = 1, flags u8 (bit 0 : série tronquée), nbColonnesTemps u16, nbCanaux u16, 0 u16
+//   temps      par colonne : nbPoints u32, encodage u8 (0 = i64 absolu, 1 = i32 delta), 3 octets à 0, base i64
+//   canaux     par canal : colonne de temps u16, longueur du nom u16, nom UTF-8
+//   (bourrage jusqu'au multiple de 8 suivant)
+//   données    chaque colonne de temps puis chaque colonne de valeurs f32, suivies d'un bourrage à 8 octets
+//
+// Temps en millisecondes (heure locale stockée en base, lue comme UTC). En delta, t[0] = base + d[0] et
+// t[i] = t[i-1] + d[i] ; une colonne dont un écart dépasse un int est écrite en absolu. NaN = valeur absente.
+public class ColumnarEncoder {
+
+    public static final byte VERSION = 1;
+    public static final int FLAG_TRUNCATED = 1;
+    public static final byte ENCODING_ABSOLUTE = 0;
+    public static final byte ENCODING_DELTA = 1;
+
+    private static final class TimeColumn {
+        private final long[] millis;
+        private final int count;
+        private boolean delta;
+
+        TimeColumn(long[] millis, int count) {
+            this.millis = millis;
+            this.count = count;
+        }
+    }
+
+    private static final class Channel {
+        private final int timeColumn;
+        private final byte[] name;
+        private final double[] values;
+
+        Channel(int timeColumn, byte[] name, double[] values) {
+            this.timeColumn = timeColumn;
+            this.name = name;
+            this.values = values;
+        }
+    }
+
+    private final List<TimeColumn> timeColumns = new ArrayList<>();
+    private final List<Channel> channels = new ArrayList<>();
+    private int flags;
+
+    // Retourne l'indice de la colonne, à passer à addChannel
+    public int addTimeColumn(long[] millis, int count) {
+        timeColumns.add(new TimeColumn(millis, count));
+        return timeColumns.size() - 1;
+    }
+
+    // values doit contenir au moins autant de points que la colonne de temps
+    public void addChannel(String name, int timeColumn, double[] values) {
+        channels.add(new Channel(timeColumn, name.getBytes(StandardCharsets.UTF_8), values));
+    }
+
+    public void setTruncated(boolean truncated) {
+        flags = truncated ? flags | FLAG_TRUNCATED : flags & ~FLAG_TRUNCATED;
+    }
+
+    public byte[] encode(boolean delta) {
+        int headerSize = 12 + 16 * timeColumns.size();
+        for (Channel channel : channels) {
+            headerSize += 4 + channel.name.length;
+        }
+        int size = align(headerSize);
+        for (TimeColumn column : timeColumns) {
+            column.delta = delta && fitsInDeltas(column);
+            size += align((long) column.count * (column.delta ? 4 : 8));
+        }
+        for (Channel channel : channels) {
+            size += align(4L * timeColumns.get(channel.timeColumn).count);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'F').put((byte) 'E').put((byte) 'Y').put((byte) 'E');
+        buffer.put(VERSION).put((byte) flags);
+        buffer.putShort((short) timeColumns.size()).putShort((short) channels.size()).putShort((short) 0);
+        for (TimeColumn column : timeColumns) {
+            buffer.putInt(column.count);
+            buffer.put(column.delta ? ENCODING_DELTA : ENCODING_ABSOLUTE).put((byte) 0).put((byte) 0).put((byte) 0);
+            buffer.putLong(column.count > 0 ? column.millis[0] : 0);
+        }
+        for (Channel channel : channels) {
+            buffer.putShort((short) channel.timeColumn).putShort((short) channel.name.length).put(channel.name);
+        }
+        pad(buffer);
+
+        for (TimeColumn column : timeColumns) {
+            long previous = column.count > 0 ? column.millis[0] : 0;
+            for (int i = 0; i < column.count; i++) {
+                if (column.delta) {
+                    buffer.putInt((int) (column.millis[i] - previous));
+                    previous = column.millis[i];
+                } else {
+                    buffer.putLong(column.millis[i]);
+                }
+            }
+            pad(buffer);
+        }
+        for (Channel channel : channels) {
+            int count = timeColumns.get(channel.timeColumn).count;
+            for (int i = 0; i < count; i++) {
+                buffer.putFloat((float) channel.values[i]);
+            }
+            pad(buffer);
+        }
+        return buffer.array();
+    }
+
+    private static boolean fitsInDeltas(TimeColumn column) {
+        for (int i = 1; i < column.count; i++) {
+            long delta = column.millis[i] - column.millis[i - 1];
+            if (delta < Integer.MIN_VALUE || delta > Integer.MAX_VALUE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int align(long size) {
+        long aligned = (size + 7) & ~7L;
+        if (aligned > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Série trop volumineuse pour le format binaire");
+        }
+        return (int) aligned;
+    }
+
+    private static void pad(ByteBuffer buffer) {
+        while ((buffer.position() & 7) != 0) {
+            buffer.put((byte) 0);
+        }
+    }
+}
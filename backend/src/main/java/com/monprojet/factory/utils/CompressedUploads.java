@@ -0,0 +1,110 @@
+package com.monprojet.factory.utils;
+
+import com.monprojet.factory.exception.InvalidCSVFormatException;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// Fichiers importés compressés (.csv.gz, .zip) : décompression à la volée vers les parseurs CSV,
+// sans fichier intermédiaire. Le format est reconnu aux premiers octets, pas à l'extension.
+public final class CompressedUploads {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Traitement d'un CSV (le fichier lui-même ou une entrée d'archive)
+    @FunctionalInterface
+    public interface CsvHandler {
+        void accept(String name, InputStream csv) throws Exception;
+    }
+
+    private CompressedUploads() {
+    }
+
+    // Contrôle rapide à la réception : extension ou type MIME d'un CSV éventuellement compressé
+    public static boolean isSupported(String fileName, String contentType) {
+        String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        if (name.endsWith(".csv") || name.endsWith(".gz") || name.endsWith(".zip")) {
+            return true;
+        }
+        return contentType != null && (contentType.equals("text/csv")
+                || contentType.equals("application/gzip") || contentType.equals("application/x-gzip")
+                || contentType.equals("application/zip") || contentType.equals("application/x-zip-compressed"));
+    }
+
+    // Appelle handler pour chaque CSV contenu dans le flux ; retourne le nombre de CSV traités
+    public static int forEachCsv(InputStream input, String fileName, CsvHandler handler) throws Exception {
+        InputStream in = input.markSupported() ? input : new BufferedInputStream(input, BUFFER_SIZE);
+        in.mark(4);
+        int b0 = in.read();
+        int b1 = in.read();
+        int b2 = in.read();
+        int b3 = in.read();
+        in.reset();
+
+        if (b0 == 0x1f && b1 == 0x8b) {
+            // GZIPInputStream enchaîne aussi les membres concaténés (gzip a.csv b.csv > x.gz)
+            handler.accept(stripExtension(fileName, ".gz"), new GZIPInputStream(new NonClosingInputStream(in), BUFFER_SIZE));
+            return 1;
+        }
+        if (b0 == 'P' && b1 == 'K' && b2 == 3 && b3 == 4) {
+            return forEachZipEntry(in, handler);
+        }
+        handler.accept(fileName, in);
+        return 1;
+    }
+
+    private static int forEachZipEntry(InputStream in, CsvHandler handler) throws Exception {
+        ZipInputStream zip = new ZipInputStream(in);
+        int count = 0;
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            String name = entry.getName();
+            if (entry.isDirectory() || !name.toLowerCase(Locale.ROOT).endsWith(".csv") || isMacMetadata(name)) {
+                System.out.println("Entrée ignorée dans l'archive : " + name);
+                continue;
+            }
+            System.out.println("Import de l'entrée " + name);
+            // Les parseurs ferment leur flux : on ne ferme que l'entrée, pas l'archive
+            handler.accept(name, new NonClosingInputStream(zip));
+            zip.closeEntry();
+            count++;
+        }
+        if (count == 0) {
+            throw new InvalidCSVFormatException("L'archive ZIP ne contient aucun fichier CSV");
+        }
+        return count;
+    }
+
+    private static boolean isMacMetadata(String name) {
+        return name.startsWith("__MACOSX/") || name.contains("/._") || name.startsWith("._");
+    }
+
+    private static String stripExtension(String fileName, String extension) {
+        if (fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(extension)) {
+            return fileName.substring(0, fileName.length() - extension.length());
+        }
+        return fileName;
+    }
+
+    private static final class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return in.read(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            // Fermé par l'appelant
+        }
+    }
+}
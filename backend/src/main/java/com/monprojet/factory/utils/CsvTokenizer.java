@@ -0,0 +1,250 @@
+package com.monprojet.factory.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// Découpage CSV sans allocation par ligne : les champs sont des plages (début, fin) dans un tampon char[] réutilisé.
+// Gère les champs entre guillemets (virgules et "" échappés), les fins de ligne \n et \r\n.
+// Les lignes vides sont ignorées (ni enregistrement ni numéro), comme le faisait commons-csv.
+public final class CsvTokenizer {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    private int recordStart;
+    private int recordEnd;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+    private long recordNumber;
+
+    // Lecture en flux depuis un Reader
+    public CsvTokenizer(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[DEFAULT_BUFFER_SIZE];
+    }
+
+    // Lecture d'un bloc déjà décodé (mode parallèle) ; le tableau peut être modifié (guillemets échappés)
+    public CsvTokenizer(char[] data, int offset, int length) {
+        this.reader = null;
+        this.buffer = data;
+        this.position = offset;
+        this.limit = offset + length;
+        this.eof = true;
+    }
+
+    // Passe à l'enregistrement suivant ; false en fin de flux
+    public boolean next() throws IOException {
+        do {
+            if (!findRecordEnd()) {
+                return false;
+            }
+        } while (isBlank(recordStart, recordEnd));
+        tokenize(recordStart, recordEnd);
+        recordNumber++;
+        return true;
+    }
+
+    public int fieldCount() { return fieldCount; }
+    public long recordNumber() { return recordNumber; }
+    public char[] buffer() { return buffer; }
+    public int start(int field) { return starts[field]; }
+    public int length(int field) { return ends[field] - starts[field]; }
+
+    public boolean isEmpty(int field) {
+        return field >= fieldCount || ends[field] == starts[field];
+    }
+
+    public String getString(int field) {
+        return new String(buffer, starts[field], ends[field] - starts[field]);
+    }
+
+    // NaN si le champ est absent, vide ou invalide
+    public double getDouble(int field) {
+        if (field >= fieldCount) {
+            return Double.NaN;
+        }
+        return FastParsers.parseDouble(buffer, starts[field], ends[field] - starts[field]);
+    }
+
+    // FastParsers.INVALID_TIMESTAMP si le champ est absent ou invalide
+    public long getTimestamp(int field) {
+        if (field >= fieldCount) {
+            return FastParsers.INVALID_TIMESTAMP;
+        }
+        return FastParsers.parseTimestamp(buffer, starts[field], ends[field] - starts[field]);
+    }
+
+    public boolean fieldEquals(int field, String value) {
+        if (field >= fieldCount) {
+            return false;
+        }
+        int length = ends[field] - starts[field];
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[starts[field] + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Comparaison insensible à la casse (ASCII), sans créer de String
+    public boolean fieldEqualsIgnoreCase(int field, String value) {
+        if (field >= fieldCount) {
+            return false;
+        }
+        int length = ends[field] - starts[field];
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = buffer[starts[field] + i];
+            char expected = value.charAt(i);
+            if (c != expected && Character.toLowerCase(c) != Character.toLowerCase(expected)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String[] toArray() {
+        String[] values = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            values[i] = getString(i);
+        }
+        return values;
+    }
+
+    // Texte de l'enregistrement courant, pour les messages d'erreur uniquement
+    public String recordText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) text.append(',');
+            text.append(buffer, starts[i], ends[i] - starts[i]);
+        }
+        return text.toString();
+    }
+
+    private boolean findRecordEnd() throws IOException {
+        recordStart = position;
+        int i = position;
+        boolean inQuotes = false;
+        while (true) {
+            if (i >= limit) {
+                if (eof) {
+                    if (i == recordStart) {
+                        return false;
+                    }
+                    recordEnd = limit;
+                    position = limit;
+                    return true;
+                }
+                int shift = fill();
+                i -= shift;
+                continue;
+            }
+            char c = buffer[i];
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == '\n' && !inQuotes) {
+                recordEnd = i;
+                position = i + 1;
+                return true;
+            }
+            i++;
+        }
+    }
+
+    // Décale l'enregistrement en cours au début du tampon (ou l'agrandit) puis lit la suite
+    private int fill() throws IOException {
+        int shift = recordStart;
+        if (shift > 0) {
+            System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+            limit -= shift;
+            recordStart = 0;
+        } else if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int n = reader.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+        return shift;
+    }
+
+    private boolean isBlank(int from, int to) {
+        return to == from || (to == from + 1 && buffer[from] == '\r');
+    }
+
+    private void tokenize(int from, int to) {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        fieldCount = 0;
+        int p = from;
+        while (true) {
+            int fieldStart;
+            int fieldEnd;
+            int next;
+            if (p < to && buffer[p] == '"') {
+                // Champ entre guillemets : contenu recopié sur place sans les "" échappés
+                int write = p;
+                int read = p + 1;
+                while (read < to) {
+                    char c = buffer[read];
+                    if (c == '"') {
+                        if (read + 1 < to && buffer[read + 1] == '"') {
+                            buffer[write++] = '"';
+                            read += 2;
+                            continue;
+                        }
+                        read++;
+                        break;
+                    }
+                    buffer[write++] = c;
+                    read++;
+                }
+                fieldStart = p;
+                fieldEnd = write;
+                while (read < to && buffer[read] != ',') {
+                    read++;
+                }
+                next = read;
+            } else {
+                int q = p;
+                while (q < to && buffer[q] != ',') {
+                    q++;
+                }
+                fieldStart = p;
+                fieldEnd = q;
+                next = q;
+            }
+            addField(fieldStart, fieldEnd);
+            if (next >= to) {
+                return;
+            }
+            p = next + 1;
+        }
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+}
@@ -0,0 +1,273 @@
+package com.monprojet.factory.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Réduction d'une série (x croissant) à un nombre de points affichable, en un seul passage :
+// mémoire bornée par le nombre de points demandés (et, pour LTTB, par deux seaux), pas par la série.
+public abstract class Downsampler {
+
+    public enum Method {
+        // Largest-Triangle-Three-Buckets : garde la forme de la courbe
+        LTTB,
+        // Minimum et maximum de chaque intervalle de temps : aucun pic perdu
+        MINMAX;
+
+        public static Method parse(String value) {
+            if (value == null || value.isBlank()) {
+                return LTTB;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace("-", ""));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Méthode de sous-échantillonnage inconnue : " + value);
+            }
+        }
+    }
+
+    protected long[] xs;
+    protected double[] ys;
+    protected int size;
+
+    protected Downsampler(int capacity) {
+        xs = new long[Math.max(2, capacity)];
+        ys = new double[xs.length];
+    }
+
+    // expectedCount : nombre de points attendus (LTTB) ; [fromX, toX] : étendue des x (MINMAX)
+    public static Downsampler create(Method method, int points, long expectedCount, long fromX, long toX) {
+        return method == Method.MINMAX
+                ? new MinMax(points, fromX, toX)
+                : new Lttb(points, expectedCount);
+    }
+
+    // Les valeurs NaN (mesure absente) sont ignorées
+    public abstract void add(long x, double y);
+
+    // Fin de série : les points retenus sont ensuite lus par xs()/ys(), dans l'ordre des x
+    public abstract void finish();
+
+    public int size() { return size; }
+    public long[] xs() { return Arrays.copyOf(xs, size); }
+    public double[] ys() { return Arrays.copyOf(ys, size); }
+
+    protected void emit(long x, double y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    // LTTB en flux : seaux de taille fixe (expectedCount / points) ; seuls le seau courant
+    // et le suivant (dont la moyenne sert de troisième sommet) sont gardés en mémoire
+    static final class Lttb extends Downsampler {
+        private final int threshold;
+        private final double every;
+        private final boolean passthrough;
+
+        private long count;
+        private boolean hasPending;
+        private long pendingX;
+        private double pendingY;
+        private long selectedX;
+        private double selectedY;
+
+        private int currentBucket;
+        private int assignedBucket;
+        private final PointBuffer current = new PointBuffer();
+        private final PointBuffer next = new PointBuffer();
+
+        Lttb(int threshold, long expectedCount) {
+            super(Math.max(3, threshold));
+            this.threshold = Math.max(3, threshold);
+            this.passthrough = expectedCount <= this.threshold;
+            this.every = passthrough ? 1 : (double) (expectedCount - 2) / (this.threshold - 2);
+        }
+
+        @Override
+        public void add(long x, double y) {
+            if (Double.isNaN(y)) {
+                return;
+            }
+            if (passthrough) {
+                emit(x, y);
+                return;
+            }
+            if (count == 0) {
+                emit(x, y);
+                selectedX = x;
+                selectedY = y;
+            } else {
+                // Le dernier point reçu est mis de côté : il termine la série s'il n'en vient pas d'autre
+                if (hasPending) {
+                    bucket(count - 1, pendingX, pendingY);
+                }
+                pendingX = x;
+                pendingY = y;
+                hasPending = true;
+            }
+            count++;
+        }
+
+        private void bucket(long index, long x, double y) {
+            // Seau i = indices [floor(i * every) + 1, floor((i + 1) * every) + 1[, comme l'algorithme d'origine
+            while (assignedBucket < threshold - 3 && index >= (long) Math.floor((assignedBucket + 1) * every) + 1) {
+                assignedBucket++;
+            }
+            int b = assignedBucket;
+            while (b > currentBucket + 1) {
+                select(current, next.count > 0 ? next.meanX() : x, next.count > 0 ? next.meanY() : y);
+                current.copyFrom(next);
+                next.clear();
+                currentBucket++;
+            }
+            (b == currentBucket ? current : next).add(x, y);
+        }
+
+        @Override
+        public void finish() {
+            if (passthrough || count == 0) {
+                return;
+            }
+            if (!hasPending) {
+                return;
+            }
+            if (current.count > 0) {
+                select(current, next.count > 0 ? next.meanX() : pendingX, next.count > 0 ? next.meanY() : pendingY);
+            }
+            if (next.count > 0) {
+                select(next, pendingX, pendingY);
+            }
+            emit(pendingX, pendingY);
+        }
+
+        // Point du seau formant le plus grand triangle avec le point retenu précédent et la moyenne du seau suivant
+        private void select(PointBuffer bucket, double nextX, double nextY) {
+            if (bucket.count == 0) {
+                return;
+            }
+            double ax = selectedX;
+            double ay = selectedY;
+            double maxArea = -1;
+            int best = 0;
+            for (int i = 0; i < bucket.count; i++) {
+                double area = Math.abs((ax - nextX) * (bucket.ys[i] - ay) - (ax - bucket.xs[i]) * (nextY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = i;
+                }
+            }
+            selectedX = bucket.xs[best];
+            selectedY = bucket.ys[best];
+            emit(bucket.xs[best], bucket.ys[best]);
+        }
+    }
+
+    // Min/max par intervalle de temps régulier entre fromX et toX : 2 points par intervalle au plus
+    static final class MinMax extends Downsampler {
+        private final int buckets;
+        private final long fromX;
+        private final double width;
+        private final long[] minX;
+        private final double[] minY;
+        private final long[] maxX;
+        private final double[] maxY;
+        private final boolean[] filled;
+
+        MinMax(int points, long fromX, long toX) {
+            super(points);
+            this.buckets = Math.max(1, points / 2);
+            this.fromX = fromX;
+            this.width = Math.max(1.0, (double) (toX - fromX + 1) / buckets);
+            minX = new long[buckets];
+            minY = new double[buckets];
+            maxX = new long[buckets];
+            maxY = new double[buckets];
+            filled = new boolean[buckets];
+        }
+
+        @Override
+        public void add(long x, double y) {
+            if (Double.isNaN(y)) {
+                return;
+            }
+            int b = (int) Math.max(0, Math.min(buckets - 1, (long) ((x - fromX) / width)));
+            if (!filled[b]) {
+                filled[b] = true;
+                minX[b] = maxX[b] = x;
+                minY[b] = maxY[b] = y;
+                return;
+            }
+            if (y < minY[b]) {
+                minY[b] = y;
+                minX[b] = x;
+            }
+            if (y > maxY[b]) {
+                maxY[b] = y;
+                maxX[b] = x;
+            }
+        }
+
+        @Override
+        public void finish() {
+            for (int b = 0; b < buckets; b++) {
+                if (!filled[b]) {
+                    continue;
+                }
+                if (minX[b] == maxX[b]) {
+                    emit(minX[b], minY[b]);
+                } else if (minX[b] < maxX[b]) {
+                    emit(minX[b], minY[b]);
+                    emit(maxX[b], maxY[b]);
+                } else {
+                    emit(maxX[b], maxY[b]);
+                    emit(minX[b], minY[b]);
+                }
+            }
+        }
+    }
+
+    private static final class PointBuffer {
+        private long[] xs = new long[64];
+        private double[] ys = new double[64];
+        private int count;
+        private long sumX;
+        private double sumY;
+
+        void add(long x, double y) {
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+            }
+            xs[count] = x;
+            ys[count] = y;
+            count++;
+            sumX += x;
+            sumY += y;
+        }
+
+        double meanX() { return (double) sumX / count; }
+        double meanY() { return sumY / count; }
+
+        void copyFrom(PointBuffer other) {
+            if (xs.length < other.count) {
+                xs = new long[other.xs.length];
+                ys = new double[other.ys.length];
+            }
+            System.arraycopy(other.xs, 0, xs, 0, other.count);
+            System.arraycopy(other.ys, 0, ys, 0, other.count);
+            count = other.count;
+            sumX = other.sumX;
+            sumY = other.sumY;
+        }
+
+        void clear() {
+            count = 0;
+            sumX = 0;
+            sumY = 0;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.monprojet.factory.utils;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Analyse sans allocation des champs CSV d'ingestion :
+// horodatage au format fixe "yyyy-MM-dd HH:mm:ss" et nombres décimaux.
+public final class FastParsers {
+
+    // Valeur retournée par parseTimestamp pour un horodatage invalide
+    public static final long INVALID_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final int TIMESTAMP_LENGTH = 19;
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // Puissances de dix sur 128 bits (normalisées) pour l'algorithme d'Eisel-Lemire
+    private static final int MIN_POWER = -342;
+    private static final int MAX_POWER = 308;
+    private static final long[] POWERS_HIGH = new long[MAX_POWER - MIN_POWER + 1];
+    private static final long[] POWERS_LOW = new long[MAX_POWER - MIN_POWER + 1];
+
+    static {
+        BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+        BigInteger two127 = BigInteger.ONE.shiftLeft(127);
+        BigInteger mask64 = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int q = MIN_POWER; q <= MAX_POWER; q++) {
+            BigInteger value;
+            if (q < 0) {
+                BigInteger power5 = BigInteger.valueOf(5).pow(-q);
+                int z = power5.bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                value = BigInteger.ONE.shiftLeft(b).divide(power5).add(BigInteger.ONE);
+            } else {
+                value = BigInteger.valueOf(5).pow(q);
+                while (value.compareTo(two127) < 0) {
+                    value = value.shiftLeft(1);
+                }
+            }
+            while (value.compareTo(two128) >= 0) {
+                value = value.shiftRight(1);
+            }
+            POWERS_HIGH[q - MIN_POWER] = value.shiftRight(64).longValue();
+            POWERS_LOW[q - MIN_POWER] = value.and(mask64).longValue();
+        }
+    }
+
+    private FastParsers() {
+    }
+
+    // "yyyy-MM-dd HH:mm:ss" -> secondes depuis 1970-01-01 00:00:00 (heure locale lue comme UTC).
+    // Même résolution que LocalDateTime.parse (ResolverStyle.SMART) : jour ramené à la fin du mois, 24:00:00 accepté.
+    public static long parseTimestamp(char[] s, int off, int len) {
+        if (len != TIMESTAMP_LENGTH
+                || s[off + 4] != '-' || s[off + 7] != '-' || s[off + 10] != ' '
+                || s[off + 13] != ':' || s[off + 16] != ':') {
+            return INVALID_TIMESTAMP;
+        }
+        int year = digits(s, off, 4);
+        int month = digits(s, off + 5, 2);
+        int day = digits(s, off + 8, 2);
+        int hour = digits(s, off + 11, 2);
+        int minute = digits(s, off + 14, 2);
+        int second = digits(s, off + 17, 2);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID_TIMESTAMP;
+        }
+        if (hour > 23 && !(hour == 24 && minute == 0 && second == 0)) {
+            return INVALID_TIMESTAMP;
+        }
+        day = Math.min(day, daysInMonth(year, month));
+        return daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+    }
+
+    public static long parseTimestamp(String value) {
+        return value == null ? INVALID_TIMESTAMP : parseTimestamp(value.toCharArray(), 0, value.length());
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    public static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // Nombre décimal (signe, partie entière, fraction, exposant). Retourne NaN si le champ est vide ou invalide.
+    // Résultat identique à Double.parseDouble : chemin exact de Clinger, puis Eisel-Lemire, puis repli sur le JDK.
+    public static double parseDouble(char[] s, int off, int len) {
+        int i = off;
+        int end = off + len;
+        while (i < end && s[i] <= ' ') i++;
+        while (end > i && s[end - 1] <= ' ') end--;
+        if (i == end) {
+            return Double.NaN;
+        }
+        int start = i;
+        boolean negative = false;
+        if (s[i] == '-' || s[i] == '+') {
+            negative = s[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean inexact = false;
+        char c;
+        while (i < end && (c = s[i]) >= '0' && c <= '9') {
+            anyDigit = true;
+            if (significantDigits < 19) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) significantDigits++;
+            } else {
+                exponent++;
+                inexact |= c != '0';
+            }
+            i++;
+        }
+        if (i < end && s[i] == '.') {
+            i++;
+            while (i < end && (c = s[i]) >= '0' && c <= '9') {
+                anyDigit = true;
+                if (significantDigits < 19) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) significantDigits++;
+                    exponent--;
+                } else {
+                    inexact |= c != '0';
+                }
+                i++;
+            }
+        }
+        if (anyDigit && i < end && (s[i] == 'e' || s[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (s[i] == '-' || s[i] == '+')) {
+                negativeExponent = s[i] == '-';
+                i++;
+            }
+            int explicitExponent = 0;
+            boolean exponentDigit = false;
+            while (i < end && (c = s[i]) >= '0' && c <= '9') {
+                exponentDigit = true;
+                if (explicitExponent < 100_000) {
+                    explicitExponent = explicitExponent * 10 + (c - '0');
+                }
+                i++;
+            }
+            if (!exponentDigit) {
+                return slowParseDouble(s, start, end);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (!anyDigit || i != end || inexact) {
+            // NaN, Infinity, hexadécimal, suffixe d/f ou plus de 19 chiffres significatifs
+            return slowParseDouble(s, start, end);
+        }
+
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        // 19 chiffres peuvent dépasser Long.MAX_VALUE : la mantisse est alors lue comme non signée
+        if (mantissa > 0 && mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            double value = mantissa;
+            value = exponent < 0 ? value / EXACT_POWERS_OF_TEN[-exponent] : value * EXACT_POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        long bits = eiselLemire(mantissa, exponent);
+        if (bits >= 0) {
+            double value = Double.longBitsToDouble(bits);
+            return negative ? -value : value;
+        }
+        return slowParseDouble(s, start, end);
+    }
+
+    public static double parseDouble(String value) {
+        return value == null ? Double.NaN : parseDouble(value.toCharArray(), 0, value.length());
+    }
+
+    // Bits du double positif le plus proche de mantissa x 10^exponent, ou -1 si le cas est ambigu
+    private static long eiselLemire(long mantissa, int exponent) {
+        if (exponent < MIN_POWER || exponent > MAX_POWER) {
+            return -1;
+        }
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        mantissa <<= leadingZeros;
+        long exponent2 = (((217_706L * exponent) >> 16) + 64 + 1023) - leadingZeros;
+
+        long powerHigh = POWERS_HIGH[exponent - MIN_POWER];
+        long powerLow = POWERS_LOW[exponent - MIN_POWER];
+        long xHigh = unsignedMultiplyHigh(mantissa, powerHigh);
+        long xLow = mantissa * powerHigh;
+
+        if ((xHigh & 0x1FF) == 0x1FF && Long.compareUnsigned(xLow + mantissa, mantissa) < 0) {
+            long yHigh = unsignedMultiplyHigh(mantissa, powerLow);
+            long yLow = mantissa * powerLow;
+            long mergedHigh = xHigh;
+            long mergedLow = xLow + yHigh;
+            if (Long.compareUnsigned(mergedLow, xLow) < 0) {
+                mergedHigh++;
+            }
+            if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0
+                    && Long.compareUnsigned(yLow + mantissa, mantissa) < 0) {
+                return -1;
+            }
+            xHigh = mergedHigh;
+            xLow = mergedLow;
+        }
+
+        long msb = xHigh >>> 63;
+        long result = xHigh >>> (msb + 9);
+        exponent2 -= 1 ^ msb;
+
+        if (xLow == 0 && (xHigh & 0x1FF) == 0 && (result & 3) == 1) {
+            return -1;
+        }
+        result += result & 1;
+        result >>>= 1;
+        if ((result >>> 53) > 0) {
+            result >>>= 1;
+            exponent2++;
+        }
+        if (Long.compareUnsigned(exponent2 - 1, 0x7FE) >= 0) {
+            return -1; // sous-normal ou infini : repli sur le JDK
+        }
+        return (exponent2 << 52) | (result & ((1L << 52) - 1));
+    }
+
+    private static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    private static double slowParseDouble(char[] s, int start, int end) {
+        try {
+            double value = Double.parseDouble(new String(s, start, end - start));
+            return Double.isNaN(value) ? Double.NaN : value;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static int digits(char[] s, int off, int count) {
+        int value = 0;
+        for (int i = off; i < off + count; i++) {
+            char c = s[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Jours depuis 1970-01-01 (calendrier grégorien proleptique)
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+}
@@ -0,0 +1,198 @@
+package com.monprojet.factory.utils;
+
+import java.nio.ByteBuffer;
+
+// Compression d'une série (horodatage, valeur) à la manière de Gorilla (Facebook, 2015) :
+//   horodatages : delta de delta, 1 bit par point quand le pas est régulier
+//   valeurs     : XOR avec la valeur précédente, 1 bit pour une valeur répétée, sinon les seuls bits significatifs
+// Flux de bits big-endian sans en-tête : le nombre de points est conservé à part par l'appelant.
+public final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    public static final class Encoder {
+        private long[] words = new long[16];
+        private long bits;
+        private int count;
+        private long previousTime;
+        private long previousDelta;
+        private long previousValue;
+        private int previousLeading = -1;
+        private int previousTrailing;
+
+        public void add(long time, double value) {
+            long valueBits = Double.doubleToRawLongBits(value);
+            if (count == 0) {
+                write(time, 64);
+                write(valueBits, 64);
+            } else {
+                long delta = time - previousTime;
+                writeDeltaOfDelta(delta - previousDelta);
+                previousDelta = delta;
+                writeXor(valueBits ^ previousValue);
+            }
+            previousTime = time;
+            previousValue = valueBits;
+            count++;
+        }
+
+        public int count() { return count; }
+
+        public int byteLength() {
+            return (int) ((bits + 7) >>> 3);
+        }
+
+        // Copie les byteLength() octets du flux à la position courante de out
+        public void writeTo(ByteBuffer out) {
+            int length = byteLength();
+            for (int i = 0; i < length; i++) {
+                out.put((byte) (words[i >>> 3] >>> (56 - 8 * (i & 7))));
+            }
+        }
+
+        private void writeDeltaOfDelta(long dod) {
+            if (dod == 0) {
+                write(0, 1);
+            } else if (dod >= -63 && dod <= 64) {
+                write(0b10, 2);
+                write(dod, 7);
+            } else if (dod >= -255 && dod <= 256) {
+                write(0b110, 3);
+                write(dod, 9);
+            } else if (dod >= -2047 && dod <= 2048) {
+                write(0b1110, 4);
+                write(dod, 12);
+            } else {
+                write(0b1111, 4);
+                write(dod, 64);
+            }
+        }
+
+        private void writeXor(long xor) {
+            if (xor == 0) {
+                write(0, 1);
+                return;
+            }
+            // 5 bits pour le nombre de zéros de tête : plafonné à 31
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // Les bits significatifs tiennent dans la fenêtre de la valeur précédente
+                write(0b10, 2);
+                write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                write(0b11, 2);
+                write(leading, 5);
+                write(significant - 1, 6);
+                write(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+
+        // Écrit les n bits de poids faible de value (1 <= n <= 64)
+        private void write(long value, int n) {
+            if (n < 64) {
+                value &= (1L << n) - 1;
+            }
+            int index = (int) (bits >>> 6);
+            if (index + 1 >= words.length) {
+                long[] grown = new long[words.length * 2];
+                System.arraycopy(words, 0, grown, 0, words.length);
+                words = grown;
+            }
+            int free = 64 - (int) (bits & 63);
+            if (n <= free) {
+                words[index] |= value << (free - n);
+            } else {
+                words[index] |= value >>> (n - free);
+                words[index + 1] |= value << (64 - (n - free));
+            }
+            bits += n;
+        }
+    }
+
+    // Lecture séquentielle d'un flux écrit par Encoder, en accès absolu dans buffer (partageable entre threads)
+    public static final class Decoder {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private long position;
+        private int remaining;
+        private boolean started;
+        private long time;
+        private long delta;
+        private long valueBits;
+        private int leading;
+        private int trailing;
+
+        public Decoder(ByteBuffer buffer, int offset, int count) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.remaining = count;
+        }
+
+        public boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            if (!started) {
+                time = read(64);
+                valueBits = read(64);
+                started = true;
+            } else {
+                long dod;
+                if (read(1) == 0) {
+                    dod = 0;
+                } else if (read(1) == 0) {
+                    dod = signed(read(7), 7);
+                } else if (read(1) == 0) {
+                    dod = signed(read(9), 9);
+                } else if (read(1) == 0) {
+                    dod = signed(read(12), 12);
+                } else {
+                    dod = read(64);
+                }
+                delta += dod;
+                time += delta;
+                if (read(1) != 0) {
+                    long xor;
+                    if (read(1) == 0) {
+                        xor = read(64 - leading - trailing) << trailing;
+                    } else {
+                        leading = (int) read(5);
+                        int significant = (int) read(6) + 1;
+                        trailing = 64 - leading - significant;
+                        xor = read(significant) << trailing;
+                    }
+                    valueBits ^= xor;
+                }
+            }
+            remaining--;
+            return true;
+        }
+
+        public long time() { return time; }
+        public double value() { return Double.longBitsToDouble(valueBits); }
+
+        private long read(int n) {
+            long result = 0;
+            while (n > 0) {
+                int bitInByte = (int) (position & 7);
+                int available = 8 - bitInByte;
+                int take = Math.min(available, n);
+                int current = buffer.get(offset + (int) (position >>> 3)) & 0xFF;
+                result = (result << take) | ((current >>> (available - take)) & ((1 << take) - 1));
+                n -= take;
+                position += take;
+            }
+            return result;
+        }
+
+        // Complément à deux sur n bits, plage [-(2^(n-1) - 1), 2^(n-1)]
+        private static long signed(long value, int n) {
+            return value > (1L << (n - 1)) ? value - (1L << n) : value;
+        }
+    }
+}
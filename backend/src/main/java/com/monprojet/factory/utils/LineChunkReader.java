@@ -0,0 +1,114 @@
+package com.monprojet.factory.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Découpe un flux CSV en blocs d'octets qui se terminent toujours sur une fin d'enregistrement,
+// pour pouvoir analyser les blocs en parallèle. Comme CsvTokenizer, un '\n' entre guillemets appartient au champ :
+// l'état des guillemets est suivi depuis le début de chaque bloc (qui commence toujours hors guillemets).
+public class LineChunkReader {
+
+    private final InputStream in;
+    private final int chunkBytes;
+    private byte[] carry = new byte[0];
+    private int carryLength;
+    private boolean eof;
+
+    public LineChunkReader(InputStream in, int chunkBytes) {
+        this.in = new BufferedInputStream(in);
+        this.chunkBytes = Math.max(1024, chunkBytes);
+    }
+
+    // Lit un seul enregistrement (en-tête), sans le séparateur ; null en fin de flux
+    public String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        boolean inQuotes = false;
+        int b;
+        while ((b = in.read()) != -1 && (b != '\n' || inQuotes)) {
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            }
+            line.write(b);
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return stripCarriageReturn(line.toString(StandardCharsets.UTF_8));
+    }
+
+    // Bloc suivant (enregistrements complets uniquement, le dernier du fichier pouvant ne pas avoir de '\n')
+    public Chunk next() throws IOException {
+        if (eof && carryLength == 0) {
+            return null;
+        }
+        byte[] buffer = Arrays.copyOf(carry, Math.max(chunkBytes, carryLength * 2));
+        int length = carryLength;
+        // Parcours avant : état des guillemets et dernière fin d'enregistrement vus jusqu'à scanned
+        int scanned = 0;
+        boolean inQuotes = false;
+        int lastRecordEnd = -1;
+        while (true) {
+            while (!eof && length < buffer.length) {
+                int n = in.read(buffer, length, buffer.length - length);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    length += n;
+                }
+            }
+            for (int i = scanned; i < length; i++) {
+                byte b = buffer[i];
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    lastRecordEnd = i;
+                }
+            }
+            scanned = length;
+            if (lastRecordEnd >= 0) {
+                keepCarry(buffer, lastRecordEnd + 1, length);
+                return new Chunk(buffer, lastRecordEnd + 1);
+            }
+            if (eof) {
+                carryLength = 0;
+                return length > 0 ? new Chunk(buffer, length) : null;
+            }
+            // Enregistrement plus long que le bloc : on agrandit
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+    }
+
+    private void keepCarry(byte[] buffer, int from, int to) {
+        carryLength = to - from;
+        if (carry.length < carryLength) {
+            carry = new byte[Math.max(carryLength, 1024)];
+        }
+        System.arraycopy(buffer, from, carry, 0, carryLength);
+    }
+
+    public static String stripCarriageReturn(String line) {
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    // Bloc d'enregistrements complets : data[0, length)
+    public static final class Chunk {
+        private final byte[] data;
+        private final int length;
+
+        Chunk(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+
+        public byte[] getData() { return data; }
+        public int getLength() { return length; }
+
+        public String asText() {
+            return new String(data, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
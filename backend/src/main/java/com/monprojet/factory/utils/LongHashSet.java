@@ -0,0 +1,81 @@
+package com.monprojet.factory.utils;
+
+import java.util.Arrays;
+
+// Ensemble de long en adressage ouvert (pas de Long en boîte). Non thread-safe.
+public final class LongHashSet {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean containsEmpty;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    // Retourne false si la valeur était déjà présente
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size > (mask + 1) >>> 1) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsEmpty;
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() { return size; }
+
+    private int slot(long key) {
+        return (int) BloomFilter.mix(key) & mask;
+    }
+
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length << 1];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        for (long key : old) {
+            if (key != EMPTY) {
+                int slot = slot(key);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.monprojet.factory.utils;
+
+// Lecture en flux de la colonne peaks_json ([[f_hz, psd], ...]) écrite par le script Python :
+// les valeurs sont lues directement dans le tampon, sans arbre JSON ni objet par pic.
+public final class PeakArrayParser {
+
+    private PeakArrayParser() {
+    }
+
+    public static int parse(char[] s, int off, int len, double[] freqs, double[] psd) {
+        return parse(s, off, len, freqs, psd, 0, freqs.length);
+    }
+
+    // Remplit freqs/psd à partir de outOffset (au plus maxPeaks pics, les suivants sont lus puis ignorés).
+    // Retourne le nombre de pics conservés, ou -1 si le texte n'est pas un tableau de paires.
+    public static int parse(char[] s, int off, int len, double[] freqs, double[] psd, int outOffset, int maxPeaks) {
+        int end = off + len;
+        int i = skipSpaces(s, off, end);
+        if (i == end || s[i] != '[') {
+            return -1;
+        }
+        i = skipSpaces(s, i + 1, end);
+        int count = 0;
+        if (i < end && s[i] == ']') {
+            return skipSpaces(s, i + 1, end) == end ? 0 : -1;
+        }
+        while (true) {
+            if (i == end || s[i] != '[') {
+                return -1;
+            }
+            // Fréquence
+            int start = skipSpaces(s, i + 1, end);
+            i = numberEnd(s, start, end);
+            double freq = number(s, start, i);
+            i = skipSpaces(s, i, end);
+            if (i == end || s[i] != ',' || Double.isNaN(freq) && !isNaNLiteral(s, start, i)) {
+                return -1;
+            }
+            // Densité spectrale
+            start = skipSpaces(s, i + 1, end);
+            i = numberEnd(s, start, end);
+            double power = number(s, start, i);
+            if (Double.isNaN(power) && !isNaNLiteral(s, start, i)) {
+                return -1;
+            }
+            i = skipSpaces(s, i, end);
+            if (i == end || s[i] != ']') {
+                return -1;
+            }
+            if (count < maxPeaks) {
+                freqs[outOffset + count] = freq;
+                psd[outOffset + count] = power;
+                count++;
+            }
+            i = skipSpaces(s, i + 1, end);
+            if (i == end) {
+                return -1;
+            }
+            if (s[i] == ']') {
+                return skipSpaces(s, i + 1, end) == end ? count : -1;
+            }
+            if (s[i] != ',') {
+                return -1;
+            }
+            i = skipSpaces(s, i + 1, end);
+        }
+    }
+
+    public static int parse(String value, double[] freqs, double[] psd) {
+        return value == null ? -1 : parse(value.toCharArray(), 0, value.length(), freqs, psd);
+    }
+
+    // Lecture d'une valeur stockée : tableau [n][2]
+    public static double[][] parse(String value, int maxPeaks) {
+        double[] freqs = new double[maxPeaks];
+        double[] psd = new double[maxPeaks];
+        int count = parse(value, freqs, psd);
+        double[][] peaks = new double[Math.max(0, count)][];
+        for (int i = 0; i < peaks.length; i++) {
+            peaks[i] = new double[]{freqs[i], psd[i]};
+        }
+        return peaks;
+    }
+
+    // Forme compacte stockée en base : [[f,p],[f,p]]
+    public static String format(double[] freqs, double[] psd, int offset, int count) {
+        StringBuilder json = new StringBuilder(2 + count * 40);
+        json.append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('[').append(freqs[offset + i]).append(',').append(psd[offset + i]).append(']');
+        }
+        return json.append(']').toString();
+    }
+
+    private static int skipSpaces(char[] s, int i, int end) {
+        while (i < end && (s[i] == ' ' || s[i] == '\t' || s[i] == '\r' || s[i] == '\n')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int numberEnd(char[] s, int i, int end) {
+        while (i < end && s[i] != ',' && s[i] != ']' && s[i] != ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static double number(char[] s, int start, int end) {
+        return end > start ? FastParsers.parseDouble(s, start, end - start) : Double.NaN;
+    }
+
+    // json.dumps écrit NaN pour une valeur absente
+    private static boolean isNaNLiteral(char[] s, int start, int end) {
+        return end - start == 3 && s[start] == 'N' && s[start + 1] == 'a' && s[start + 2] == 'N';
+    }
+}
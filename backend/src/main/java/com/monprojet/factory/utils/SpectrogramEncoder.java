@@ -0,0 +1,92 @@
+package com.monprojet.factory.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Format binaire d'un spectrogramme (little-endian, sections alignées sur 8 octets pour être lues telles quelles
+// par un BigInt64Array / Float32Array / Uint8Array côté navigateur) :
+//
+//   en-tête    "FSPG", version u8 = 1, encodage u8 (0 = f32 densités, 1 = u8 dB), 0 u16,
+//              nbTrames u32, nbBins u32, fréquence d'échantillonnage f64, nperseg u32, pas u32, dbMin f32, dbMax f32
+//   temps      nbTrames x i64 : milieu de chaque trame en millisecondes (heure locale stockée en base, lue comme UTC)
+//   matrice    nbTrames x nbBins, trame par trame (bin k à k x fréquence / nperseg Hz), suivie d'un bourrage à 8 octets
+//
+// En u8, v = 0 pour dbMin ou moins, 255 pour dbMax ou plus, linéaire entre les deux (dbMin/dbMax NaN en f32).
+public class SpectrogramEncoder {
+
+    public static final byte VERSION = 1;
+    public static final byte ENCODING_F32 = 0;
+    public static final byte ENCODING_U8_DB = 1;
+    private static final int HEADER_SIZE = 40;
+
+    private final long[] millis;
+    private final float[] matrix;
+    private final int bins;
+    private final double sampleRate;
+    private final int nperseg;
+    private final int hop;
+    private final boolean decibels;
+
+    // matrix : densités, ou densités en dB si decibels (encodées en u8)
+    public SpectrogramEncoder(long[] millis, float[] matrix, int bins, double sampleRate, int nperseg, int hop, boolean decibels) {
+        this.millis = millis;
+        this.matrix = matrix;
+        this.bins = bins;
+        this.sampleRate = sampleRate;
+        this.nperseg = nperseg;
+        this.hop = hop;
+        this.decibels = decibels;
+    }
+
+    public int frames() {
+        return millis.length;
+    }
+
+    // dbMax null : maximum de la matrice ; dbMin = dbMax - range (ignorés en f32)
+    public byte[] encode(Double dbMax, double range) {
+        int frames = millis.length;
+        long cells = (long) frames * bins;
+        long size = HEADER_SIZE + 8L * frames + align(decibels ? cells : 4 * cells);
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Spectrogramme trop volumineux pour le format binaire");
+        }
+        float top = Float.NaN;
+        float bottom = Float.NaN;
+        if (decibels) {
+            top = dbMax != null ? dbMax.floatValue() : max(matrix);
+            bottom = (float) (top - range);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'F').put((byte) 'S').put((byte) 'P').put((byte) 'G');
+        buffer.put(VERSION).put(decibels ? ENCODING_U8_DB : ENCODING_F32).putShort((short) 0);
+        buffer.putInt(frames).putInt(bins).putDouble(sampleRate).putInt(nperseg).putInt(hop);
+        buffer.putFloat(bottom).putFloat(top);
+        for (long t : millis) {
+            buffer.putLong(t);
+        }
+        if (decibels) {
+            float scale = (float) (255 / range);
+            for (float v : matrix) {
+                float q = (v - bottom) * scale;
+                buffer.put((byte) (q <= 0 ? 0 : q >= 255 ? 255 : Math.round(q)));
+            }
+        } else {
+            buffer.asFloatBuffer().put(matrix);
+            buffer.position(buffer.position() + 4 * matrix.length);
+        }
+        return buffer.array();
+    }
+
+    private static float max(float[] values) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (float v : values) {
+            max = Math.max(max, v);
+        }
+        return values.length > 0 ? max : 0;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,42 @@
+package com.monprojet.factory.utils;
+
+// Petit cache de chaînes pour les colonnes texte très répétitives (équipement, site...) :
+// évite de créer une String par ligne. Non thread-safe : une instance par thread d'analyse.
+public final class StringCache {
+
+    private final String[] entries;
+    private final int mask;
+
+    public StringCache(int sizePowerOfTwo) {
+        int size = Integer.highestOneBit(Math.max(16, sizePowerOfTwo));
+        this.entries = new String[size];
+        this.mask = size - 1;
+    }
+
+    public String get(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int index = (hash ^ (hash >>> 16)) & mask;
+        String cached = entries[index];
+        if (cached != null && matches(cached, buffer, offset, length)) {
+            return cached;
+        }
+        String value = new String(buffer, offset, length);
+        entries[index] = value;
+        return value;
+    }
+
+    private static boolean matches(String value, char[] buffer, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,310 @@
+package com.monprojet.factory.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Tampon circulaire des mesures récentes d'une série, en colonnes primitives (8 octets par valeur, aucun objet par ligne).
+// Les lignes restent triées par horodatage : un lot en retard (écrivains parallèles) est fusionné avec la fin du tampon.
+// Ne garde que les windowSeconds dernières secondes et au plus maxCapacity lignes.
+public class TelemetryRing {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    // Copie d'une fenêtre : t[i] en secondes (FastParsers), values[c][i]
+    public static final class Window {
+        private final long[] t;
+        private final double[][] values;
+
+        public Window(long[] t, double[][] values) {
+            this.t = t;
+            this.values = values;
+        }
+
+        public long[] t() { return t; }
+        public double[][] values() { return values; }
+        public int size() { return t.length; }
+    }
+
+    private final int channels;
+    private final int maxCapacity;
+    private final long windowSeconds;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] timestamps;
+    private double[][] values;
+    private int head;
+    private int size;
+    // Le tampon contient toutes les mesures de la série à partir de cet instant (les plus anciennes ont été évincées)
+    private long completeSince = Long.MIN_VALUE;
+
+    public TelemetryRing(int channels, int maxCapacity, long windowSeconds) {
+        this.channels = channels;
+        this.maxCapacity = Math.max(1, maxCapacity);
+        this.windowSeconds = windowSeconds;
+        allocate(Math.min(INITIAL_CAPACITY, this.maxCapacity));
+    }
+
+    // Insère `count` lignes triées par horodatage croissant (values[c][i]).
+    // Un horodatage déjà présent est ignoré : réinsérer la même fenêtre est sans effet.
+    public void insert(long[] t, double[][] rows, int count) {
+        if (count == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long newest = size > 0 ? Math.max(timestampAt(size - 1), t[count - 1]) : t[count - 1];
+            long cutoff = windowSeconds > 0 ? newest - windowSeconds : Long.MIN_VALUE;
+            int first = lowerBound(t, count, Math.max(cutoff, completeSince));
+            if (first == count) {
+                return;
+            }
+            if (size == 0 || t[first] > timestampAt(size - 1)) {
+                for (int i = first; i < count; i++) {
+                    append(t, rows, i);
+                }
+            } else {
+                mergeTail(t, rows, first, count);
+            }
+            evictBefore(cutoff);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Lot en retard : la fin du tampon postérieure au lot est mise de côté puis fusionnée avec lui
+    private void mergeTail(long[] t, double[][] rows, int first, int count) {
+        int position = upperBound(t[first]);
+        int tailLength = size - position;
+        long[] tailTimes = new long[tailLength];
+        double[][] tailValues = new double[channels][tailLength];
+        for (int i = 0; i < tailLength; i++) {
+            int index = physical(position + i);
+            tailTimes[i] = timestamps[index];
+            for (int c = 0; c < channels; c++) {
+                tailValues[c][i] = values[c][index];
+            }
+        }
+        size = position;
+        int i = first;
+        int j = 0;
+        while (i < count || j < tailLength) {
+            if (j == tailLength || (i < count && t[i] < tailTimes[j])) {
+                if (size == 0 || t[i] != timestampAt(size - 1)) {
+                    append(t, rows, i);
+                }
+                i++;
+            } else {
+                if (size == 0 || tailTimes[j] != timestampAt(size - 1)) {
+                    append(tailTimes, tailValues, j);
+                }
+                j++;
+            }
+        }
+    }
+
+    // Horodatage de la dernière ligne et ses valeurs (copiées dans out), Long.MIN_VALUE si le tampon est vide
+    public long latest(double[] out) {
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return Long.MIN_VALUE;
+            }
+            int index = physical(size - 1);
+            for (int c = 0; c < channels; c++) {
+                out[c] = values[c][index];
+            }
+            return timestamps[index];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lignes de [from, to[ ; null si le tampon ne couvre pas tout l'intervalle (mesures plus anciennes évincées)
+    public Window range(long from, long to) {
+        lock.readLock().lock();
+        try {
+            if (from < completeSince) {
+                return null;
+            }
+            int start = lowerBound(from);
+            int end = lowerBound(to);
+            int length = Math.max(0, end - start);
+            long[] t = new long[length];
+            double[][] copy = new double[channels][length];
+            for (int i = 0; i < length; i++) {
+                int index = physical(start + i);
+                t[i] = timestamps[index];
+                for (int c = 0; c < channels; c++) {
+                    copy[c][i] = values[c][index];
+                }
+            }
+            return new Window(t, copy);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Tampon vide : aucune mesure ne manque avant `since` (chargement initial depuis la base)
+    public void markCompleteSince(long since) {
+        lock.writeLock().lock();
+        try {
+            completeSince = Math.max(completeSince, since);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Retire les lignes de [from, to[ (mesures supprimées en base) ; les lignes suivantes sont décalées
+    public void removeRange(long from, long to) {
+        lock.writeLock().lock();
+        try {
+            int start = lowerBound(from);
+            int end = lowerBound(to);
+            if (end <= start) {
+                return;
+            }
+            for (int i = end; i < size; i++) {
+                int source = physical(i);
+                int target = physical(start + i - end);
+                timestamps[target] = timestamps[source];
+                for (int c = 0; c < channels; c++) {
+                    values[c][target] = values[c][source];
+                }
+            }
+            size -= end - start;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            head = 0;
+            size = 0;
+            completeSince = Long.MIN_VALUE;
+            allocate(Math.min(INITIAL_CAPACITY, maxCapacity));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long completeSince() {
+        lock.readLock().lock();
+        try {
+            return completeSince;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void append(long[] t, double[][] rows, int i) {
+        if (size == timestamps.length) {
+            if (timestamps.length < maxCapacity) {
+                grow();
+            } else {
+                // Plein : la ligne la plus ancienne cède sa place
+                completeSince = Math.max(completeSince, timestamps[head] + 1);
+                head = (head + 1) % timestamps.length;
+                size--;
+            }
+        }
+        int index = physical(size);
+        timestamps[index] = t[i];
+        for (int c = 0; c < channels; c++) {
+            values[c][index] = rows[c][i];
+        }
+        size++;
+    }
+
+    private void evictBefore(long cutoff) {
+        if (cutoff == Long.MIN_VALUE) {
+            return;
+        }
+        while (size > 0 && timestamps[head] < cutoff) {
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+        completeSince = Math.max(completeSince, cutoff);
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(maxCapacity, timestamps.length * 2L);
+        long[] grownTimes = new long[capacity];
+        double[][] grownValues = new double[channels][capacity];
+        for (int i = 0; i < size; i++) {
+            int index = physical(i);
+            grownTimes[i] = timestamps[index];
+            for (int c = 0; c < channels; c++) {
+                grownValues[c][i] = values[c][index];
+            }
+        }
+        timestamps = grownTimes;
+        values = grownValues;
+        head = 0;
+    }
+
+    private void allocate(int capacity) {
+        timestamps = new long[capacity];
+        values = new double[channels][capacity];
+    }
+
+    private int physical(int logical) {
+        int index = head + logical;
+        return index >= timestamps.length ? index - timestamps.length : index;
+    }
+
+    private long timestampAt(int logical) {
+        return timestamps[physical(logical)];
+    }
+
+    // Première ligne du tampon d'horodatage >= value
+    private int lowerBound(long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampAt(mid) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Première ligne du tampon d'horodatage > value
+    private int upperBound(long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampAt(mid) <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(long[] t, int count, long value) {
+        int index = Arrays.binarySearch(t, 0, count, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && t[index - 1] == value) {
+            index--;
+        }
+        return index;
+    }
+}
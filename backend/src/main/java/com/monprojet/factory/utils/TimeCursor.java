@@ -0,0 +1,39 @@
+package com.monprojet.factory.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Curseur opaque (timestamp, id) pour la pagination par clé : base64url de "2025-09-15T16:09:25,123"
+public final class TimeCursor {
+
+    private final LocalDateTime timestamp;
+    private final long id;
+
+    public TimeCursor(LocalDateTime timestamp, long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public long getId() { return id; }
+
+    public String encode() {
+        String raw = timestamp + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TimeCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.lastIndexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Curseur invalide : " + cursor);
+            }
+            return new TimeCursor(LocalDateTime.parse(raw.substring(0, comma)), Long.parseLong(raw.substring(comma + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide : " + cursor, e);
+        }
+    }
+}
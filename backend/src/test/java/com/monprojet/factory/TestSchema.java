@@ -0,0 +1,50 @@
+package com.monprojet.factory;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+// Base H2 embarquée (mode SQL Server) et tables de télémétrie des tests JDBC, créées à la main comme en production
+// (ddl-auto) : une seule définition par table, à tenir à jour avec les entités.
+public final class TestSchema {
+
+    private static final String COMPRESSEUR_COLUMNS = "id BIGINT IDENTITY PRIMARY KEY, timestamp DATETIME2, "
+            + "equipment_id BIGINT, sensor_id BIGINT, pressure FLOAT, current_value FLOAT, vibration_x FLOAT, vibration_y FLOAT, vibration_z FLOAT";
+
+    private TestSchema() {
+    }
+
+    // Base vide et propre au test (name ne sert qu'à lire les traces)
+    public static JdbcTemplate database(String name) {
+        return new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";MODE=MSSQLServer;DB_CLOSE_DELAY=-1"));
+    }
+
+    public static void compresseurData(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE COMPRESSEURDATA (" + COMPRESSEUR_COLUMNS + ")");
+    }
+
+    public static void compresseurArchive(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE COMPRESSEURDATA_ARCHIVE (" + COMPRESSEUR_COLUMNS + ", archived_at DATETIME2)");
+    }
+
+    public static void equipmentData(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE equipment_data (id BIGINT IDENTITY PRIMARY KEY, timestamp DATETIME2, "
+                + "temperature FLOAT, pressure FLOAT, vibration FLOAT, humidity FLOAT, "
+                + "equipment VARCHAR(255), location VARCHAR(255), faulty BIT)");
+    }
+
+    public static void telemetryRollups(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE telemetry_rollups (id BIGINT IDENTITY PRIMARY KEY, series_key VARCHAR(128), "
+                + "channel VARCHAR(32), bucket_seconds INT, bucket_start DATETIME2, min_value FLOAT, max_value FLOAT, "
+                + "sum_value FLOAT, sum_squares FLOAT, sample_count BIGINT, first_at DATETIME2, last_at DATETIME2, "
+                + "CONSTRAINT uk_telemetry_rollups_bucket UNIQUE (series_key, bucket_seconds, channel, bucket_start))");
+    }
+
+    public static void vibrationFeatures(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE vibration_features (id BIGINT IDENTITY PRIMARY KEY, series_key VARCHAR(128), "
+                + "channel VARCHAR(32), window_seconds INT, window_start DATETIME2, sample_count BIGINT, mean_value FLOAT, "
+                + "m2 FLOAT, m3 FLOAT, m4 FLOAT, min_value FLOAT, max_value FLOAT, rms FLOAT, peak FLOAT, peak_to_peak FLOAT, "
+                + "crest_factor FLOAT, skewness FLOAT, kurtosis FLOAT, first_at DATETIME2, last_at DATETIME2, "
+                + "CONSTRAINT uk_vibration_features_window UNIQUE (series_key, window_seconds, channel, window_start))");
+    }
+}
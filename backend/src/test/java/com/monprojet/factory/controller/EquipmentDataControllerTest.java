@@ -0,0 +1,117 @@
+package com.monprojet.factory.controller;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.EquipmentDataRepository;
+import com.monprojet.factory.repository.ImportedFileRepository;
+import com.monprojet.factory.repository.TelemetryPurgeRepository;
+import com.monprojet.factory.repository.TelemetryRollupRepository;
+import com.monprojet.factory.repository.VibrationFeatureRepository;
+import com.monprojet.factory.service.CsvImportService;
+import com.monprojet.factory.service.DateCatalog;
+import com.monprojet.factory.service.EquipmentBatch;
+import com.monprojet.factory.service.HotTelemetryCache;
+import com.monprojet.factory.service.ImportJobService;
+import com.monprojet.factory.service.RollupService;
+import com.monprojet.factory.service.SpectrumCache;
+import com.monprojet.factory.service.TelemetryIngestListener;
+import com.monprojet.factory.service.TelemetryQueryService;
+import com.monprojet.factory.service.TelemetryRetentionService;
+import com.monprojet.factory.service.VibrationFeatureService;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// DELETE /api/equipment/data : garde-fou de la suppression totale, puis table, agrégats et empreintes vidés
+class EquipmentDataControllerTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 10:00:00");
+
+    @TempDir
+    Path spoolDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private RollupService rollupService;
+    private ImportedFileRepository importedFileRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestSchema.database("equipment-delete");
+        TestSchema.compresseurData(jdbcTemplate);
+        TestSchema.equipmentData(jdbcTemplate);
+        TestSchema.telemetryRollups(jdbcTemplate);
+        CompresseurDataBatchRepository compresseurRepository = new CompresseurDataBatchRepository(jdbcTemplate);
+        TelemetryRollupRepository rollups = new TelemetryRollupRepository(jdbcTemplate);
+        rollupService = new RollupService(rollups, new DateCatalog(rollups), jdbcTemplate, compresseurRepository,
+                true, false, 20000);
+        TelemetryRetentionService retentionService = new TelemetryRetentionService(new TelemetryPurgeRepository(jdbcTemplate),
+                compresseurRepository, rollupService,
+                new HotTelemetryCache(compresseurRepository, false, 24, 100_000), new SpectrumCache(1 << 20),
+                new VibrationFeatureService(new VibrationFeatureRepository(jdbcTemplate), compresseurRepository, false, 60, 50000),
+                1000, 0, false);
+        importedFileRepository = mock(ImportedFileRepository.class);
+        ImportJobService importJobService = new ImportJobService(Runnable::run, importedFileRepository,
+                spoolDir.toString(), 100, 100, 20, 1000);
+        mockMvc = MockMvcBuilders.standaloneSetup(new EquipmentDataController(mock(CsvImportService.class),
+                mock(EquipmentDataRepository.class), importJobService, mock(TelemetryQueryService.class),
+                retentionService)).build();
+    }
+
+    @Test
+    void deletingEverythingRequiresAllAndClearsEveryTrace() throws Exception {
+        ingest("pompe-1", 0, 3000);
+        ingest("pompe-2", 0, 2000);
+
+        // Ni borne ni équipement : refusé, rien n'est supprimé
+        mockMvc.perform(delete("/api/equipment/data")).andExpect(status().isBadRequest());
+        assertEquals(5000, rows());
+        verify(importedFileRepository, never()).deleteByType(anyString());
+
+        // Suppression bornée d'un équipement : les empreintes des fichiers restent
+        mockMvc.perform(delete("/api/equipment/data").param("equipmentId", "pompe-2")
+                        .param("start", "2025-09-15T10:00:00").param("end", "2025-09-15T10:10:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(600));
+        verify(importedFileRepository, never()).deleteByType(anyString());
+
+        mockMvc.perform(delete("/api/equipment/data").param("all", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(4400));
+        assertEquals(0, rows());
+        rollupService.pendingRefresh().get(10, TimeUnit.SECONDS);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM telemetry_rollups", Integer.class));
+        // Le même fichier peut de nouveau être importé
+        verify(importedFileRepository).deleteByType("equipment");
+    }
+
+    private void ingest(String equipment, int from, int to) {
+        try (TelemetryIngestListener.Session session = rollupService.begin("equipment")) {
+            EquipmentBatch batch = new EquipmentBatch(to - from);
+            for (int i = from; i < to; i++) {
+                jdbcTemplate.update("INSERT INTO equipment_data (timestamp, temperature, pressure, vibration, humidity, equipment) "
+                        + "VALUES (?, 20.0, 6.5, 0.1, 40.0, ?)", Timestamp.valueOf(FastParsers.toLocalDateTime(START + i)), equipment);
+                batch.add(START + i, 20.0, 6.5, 0.1, 40.0, equipment, null, false);
+            }
+            session.equipmentWritten(batch);
+        }
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM equipment_data", Integer.class);
+    }
+}
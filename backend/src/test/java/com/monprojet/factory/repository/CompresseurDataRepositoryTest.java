@@ -0,0 +1,51 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.entity.CompresseurData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Requêtes par curseur sur une base H2 embarquée
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class CompresseurDataRepositoryTest {
+
+    @Autowired
+    private CompresseurDataRepository repository;
+
+    @Test
+    void pagesThroughEqualTimestampsWithoutGapsOrRepeats() {
+        LocalDateTime start = LocalDateTime.of(2025, 9, 15, 16, 0);
+        List<CompresseurData> rows = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            CompresseurData row = new CompresseurData();
+            row.setTimestamp(start.plusSeconds(i / 3));  // trois mesures par seconde
+            row.setPressure((double) i);
+            rows.add(row);
+        }
+        repository.saveAll(rows);
+
+        LocalDateTime end = start.plusHours(1);
+        List<Double> seen = new ArrayList<>();
+        List<CompresseurData> page = repository.findPage(start, end, PageRequest.of(0, 4));
+        while (!page.isEmpty()) {
+            page.forEach(row -> seen.add(row.getPressure()));
+            CompresseurData last = page.get(page.size() - 1);
+            page = repository.findPageAfter(last.getTimestamp(), last.getId(), end, PageRequest.of(0, 4));
+        }
+        assertEquals(25, seen.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(i, seen.get(i));
+        }
+
+        List<CompresseurData> latest = repository.findLatest(start.plusSeconds(8), PageRequest.of(0, 2));
+        assertEquals(23.0, latest.get(0).getPressure());
+        assertEquals(22.0, latest.get(1).getPressure());
+    }
+}
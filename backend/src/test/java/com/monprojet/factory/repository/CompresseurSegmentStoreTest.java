@@ -0,0 +1,147 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.service.CompresseurBatch;
+import com.monprojet.factory.utils.FastParsers;
+import com.monprojet.factory.utils.GorillaCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Stockage en segments compressés, dans un répertoire temporaire
+class CompresseurSegmentStoreTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 22:00:00");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void codecRoundTripsIrregularTimesAndNaN() {
+        long[] times = {START, START + 1, START + 2, START + 2, START + 70, START + 400, START + 100_000, START + 100_001};
+        double[] values = {6.5, 6.5, 6.51, Double.NaN, -3.25, 1e-9, 6.5, 0.0};
+        GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+        for (int i = 0; i < times.length; i++) {
+            encoder.add(times[i], values[i]);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(encoder.byteLength() + 3);
+        buffer.position(3);
+        encoder.writeTo(buffer);
+
+        GorillaCodec.Decoder decoder = new GorillaCodec.Decoder(buffer, 3, encoder.count());
+        for (int i = 0; i < times.length; i++) {
+            assertTrue(decoder.next());
+            assertEquals(times[i], decoder.time());
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoder.value()));
+        }
+        assertFalse(decoder.next());
+    }
+
+    @Test
+    void scansAcrossDaysInTimeOrderWhateverTheAppendOrder() {
+        CompresseurSegmentStore store = open();
+        // Deuxième heure écrite avant la première, à cheval sur minuit
+        store.append(batch(3600, 7200));
+        store.append(batch(0, 3600));
+
+        List<Long> times = new ArrayList<>();
+        List<Double> pressures = new ArrayList<>();
+        store.scan(START, START + 7200, Integer.MAX_VALUE, batch -> {
+            for (int r = 0; r < batch.size(); r++) {
+                times.add(batch.timestamp(r));
+                pressures.add(batch.pressure(r));
+            }
+        });
+        assertEquals(7200, times.size());
+        for (int i = 0; i < times.size(); i++) {
+            assertEquals(START + i, times.get(i));
+            assertEquals(pressure(i), pressures.get(i));
+        }
+
+        long[] stats = store.stats(START + 100, START + 200);
+        assertArrayEquals(new long[]{100, START + 100, START + 199}, stats);
+        assertEquals(START + 7199, store.latestTimestamp());
+
+        int[] limited = {0};
+        store.scan(START + 10, START + 7200, 50, batch -> limited[0] += batch.size());
+        assertEquals(50, limited[0]);
+    }
+
+    @Test
+    void deletesRangeByRewritingPartialDays() {
+        CompresseurSegmentStore store = open();
+        store.append(batch(0, 7200));
+
+        // 23h00-23h30 réécrit, journée du 16 intacte
+        assertEquals(1800, store.deleteRange(START + 3600, START + 5400));
+        assertEquals(5400, store.count());
+        assertEquals(0, store.stats(START + 3600, START + 5400)[0]);
+        assertEquals(1800, store.stats(START + 5400, START + 7200)[0]);
+
+        // Les données survivent à la réouverture (dernière génération du jour)
+        CompresseurSegmentStore reopened = open();
+        assertEquals(5400, reopened.count());
+        assertEquals(0, reopened.stats(START + 3600, START + 5400)[0]);
+    }
+
+    @Test
+    void dropsTruncatedTailBlockOnReopen() throws IOException {
+        CompresseurSegmentStore store = open();
+        // Même journée, deux lots : deux blocs par voie
+        store.append(batch(7200, 8200));
+        store.append(batch(8200, 9000));
+
+        // Arrêt brutal pendant l'écriture du second bloc d'une voie
+        Path pressure;
+        try (Stream<Path> files = Files.walk(directory)) {
+            pressure = files.filter(p -> p.getFileName().toString().equals("pressure.seg")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(pressure, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        CompresseurSegmentStore reopened = open();
+        assertEquals(1000, reopened.count());
+        reopened.append(batch(8200, 9000));
+        assertEquals(1800, reopened.count());
+        assertEquals(START + 8999, reopened.latestTimestamp());
+    }
+
+    @Test
+    void storesFarFewerBytesPerRowThanTheTable() {
+        CompresseurSegmentStore store = open();
+        store.append(batch(0, 20_000));
+        double bytesPerRow = (double) store.storageStats().get("bytesPerRow");
+        // Table : 8 octets d'horodatage + 5 x 8 octets de mesures, hors index
+        assertTrue(bytesPerRow < 16, "octets par mesure : " + bytesPerRow);
+    }
+
+    private CompresseurSegmentStore open() {
+        CompresseurSegmentStore store = new CompresseurSegmentStore("segment", directory.toString());
+        store.open();
+        return store;
+    }
+
+    // Une mesure par seconde, valeurs au centième comme dans les fichiers du compresseur
+    private static CompresseurBatch batch(int from, int to) {
+        CompresseurBatch batch = new CompresseurBatch(to - from);
+        for (int i = from; i < to; i++) {
+            batch.add(START + i, pressure(i), 12.0, Math.round(Math.sin(i / 50.0) * 100) / 100.0, 0.2, Double.NaN);
+        }
+        return batch;
+    }
+
+    private static double pressure(int i) {
+        return 6.0 + (i % 600) / 100.0;
+    }
+}
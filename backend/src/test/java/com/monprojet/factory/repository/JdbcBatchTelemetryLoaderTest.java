@@ -0,0 +1,89 @@
+package com.monprojet.factory.repository;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.service.CompresseurBatch;
+import com.monprojet.factory.service.CompresseurDeduplicationService;
+import com.monprojet.factory.service.EquipmentBatch;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Mode de chargement portable, testé sur une base H2 embarquée (mode SQL Server)
+class JdbcBatchTelemetryLoaderTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TelemetryBulkLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestSchema.database("telemetry");
+        TestSchema.compresseurData(jdbcTemplate);
+        TestSchema.equipmentData(jdbcTemplate);
+        loader = new JdbcBatchTelemetryLoader(new CompresseurDataBatchRepository(jdbcTemplate),
+                new EquipmentDataBatchRepository(jdbcTemplate), new SpectralFeatureBatchRepository(jdbcTemplate));
+    }
+
+    @Test
+    void loadsCompresseurBatches() {
+        long start = FastParsers.parseTimestamp("2025-09-15 16:09:25");
+        CompresseurBatch batch = new CompresseurBatch(500);
+        int total = 0;
+        for (int i = 0; i < 1200; i++) {
+            batch.add(start + i, i == 0 ? Double.NaN : 6.5, 12.0, 0.1, 0.2, 0.0);
+            if (batch.isFull()) {
+                total += loader.loadCompresseur(batch);
+                batch.clear();
+            }
+        }
+        total += loader.loadCompresseur(batch);
+
+        assertEquals(1200, total);
+        assertEquals(1200, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA", Integer.class));
+        assertEquals(Timestamp.valueOf("2025-09-15 16:09:25"),
+                jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM COMPRESSEURDATA", Timestamp.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA WHERE pressure IS NULL", Integer.class));
+    }
+
+    @Test
+    void loadsEquipmentBatches() {
+        EquipmentBatch batch = new EquipmentBatch(10);
+        batch.add(FastParsers.parseTimestamp("2025-01-01 00:00:00"), 21.5, 1.2, 0.3, 40.0, "EQ1", "L1", true);
+        batch.add(FastParsers.parseTimestamp("2025-01-01 00:00:30"), 22.0, 1.1, 0.4, 41.0, "EQ1", "L1", false);
+
+        assertEquals(2, loader.loadEquipment(batch));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM equipment_data WHERE faulty = TRUE AND equipment = 'EQ1'", Integer.class));
+    }
+
+    @Test
+    void skipsRowsAlreadyInDatabase() {
+        long start = FastParsers.parseTimestamp("2025-09-15 16:09:25");
+        CompresseurBatch first = new CompresseurBatch(100);
+        for (int i = 0; i < 100; i++) {
+            first.add(start + i, 6.5, 12.0, 0.1, 0.2, 0.0);
+        }
+        loader.loadCompresseur(first);
+
+        CompresseurDeduplicationService dedup = new CompresseurDeduplicationService(
+                new CompresseurDataBatchRepository(jdbcTemplate), true, 1000, 1_000_000, 0.01);
+        CompresseurDeduplicationService.Session session = dedup.openSession();
+        // Recouvre la moitié du premier import, avec un horodatage répété dans le fichier
+        CompresseurBatch second = new CompresseurBatch(101);
+        for (int i = 50; i < 150; i++) {
+            if (session.firstInFile(start + i)) {
+                second.add(start + i, 6.5, 12.0, 0.1, 0.2, 0.0);
+            }
+        }
+        assertFalse(session.firstInFile(start + 120));
+
+        assertEquals(50, session.removeExisting(second));
+        assertEquals(50, loader.loadCompresseur(second));
+        assertEquals(150, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT timestamp) FROM COMPRESSEURDATA", Integer.class));
+        assertEquals(150, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA", Integer.class));
+    }
+}
@@ -0,0 +1,159 @@
+package com.monprojet.factory.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Pipeline parseur -> écrivains : ordre et nombre des lignes, remontée des échecs d'écriture, arrêt sur abort
+class BatchPipelineTest {
+
+    @Test
+    void rowsAreWrittenOnceAndInOrderWithOneWriter() throws Exception {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger created = new AtomicInteger();
+        BatchPipeline<IntBatch> pipeline = new BatchPipeline<>("test", 1, 2, () -> {
+            created.incrementAndGet();
+            return new IntBatch(10);
+        }, batch -> {
+            for (int i = 0; i < batch.size; i++) {
+                written.add(batch.values[i]);
+            }
+            return batch.size;
+        });
+        for (int i = 0; i < 1005; i++) {
+            pipeline.current().add(i);
+            pipeline.flushIfFull();
+        }
+        assertEquals(1005, pipeline.finish());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1005; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, written);
+        // Lots recyclés : au plus file + écrivains + lot du parseur (+ celui rendu pendant l'échange)
+        assertTrue(created.get() <= 2 + 1 + 2, created.get() + " lots créés");
+    }
+
+    @Test
+    void rowsAreCountedOnceWithSeveralWriters() throws Exception {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        BatchPipeline<IntBatch> pipeline = new BatchPipeline<>("test", 4, 3, () -> new IntBatch(7), batch -> {
+            for (int i = 0; i < batch.size; i++) {
+                written.add(batch.values[i]);
+            }
+            return batch.size;
+        });
+        for (int i = 0; i < 10_000; i++) {
+            pipeline.current().add(i);
+            pipeline.flushIfFull();
+        }
+        assertEquals(10_000, pipeline.finish());
+        Collections.sort(written);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, written.get(i));
+        }
+    }
+
+    @Test
+    void writerFailureStopsTheParser() {
+        IllegalStateException boom = new IllegalStateException("base indisponible");
+        AtomicInteger calls = new AtomicInteger();
+        BatchPipeline<IntBatch> pipeline = new BatchPipeline<>("test", 2, 1, () -> new IntBatch(5), batch -> {
+            if (calls.incrementAndGet() == 3) {
+                throw boom;
+            }
+            return batch.size;
+        });
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> feed(pipeline, 100_000));
+        assertSame(boom, thrown);
+        pipeline.abort();
+    }
+
+    @Test
+    void writerErrorStopsTheParserInsteadOfHanging() {
+        BatchPipeline<IntBatch> pipeline = new BatchPipeline<>("test", 1, 1, () -> new IntBatch(5), batch -> {
+            throw new StackOverflowError();
+        });
+        IllegalStateException thrown = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(IllegalStateException.class, () -> feed(pipeline, 100_000)));
+        assertInstanceOf(StackOverflowError.class, thrown.getCause());
+        pipeline.abort();
+    }
+
+    @Test
+    void abortWaitsForTheBatchBeingWritten() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        BatchPipeline<IntBatch> pipeline = new BatchPipeline<>("test", 2, 4, () -> new IntBatch(5), batch -> {
+            inFlight.incrementAndGet();
+            calls.incrementAndGet();
+            writing.countDown();
+            // Écriture qui ignore l'interruption, comme un appel JDBC en cours
+            boolean done = false;
+            while (!done) {
+                try {
+                    done = release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // ignorée
+                }
+            }
+            inFlight.decrementAndGet();
+            return batch.size;
+        });
+        feed(pipeline, 30);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> abort = CompletableFuture.runAsync(pipeline::abort);
+        assertThrows(TimeoutException.class, () -> abort.get(300, TimeUnit.MILLISECONDS));
+        release.countDown();
+        abort.get(5, TimeUnit.SECONDS);
+        // Plus rien en cours ni à venir une fois abort() rendu : les lots en attente ont été abandonnés
+        assertEquals(0, inFlight.get());
+        int afterAbort = calls.get();
+        assertTrue(afterAbort <= 2, afterAbort + " lots écrits");
+        assertThrows(CancellationException.class, pipeline::finish);
+        assertEquals(afterAbort, calls.get());
+    }
+
+    private static void feed(BatchPipeline<IntBatch> pipeline, int rows) throws InterruptedException {
+        for (int i = 0; i < rows; i++) {
+            pipeline.current().add(i);
+            pipeline.flushIfFull();
+        }
+    }
+
+    private static final class IntBatch implements BatchPipeline.Batch {
+        private final int[] values;
+        private int size;
+
+        IntBatch(int capacity) {
+            values = new int[capacity];
+        }
+
+        void add(int value) {
+            values[size++] = value;
+        }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public boolean isFull() { return size == values.length; }
+
+        @Override
+        public void clear() { size = 0; }
+    }
+}
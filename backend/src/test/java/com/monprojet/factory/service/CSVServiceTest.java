@@ -0,0 +1,103 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.dto.ImportResult;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.EquipmentDataBatchRepository;
+import com.monprojet.factory.repository.JdbcBatchTelemetryLoader;
+import com.monprojet.factory.repository.SpectralFeatureBatchRepository;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Import compresseur par lots JDBC sur une base H2 embarquée : lignes insérées par plusieurs écrivains,
+// lignes invalides comptées et écartées
+class CSVServiceTest {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 10:00:00");
+
+    private JdbcTemplate jdbcTemplate;
+    private CSVService csvService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestSchema.database("csv");
+        TestSchema.compresseurData(jdbcTemplate);
+        CompresseurDataBatchRepository repository = new CompresseurDataBatchRepository(jdbcTemplate);
+        csvService = new CSVService();
+        ReflectionTestUtils.setField(csvService, "bulkLoader", new JdbcBatchTelemetryLoader(repository,
+                new EquipmentDataBatchRepository(jdbcTemplate), new SpectralFeatureBatchRepository(jdbcTemplate)));
+        ReflectionTestUtils.setField(csvService, "deduplicationService",
+                new CompresseurDeduplicationService(repository, false, 1000, 1000, 0.01));
+        ReflectionTestUtils.setField(csvService, "batchSize", 100);
+        ReflectionTestUtils.setField(csvService, "writerThreads", 3);
+        ReflectionTestUtils.setField(csvService, "queueCapacity", 2);
+    }
+
+    @Test
+    void batchesAreWrittenAndInvalidRowsAreCounted() throws Exception {
+        // 1050 lignes valides (dix lots et demi), avec une ligne invalide toutes les 100
+        StringBuilder csv = new StringBuilder("timestamp,pressure,current,vibration_x,vibration_y,vibration_z\n");
+        for (int i = 0; i < 1050; i++) {
+            String time = TIME.format(FastParsers.toLocalDateTime(START + i));
+            csv.append(time).append(',').append(i).append(",12.0,0.1,0.2,0.3\n");
+            switch (i % 100) {
+                case 10 -> csv.append(",6.5,12.0,0.1,0.2,0.3\n");
+                case 20 -> csv.append(time).append(",6.5,,0.1,0.2,0.3\n");
+                case 30 -> csv.append(time).append(",6.5,12.0,NaN,0.2,0.3\n");
+                case 40 -> csv.append("2025-09-15 25:00:00,6.5,12.0,0.1,0.2,0.3\n");
+                default -> {
+                }
+            }
+        }
+        ImportJob job = job(csv);
+        ImportResult result = importCsv(csv, job);
+
+        assertEquals(1050 + 44, result.getRowsParsed());
+        assertEquals(1050, result.getRowsInserted());
+        assertEquals(44, result.getRowsRejected());
+        assertEquals(1050, job.getRowsInserted());
+        assertEquals(Map.of(RejectedRowSink.Reason.MISSING_TIMESTAMP, 11L, RejectedRowSink.Reason.INVALID_NUMBER, 22L,
+                RejectedRowSink.Reason.INVALID_TIMESTAMP, 11L), job.getRejectedByReason());
+        // Chaque ligne valide une fois, avec ses valeurs ; aucune ligne invalide en base
+        assertEquals(1050, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT timestamp) FROM COMPRESSEURDATA", Integer.class));
+        assertEquals(1049 * 1050 / 2.0, jdbcTemplate.queryForObject("SELECT SUM(pressure) FROM COMPRESSEURDATA", Double.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA WHERE pressure = 6.5", Integer.class));
+    }
+
+    @Test
+    void blankLinesAreNeitherRowsNorRejections() throws Exception {
+        CharSequence csv = "timestamp,pressure,current,vibration_x,vibration_y,vibration_z\r\n\r\n"
+                + "2025-09-15 10:00:00,6.5,12.0,0.1,0.2,0.3\n\n\n"
+                + "2025-09-15 10:00:01,6.5,12.0,0.1,0.2,0.3\n\n";
+        ImportJob job = job(csv);
+        ImportResult result = importCsv(csv, job);
+        assertEquals(2, result.getRowsParsed());
+        assertEquals(2, result.getRowsInserted());
+        assertEquals(0, result.getRowsRejected());
+        assertTrue(job.getRejectedByReason().isEmpty());
+    }
+
+    private static ImportJob job(CharSequence csv) {
+        ImportJob job = new ImportJob("test", "compresseur", "compresseur.csv", csv.length());
+        job.setRejections(new RejectedRowSink(null, 1, 100, 0));
+        return job;
+    }
+
+    private ImportResult importCsv(CharSequence csv, ImportJob job) throws Exception {
+        ImportResult result = csvService.importCompressorData(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), job);
+        job.rejections().close();
+        return result;
+    }
+}
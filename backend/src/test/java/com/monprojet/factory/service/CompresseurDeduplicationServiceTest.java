@@ -0,0 +1,197 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.dto.ImportResult;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.EquipmentDataBatchRepository;
+import com.monprojet.factory.repository.JdbcBatchTelemetryLoader;
+import com.monprojet.factory.repository.SpectralFeatureBatchRepository;
+import com.monprojet.factory.utils.BloomFilter;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Réimports idempotents : filtre de Bloom, vérification en base et imports simultanés, sur une base H2 embarquée
+class CompresseurDeduplicationServiceTest {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 10:00:00");
+
+    private JdbcTemplate jdbcTemplate;
+    private CompresseurDataBatchRepository repository;
+    private CompresseurDeduplicationService deduplicationService;
+    private CSVService csvService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestSchema.database("dedup");
+        TestSchema.compresseurData(jdbcTemplate);
+        repository = spy(new CompresseurDataBatchRepository(jdbcTemplate));
+        deduplicationService = new CompresseurDeduplicationService(repository, true, 100_000, 10_000_000, 0.01);
+        csvService = new CSVService();
+        ReflectionTestUtils.setField(csvService, "bulkLoader", new JdbcBatchTelemetryLoader(repository,
+                new EquipmentDataBatchRepository(jdbcTemplate), new SpectralFeatureBatchRepository(jdbcTemplate)));
+        ReflectionTestUtils.setField(csvService, "deduplicationService", deduplicationService);
+        ReflectionTestUtils.setField(csvService, "batchSize", 100);
+        ReflectionTestUtils.setField(csvService, "writerThreads", 3);
+        ReflectionTestUtils.setField(csvService, "queueCapacity", 4);
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndBoundedFalsePositives() {
+        BloomFilter filter = new BloomFilter(50_000, 0.01);
+        for (long i = 0; i < 50_000; i++) {
+            filter.put(CompresseurDeduplicationService.key(i % 3, START + i));
+        }
+        for (long i = 0; i < 50_000; i++) {
+            assertTrue(filter.mightContain(CompresseurDeduplicationService.key(i % 3, START + i)));
+        }
+        int falsePositives = 0;
+        for (long i = 0; i < 50_000; i++) {
+            if (filter.mightContain(CompresseurDeduplicationService.key(7, START + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50_000 * 0.02, "faux positifs : " + falsePositives);
+    }
+
+    @Test
+    void reimportingTheSameRowsInsertsNothing() throws Exception {
+        // Horodatage répété dans le fichier : une seule mesure
+        String csv = csv(0, 1500) + row(10, 7.0);
+        ImportResult first = importCsv(csv, null);
+        assertEquals(1500, first.getRowsInserted());
+        assertEquals(1, first.getRowsDuplicate());
+        assertEquals(1500, count());
+
+        ImportResult second = importCsv(csv, null);
+        assertEquals(0, second.getRowsInserted());
+        assertEquals(1501, second.getRowsDuplicate());
+        assertEquals(1500, count());
+
+        // Filtre rechargé depuis la base (après une suppression) : toujours rien de neuf
+        deduplicationService.reset();
+        assertEquals(0, importCsv(csv, null).getRowsInserted());
+        // Recouvrement partiel : seules les nouvelles mesures entrent
+        assertEquals(500, importCsv(csv(1000, 2000), null).getRowsInserted());
+        // Mêmes horodatages pour un autre compresseur : autre série
+        assertEquals(1500, importCsv(csv(0, 1500), 2L).getRowsInserted());
+        assertEquals(3500, count());
+    }
+
+    @Test
+    void concurrentOverlappingImportsInsertEachRowOnce() throws Exception {
+        int jobs = 4;
+        CyclicBarrier barrier = new CyclicBarrier(jobs);
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        try {
+            List<Future<ImportResult>> results = new ArrayList<>();
+            for (int j = 0; j < jobs; j++) {
+                // Fichiers décalés qui se recouvrent deux à deux, lignes mélangées
+                String csv = shuffled(j * 500, j * 500 + 2000, j);
+                results.add(executor.submit(() -> {
+                    barrier.await();
+                    return importCsv(csv, null);
+                }));
+            }
+            long inserted = 0;
+            for (Future<ImportResult> result : results) {
+                inserted += result.get().getRowsInserted();
+            }
+            assertEquals(3500, inserted);
+            assertEquals(3500, count());
+            assertEquals(3500, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT timestamp) FROM COMPRESSEURDATA", Integer.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void filterIsNotReplacedWhileASessionIsOpen() {
+        CompresseurDeduplicationService.Session running = deduplicationService.openSession();
+        // Suppression pendant l'import : le prochain import ne recharge pas le filtre tant que celui-ci tourne
+        deduplicationService.reset();
+        CompresseurDeduplicationService.Session next = deduplicationService.openSession();
+        CompresseurBatch written = batch(0, 500);
+        assertEquals(0, running.removeExisting(written));
+        repository.insertBatch(written);
+        // Mesures écrites par l'import en cours après l'ouverture du suivant : vues par le filtre partagé
+        assertEquals(500, next.removeExisting(batch(0, 500)));
+        running.close();
+        next.close();
+        verify(repository, times(1)).forEachTimestamp(any());
+
+        // Filtre périmé rechargé à l'ouverture suivante, sans autre session : les mesures sont en base
+        try (CompresseurDeduplicationService.Session reloaded = deduplicationService.openSession()) {
+            verify(repository, times(2)).forEachTimestamp(any());
+            assertEquals(500, reloaded.removeExisting(batch(0, 500)));
+        }
+    }
+
+    @Test
+    void filterSizeIsBoundedByMaxRows() throws Exception {
+        deduplicationService = new CompresseurDeduplicationService(repository, true, 100, 1000, 0.01);
+        ReflectionTestUtils.setField(csvService, "deduplicationService", deduplicationService);
+        assertEquals(5000, importCsv(csv(0, 5000), null).getRowsInserted());
+        // Filtre plein (5000 mesures pour 1000 prévues) : pas de nouveau parcours de la table à chaque import
+        assertEquals(0, importCsv(csv(0, 5000), null).getRowsInserted());
+        assertEquals(1000, importCsv(csv(4000, 6000), null).getRowsInserted());
+        verify(repository, times(2)).forEachTimestamp(any());
+        assertEquals(6000, count());
+    }
+
+    private static CompresseurBatch batch(int from, int to) {
+        CompresseurBatch batch = new CompresseurBatch(to - from);
+        for (int i = from; i < to; i++) {
+            batch.add(START + i, 6.5, 12.0, 0.1, 0.2, 0.3);
+        }
+        return batch;
+    }
+
+    private ImportResult importCsv(String csv, Long equipmentId) throws Exception {
+        ImportJob job = new ImportJob("test", "compresseur", "compresseur.csv", csv.length());
+        return csvService.importCompressorData(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), job, equipmentId, null);
+    }
+
+    private long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA", Long.class);
+    }
+
+    private static String csv(int from, int to) {
+        StringBuilder csv = new StringBuilder("timestamp,pressure,current,vibration_x,vibration_y,vibration_z\n");
+        for (int i = from; i < to; i++) {
+            csv.append(row(i, 6.5));
+        }
+        return csv.toString();
+    }
+
+    private static String shuffled(int from, int to, long seed) {
+        List<String> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(row(i, 6.5));
+        }
+        java.util.Collections.shuffle(rows, new Random(seed));
+        return "timestamp,pressure,current,vibration_x,vibration_y,vibration_z\n" + String.join("", rows);
+    }
+
+    private static String row(int second, double pressure) {
+        return TIME.format(FastParsers.toLocalDateTime(START + second)) + "," + pressure + ",12.0,0.1,0.2,0.3\n";
+    }
+}
@@ -0,0 +1,126 @@
+package com.monprojet.factory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Exports JSON depuis COMPRESSEURDATA : un seul compresseur par export, sur une base H2 embarquée
+class CompresseurExportServiceTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 10:00:00");
+
+    @Test
+    void exportsKeepCompressorsApart() throws Exception {
+        JdbcTemplate jdbcTemplate = TestSchema.database("export");
+        TestSchema.compresseurData(jdbcTemplate);
+        CompresseurDataBatchRepository repository = new CompresseurDataBatchRepository(jdbcTemplate);
+        // Mêmes secondes pour le compresseur historique (pression 6) et le compresseur 7 (pression 9)
+        CompresseurBatch batch = new CompresseurBatch(300);
+        for (int i = 0; i < 100; i++) {
+            batch.add(CompresseurBatch.NO_ID, CompresseurBatch.NO_ID, START + i, 6.0, 12.0, 0.1, 0.2, 0.3);
+            batch.add(7, CompresseurBatch.NO_ID, START + i, 9.0, 12.0, 0.1, 0.2, 0.3);
+            if (i < 50) {
+                batch.add(8, CompresseurBatch.NO_ID, START + i, 3.0, 12.0, 0.1, 0.2, 0.3);
+            }
+        }
+        repository.insertBatch(batch);
+
+        ObjectMapper mapper = new ObjectMapper();
+        CompresseurExportService exportService = new CompresseurExportService(jdbcTemplate, repository, mapper,
+                5000, 1.0, 64, 32, 128, 0.2);
+        JsonNode historical = export(mapper, exportService, null, false);
+        JsonNode scoped = export(mapper, exportService, 7L, true);
+        assertEquals(100, historical.size());
+        assertEquals(100, scoped.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(6.0, historical.get(i).get("pressure").asDouble());
+            assertEquals(9.0, scoped.get(i).get("pressure").asDouble());
+        }
+        assertEquals(FastParsers.toLocalDateTime(START + 99).toString(), scoped.get(99).get("timestamp").asText());
+        assertEquals(0, export(mapper, exportService, 42L, false).size());
+    }
+
+    @Test
+    void rmsIsComputedOverTheSlidingWindow() throws Exception {
+        JdbcTemplate jdbcTemplate = TestSchema.database("export-rms");
+        TestSchema.compresseurData(jdbcTemplate);
+        CompresseurDataBatchRepository repository = new CompresseurDataBatchRepository(jdbcTemplate);
+        // Axe X : ±1 sur 200 secondes puis ±3 ; axe Y absent une seconde sur deux, 2 sinon
+        CompresseurBatch batch = new CompresseurBatch(600);
+        for (int i = 0; i < 600; i++) {
+            double sign = i % 2 == 0 ? 1 : -1;
+            batch.add(CompresseurBatch.NO_ID, CompresseurBatch.NO_ID, START + i, 6.0, 12.0,
+                    sign * (i < 200 ? 1 : 3), i % 2 == 0 ? Double.NaN : 2.0, 0.3);
+        }
+        repository.insertBatch(batch);
+
+        ObjectMapper mapper = new ObjectMapper();
+        CompresseurExportService exportService = new CompresseurExportService(jdbcTemplate, repository, mapper,
+                5000, 1.0, 64, 32, 128, 0.2);
+        for (boolean psd : new boolean[]{false, true}) {
+            JsonNode rows = export(mapper, exportService, null, psd);
+            assertEquals(1.0, rows.get(199).get("vxRMS").asDouble(), 1e-9);
+            // 28 mesures à ±1 et 100 à ±3 dans la fenêtre de 128
+            assertEquals(Math.sqrt((28 + 100 * 9) / 128.0), rows.get(299).get("vxRMS").asDouble(), 1e-9);
+            assertEquals(3.0, rows.get(599).get("vxRMS").asDouble(), 1e-9);
+            assertEquals(2.0, rows.get(599).get("vyRMS").asDouble(), 1e-9);
+        }
+        // Pas encore de mesure Y : null dans l'export avec spectres, 0 dans l'export simple
+        assertTrue(export(mapper, exportService, null, true).get(0).get("vyRMS").isNull());
+        assertEquals(0.0, export(mapper, exportService, null, false).get(0).get("vyRMS").asDouble());
+    }
+
+    @Test
+    void spectraFollowTheMeasuredSampleRate() throws Exception {
+        JdbcTemplate jdbcTemplate = TestSchema.database("export-sparse");
+        TestSchema.compresseurData(jdbcTemplate);
+        CompresseurDataBatchRepository repository = new CompresseurDataBatchRepository(jdbcTemplate);
+        // Une mesure par minute, 3 minutes manquantes après la 100e, puis 27 jours sans mesure avant les 50 dernières
+        CompresseurBatch batch = new CompresseurBatch(250);
+        for (int i = 0; i < 250; i++) {
+            if (i >= 100 && i < 103) {
+                continue;
+            }
+            long timestamp = START + 60L * i + (i >= 200 ? 27 * 86_400L : 0);
+            batch.add(CompresseurBatch.NO_ID, CompresseurBatch.NO_ID, timestamp, 6.0, 12.0, i % 2 == 0 ? 1 : -1, 2.0, 0.3);
+        }
+        repository.insertBatch(batch);
+
+        ObjectMapper mapper = new ObjectMapper();
+        CompresseurExportService exportService = new CompresseurExportService(jdbcTemplate, repository, mapper,
+                5000, 1.0, 64, 32, 128, 0.2);
+        JsonNode rows = export(mapper, exportService, null, true);
+        assertEquals(247, rows.size());
+        // Fréquences au pas mesuré (1/60 Hz) : Nyquist à 1/120 Hz, raie d'alternance ±1 au dernier bin
+        JsonNode spectrum = rows.get(196).get("spectrumVX");
+        JsonNode freqs = spectrum.get("freqs");
+        assertEquals(1 / 120.0, freqs.get(freqs.size() - 1).asDouble(), 1e-12);
+        assertEquals(1 / 60.0 / 64, freqs.get(1).asDouble(), 1e-12);
+        JsonNode psd = spectrum.get("psd");
+        for (int k = 0; k < psd.size() - 1; k++) {
+            assertTrue(psd.get(k).asDouble() < psd.get(psd.size() - 1).asDouble(), "bin " + k);
+        }
+        // Après le trou de 27 jours : fenêtre repartie de zéro, pas de spectre avant 64 mesures
+        assertTrue(rows.get(197).get("spectrumVX").isNull());
+        assertEquals(1.0, rows.get(246).get("vxRMS").asDouble(), 1e-9);
+    }
+
+    private static JsonNode export(ObjectMapper mapper, CompresseurExportService exportService, Long equipmentId,
+                                   boolean psd) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (psd) {
+            exportService.writeWithPsd(out, equipmentId, null, null);
+        } else {
+            exportService.writeSimple(out, equipmentId, null, null);
+        }
+        return mapper.readTree(out.toByteArray());
+    }
+}
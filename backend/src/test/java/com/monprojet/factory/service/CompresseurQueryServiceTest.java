@@ -0,0 +1,116 @@
+package com.monprojet.factory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monprojet.factory.dto.KeysetPage;
+import com.monprojet.factory.entity.CompresseurData;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.CompresseurDataRepository;
+import com.monprojet.factory.repository.CompresseurSegmentStore;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+// Pages /data et exports JSON avec factory.storage.backend=segment : lus dans les segments, pas dans COMPRESSEURDATA
+class CompresseurQueryServiceTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 23:58:00");
+
+    @TempDir
+    Path directory;
+
+    private CompresseurSegmentStore store;
+    private CompresseurDataRepository jpaRepository;
+    private CompresseurDataBatchRepository batchRepository;
+    private CompresseurQueryService queryService;
+
+    @BeforeEach
+    void setUp() {
+        store = new CompresseurSegmentStore("segment", directory.toString());
+        store.open();
+        jpaRepository = mock(CompresseurDataRepository.class);
+        batchRepository = new CompresseurDataBatchRepository(null, store);
+        queryService = new CompresseurQueryService(jpaRepository, batchRepository, 5000, 50000);
+        // 250 secondes à cheval sur minuit, deux mesures dans la seconde 100 (dédoublonnage désactivé)
+        CompresseurBatch batch = new CompresseurBatch(251);
+        for (int i = 0; i < 250; i++) {
+            batch.add(START + i, i, 12.0, 0.1, 0.2, Double.NaN);
+            if (i == 100) {
+                batch.add(START + i, 1000, 12.0, 0.1, 0.2, Double.NaN);
+            }
+        }
+        store.append(batch);
+    }
+
+    @Test
+    void pagesFollowTheCursorThroughSegments() {
+        List<Double> pressures = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        KeysetPage<CompresseurData> page;
+        do {
+            // Pages de 20 : la seconde 100 tombe à cheval sur deux pages
+            page = cursor == null
+                    ? queryService.findPage(null, FastParsers.toLocalDateTime(START), null, 20, null)
+                    : queryService.findPage(null, null, null, 20, cursor);
+            page.getItems().forEach(row -> pressures.add(row.getPressure()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (page.isHasMore());
+
+        assertEquals(251, pressures.size());
+        assertEquals(13, pages);
+        assertEquals(List.of(99.0, 100.0, 1000.0, 101.0), pressures.subList(99, 103));
+        verifyNoInteractions(jpaRepository);
+    }
+
+    @Test
+    void latestPageThenNewRows() {
+        KeysetPage<CompresseurData> latest = queryService.findPage(null, null, null, 30, null);
+        assertEquals(30, latest.getItems().size());
+        assertEquals(249.0, latest.getItems().get(29).getPressure());
+        assertEquals(FastParsers.toLocalDateTime(START + 220), latest.getItems().get(0).getTimestamp());
+        assertNull(latest.getItems().get(0).getId());
+        assertNull(latest.getItems().get(0).getVibrationZ());
+
+        CompresseurBatch batch = new CompresseurBatch(5);
+        for (int i = 250; i < 255; i++) {
+            batch.add(START + i, i, 12.0, 0.1, 0.2, 0.3);
+        }
+        store.append(batch);
+        KeysetPage<CompresseurData> next = queryService.findPage(null, null, null, 30, latest.getNextCursor());
+        assertEquals(5, next.getItems().size());
+        assertEquals(250.0, next.getItems().get(0).getPressure());
+        assertFalse(next.isHasMore());
+    }
+
+    @Test
+    void exportsReadSegments() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        CompresseurExportService exportService = new CompresseurExportService(null, batchRepository, mapper,
+                5000, 1.0, 64, 32, 128, 0.2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeSimple(out, null, FastParsers.toLocalDateTime(START + 200), null);
+        JsonNode rows = mapper.readTree(out.toByteArray());
+        assertEquals(50, rows.size());
+        assertTrue(rows.get(0).get("id").isNull());
+        assertEquals(200.0, rows.get(0).get("pressure").asDouble());
+        assertEquals(0.0, rows.get(0).get("vibrationZ").asDouble());
+
+        out.reset();
+        exportService.writeWithPsd(out, null, null, null);
+        rows = mapper.readTree(out.toByteArray());
+        assertEquals(251, rows.size());
+        assertTrue(rows.get(250).get("spectrumVX").has("psd"));
+    }
+}
@@ -0,0 +1,184 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.repository.TelemetryBulkLoader;
+import com.monprojet.factory.utils.CompressedUploads;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Import des mesures d'équipements : l'analyse parallèle par blocs doit accepter et rejeter exactement
+// les mêmes lignes que la lecture séquentielle, y compris avec des champs entre guillemets sur plusieurs lignes
+class CsvImportServiceTest {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelChunksMatchSequentialParsing() {
+        byte[] csv = equipmentCsv(600);
+        Result sequential = importCsv(csv, false);
+        Result parallel = importCsv(csv, true);
+
+        assertFalse(sequential.rejected.isEmpty());
+        assertTrue(sequential.accepted.size() > 400);
+        // Un champ multiligne a bien été lu comme un seul champ
+        assertTrue(sequential.accepted.stream().anyMatch(row -> row.contains("Atelier\nnord, quai")));
+        assertEquals(sequential.accepted, parallel.accepted);
+        assertEquals(sequential.rejected, parallel.rejected);
+        assertEquals(sequential.parsed, parallel.parsed);
+    }
+
+    @Test
+    void parallelModeIsChosenPerEntryOnTheUncompressedSize() throws Exception {
+        byte[] small = equipmentCsv(50);
+        byte[] large = equipmentCsv(600);
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipped)) {
+            zip.putNextEntry(new ZipEntry("petit.csv"));
+            zip.write(small);
+            zip.putNextEntry(new ZipEntry("grand.csv"));
+            zip.write(large);
+        }
+        // Seuil entre les deux entrées et au-dessus de la taille de l'archive compressée
+        int threshold = (small.length + large.length) / 2;
+        assertTrue(zipped.size() < threshold);
+        ForkJoinPool entryPool = new ForkJoinPool(2);
+        try {
+            CsvImportService service = service(Collections.synchronizedList(new ArrayList<>()), entryPool, threshold);
+            ImportJob job = job(zipped.size());
+            List<Integer> workers = new ArrayList<>();
+            CompressedUploads.forEachCsv(new ByteArrayInputStream(zipped.toByteArray()), "equipments.zip", (name, csv) -> {
+                service.importCsv(csv, job);
+                workers.add(entryPool.getPoolSize());
+            });
+            // Aucun bloc soumis au pool pour la petite entrée, découpage parallèle pour la grande
+            assertEquals(0, workers.get(0));
+            assertTrue(workers.get(1) > 0);
+            assertEquals(650, job.getRowsParsed());
+        } finally {
+            entryPool.shutdown();
+        }
+
+        // La lecture en avance rend tous les octets au parseur
+        BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(large), 1024);
+        assertTrue(CsvImportService.reaches(in, large.length));
+        assertFalse(CsvImportService.reaches(in, large.length + 1));
+        assertArrayEquals(large, in.readAllBytes());
+    }
+
+    private Result importCsv(byte[] csv, boolean parallel) {
+        List<String> accepted = Collections.synchronizedList(new ArrayList<>());
+        CsvImportService service = service(accepted, pool, parallel ? 0L : Long.MAX_VALUE);
+        ImportJob job = job(csv.length);
+        service.importCsv(new ByteArrayInputStream(csv), job);
+
+        Result result = new Result();
+        result.accepted = new ArrayList<>(accepted);
+        Collections.sort(result.accepted);
+        for (RejectedRowSink.Sample sample : job.getRejectedSamples()) {
+            result.rejected.add(sample.getRecord() + "|" + sample.getReason() + "|" + sample.getContent());
+        }
+        Collections.sort(result.rejected);
+        result.parsed = job.getRowsParsed();
+        return result;
+    }
+
+    private static ImportJob job(long size) {
+        ImportJob job = new ImportJob("test", "equipment", "equipments.csv", size);
+        job.setRejections(new RejectedRowSink(null, 1, 100_000, 0));
+        return job;
+    }
+
+    // Service dont le chargeur ajoute chaque ligne écrite à accepted, sous forme de texte
+    private static CsvImportService service(List<String> accepted, ForkJoinPool parsePool, long parallelThresholdBytes) {
+        TelemetryBulkLoader loader = new TelemetryBulkLoader() {
+            @Override
+            public int loadCompresseur(CompresseurBatch batch) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int loadEquipment(EquipmentBatch batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                    accepted.add(FastParsers.toLocalDateTime(batch.timestamp(i)) + "|" + batch.temperature(i) + "|"
+                            + batch.pressure(i) + "|" + batch.vibration(i) + "|" + batch.humidity(i) + "|"
+                            + batch.equipment(i) + "|" + batch.location(i) + "|" + batch.faulty(i));
+                }
+                return batch.size();
+            }
+
+            @Override
+            public int loadSpectral(SpectralBatch batch) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String getMode() {
+                return "test";
+            }
+        };
+        CsvImportService service = new CsvImportService(loader, parsePool);
+        ReflectionTestUtils.setField(service, "batchSize", 50);
+        ReflectionTestUtils.setField(service, "writerThreads", 2);
+        ReflectionTestUtils.setField(service, "queueCapacity", 4);
+        ReflectionTestUtils.setField(service, "parallelThresholdBytes", parallelThresholdBytes);
+        // Petits blocs : de nombreux champs multilignes tombent à cheval sur deux blocs
+        ReflectionTestUtils.setField(service, "parallelChunkBytes", 1024);
+        return service;
+    }
+
+    // Trois équipements toutes les 30 s, avec des lieux entre guillemets (virgules, guillemets échappés, retours à la ligne)
+    // et quelques lignes invalides ou trop rapprochées
+    private static byte[] equipmentCsv(int rows) {
+        StringBuilder csv = new StringBuilder("timestamp,temperature,pressure,vibration,humidity,equipment,location,faulty\r\n");
+        long start = FastParsers.parseTimestamp("2025-09-15 10:00:00");
+        for (int i = 0; i < rows; i++) {
+            String time = TIME.format(FastParsers.toLocalDateTime(start + 30L * (i / 3) + (i % 29 == 0 ? -25 : 0)));
+            String location = switch (i % 5) {
+                case 0 -> "\"Atelier\nnord, quai " + i + "\"";
+                case 1 -> "\"Hall \"\"B\"\"\r\n\"";
+                case 2 -> "Sud";
+                case 3 -> "\"\"";
+                default -> "\"Zone\n\n" + i + "\"";
+            };
+            String temperature = i % 37 == 0 ? "abc" : Double.toString(20 + i % 7 * 0.5);
+            String equipment = "\"EQ-" + (i % 3) + "\"";
+            if (i % 41 == 0) {
+                csv.append(time).append(',').append(temperature).append(",\"1,5\"\n");
+                continue;
+            }
+            csv.append(i % 53 == 0 ? "2025-13-01 00:00:00" : time).append(',').append(temperature).append(',')
+                    .append(6.5).append(',').append(0.12).append(',').append(45).append(',')
+                    .append(equipment).append(',').append(location).append(',').append(i % 4 == 0 ? "true" : "0")
+                    .append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class Result {
+        private List<String> accepted;
+        private final List<String> rejected = new ArrayList<>();
+        private long parsed;
+    }
+}
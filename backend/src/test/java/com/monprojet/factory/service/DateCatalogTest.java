@@ -0,0 +1,114 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.dto.DaySummary;
+import com.monprojet.factory.repository.TelemetryRollupRepository;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Catalogue des journées : l'écriture en base se fait hors verrou, et une journée n'est jamais comptée deux fois
+// quand un chargement chevauche une écriture
+class DateCatalogTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 10:00:00");
+
+    private TelemetryRollupRepository repository;
+    private DateCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = TestSchema.database("catalog");
+        TestSchema.telemetryRollups(jdbcTemplate);
+        repository = new TelemetryRollupRepository(jdbcTemplate);
+        catalog = new DateCatalog(repository);
+    }
+
+    @Test
+    void readsAreNotBlockedByAWriteInProgress() throws Exception {
+        write(groups(0, 100));
+        assertEquals(100, rows());
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<RollupAccumulator.Group> groups = groups(100, 250);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> catalog.write(groups, () -> {
+            writing.countDown();
+            await(release);
+            repository.merge(groups);
+        }));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // Écriture bloquée en base : les lectures répondent avec l'état d'avant
+        assertEquals(100, CompletableFuture.supplyAsync(this::rows).get(5, TimeUnit.SECONDS));
+        release.countDown();
+        writer.get(5, TimeUnit.SECONDS);
+        assertEquals(250, rows());
+    }
+
+    @Test
+    void loadOverlappingAWriteIsNotKept() throws Exception {
+        write(groups(0, 100));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<RollupAccumulator.Group> groups = groups(100, 160);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> catalog.write(groups, () -> {
+            repository.merge(groups);
+            writing.countDown();
+            await(release);
+        }));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // Premier chargement de la série alors que l'écriture est déjà en base mais pas encore reportée
+        assertEquals(160, rows());
+        release.countDown();
+        writer.get(5, TimeUnit.SECONDS);
+        // Le report de l'écriture ne s'ajoute pas à un chargement qui la contenait déjà
+        assertEquals(160, rows());
+        write(groups(160, 200));
+        assertEquals(200, rows());
+
+        // Écriture en échec : le catalogue est rechargé depuis la base
+        assertThrows(IllegalStateException.class, () -> catalog.write(groups(200, 300), () -> {
+            throw new IllegalStateException("base indisponible");
+        }));
+        assertEquals(200, rows());
+    }
+
+    private long rows() {
+        List<DaySummary> days = catalog.days(RollupService.COMPRESSEUR);
+        return days.isEmpty() ? 0 : days.get(0).getRows();
+    }
+
+    private void write(List<RollupAccumulator.Group> groups) {
+        catalog.write(groups, () -> repository.merge(groups));
+    }
+
+    // Agrégats journaliers d'un import des mesures [from, to[ (en secondes après START) du compresseur historique
+    private static List<RollupAccumulator.Group> groups(int from, int to) {
+        CompresseurBatch batch = new CompresseurBatch(to - from);
+        for (int i = from; i < to; i++) {
+            batch.add(CompresseurBatch.NO_ID, CompresseurBatch.NO_ID, START + i, i, 12.0, 0.1, 0.2, 0.3);
+        }
+        RollupAccumulator accumulator = new RollupAccumulator(RollupResolution.DAY.seconds());
+        accumulator.add(RollupService.compresseurRows(batch), RollupService.COMPRESSEUR_CHANNELS);
+        return accumulator.drain();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
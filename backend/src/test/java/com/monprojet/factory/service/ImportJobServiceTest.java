@@ -0,0 +1,162 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.entity.ImportedFile;
+import com.monprojet.factory.repository.ImportedFileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Cycle de vie des imports asynchrones : file d'attente, progression, empreinte du fichier, doublons, réimport forcé
+// et historique borné
+class ImportJobServiceTest {
+
+    private static final byte[] CSV = "timestamp,pressure\n2025-09-15 10:00:00,6.5\n".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path spoolDir;
+
+    // Exécuteur manuel : les jobs restent en file jusqu'à runQueued()
+    private final Deque<Runnable> queued = new ArrayDeque<>();
+    // Empreintes enregistrées, par type + hash
+    private final Map<String, ImportedFile> imported = new HashMap<>();
+    private ImportedFileRepository repository;
+    private ImportJobService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ImportedFileRepository.class);
+        when(repository.findByTypeAndContentHash(anyString(), anyString()))
+                .thenAnswer(call -> Optional.ofNullable(imported.get(call.getArgument(0) + ":" + call.getArgument(1))));
+        when(repository.save(any(ImportedFile.class))).thenAnswer(call -> {
+            ImportedFile file = call.getArgument(0);
+            imported.put(file.getType() + ":" + file.getContentHash(), file);
+            return file;
+        });
+        service = new ImportJobService(queued::add, repository, spoolDir.toString(), 100, 100, 20, 1000);
+    }
+
+    @Test
+    void jobRunsInTheBackgroundAndCleansUp() throws Exception {
+        ImportJob job = service.submit("compresseur", upload(), (input, j) -> {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            input.transferTo(content);
+            assertArrayEquals(CSV, content.toByteArray());
+            j.addParsed(1);
+            j.addInserted(1);
+        });
+        assertEquals(ImportJob.Status.QUEUED, job.getStatus());
+        assertFalse(job.isFinished());
+        assertEquals(job, service.getJob(job.getId()).orElseThrow());
+        runQueued();
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(1, job.getRowsParsed());
+        assertEquals(1, job.getRowsInserted());
+        assertEquals(CSV.length, job.getBytesRead());
+        assertEquals(CSV.length, job.getTotalBytes());
+        // Fichier reçu supprimé une fois traité
+        try (var files = Files.list(spoolDir)) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".upload")));
+        }
+    }
+
+    @Test
+    void sameFileIsSkippedUnlessForced() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ImportJobService.ImportTask task = (input, job) -> {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            input.transferTo(content);
+            assertArrayEquals(CSV, content.toByteArray());
+            runs.incrementAndGet();
+            job.addInserted(1);
+        };
+
+        ImportJob first = service.submit("compresseur", upload(), task);
+        assertEquals(ImportJob.Status.QUEUED, first.getStatus());
+        runQueued();
+        assertEquals(ImportJob.Status.COMPLETED, first.getStatus());
+        assertEquals(1, first.getRowsInserted());
+        assertNotNull(first.getContentHash());
+        assertEquals(first.getId(), imported.get("compresseur:" + first.getContentHash()).getJobId());
+
+        ImportJob second = service.submit("compresseur", upload(), task);
+        runQueued();
+        assertEquals(ImportJob.Status.DUPLICATE, second.getStatus());
+        assertEquals(first.getId(), second.getDuplicateOf());
+
+        // Même contenu, autre type de données : pas un doublon
+        ImportJob other = service.submit("compresseur:2", upload(), task);
+        ImportJob forced = service.submit("compresseur", upload(), true, task);
+        runQueued();
+        assertEquals(ImportJob.Status.COMPLETED, other.getStatus());
+        assertEquals(ImportJob.Status.COMPLETED, forced.getStatus());
+        assertEquals(3, runs.get());
+        assertEquals(forced.getId(), imported.get("compresseur:" + forced.getContentHash()).getJobId());
+
+        // Fichiers reçus supprimés une fois traités
+        try (var files = Files.list(spoolDir)) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".upload")));
+        }
+        assertEquals(4, service.getJobs().size());
+    }
+
+    @Test
+    void failedImportIsReportedAndNotRecorded() throws Exception {
+        ImportJob job = service.submit("compresseur", upload(), (input, j) -> {
+            throw new IllegalStateException("colonne manquante");
+        });
+        runQueued();
+
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertEquals("colonne manquante", job.getError());
+        assertTrue(job.isFinished());
+        assertTrue(imported.isEmpty());
+        // Un échec n'empêche pas de renvoyer le même fichier
+        ImportJob retry = service.submit("compresseur", upload(), (input, j) -> j.addInserted(1));
+        runQueued();
+        assertEquals(ImportJob.Status.COMPLETED, retry.getStatus());
+    }
+
+    @Test
+    void historyKeepsTheLatestFinishedJobs() throws Exception {
+        // Historique de 2 jobs terminés : le plus ancien disparaît à la soumission suivante
+        service = new ImportJobService(queued::add, repository, spoolDir.toString(), 2, 100, 20, 1000);
+        ImportJob oldest = service.submit("compresseur", upload(), (input, j) -> j.addInserted(1));
+        runQueued();
+        for (int i = 0; i < 2; i++) {
+            service.submit("compresseur", upload(), true, (input, j) -> j.addInserted(1));
+            runQueued();
+        }
+        service.submit("compresseur", upload(), true, (input, j) -> j.addInserted(1));
+        assertTrue(service.getJob(oldest.getId()).isEmpty());
+        assertEquals(3, service.getJobs().size());
+    }
+
+    private void runQueued() {
+        while (!queued.isEmpty()) {
+            queued.poll().run();
+        }
+    }
+
+    private static MockMultipartFile upload() {
+        return new MockMultipartFile("file", "compresseur.csv", "text/csv", CSV);
+    }
+}
@@ -0,0 +1,85 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.utils.CsvTokenizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Lignes rejetées : plafond du rapport, compteur des lignes non reprises, échappement CSV
+class RejectedRowSinkTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reportIsCappedAndCountsWhatItLeftOut() throws Exception {
+        Path report = dir.resolve("rejected.csv");
+        RejectedRowSink sink = new RejectedRowSink(report, 100, 2, 3);
+        for (int i = 0; i < 5; i++) {
+            sink.reject(i + 2, i % 2 == 0 ? RejectedRowSink.Reason.INVALID_NUMBER : RejectedRowSink.Reason.TIME_GAP, "ligne " + i);
+        }
+        assertTrue(sink.getReportFile().isEmpty());
+        sink.close();
+
+        assertEquals(5, sink.getTotal());
+        assertEquals(Map.of(RejectedRowSink.Reason.INVALID_NUMBER, 3L, RejectedRowSink.Reason.TIME_GAP, 2L),
+                sink.getCountsByReason());
+        assertEquals(2, sink.getSamples().size());
+        assertEquals(2, sink.getSamples().get(0).getRecord());
+        assertEquals(2, sink.getDropped());
+        assertEquals(report, sink.getReportFile().orElseThrow());
+        List<String> lines = Files.readAllLines(report);
+        assertEquals(List.of("record,reason,content", "2,INVALID_NUMBER,\"ligne 0\"", "3,TIME_GAP,\"ligne 1\"",
+                "4,INVALID_NUMBER,\"ligne 2\"", "# 2 lignes rejetées non reprises dans ce rapport"), lines);
+
+        // Rejet après la clôture : compté, mais ni rapport ni thread relancé
+        sink.reject(99, RejectedRowSink.Reason.TIME_GAP, "tard");
+        assertEquals(6, sink.getTotal());
+        assertEquals(5, Files.readAllLines(report).size());
+    }
+
+    @Test
+    void contentIsQuotedSoTheReportParsesBack() throws Exception {
+        Path report = dir.resolve("quoted.csv");
+        String content = "2025-09-15 10:00:00,\"6,5\",x\r\ny";
+        try (RejectedRowSink sink = new RejectedRowSink(report, 100, 20, 1000)) {
+            sink.reject(7, RejectedRowSink.Reason.INVALID_NUMBER, content);
+            sink.reject(8, RejectedRowSink.Reason.MISSING_FIELDS, null);
+        }
+        try (Reader reader = Files.newBufferedReader(report, StandardCharsets.UTF_8)) {
+            CsvTokenizer csv = new CsvTokenizer(reader);
+            assertTrue(csv.next());
+            assertArrayEquals(new String[]{"record", "reason", "content"}, csv.toArray());
+            assertTrue(csv.next());
+            assertArrayEquals(new String[]{"7", "INVALID_NUMBER", content}, csv.toArray());
+            assertTrue(csv.next());
+            assertArrayEquals(new String[]{"8", "MISSING_FIELDS", ""}, csv.toArray());
+            assertFalse(csv.next());
+        }
+    }
+
+    @Test
+    void cleanImportWritesNoReport() {
+        Path report = dir.resolve("none.csv");
+        RejectedRowSink sink = new RejectedRowSink(report, 100, 20, 1000);
+        sink.close();
+        assertFalse(Files.exists(report));
+        assertTrue(sink.getReportFile().isEmpty());
+
+        // Sans fichier de rapport : compteurs et exemples seulement
+        RejectedRowSink counting = new RejectedRowSink(null, 1, 20, 0);
+        counting.reject(2, RejectedRowSink.Reason.MISSING_TIMESTAMP, "x");
+        counting.close();
+        assertEquals(1, counting.getTotal());
+        assertEquals(0, counting.getDropped());
+        assertTrue(counting.getReportFile().isEmpty());
+    }
+}
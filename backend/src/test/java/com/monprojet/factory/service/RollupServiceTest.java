@@ -0,0 +1,214 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.dto.DaySummary;
+import com.monprojet.factory.dto.RollupSeries;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.TelemetryRollupRepository;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Agrégats incrémentaux et choix de la résolution, sur une base H2 embarquée (mode SQL Server)
+class RollupServiceTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 10:00:00");
+
+    private JdbcTemplate jdbcTemplate;
+    private DateCatalog dateCatalog;
+    private RollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestSchema.database("rollups");
+        TestSchema.compresseurData(jdbcTemplate);
+        TestSchema.equipmentData(jdbcTemplate);
+        TestSchema.telemetryRollups(jdbcTemplate);
+        TelemetryRollupRepository repository = new TelemetryRollupRepository(jdbcTemplate);
+        dateCatalog = new DateCatalog(repository);
+        rollupService = new RollupService(repository, dateCatalog, jdbcTemplate,
+                new CompresseurDataBatchRepository(jdbcTemplate), true, false, 20000);
+    }
+
+    @Test
+    void mergesImportsIntoEveryResolution() {
+        // Deux imports qui se partagent la deuxième minute : pression = rang de la mesure (0..7199)
+        ingest(0, 90);
+        ingest(90, 7200);
+
+        assertEquals(120, rollups("pressure", 60));
+        assertEquals(2, rollups("pressure", 3600));
+        assertEquals(1, rollups("pressure", 86400));
+        assertEquals(60, jdbcTemplate.queryForObject("SELECT sample_count FROM telemetry_rollups "
+                + "WHERE channel = 'pressure' AND bucket_seconds = 60 AND bucket_start = '2025-09-15 10:01:00'", Long.class));
+        assertEquals(7200, jdbcTemplate.queryForObject("SELECT sample_count FROM telemetry_rollups "
+                + "WHERE channel = 'pressure' AND bucket_seconds = 86400", Long.class));
+
+        // 2 points sur 2 h : agrégats horaires
+        RollupSeries hourly = rollupService.query(RollupService.COMPRESSEUR, null, null, 2);
+        assertEquals("hour", hourly.getResolution());
+        RollupSeries.Channel pressure = hourly.getChannels().get("pressure");
+        assertEquals(2, pressure.getT().length);
+        assertEquals(0, pressure.getMin()[0]);
+        assertEquals(3599, pressure.getMax()[0]);
+        assertEquals(1799.5, pressure.getAvg()[0], 1e-9);
+        assertEquals(Math.sqrt(3599.0 * 3600 * 7199 / 6 / 3600), pressure.getRms()[0], 1e-6);
+
+        // 40 points : seaux de 3 min regroupés depuis les agrégats à la minute
+        RollupSeries minutes = rollupService.query(RollupService.COMPRESSEUR, null, null, 40);
+        assertEquals("minute", minutes.getResolution());
+        assertEquals(180, minutes.getBucketSeconds());
+        assertEquals(40, minutes.getChannels().get("pressure").getT().length);
+        assertEquals(180, minutes.getChannels().get("pressure").getCount()[0]);
+
+        // Plage courte : seaux calculés sur les mesures
+        RollupSeries raw = rollupService.query(RollupService.COMPRESSEUR,
+                FastParsers.toLocalDateTime(START), FastParsers.toLocalDateTime(START + 100), 50);
+        assertEquals("raw", raw.getResolution());
+        assertEquals(2, raw.getBucketSeconds());
+        assertEquals(50, raw.getChannels().get("pressure").getT().length);
+        assertEquals(0.5, raw.getChannels().get("pressure").getAvg()[0], 1e-9);
+    }
+
+    @Test
+    void dateCatalogFollowsIngest() {
+        ingest(0, 100);
+        assertEquals(1, dateCatalog.days(RollupService.COMPRESSEUR).size());
+
+        // Catalogue déjà chargé : l'import suivant (lendemain compris) est reporté sans relecture
+        ingest(100, 86400 + 50);
+        DaySummary latest = dateCatalog.days(RollupService.COMPRESSEUR).get(0);
+        DaySummary first = dateCatalog.days(RollupService.COMPRESSEUR).get(1);
+        assertEquals(FastParsers.toLocalDateTime(START).toLocalDate().plusDays(1), latest.getDate());
+        assertEquals(86400 - 36000, first.getRows());
+        assertEquals(FastParsers.toLocalDateTime(START), first.getFirst());
+        assertEquals(FastParsers.toLocalDateTime(START + 86400 - 36001), first.getLast());
+        assertEquals(0, first.getChannels().get("pressure").getMin());
+        assertEquals(86400 - 36001, first.getChannels().get("pressure").getMax());
+        assertEquals(86400 + 50 - (86400 - 36000), latest.getRows());
+
+        rollupService.deleteSeries(RollupService.COMPRESSEUR);
+        assertTrue(dateCatalog.days(RollupService.COMPRESSEUR).isEmpty());
+    }
+
+    @Test
+    void rebuildMatchesIncrementalRollups() {
+        ingest(0, 5000);
+        String snapshot = "SELECT SUM(sample_count), SUM(sum_value), MIN(min_value), MAX(max_value) FROM telemetry_rollups";
+        Object incremental = jdbcTemplate.queryForList(snapshot);
+        assertEquals(5000, rollupService.rebuild());
+        assertEquals(incremental, jdbcTemplate.queryForList(snapshot));
+    }
+
+    @Test
+    void compressorsAreKeptInSeparateSeries() {
+        ingest(0, 3600);
+        ingest(7L, 0, 600);
+        CompresseurDataBatchRepository repository = new CompresseurDataBatchRepository(jdbcTemplate);
+
+        String scoped = RollupService.compresseurSeries(7L);
+        assertEquals("compresseur:7", scoped);
+        assertEquals(7L, RollupService.equipmentIdOf(scoped));
+        assertNull(RollupService.equipmentIdOf(RollupService.COMPRESSEUR));
+        assertEquals(3600, dateCatalog.days(RollupService.COMPRESSEUR).get(0).getRows());
+        assertEquals(600, dateCatalog.days(scoped).get(0).getRows());
+        assertEquals(600, rollupService.query(scoped, null, null, 10).getChannels().get("pressure").getCount()[0] * 10);
+
+        // Lectures par série : la même seconde existe pour les deux compresseurs
+        assertArrayEquals(new long[]{3600, START, START + 3599}, repository.stats(null, START, START + 7200));
+        assertArrayEquals(new long[]{600, START, START + 599}, repository.stats(7L, START, START + 7200));
+        assertEquals(START + 599, repository.latestTimestamp(7L));
+        assertEquals(2, repository.findEquipmentIds().size());
+
+        // La reconstruction redonne les deux séries
+        assertEquals(4200, rollupService.rebuild());
+        assertEquals(600, dateCatalog.days(scoped).get(0).getRows());
+    }
+
+    @Test
+    void importsWaitForTheStartupBackfill() throws Exception {
+        // Base existante sans agrégats
+        ingest(0, 3000);
+        jdbcTemplate.update("DELETE FROM telemetry_rollups");
+        RollupService starting = new RollupService(new TelemetryRollupRepository(jdbcTemplate), dateCatalog, jdbcTemplate,
+                new CompresseurDataBatchRepository(jdbcTemplate), true, true, 20000);
+
+        Thread importer = new Thread(() -> ingest(starting, null, 3000, 6000));
+        importer.start();
+        importer.join(300);
+        assertTrue(importer.isAlive());
+        assertEquals(3000, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA", Integer.class));
+
+        starting.backfillIfEmpty();
+        importer.join(10_000);
+        assertFalse(importer.isAlive());
+        // Chaque mesure comptée une fois : 3000 par le calcul initial, 3000 par l'import
+        assertEquals(6000, jdbcTemplate.queryForObject("SELECT SUM(sample_count) FROM telemetry_rollups "
+                + "WHERE channel = 'pressure' AND bucket_seconds = 86400", Integer.class));
+    }
+
+    @Test
+    void refreshWaitsForRunningImportsWithoutBlockingDeletes() throws Exception {
+        ingest(0, 3600);
+        CompresseurDataBatchRepository loader = new CompresseurDataBatchRepository(jdbcTemplate);
+        CompletableFuture<Void> refreshed;
+        try (TelemetryIngestListener.Session running = rollupService.begin("compresseur")) {
+            CompresseurBatch batch = new CompresseurBatch(600);
+            for (int i = 3600; i < 4200; i++) {
+                batch.add(START + i, i, 12.0, 0.1, 0.2, Double.NaN);
+            }
+            loader.insertBatch(batch);
+            running.compresseurWritten(batch);
+
+            // Suppression pendant l'import : rend la main sans attendre, le recalcul attend la fin de l'import
+            jdbcTemplate.update("DELETE FROM COMPRESSEURDATA WHERE timestamp < ?",
+                    Timestamp.valueOf(FastParsers.toLocalDateTime(START + 1800)));
+            refreshed = rollupService.refresh(RollupService.COMPRESSEUR, START, START + 1800);
+            Thread.sleep(300);
+            assertFalse(refreshed.isDone());
+            // Nouvel import accepté pendant que le recalcul attend
+            ingest(4200, 4800);
+        }
+        refreshed.get(10, TimeUnit.SECONDS);
+        // Chaque mesure restante comptée une fois, y compris celles de l'import en cours pendant la suppression
+        assertEquals(4800 - 1800, jdbcTemplate.queryForObject("SELECT SUM(sample_count) FROM telemetry_rollups "
+                + "WHERE channel = 'pressure' AND bucket_seconds = 86400", Integer.class));
+        assertTrue(rollupService.pendingRefresh().isDone());
+    }
+
+    private void ingest(int from, int to) {
+        ingest(null, from, to);
+    }
+
+    private void ingest(Long equipmentId, int from, int to) {
+        ingest(rollupService, equipmentId, from, to);
+    }
+
+    private void ingest(RollupService rollupService, Long equipmentId, int from, int to) {
+        long equipment = equipmentId != null ? equipmentId : CompresseurBatch.NO_ID;
+        CompresseurDataBatchRepository loader = new CompresseurDataBatchRepository(jdbcTemplate);
+        try (TelemetryIngestListener.Session session = rollupService.begin("compresseur")) {
+            CompresseurBatch batch = new CompresseurBatch(1000);
+            for (int i = from; i < to; i++) {
+                batch.add(equipment, CompresseurBatch.NO_ID, START + i, i, 12.0, 0.1, 0.2, Double.NaN);
+                if (batch.isFull() || i == to - 1) {
+                    loader.insertBatch(batch);
+                    session.compresseurWritten(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private int rollups(String channel, int bucketSeconds) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM telemetry_rollups WHERE channel = ? AND bucket_seconds = ?",
+                Integer.class, channel, bucketSeconds);
+    }
+}
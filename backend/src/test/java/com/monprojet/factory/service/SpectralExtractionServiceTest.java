@@ -0,0 +1,78 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.SpectralFeatureBatchRepository;
+import com.monprojet.factory.repository.TelemetryBulkLoader;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Extraction spectrale sur des mesures espacées d'une minute, avec trous : fondamentale sur le bon axe des fréquences
+class SpectralExtractionServiceTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 16:00:00");
+
+    @Test
+    void fundamentalFollowsTheMeasuredSampleRate() {
+        JdbcTemplate jdbcTemplate = TestSchema.database("extraction");
+        TestSchema.compresseurData(jdbcTemplate);
+        CompresseurDataBatchRepository repository = new CompresseurDataBatchRepository(jdbcTemplate);
+        // Une mesure par minute, fondamentale d'une période de 16 mesures (1/960 Hz) et ses harmoniques 2 et 3 ;
+        // 2 minutes manquantes dans la deuxième fenêtre, puis 27 jours sans mesure avant les 300 dernières
+        CompresseurBatch batch = new CompresseurBatch(1324);
+        for (int i = 0; i < 1324; i++) {
+            if (i >= 400 && i < 402) {
+                continue;
+            }
+            double phase = 2 * Math.PI * i / 16.0;
+            double x = Math.sin(phase) + 0.5 * Math.sin(2 * phase) + 0.3 * Math.sin(3 * phase);
+            batch.add(START + 60L * i + (i >= 1024 ? 27 * 86_400L : 0), 6, 12, x, 0.2, 0.3);
+        }
+        repository.insertBatch(batch);
+
+        List<Double> fundamentals = new ArrayList<>();
+        List<Double> strongest = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        TelemetryBulkLoader loader = mock(TelemetryBulkLoader.class);
+        when(loader.loadSpectral(any())).thenAnswer(call -> {
+            SpectralBatch written = call.getArgument(0);
+            for (int i = 0; i < written.size(); i++) {
+                fundamentals.add(written.f0Hz(i));
+                strongest.add(written.peakFreqs()[written.peakOffset(i)]);
+                timestamps.add(written.timestamp(i));
+            }
+            return written.size();
+        });
+        SpectralExtractionService service = new SpectralExtractionService(repository,
+                mock(SpectralFeatureBatchRepository.class), loader, 1.0, 64, 32, 256,
+                "0-0.001,0.001-0.002,0.002-0.003,0.003-0.004,0.004-0.005,0.005-0.006,0.006-0.01", 6, 1000, 0.2);
+
+        Map<String, Object> result = service.extract(null, null, null);
+        assertEquals(1 / 60.0, (double) result.get("sampleRate"), 1e-12);
+        // 4 fenêtres avant le trou de 27 jours, 1 après (les 44 dernières mesures ne font pas une fenêtre)
+        assertEquals(5L, result.get("windows"));
+        assertEquals(0L, result.get("skippedWindows"));
+        // Raie principale à 1/960 Hz dans chaque fenêtre (à un quart de bin près), fondamentale aussi hors de la
+        // fenêtre aux mesures comblées
+        for (int w = 0; w < 5; w++) {
+            assertEquals(1 / 960.0, strongest.get(w), 1 / 60.0 / 64 / 4);
+            if (w != 1) {
+                assertEquals(1 / 960.0, fundamentals.get(w), 1 / 60.0 / 64 / 4);
+            }
+        }
+        // Fenêtres datées de leur dernière mesure sur la grille, minutes manquantes comprises
+        assertEquals(START + 60L * 255, timestamps.get(0));
+        assertEquals(START + 60L * 1023, timestamps.get(3));
+        assertEquals(START + 60L * (1024 + 255) + 27 * 86_400L, timestamps.get(4));
+    }
+}
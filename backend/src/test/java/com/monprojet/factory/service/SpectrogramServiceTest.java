@@ -0,0 +1,136 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.utils.FastParsers;
+import com.monprojet.factory.utils.SpectrogramEncoder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Spectrogramme d'une journée complète à 1 Hz sur une base H2 embarquée : durée de bout en bout (lecture, STFT,
+// encodage), bornes trames x bins et trames vidées quand les mesures manquent
+class SpectrogramServiceTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 00:00:00");
+    private static final int DAY = 86_400;
+    private static final LocalDateTime FROM = FastParsers.toLocalDateTime(START);
+    private static final LocalDateTime TO = FastParsers.toLocalDateTime(START + DAY);
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private static CompresseurDataBatchRepository repository;
+
+    @BeforeAll
+    static void setUp() {
+        var jdbcTemplate = TestSchema.database("spectrogram");
+        TestSchema.compresseurData(jdbcTemplate);
+        repository = new CompresseurDataBatchRepository(jdbcTemplate);
+        // Raie à 1/8 Hz toute la journée, vibration X absente de 3 h à 4 h
+        CompresseurBatch batch = new CompresseurBatch(DAY);
+        for (int i = 0; i < DAY; i++) {
+            double x = i / 3600 == 3 ? Double.NaN : Math.sin(2 * Math.PI * i / 8.0);
+            batch.add(START + i, 6, 12, x, 0.2, 0.3);
+        }
+        repository.insertBatch(batch);
+    }
+
+    @AfterAll
+    static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void fullDayComesBackUnderASecond() {
+        SpectrogramService service = new SpectrogramService(repository, POOL, 1.0, 256, 2_000_000, 4096, 4_194_304, 0.2);
+        // Deux appels pour charger les classes et chauffer le JIT, puis médiane de trois appels mesurés
+        for (int i = 0; i < 2; i++) {
+            service.compresseur(null, "vibrationX", FROM, TO, null, null, true).encode(null, 80);
+        }
+        long[] millis = new long[3];
+        SpectrogramEncoder encoder = null;
+        byte[] body = null;
+        for (int i = 0; i < millis.length; i++) {
+            long start = System.nanoTime();
+            encoder = service.compresseur(null, "vibrationX", FROM, TO, null, null, true);
+            body = encoder.encode(null, 80);
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        System.out.println("Spectrogramme d'une journée : " + encoder.frames() + " trames en " + millis[1] + " ms");
+
+        assertEquals((DAY - 256) / 128 + 1, encoder.frames());
+        assertTrue(millis[1] < 1000, "journée complète en " + millis[1] + " ms");
+
+        // Trame au milieu de 3 h à 4 h : vidée ; trame à 2 h : raie à 1/8 Hz (bin 32)
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        int bins = buffer.getInt(12);
+        int matrix = 40 + 8 * encoder.frames();
+        int holed = matrix + (3 * 3600 + 1800) / 128 * bins;
+        int clean = matrix + (2 * 3600) / 128 * bins;
+        for (int k = 0; k < bins; k++) {
+            assertEquals(0, body[holed + k]);
+        }
+        assertEquals(255, body[clean + 32] & 0xFF);
+    }
+
+    @Test
+    void cellsAreBoundedWhateverTheFrameSize() {
+        // 10 000 cellules : 77 trames de 129 bins au plus
+        SpectrogramService service = new SpectrogramService(repository, POOL, 1.0, 256, 2_000_000, 4096, 10_000, 0.2);
+        SpectrogramEncoder widened = service.compresseur(null, "vibrationY", FROM, TO, null, null, false);
+        assertTrue(widened.frames() <= 77, widened.frames() + " trames");
+        // Pas imposé au-delà de la borne, ou trame à elle seule plus grande que la borne : 400
+        assertThrows(IllegalArgumentException.class,
+                () -> service.compresseur(null, "vibrationY", FROM, TO, null, 128, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.compresseur(null, "vibrationY", FROM, TO, 65536, null, false));
+    }
+
+    @Test
+    void framesFollowTheMeasuredTimeGrid() {
+        var jdbcTemplate = TestSchema.database("spectrogram-sparse");
+        TestSchema.compresseurData(jdbcTemplate);
+        CompresseurDataBatchRepository sparse = new CompresseurDataBatchRepository(jdbcTemplate);
+        // Une mesure par minute, raie d'une période de 8 mesures ; 3 minutes manquantes après la 100e,
+        // puis 27 jours sans mesure avant les 300 dernières
+        CompresseurBatch batch = new CompresseurBatch(900);
+        for (int i = 0; i < 900; i++) {
+            if (i >= 100 && i < 103) {
+                continue;
+            }
+            batch.add(START + 60L * i + (i >= 600 ? 27 * 86_400L : 0), 6, 12, Math.sin(2 * Math.PI * i / 8.0), 0.2, 0.3);
+        }
+        sparse.insertBatch(batch);
+
+        SpectrogramService service = new SpectrogramService(sparse, POOL, 1.0, 64, 2_000_000, 4096, 4_194_304, 0.2);
+        SpectrogramEncoder encoder = service.compresseur(null, "vibrationX", FROM,
+                FastParsers.toLocalDateTime(START + 30 * DAY), null, null, false);
+        // Trames de 64 minutes au pas de 32 : 17 avant le trou de 27 jours, 8 après, aucune à cheval
+        assertEquals(17 + 8, encoder.frames());
+        ByteBuffer buffer = ByteBuffer.wrap(encoder.encode(null, 80)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(1 / 60.0, buffer.getDouble(16), 1e-12);
+        assertEquals((START + 60L * 32) * 1000, buffer.getLong(40));
+        assertEquals((START + 60L * (16 * 32 + 32)) * 1000, buffer.getLong(40 + 8 * 16));
+        assertEquals((START + 60L * (600 + 32) + 27 * 86_400L) * 1000, buffer.getLong(40 + 8 * 17));
+        // Raie à 1/480 Hz (bin 8) de part et d'autre du trou, y compris sur les minutes comblées
+        int bins = buffer.getInt(12);
+        int matrix = 40 + 8 * encoder.frames();
+        for (int frame : new int[]{2, 20}) {
+            int peak = 0;
+            for (int k = 1; k < bins; k++) {
+                if (buffer.getFloat(matrix + 4 * (frame * bins + k)) > buffer.getFloat(matrix + 4 * (frame * bins + peak))) {
+                    peak = k;
+                }
+            }
+            assertEquals(8, peak, "trame " + frame);
+        }
+    }
+}
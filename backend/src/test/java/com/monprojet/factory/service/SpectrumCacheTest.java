@@ -0,0 +1,151 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.dto.Spectrum;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Cache des spectres : éviction au poids, invalidation par les imports, calcul servi depuis la mémoire
+class SpectrumCacheTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 10:00:00");
+
+    @Test
+    void evictsLeastRecentlyReadByteWeight() {
+        // 3 spectres de 129 bins (~2,3 Ko chacun) dans 5 Ko
+        SpectrumCache cache = new SpectrumCache(5000);
+        SpectrumCache.Key a = key(RollupService.COMPRESSEUR, 0, 3600);
+        SpectrumCache.Key b = key(RollupService.COMPRESSEUR, 3600, 7200);
+        SpectrumCache.Key c = key(RollupService.COMPRESSEUR, 7200, 10800);
+        cache.put(a, spectrum(), cache.generation());
+        cache.put(b, spectrum(), cache.generation());
+        assertNotNull(cache.get(a));
+        cache.put(c, spectrum(), cache.generation());
+
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertNotNull(cache.get(c));
+        assertEquals(1L, cache.stats().get("evictions"));
+        assertTrue((long) cache.stats().get("bytes") <= 5000);
+    }
+
+    @Test
+    void ingestInvalidatesOnlyTouchedWindows() {
+        SpectrumCache cache = new SpectrumCache(1 << 20);
+        SpectrumCache.Key morning = key(RollupService.COMPRESSEUR, 0, 3600);
+        SpectrumCache.Key noon = key(RollupService.COMPRESSEUR, 3600, 7200);
+        SpectrumCache.Key other = key(RollupService.compresseurSeries(7L), 0, 3600);
+        cache.put(morning, spectrum(), cache.generation());
+        cache.put(noon, spectrum(), cache.generation());
+        cache.put(other, spectrum(), cache.generation());
+
+        // Calcul commencé avant l'import : son résultat ne doit pas entrer en cache
+        long since = cache.generation();
+        try (TelemetryIngestListener.Session session = cache.begin("compresseur")) {
+            CompresseurBatch batch = new CompresseurBatch(10);
+            batch.add(START + 4000, 6, 12, 0.1, 0.2, 0.3);
+            session.compresseurWritten(batch);
+        }
+        assertNotNull(cache.get(morning));
+        assertNull(cache.get(noon));
+        assertNotNull(cache.get(other));
+
+        cache.put(noon, spectrum(), since);
+        assertNull(cache.get(noon));
+        cache.put(morning, spectrum(), since);
+        assertNotNull(cache.get(morning));
+
+        cache.invalidate(RollupService.COMPRESSEUR + "%", START, START + 3600);
+        assertNull(cache.get(morning));
+        assertNull(cache.get(other));
+    }
+
+    @Test
+    void repeatedViewIsServedFromCache() {
+        JdbcTemplate jdbcTemplate = TestSchema.database("spectrum");
+        TestSchema.compresseurData(jdbcTemplate);
+        CompresseurDataBatchRepository repository = new CompresseurDataBatchRepository(jdbcTemplate);
+        CompresseurBatch batch = new CompresseurBatch(2048);
+        for (int i = 0; i < 2048; i++) {
+            // Une mesure X absente toutes les 100 secondes, Z toujours absente
+            batch.add(START + i, 6, 12, i % 100 == 50 ? Double.NaN : Math.sin(2 * Math.PI * i / 8.0), 0.2, Double.NaN);
+        }
+        repository.insertBatch(batch);
+
+        SpectrumCache cache = new SpectrumCache(1 << 20);
+        SpectrumService service = new SpectrumService(repository, cache, 1.0, 256, 128, 100_000, 0.2);
+        Spectrum first = service.compresseur(null, "vibrationX", FastParsers.toLocalDateTime(START),
+                FastParsers.toLocalDateTime(START + 2048), null);
+        assertEquals(2048, first.getSamples());
+        assertEquals(15, first.getSegments());
+        assertEquals(20, first.getMissing());
+        for (double density : first.getPsd()) {
+            assertFalse(Double.isNaN(density));
+        }
+        assertEquals(0.125, first.getFreqs()[maxIndex(first.getPsd())], 1e-9);
+        Spectrum second = service.compresseur(null, "vibrationX", FastParsers.toLocalDateTime(START),
+                FastParsers.toLocalDateTime(START + 2048), null);
+        assertSame(first, second);
+        assertEquals(1L, cache.stats().get("hits"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.compresseur(null, "vibrationX",
+                FastParsers.toLocalDateTime(START), FastParsers.toLocalDateTime(START + 100), null));
+        // Canal sans aucune mesure : refusé plutôt qu'un spectre plat
+        assertThrows(IllegalArgumentException.class, () -> service.compresseur(null, "vibrationZ",
+                FastParsers.toLocalDateTime(START), FastParsers.toLocalDateTime(START + 2048), null));
+        assertThrows(IllegalArgumentException.class, () -> service.compresseur(null, "temperature",
+                FastParsers.toLocalDateTime(START), FastParsers.toLocalDateTime(START + 2048), null));
+    }
+
+    @Test
+    void sampleRateAndGapsComeFromTimestamps() {
+        JdbcTemplate jdbcTemplate = TestSchema.database("spectrum-sparse");
+        TestSchema.compresseurData(jdbcTemplate);
+        CompresseurDataBatchRepository repository = new CompresseurDataBatchRepository(jdbcTemplate);
+        // Une mesure par minute (parfois 61 s), comme vib_data_fallback.csv : 20 minutes manquantes,
+        // puis 27 jours sans mesure ; raie d'une période de 8 mesures (1/480 Hz)
+        CompresseurBatch batch = new CompresseurBatch(1624);
+        for (int i = 0; i < 1624; i++) {
+            if (i >= 500 && i < 520) {
+                continue;
+            }
+            long timestamp = START + 60L * i + (i % 7 == 3 ? 1 : 0) + (i >= 1024 ? 27 * 86_400L : 0);
+            batch.add(timestamp, 6, 12, Math.sin(2 * Math.PI * i / 8.0), 0.2, 0.3);
+        }
+        repository.insertBatch(batch);
+
+        SpectrumService service = new SpectrumService(repository, new SpectrumCache(1 << 20), 1.0, 256, 128, 100_000, 0.2);
+        Spectrum spectrum = service.compresseur(null, "vibrationX", FastParsers.toLocalDateTime(START),
+                FastParsers.toLocalDateTime(START + 30 * 86_400L), null);
+        assertEquals(1 / 60.0, spectrum.getSampleRate(), 1e-12);
+        // Minutes manquantes comblées, trou de 27 jours jamais traversé : 7 + 3 segments
+        assertEquals(1624, spectrum.getSamples());
+        assertEquals(20, spectrum.getMissing());
+        assertEquals(10, spectrum.getSegments());
+        assertEquals(1 / 120.0, spectrum.getFreqs()[spectrum.getFreqs().length - 1], 1e-12);
+        assertEquals(1 / 480.0, spectrum.getFreqs()[maxIndex(spectrum.getPsd())], 1e-12);
+    }
+
+    private static int maxIndex(double[] values) {
+        int max = 0;
+        for (int k = 1; k < values.length; k++) {
+            if (values[k] > values[max]) {
+                max = k;
+            }
+        }
+        return max;
+    }
+
+    private static SpectrumCache.Key key(String series, long from, long to) {
+        return new SpectrumCache.Key(series, "vibrationX", START + from, START + to, 1.0, 256, 128);
+    }
+
+    private static Spectrum spectrum() {
+        return new Spectrum(RollupService.COMPRESSEUR, "vibrationX", null, null, 1.0, 256, 128, 1024, 0, 7,
+                new double[129], new double[129]);
+    }
+}
@@ -0,0 +1,131 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.TelemetryPurgeRepository;
+import com.monprojet.factory.repository.TelemetryRollupRepository;
+import com.monprojet.factory.repository.VibrationFeatureRepository;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Suppression par lots et recalcul des agrégats, sur une base H2 embarquée (mode SQL Server)
+class TelemetryRetentionServiceTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 22:00:00");
+
+    private JdbcTemplate jdbcTemplate;
+    private RollupService rollupService;
+    private HotTelemetryCache hotTelemetryCache;
+    private TelemetryRetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestSchema.database("retention");
+        TestSchema.compresseurData(jdbcTemplate);
+        TestSchema.compresseurArchive(jdbcTemplate);
+        TestSchema.telemetryRollups(jdbcTemplate);
+        TelemetryRollupRepository rollups = new TelemetryRollupRepository(jdbcTemplate);
+        rollupService = new RollupService(rollups, new DateCatalog(rollups), jdbcTemplate,
+                new CompresseurDataBatchRepository(jdbcTemplate), true, false, 20000);
+        hotTelemetryCache = new HotTelemetryCache(new CompresseurDataBatchRepository(jdbcTemplate), true, 24, 100_000);
+        retentionService = new TelemetryRetentionService(new TelemetryPurgeRepository(jdbcTemplate),
+                new CompresseurDataBatchRepository(jdbcTemplate),
+                rollupService, hotTelemetryCache, new SpectrumCache(1 << 20), features(), 7, 0, false);
+    }
+
+    @Test
+    void deletesRangeInChunksAndRefreshesRollups() throws Exception {
+        // 4 h de mesures à cheval sur deux jours, pression = rang de la mesure
+        ingest(0, 4 * 3600);
+
+        // Une heure retirée au milieu (23h-0h) : plusieurs centaines de lots de 7 lignes
+        long deleted = retentionService.deleteCompresseur(time(3600), time(7200));
+        assertEquals(3600, deleted);
+        assertEquals(3 * 3600, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA", Integer.class));
+
+        // Agrégats recalculés en tâche de fond sur les mesures restantes
+        rollupService.pendingRefresh().get(10, TimeUnit.SECONDS);
+        assertEquals(0, rollups(3600, "2025-09-15 23:00:00"));
+        assertEquals(3600, rollups(3600, "2025-09-15 22:00:00"));
+        assertEquals(3600, rollups(86400, "2025-09-15 00:00:00"));
+        assertEquals(7200, rollups(86400, "2025-09-16 00:00:00"));
+        assertEquals(3 * 3600, jdbcTemplate.queryForObject("SELECT SUM(sample_count) FROM telemetry_rollups "
+                + "WHERE channel = 'pressure' AND bucket_seconds = 60", Long.class));
+    }
+
+    @Test
+    void archivesRowsOlderThanRetention() throws Exception {
+        ingest(0, 100);
+        TelemetryRetentionService archiving = new TelemetryRetentionService(new TelemetryPurgeRepository(jdbcTemplate),
+                new CompresseurDataBatchRepository(jdbcTemplate),
+                rollupService, hotTelemetryCache, new SpectrumCache(1 << 20), features(), 7, 1, true);
+        // Mesures de 2025 : toutes plus vieilles qu'un jour
+        archiving.applyRetention();
+        rollupService.pendingRefresh().get(10, TimeUnit.SECONDS);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA", Integer.class));
+        assertEquals(100, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA_ARCHIVE", Integer.class));
+        assertEquals(4950.0, jdbcTemplate.queryForObject("SELECT SUM(pressure) FROM COMPRESSEURDATA_ARCHIVE", Double.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM telemetry_rollups", Integer.class));
+    }
+
+    @Test
+    void historicalSeriesIsDeletedAlone() throws Exception {
+        ingest(0, 600);
+        CompresseurBatch scoped = new CompresseurBatch(600);
+        for (int i = 0; i < 600; i++) {
+            scoped.add(7, CompresseurBatch.NO_ID, START + i, i, 12.0, 0.1, 0.2, 0.3);
+        }
+        new CompresseurDataBatchRepository(jdbcTemplate).insertBatch(scoped);
+
+        // Sans equipmentId : le compresseur historique seulement, comme les lectures
+        assertEquals(300, retentionService.deleteCompresseurSeries(null, time(0), time(300)));
+        assertEquals(600, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA WHERE equipment_id = 7", Integer.class));
+        assertEquals(300, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA WHERE equipment_id IS NULL", Integer.class));
+        rollupService.pendingRefresh().get(10, TimeUnit.SECONDS);
+        assertEquals(300, rollups(86400, "2025-09-15 00:00:00"));
+
+        assertEquals(600, retentionService.deleteCompresseurSeries(7L, null, null));
+        assertEquals(300, retentionService.deleteCompresseur(null, null));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM COMPRESSEURDATA", Integer.class));
+    }
+
+    private void ingest(int from, int to) {
+        CompresseurDataBatchRepository loader = new CompresseurDataBatchRepository(jdbcTemplate);
+        try (TelemetryIngestListener.Session session = TelemetryIngestListener.beginAll(
+                List.of(rollupService, hotTelemetryCache), "compresseur")) {
+            CompresseurBatch batch = new CompresseurBatch(1000);
+            for (int i = from; i < to; i++) {
+                batch.add(START + i, i, 12.0, 0.1, 0.2, Double.NaN);
+                if (batch.isFull() || i == to - 1) {
+                    loader.insertBatch(batch);
+                    session.compresseurWritten(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private long rollups(int bucketSeconds, String bucketStart) {
+        Long count = jdbcTemplate.queryForObject("SELECT SUM(sample_count) FROM telemetry_rollups WHERE channel = 'pressure' "
+                + "AND bucket_seconds = ? AND bucket_start = ?", Long.class, bucketSeconds, bucketStart);
+        return count != null ? count : 0;
+    }
+
+    // Indicateurs vibratoires désactivés ici (voir VibrationFeatureServiceTest)
+    private VibrationFeatureService features() {
+        return new VibrationFeatureService(new VibrationFeatureRepository(jdbcTemplate),
+                new CompresseurDataBatchRepository(jdbcTemplate), false, 60, 50000);
+    }
+
+    private static LocalDateTime time(long offset) {
+        return FastParsers.toLocalDateTime(START + offset);
+    }
+}
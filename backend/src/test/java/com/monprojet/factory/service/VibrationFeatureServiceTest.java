@@ -0,0 +1,151 @@
+package com.monprojet.factory.service;
+
+import com.monprojet.factory.TestSchema;
+import com.monprojet.factory.dto.VibrationFeatureDto;
+import com.monprojet.factory.repository.CompresseurDataBatchRepository;
+import com.monprojet.factory.repository.VibrationFeatureRepository;
+import com.monprojet.factory.spectral.RunningMoments;
+import com.monprojet.factory.utils.FastParsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Indicateurs vibratoires calculés à l'import, sur une base H2 embarquée (mode SQL Server)
+class VibrationFeatureServiceTest {
+
+    private static final long START = FastParsers.parseTimestamp("2025-09-15 10:00:00");
+
+    private JdbcTemplate jdbcTemplate;
+    private VibrationFeatureService featureService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestSchema.database("features");
+        TestSchema.compresseurData(jdbcTemplate);
+        TestSchema.vibrationFeatures(jdbcTemplate);
+        featureService = new VibrationFeatureService(new VibrationFeatureRepository(jdbcTemplate),
+                new CompresseurDataBatchRepository(jdbcTemplate), true, 60, 50000);
+    }
+
+    @Test
+    void mergedMomentsMatchTwoPassComputation() {
+        Random random = new Random(3);
+        double[] x = new double[5000];
+        RunningMoments all = new RunningMoments();
+        RunningMoments first = new RunningMoments();
+        RunningMoments second = new RunningMoments();
+        for (int i = 0; i < x.length; i++) {
+            // Grande composante continue : les sommes de puissances perdraient la précision
+            x[i] = 1e6 + Math.pow(random.nextDouble(), 3);
+            all.add(x[i]);
+            (i < 1234 ? first : second).add(x[i]);
+        }
+        first.merge(second);
+
+        double[] expected = twoPass(x, 0, x.length);
+        for (RunningMoments m : List.of(all, first)) {
+            assertEquals(x.length, m.count());
+            assertEquals(expected[0], m.rms(), 1e-6);
+            assertEquals(expected[1], m.skewness(), 1e-6);
+            assertEquals(expected[2], m.kurtosis(), 1e-6);
+        }
+    }
+
+    @Test
+    void windowsSplitAcrossImportsAreMerged() {
+        // Deux imports qui se partagent la fenêtre [60 s, 120 s[
+        double[] x = signal(180);
+        ingest(x, 0, 90);
+        ingest(x, 90, 180);
+
+        List<VibrationFeatureDto> features = featureService.query(null, "vibrationX", null, null, null);
+        assertEquals(3, features.size());
+        VibrationFeatureDto window = features.get(1);
+        assertEquals(FastParsers.toLocalDateTime(START + 60), window.getWindowStart());
+        assertEquals(60, window.getCount());
+        double[] expected = twoPass(x, 60, 120);
+        assertEquals(expected[0], window.getRms(), 1e-9);
+        assertEquals(expected[1], window.getSkewness(), 1e-9);
+        assertEquals(expected[2], window.getKurtosis(), 1e-9);
+        assertEquals(max(x, 60, 120, true), window.getPeak(), 1e-12);
+        assertEquals(window.getPeak() / window.getRms(), window.getCrestFactor(), 1e-12);
+
+        // Voie Z absente : pas de fenêtre
+        assertTrue(featureService.query(null, "vibrationZ", null, null, null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> featureService.query(null, "pressure", null, null, null));
+    }
+
+    @Test
+    void refreshRecomputesTouchedWindowsOnly() {
+        double[] x = signal(180);
+        ingest(x, 0, 180);
+        jdbcTemplate.update("DELETE FROM COMPRESSEURDATA WHERE timestamp >= ? AND timestamp < ?",
+                FastParsers.toLocalDateTime(START + 100), FastParsers.toLocalDateTime(START + 110));
+        featureService.refresh(RollupService.COMPRESSEUR, START + 100, START + 110);
+
+        List<VibrationFeatureDto> features = featureService.query(null, "vibrationX", null, null, null);
+        assertEquals(3, features.size());
+        assertEquals(60, features.get(0).getCount());
+        assertEquals(50, features.get(1).getCount());
+        assertEquals(60, features.get(2).getCount());
+    }
+
+    private void ingest(double[] x, int from, int to) {
+        CompresseurDataBatchRepository loader = new CompresseurDataBatchRepository(jdbcTemplate);
+        try (TelemetryIngestListener.Session session = featureService.begin("compresseur")) {
+            CompresseurBatch batch = new CompresseurBatch(64);
+            for (int i = from; i < to; i++) {
+                batch.add(START + i, 6.0, 12.0, x[i], -x[i], Double.NaN);
+                if (batch.isFull() || i == to - 1) {
+                    loader.insertBatch(batch);
+                    session.compresseurWritten(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    // Vibration avec quelques chocs : asymétrie et kurtosis marquées
+    private static double[] signal(int size) {
+        double[] x = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = 0.3 * Math.sin(i / 3.0) + (i % 17 == 0 ? 2.5 : 0);
+        }
+        return x;
+    }
+
+    // {RMS, asymétrie, kurtosis} calculés en deux passes
+    private static double[] twoPass(double[] x, int from, int to) {
+        int n = to - from;
+        double sum = 0;
+        double squares = 0;
+        for (int i = from; i < to; i++) {
+            sum += x[i];
+            squares += x[i] * x[i];
+        }
+        double mean = sum / n;
+        double m2 = 0;
+        double m3 = 0;
+        double m4 = 0;
+        for (int i = from; i < to; i++) {
+            double d = x[i] - mean;
+            m2 += d * d;
+            m3 += d * d * d;
+            m4 += d * d * d * d;
+        }
+        return new double[]{Math.sqrt(squares / n), Math.sqrt(n) * m3 / Math.pow(m2, 1.5), n * m4 / (m2 * m2)};
+    }
+
+    private static double max(double[] x, int from, int to, boolean absolute) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, absolute ? Math.abs(x[i]) : x[i]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,45 @@
+package com.monprojet.factory.spectral;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Trous comblés avant la FFT : interpolation linéaire à l'intérieur, mesure la plus proche aux bords
+class GapsTest {
+
+    @Test
+    void gapsAreInterpolatedInPlace() {
+        double nan = Double.NaN;
+        double[] x = {9, nan, nan, 1, nan, 3, nan, 7, nan, nan, 9};
+        // Tranche [1, 10[ : le 9 d'avant et celui d'après ne comptent pas
+        assertEquals(6, Gaps.count(x, 1, 9));
+        assertEquals(6, Gaps.fill(x, 1, 9));
+        assertArrayEquals(new double[]{9, 1, 1, 1, 2, 3, 5, 7, 7, 7, 9}, x, 1e-12);
+        assertEquals(0, Gaps.fill(x, 0, x.length));
+
+        double[] empty = {nan, nan};
+        assertEquals(0, Gaps.fill(empty, 0, 2));
+        assertTrue(Double.isNaN(empty[0]));
+    }
+
+    @Test
+    void filledSineKeepsItsSpectrum() {
+        WelchPsd welch = new WelchPsd(128, 64, 1.0);
+        double[] clean = new double[1024];
+        double[] holed = new double[clean.length];
+        for (int i = 0; i < clean.length; i++) {
+            clean[i] = 2 + Math.sin(2 * Math.PI * i / 16.0);
+            holed[i] = i % 37 == 0 ? Double.NaN : clean[i];
+        }
+        Gaps.fill(holed, 0, holed.length);
+        double[] expected = new double[welch.bins()];
+        double[] actual = new double[welch.bins()];
+        welch.compute(clean, 0, clean.length, expected);
+        welch.compute(holed, 0, holed.length, actual);
+        // Raie à 1/16 Hz intacte à 2 % près, pas de puissance étalée sur le reste du spectre
+        assertEquals(expected[8], actual[8], expected[8] * 0.02);
+        for (int k = 12; k < actual.length; k++) {
+            assertTrue(actual[k] < expected[8] * 1e-3, "bin " + k);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.monprojet.factory.spectral;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Pas mesuré sur les horodatages et mesures placées sur une grille régulière, coupée aux trous trop longs
+class SampleClockTest {
+
+    @Test
+    void stepIsTheMedianGap() {
+        assertEquals(60, SampleClock.measure(new long[]{0, 60, 121, 181, 1381, 1441, 1501}, 7, 1.0));
+        // Plusieurs mesures par seconde : pas non mesurable, fréquence configurée
+        assertEquals(0.1, SampleClock.measure(new long[]{0, 0, 0, 1, 1, 1, 2}, 7, 10.0), 1e-12);
+        assertEquals(1.0, SampleClock.measure(new long[]{5}, 1, 1.0));
+    }
+
+    @Test
+    void missingRowsBecomeGapsAndLongGapsSplit() {
+        double nan = Double.NaN;
+        long[] timestamps = {0, 60, 121, 300, 360, 100_000, 100_060};
+        double[] x = {1, 2, 3, 4, 5, 6, 7};
+        SampleClock.Grid grid = new SampleClock(60, 3).regularize(timestamps, x, x.length, 100);
+        assertEquals(2, grid.runs());
+        // 121 -> 300 : deux minutes manquantes ; 360 -> 100 000 : série coupée
+        assertArrayEquals(new double[]{1, 2, 3, nan, nan, 4, 5}, Arrays.copyOf(grid.values(), grid.end(0)));
+        assertEquals(7, grid.start(1));
+        assertEquals(9, grid.size());
+        assertEquals(100_060, grid.time(1, 8), 1e-9);
+        assertEquals(240, grid.time(0, 4), 1e-9);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new SampleClock(60, 3).regularize(timestamps, x, x.length, 8));
+    }
+}
@@ -0,0 +1,85 @@
+package com.monprojet.factory.spectral;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Énergie par bande et pics interpolés sur des spectres de Welch de sinusoïdes connues
+class SpectralFeatureExtractorTest {
+
+    private static final double FS = 100;
+    private static final WelchPsd WELCH = new WelchPsd(256, 128, FS);
+
+    @Test
+    void bandEnergyMatchesSinePower() {
+        double[] psd = psd(4096, 2.0, 12.3, 0, 0);
+        SpectralFeatureExtractor extractor = new SpectralFeatureExtractor(FS / 256, WELCH.bins(),
+                new double[][]{{0, 5}, {5, 20}, {20, 50}, {60, 100}});
+        double[] energies = new double[extractor.bands()];
+        extractor.bandEnergies(psd, energies);
+
+        // Puissance d'une sinusoïde d'amplitude 2 : 2² / 2, concentrée dans la bande qui contient 12,3 Hz
+        assertEquals(2.0, energies[1], 0.05);
+        assertTrue(energies[0] < 0.01 && energies[2] < 0.01);
+        // Bande au-delà de Nyquist (50 Hz) : vide
+        assertEquals(0, energies[3]);
+    }
+
+    @Test
+    void peaksAreSortedAndInterpolatedBetweenBins() {
+        // Deux fréquences hors bins (df = 0,39 Hz) ; la plus forte doit sortir en premier
+        double[] psd = psd(4096, 1.0, 7.77, 3.0, 31.1);
+        SpectralFeatureExtractor extractor = new SpectralFeatureExtractor(FS / 256, WELCH.bins(), new double[0][]);
+        double[] freqs = new double[4];
+        double[] heights = new double[4];
+        int count = extractor.peaks(psd, 2, freqs, heights, 1);
+
+        assertEquals(2, count);
+        assertEquals(31.1, freqs[1], 0.05);
+        assertEquals(7.77, freqs[2], 0.05);
+        assertTrue(heights[1] > heights[2]);
+        // Hauteur interpolée au moins égale au bin le plus proche
+        assertTrue(heights[1] >= psd[(int) Math.round(31.1 / (FS / 256))]);
+        assertEquals(0, extractor.peaks(psd, 0, freqs, heights, 0));
+    }
+
+    @Test
+    void fundamentalIsFittedToItsHarmonics() {
+        // Raies à 5, 10 et 15 Hz d'amplitude 1,5 et raie isolée plus forte à 31,1 Hz
+        double[] x = new double[4096];
+        for (int i = 0; i < x.length; i++) {
+            double t = i / FS;
+            x[i] = 1.5 * (Math.sin(2 * Math.PI * 5 * t) + Math.sin(2 * Math.PI * 10 * t) + Math.sin(2 * Math.PI * 15 * t))
+                    + 2 * Math.sin(2 * Math.PI * 31.1 * t);
+        }
+        double[] psd = new double[WELCH.bins()];
+        WELCH.compute(x, 0, x.length, psd);
+        SpectralFeatureExtractor extractor = new SpectralFeatureExtractor(FS / 256, WELCH.bins(), new double[0][]);
+        double[] freqs = new double[6];
+        double[] heights = new double[6];
+        int count = extractor.peaks(psd, 6, freqs, heights, 0);
+
+        assertEquals(31.1, freqs[0], 0.05);
+        assertEquals(5.0, freqs[extractor.fundamental(freqs, heights, 0, count)], 0.05);
+        // Sans harmonique : le pic le plus fort
+        double[] single = psd(4096, 1.0, 7.77, 3.0, 31.1);
+        count = extractor.peaks(single, 2, freqs, heights, 0);
+        assertEquals(0, extractor.fundamental(freqs, heights, 0, count));
+        assertEquals(-1, extractor.fundamental(freqs, heights, 0, 0));
+    }
+
+    // Spectre de a1·sin(2π f1 t) + a2·sin(2π f2 t) + léger bruit
+    private static double[] psd(int n, double a1, double f1, double a2, double f2) {
+        Random random = new Random(11);
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            double t = i / FS;
+            x[i] = a1 * Math.sin(2 * Math.PI * f1 * t) + a2 * Math.sin(2 * Math.PI * f2 * t) + 0.01 * random.nextGaussian();
+        }
+        double[] psd = new double[WELCH.bins()];
+        WELCH.compute(x, 0, n, psd);
+        return psd;
+    }
+}
@@ -0,0 +1,83 @@
+package com.monprojet.factory.spectral;
+
+import com.monprojet.factory.utils.SpectrogramEncoder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Spectrogramme calculé en parallèle, comparé trame par trame au périodogramme de WelchPsd, et son format binaire
+class StftTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterAll
+    static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void framesMatchSingleSegmentPeriodogramAndFollowTheTone() {
+        double fs = 100;
+        int n = 20_000;
+        // 10 Hz pendant la première moitié, 30 Hz ensuite
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.sin(2 * Math.PI * (i < n / 2 ? 10 : 30) * i / fs);
+        }
+        Stft stft = new Stft(128, 96, fs);
+        int frames = stft.frames(n);
+        assertEquals((n - 128) / 96 + 1, frames);
+        float[] matrix = stft.compute(x, n, false, POOL);
+        assertEquals(frames * stft.bins(), matrix.length);
+
+        WelchPsd welch = new WelchPsd(128, 0, fs);
+        double[] psd = new double[welch.bins()];
+        for (int f : new int[]{0, 17, frames / 2, frames - 1}) {
+            welch.compute(x, stft.frameStart(f), 128, psd);
+            for (int k = 0; k < psd.length; k++) {
+                assertEquals((float) psd[k], matrix[f * stft.bins() + k]);
+            }
+        }
+        assertEquals(Math.round(10 / (fs / 128)), argMax(matrix, 0, stft.bins()));
+        assertEquals(Math.round(30 / (fs / 128)), argMax(matrix, frames - 1, stft.bins()));
+
+        float[] db = stft.compute(x, n, true, POOL);
+        assertEquals(10 * Math.log10(matrix[5]), db[5], 1e-4);
+        assertEquals(0, stft.compute(x, 100, false, POOL).length);
+    }
+
+    @Test
+    void decibelsAreQuantizedToBytesBelowTheMaximum() {
+        float[] matrix = {-100f, -40f, -20f, 0f, -90f, -60f};
+        SpectrogramEncoder encoder = new SpectrogramEncoder(new long[]{1000, 2000}, matrix, 3, 100, 4, 2, true);
+        ByteBuffer buffer = ByteBuffer.wrap(encoder.encode(null, 80)).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals('F', buffer.get(0));
+        assertEquals(SpectrogramEncoder.ENCODING_U8_DB, buffer.get(5));
+        assertEquals(2, buffer.getInt(8));
+        assertEquals(3, buffer.getInt(12));
+        assertEquals(-80f, buffer.getFloat(32));
+        assertEquals(0f, buffer.getFloat(36));
+        assertEquals(2000, buffer.getLong(48));
+        // -100 dB sous le plancher (0), 0 dB au maximum (255), -40 dB à mi-échelle
+        assertEquals(0, buffer.get(56) & 0xFF);
+        assertEquals(128, buffer.get(57) & 0xFF);
+        assertEquals(255, buffer.get(59) & 0xFF);
+        assertEquals(0, buffer.capacity() % 8);
+    }
+
+    private static int argMax(float[] matrix, int frame, int bins) {
+        int best = 0;
+        for (int k = 1; k < bins; k++) {
+            if (matrix[frame * bins + k] > matrix[frame * bins + best]) {
+                best = k;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,85 @@
+package com.monprojet.factory.spectral;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// FFT et densité spectrale de Welch comparées à un calcul direct et aux propriétés attendues
+class WelchPsdTest {
+
+    @Test
+    void fftMatchesDirectDft() {
+        int n = 64;
+        Random random = new Random(7);
+        double[] re = new double[n];
+        double[] im = new double[n];
+        for (int i = 0; i < n; i++) {
+            re[i] = random.nextGaussian();
+            im[i] = random.nextGaussian();
+        }
+        double[] expectedRe = new double[n];
+        double[] expectedIm = new double[n];
+        for (int k = 0; k < n; k++) {
+            for (int t = 0; t < n; t++) {
+                double angle = -2 * Math.PI * k * t / n;
+                expectedRe[k] += re[t] * Math.cos(angle) - im[t] * Math.sin(angle);
+                expectedIm[k] += re[t] * Math.sin(angle) + im[t] * Math.cos(angle);
+            }
+        }
+        Fft.of(n).transform(re, im);
+        assertArrayEquals(expectedRe, re, 1e-9);
+        assertArrayEquals(expectedIm, im, 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> Fft.of(100));
+    }
+
+    @Test
+    void sinePeaksAtItsFrequency() {
+        double fs = 100;
+        WelchPsd welch = new WelchPsd(256, 128, fs);
+        double[] x = new double[2048];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = 3 + 2 * Math.sin(2 * Math.PI * 12.5 * i / fs);
+        }
+        double[] psd = new double[welch.bins()];
+        assertEquals(15, welch.compute(x, 0, x.length, psd));
+
+        int peak = 0;
+        for (int k = 1; k < psd.length; k++) {
+            if (psd[k] > psd[peak]) {
+                peak = k;
+            }
+        }
+        assertEquals(12.5, welch.frequency(peak), 1e-9);
+        // Moyenne retirée : pas de composante continue
+        assertTrue(psd[0] < psd[peak] * 1e-6);
+        // Densité intégrée = puissance de la sinusoïde (A² / 2)
+        double power = 0;
+        for (double p : psd) {
+            power += p * fs / 256;
+        }
+        assertEquals(2.0, power, 0.02);
+    }
+
+    @Test
+    void whiteNoiseDensityMatchesVarianceAndSkipsMissingValues() {
+        WelchPsd welch = new WelchPsd(128, 64, 1.0);
+        Random random = new Random(42);
+        double[] x = new double[128 * 200];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i % 97 == 0 ? Double.NaN : random.nextGaussian();
+        }
+        double[] psd = new double[welch.bins()];
+        welch.compute(x, 0, x.length, psd);
+        // Bruit blanc de variance 1 à 1 Hz : densité unilatérale de 2 sur [0, 0,5 Hz]
+        double mean = 0;
+        for (int k = 1; k < psd.length - 1; k++) {
+            assertFalse(Double.isNaN(psd[k]));
+            mean += psd[k];
+        }
+        mean /= psd.length - 2;
+        assertEquals(2.0, mean, 0.1);
+        assertThrows(IllegalArgumentException.class, () -> welch.compute(x, 0, 100, psd));
+    }
+}
@@ -0,0 +1,47 @@
+package com.monprojet.factory.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarEncoderTest {
+
+    @Test
+    void writesAlignedLittleEndianColumns() {
+        long base = 1_757_952_565_000L;
+        long[] t = {base, base + 1000, base + 2500};
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        int time = encoder.addTimeColumn(t, 3);
+        encoder.addChannel("pressure", time, new double[]{6.5, Double.NaN, 7.25});
+        encoder.addChannel("vibrationX", time, new double[]{0.1, 0.2, 0.3});
+
+        ByteBuffer delta = ByteBuffer.wrap(encoder.encode(true)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0, delta.capacity() % 8);
+        assertEquals('F', delta.get(0));
+        assertEquals(1, delta.get(4));
+        assertEquals(1, delta.getShort(6));
+        assertEquals(2, delta.getShort(8));
+        assertEquals(3, delta.getInt(12));
+        assertEquals(ColumnarEncoder.ENCODING_DELTA, delta.get(16));
+        assertEquals(base, delta.getLong(20));
+        // En-tête : 12 + 16 + (4 + 8) + (4 + 10) = 54 octets, données à partir de 56
+        assertEquals(0, delta.getShort(28));
+        assertEquals(8, delta.getShort(30));
+        assertArrayEquals(new int[]{0, 1000, 1500}, new int[]{delta.getInt(56), delta.getInt(60), delta.getInt(64)});
+        assertEquals(6.5f, delta.getFloat(72));
+        assertTrue(Float.isNaN(delta.getFloat(76)));
+        assertEquals(7.25f, delta.getFloat(80));
+        assertEquals(0.3f, delta.getFloat(96));
+        assertEquals(104, delta.capacity());
+
+        // Écart trop grand pour un int : colonne écrite en absolu
+        ColumnarEncoder wide = new ColumnarEncoder();
+        wide.addChannel("v", wide.addTimeColumn(new long[]{0, 1L << 40}, 2), new double[]{1, 2});
+        ByteBuffer absolute = ByteBuffer.wrap(wide.encode(true)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(ColumnarEncoder.ENCODING_ABSOLUTE, absolute.get(16));
+        assertEquals(1L << 40, absolute.getLong(48));
+    }
+}
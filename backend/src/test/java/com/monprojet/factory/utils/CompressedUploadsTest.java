@@ -0,0 +1,96 @@
+package com.monprojet.factory.utils;
+
+import com.monprojet.factory.exception.InvalidCSVFormatException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Un même CSV envoyé tel quel, en .gz ou dans un .zip doit donner les mêmes lignes ; le format vient des premiers octets
+class CompressedUploadsTest {
+
+    private static final String FIRST = "timestamp,pressure,current\n2025-09-15 10:00:00,6.5,12.0\n"
+            + "2025-09-15 10:00:01,\"6,6\",12.1\n";
+    private static final String SECOND = "timestamp,pressure,current\n2025-09-15 11:00:00,7.0,\n";
+
+    @Test
+    void plainGzipAndZipYieldTheSameRows() throws Exception {
+        List<List<String>> plain = rows(FIRST.getBytes(StandardCharsets.UTF_8), "mesures.csv");
+        assertEquals(3, plain.size());
+        // Extension trompeuse : seuls les premiers octets comptent
+        assertEquals(plain, rows(gzip(FIRST), "mesures.csv"));
+        assertEquals(plain, rows(gzip(FIRST), "mesures.csv.gz"));
+        assertEquals(plain, rows(zip(new String[]{"mesures.csv", FIRST}), "mesures.zip"));
+
+        // Membres gzip concaténés et archive à plusieurs CSV : lus à la suite
+        ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+        concatenated.write(gzip(FIRST));
+        concatenated.write(gzip(SECOND));
+        List<List<String>> both = rows((FIRST + SECOND).getBytes(StandardCharsets.UTF_8), "mesures.csv");
+        assertEquals(both, rows(concatenated.toByteArray(), "mesures.gz"));
+        assertEquals(both, rows(zip(new String[]{"a.csv", FIRST}, new String[]{"__MACOSX/._a.csv", "x"},
+                new String[]{"notes.txt", "x"}, new String[]{"b/b.csv", SECOND}), "mesures.zip"));
+    }
+
+    @Test
+    void namesAndEmptyArchives() throws Exception {
+        List<String> names = new ArrayList<>();
+        CompressedUploads.forEachCsv(new ByteArrayInputStream(gzip(FIRST)), "jour.csv.gz", (name, csv) -> names.add(name));
+        CompressedUploads.forEachCsv(new ByteArrayInputStream(zip(new String[]{"dossier/jour.csv", FIRST})), "x.zip",
+                (name, csv) -> names.add(name));
+        assertEquals(List.of("jour.csv", "dossier/jour.csv"), names);
+
+        assertThrows(InvalidCSVFormatException.class, () -> CompressedUploads.forEachCsv(
+                new ByteArrayInputStream(zip(new String[]{"notes.txt", "x"})), "x.zip", (name, csv) -> { }));
+        assertTrue(CompressedUploads.isSupported("MESURES.CSV.GZ", null));
+        assertTrue(CompressedUploads.isSupported("upload", "application/zip"));
+        assertFalse(CompressedUploads.isSupported("mesures.xlsx", "application/octet-stream"));
+    }
+
+    // Lignes lues par le tokenizer des imports, tous CSV du flux confondus
+    private static List<List<String>> rows(byte[] upload, String fileName) throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        CompressedUploads.forEachCsv(new ByteArrayInputStream(upload), fileName, (name, csv) -> read(csv, rows));
+        return rows;
+    }
+
+    private static void read(InputStream csv, List<List<String>> rows) throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        while (tokenizer.next()) {
+            rows.add(Arrays.asList(tokenizer.toArray()));
+        }
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    // entries : {nom, contenu}
+    private static byte[] zip(String[]... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (String[] entry : entries) {
+                out.putNextEntry(new ZipEntry(entry[0]));
+                out.write(entry[1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
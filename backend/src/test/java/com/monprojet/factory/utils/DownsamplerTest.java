@@ -0,0 +1,54 @@
+package com.monprojet.factory.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownsamplerTest {
+
+    @Test
+    void lttbKeepsEndpointsAndPeak() {
+        int n = 100_000;
+        Downsampler lttb = Downsampler.create(Downsampler.Method.LTTB, 500, n, 0, 0);
+        for (int i = 0; i < n; i++) {
+            lttb.add(i * 1000L, i == 54_321 ? 50.0 : Math.sin(i / 500.0));
+        }
+        lttb.finish();
+
+        long[] xs = lttb.xs();
+        assertEquals(500, xs.length);
+        assertEquals(0, xs[0]);
+        assertEquals((n - 1) * 1000L, xs[xs.length - 1]);
+        for (int i = 1; i < xs.length; i++) {
+            assertTrue(xs[i] > xs[i - 1]);
+        }
+        assertTrue(contains(xs, 54_321_000L));
+    }
+
+    @Test
+    void minMaxKeepsExtremesOfEveryBucketInTimeOrder() {
+        Downsampler minMax = Downsampler.create(Downsampler.Method.MINMAX, 10, 0, 0, 99);
+        for (int i = 0; i < 100; i++) {
+            minMax.add(i, i == 37 ? 100.0 : i == 12 ? Double.NaN : i % 7);
+        }
+        minMax.finish();
+
+        long[] xs = minMax.xs();
+        double[] ys = minMax.ys();
+        assertEquals(10, xs.length);
+        assertTrue(contains(xs, 37));
+        assertEquals(100.0, ys[3]);
+        for (int i = 1; i < xs.length; i++) {
+            assertTrue(xs[i] > xs[i - 1]);
+        }
+    }
+
+    private static boolean contains(long[] values, long expected) {
+        for (long value : values) {
+            if (value == expected) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
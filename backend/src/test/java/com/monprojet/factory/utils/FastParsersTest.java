@@ -0,0 +1,86 @@
+package com.monprojet.factory.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastParsersTest {
+
+    @Test
+    void parseDoubleMatchesJdk() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            String text = switch (i % 4) {
+                case 0 -> Double.toString(Double.longBitsToDouble(random.nextLong() & Long.MAX_VALUE));
+                case 1 -> Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+                case 2 -> String.format(java.util.Locale.ROOT, "%.17f", random.nextGaussian());
+                default -> Long.toString(random.nextLong() & Long.MAX_VALUE) + "." + random.nextInt(1_000_000);
+            };
+            double expected = Double.parseDouble(text);
+            assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(FastParsers.parseDouble(text)), text);
+        }
+        assertEquals(9.935446655189006E18, FastParsers.parseDouble("9935446655189006084"));
+        assertEquals(0.10938168960184992, FastParsers.parseDouble("0.10938168960184992"));
+        assertEquals(-1.5e-7, FastParsers.parseDouble(" -1.5E-7 "));
+        assertTrue(Double.isNaN(FastParsers.parseDouble("")));
+        assertTrue(Double.isNaN(FastParsers.parseDouble("1e")));
+        assertTrue(Double.isNaN(FastParsers.parseDouble("abc")));
+    }
+
+    @Test
+    void parseTimestampMatchesLocalDateTime() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        String[] samples = {
+                "2025-09-15 16:09:25", "2024-02-29 23:59:59", "2025-04-31 10:00:00",
+                "2025-01-01 24:00:00", "1969-12-31 23:59:59", "0001-01-01 00:00:00"
+        };
+        for (String sample : samples) {
+            long expected = LocalDateTime.parse(sample, formatter).toEpochSecond(ZoneOffset.UTC);
+            assertEquals(expected, FastParsers.parseTimestamp(sample), sample);
+        }
+        String[] invalid = {"2025-01-32 00:00:00", "2025-13-01 00:00:00", "2025-1-01 00:00:00",
+                "0000-01-01 00:00:00", "2025-01-01 24:00:01", "2025-01-01T00:00:00", ""};
+        for (String sample : invalid) {
+            assertEquals(FastParsers.INVALID_TIMESTAMP, FastParsers.parseTimestamp(sample), sample);
+        }
+    }
+
+    @Test
+    void tokenizerHandlesQuotesAndLineEndings() throws Exception {
+        CsvTokenizer csv = new CsvTokenizer(new StringReader("a,\"b,c\",\"d\"\"e\",\r\n\n\"x\ny\",2.5\n\"\"\n"));
+        assertTrue(csv.next());
+        assertArrayEquals(new String[]{"a", "b,c", "d\"e", ""}, csv.toArray());
+        // Ligne vide sautée
+        assertTrue(csv.next());
+        assertEquals(2, csv.recordNumber());
+        assertEquals("x\ny", csv.getString(0));
+        assertEquals(2.5, csv.getDouble(1));
+        // Champ vide entre guillemets : un enregistrement, pas une ligne vide
+        assertTrue(csv.next());
+        assertArrayEquals(new String[]{""}, csv.toArray());
+        assertFalse(csv.next());
+    }
+
+    @Test
+    void blankLinesAreSkippedInStreamsAndBlocks() throws Exception {
+        String text = "\n\r\nh1,h2\n\n1,2\r\n\r\n\n3,4\n\n";
+        CsvTokenizer stream = new CsvTokenizer(new StringReader(text));
+        CsvTokenizer block = new CsvTokenizer(text.toCharArray(), 0, text.length());
+        for (CsvTokenizer csv : new CsvTokenizer[]{stream, block}) {
+            assertTrue(csv.next());
+            assertArrayEquals(new String[]{"h1", "h2"}, csv.toArray());
+            assertTrue(csv.next());
+            assertArrayEquals(new String[]{"1", "2"}, csv.toArray());
+            assertTrue(csv.next());
+            assertArrayEquals(new String[]{"3", "4"}, csv.toArray());
+            assertEquals(3, csv.recordNumber());
+            assertFalse(csv.next());
+        }
+    }
+}
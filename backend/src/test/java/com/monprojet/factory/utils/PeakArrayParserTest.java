@@ -0,0 +1,28 @@
+package com.monprojet.factory.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeakArrayParserTest {
+
+    @Test
+    void readsPythonJson() {
+        String json = "[[20.99609375, 12.2869685636205], [41.9921875, 1.8374504504123508], [62.98828125, NaN]]";
+        double[][] peaks = PeakArrayParser.parse(json, 16);
+        assertEquals(3, peaks.length);
+        assertEquals(41.9921875, peaks[1][0]);
+        assertEquals(1.8374504504123508, peaks[1][1]);
+        assertTrue(Double.isNaN(peaks[2][1]));
+
+        double[] freqs = new double[2];
+        double[] psd = new double[2];
+        assertEquals(2, PeakArrayParser.parse(json, freqs, psd));
+        assertEquals("[[20.99609375,12.2869685636205],[41.9921875,1.8374504504123508]]",
+                PeakArrayParser.format(freqs, psd, 0, 2));
+        assertEquals(0, PeakArrayParser.parse(" [ ] ", freqs, psd));
+        for (String invalid : new String[]{"", "[[1, 2]", "[[1 2]]", "[[1, x]]", "[1, 2]", "[[1, 2]] x"}) {
+            assertEquals(-1, PeakArrayParser.parse(invalid, freqs, psd), invalid);
+        }
+    }
+}
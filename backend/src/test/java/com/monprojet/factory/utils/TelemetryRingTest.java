@@ -0,0 +1,79 @@
+package com.monprojet.factory.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryRingTest {
+
+    @Test
+    void keepsRowsSortedWhenBatchesArriveOutOfOrder() {
+        TelemetryRing ring = new TelemetryRing(1, 100_000, 0);
+        // Lots de 10 lignes écrits dans le désordre par plusieurs écrivains, l'un d'eux deux fois
+        int[] order = {0, 2, 1, 5, 3, 4, 2, 7, 6};
+        for (int b : order) {
+            ring.insert(batch(b * 10L, 10), new double[][]{values(b * 10L, 10)}, 10);
+        }
+        TelemetryRing.Window window = ring.range(0, 80);
+        assertEquals(80, window.size());
+        for (int i = 0; i < 80; i++) {
+            assertEquals(i, window.t()[i]);
+            assertEquals(i * 0.5, window.values()[0][i]);
+        }
+        double[] latest = new double[1];
+        assertEquals(79, ring.latest(latest));
+        assertEquals(39.5, latest[0]);
+        assertEquals(2, ring.range(10, 12).size());
+    }
+
+    @Test
+    void removesDeletedRangeAcrossWrapAround() {
+        // Capacité atteinte : le début logique du tampon n'est plus à l'indice 0
+        TelemetryRing ring = new TelemetryRing(1, 4096, 0);
+        ring.insert(batch(0, 5000), new double[][]{values(0, 5000)}, 5000);
+        ring.removeRange(2000, 3000);
+        assertEquals(3096, ring.size());
+        TelemetryRing.Window window = ring.range(1000, 5000);
+        assertEquals(3000, window.size());
+        assertEquals(1999, window.t()[999]);
+        assertEquals(3000, window.t()[1000]);
+        assertEquals(1500.0, window.values()[0][1000]);
+        double[] latest = new double[1];
+        assertEquals(4999, ring.latest(latest));
+    }
+
+    @Test
+    void evictsRowsOutsideWindowOrCapacity() {
+        TelemetryRing window = new TelemetryRing(1, 100_000, 100);
+        window.insert(batch(0, 500), new double[][]{values(0, 500)}, 500);
+        assertEquals(101, window.size());
+        assertNull(window.range(300, 500));
+        assertEquals(100, window.range(400, 500).size());
+        // Lot trop ancien pour la fenêtre : ignoré
+        window.insert(batch(100, 10), new double[][]{values(100, 10)}, 10);
+        assertEquals(101, window.size());
+
+        TelemetryRing bounded = new TelemetryRing(1, 5000, 0);
+        bounded.insert(batch(0, 6000), new double[][]{values(0, 6000)}, 6000);
+        assertEquals(5000, bounded.size());
+        assertEquals(1000, bounded.completeSince());
+        assertNull(bounded.range(999, 2000));
+        assertEquals(1000, bounded.range(1000, 2000).size());
+    }
+
+    private static long[] batch(long first, int count) {
+        long[] t = new long[count];
+        for (int i = 0; i < count; i++) {
+            t[i] = first + i;
+        }
+        return t;
+    }
+
+    private static double[] values(long first, int count) {
+        double[] v = new double[count];
+        for (int i = 0; i < count; i++) {
+            v[i] = (first + i) * 0.5;
+        }
+        return v;
+    }
+}
@@ -114,28 +114,20 @@ const Equipment: React.FC = () => {
       console.log('📅 Chargement des dates disponibles...');
       setError('');
       
-      // Essayer plusieurs endpoints possibles
-      const endpoints: string[] = [
-        '/api/dates',
-        '/api/simulation/dates', 
-        '/api/all-dates'
-      ];
-      
+      // Catalogue des journées tenu en mémoire par le backend (une seule requête)
       let dates: string[] = [];
       let success = false;
       
-      for (const endpoint of endpoints) {
-        try {
-          const response = await fetch(`http://localhost:5000${endpoint}`);
-          if (response.ok) {
-            dates = await response.json();
-            console.log(`✅ Dates chargées depuis ${endpoint}: ${dates.length} dates`);
-            success = true;
-            break;
-          }
-        } catch (error) {
-          console.log(`❌ Endpoint ${endpoint} non disponible`);
+      try {
+        const response = await fetch('http://localhost:8889/api/compresseur/dates');
+        if (response.ok) {
+          const days: { date: string }[] = await response.json();
+          dates = days.map((day) => day.date);
+          console.log(`✅ Dates chargées: ${dates.length} dates`);
+          success = dates.length > 0;
         }
+      } catch (error) {
+        console.log('❌ Catalogue des dates non disponible');
       }
       
       if (!success) {
@@ -1,4 +1,4 @@
-import React, { useEffect, useState } from 'react';
+import React, { useEffect, useRef, useState } from 'react';
 import {
   ResponsiveContainer,
   LineChart,
@@ -74,52 +74,99 @@ const UserEquipment: React.FC = () => {
     }
   };
 
-  // Fetch compressor data
-  const fetchCompressorData = async () => {
+  // Curseur de la dernière page reçue pour le jour affiché (X-Next-Cursor) ; la génération change à chaque
+  // changement de jour pour écarter les réponses périmées, loadingRef évite deux rafraîchissements simultanés
+  const cursorRef = useRef<string | null>(null);
+  const generationRef = useRef(0);
+  const loadingRef = useRef(false);
+
+  type BackendCompressorData = {
+    timestamp: string;
+    pressure: number;
+    currentValue: number;
+    vibrationX: number;
+    vibrationY: number;
+    vibrationZ: number;
+  };
+
+  const toEquipmentData = (item: BackendCompressorData): EquipmentData => ({
+    timestamp: item.timestamp,
+    time: new Date(item.timestamp).toLocaleTimeString(),
+    pressure: item.pressure,
+    current: item.currentValue,
+    vibrationX: item.vibrationX,
+    vibrationY: item.vibrationY,
+    vibrationZ: item.vibrationZ,
+    vibrationMean: +((item.vibrationX + item.vibrationY + item.vibrationZ) / 3).toFixed(2)
+  });
+
+  // Jour local au format yyyy-MM-dd (les horodatages du backend sont en heure locale, sans fuseau)
+  const localDay = (date: Date) => {
+    const mm = (date.getMonth() + 1).toString().padStart(2, '0');
+    const dd = date.getDate().toString().padStart(2, '0');
+    return `${date.getFullYear()}-${mm}-${dd}`;
+  };
+
+  // Mesures du compresseur pour le jour sélectionné, page par page ([from, to[ puis X-Next-Cursor).
+  // Aux rafraîchissements suivants, seules les mesures arrivées après le dernier curseur sont demandées.
+  const fetchCompressorData = async (date: Date, reload: boolean) => {
+    const day = localDay(date);
+    const next = new Date(date.getFullYear(), date.getMonth(), date.getDate() + 1);
+    const to = `${localDay(next)}T00:00:00`;
+    if (reload) {
+      generationRef.current += 1;
+      cursorRef.current = null;
+    } else if (loadingRef.current) {
+      return;
+    }
+    const generation = generationRef.current;
+    loadingRef.current = true;
     try {
-      const response = await fetch('http://localhost:8889/api/compresseur/data');
-      const backendData = await response.json();
-      backendData.sort((a: BackendCompressorData, b: BackendCompressorData) => new Date(a.timestamp).getTime() - new Date(b.timestamp).getTime());
-      type BackendCompressorData = {
-        timestamp: string;
-        pressure: number;
-        currentValue: number;
-        vibrationX: number;
-        vibrationY: number;
-        vibrationZ: number;
-      };
-      const transformedData = (backendData as BackendCompressorData[]).map((item) => ({
-        timestamp: item.timestamp,
-        time: new Date(item.timestamp).toLocaleTimeString(),
-        pressure: item.pressure,
-        current: item.currentValue,
-        vibrationX: item.vibrationX,
-        vibrationY: item.vibrationY,
-        vibrationZ: item.vibrationZ,
-        vibrationMean: +((item.vibrationX + item.vibrationY + item.vibrationZ) / 3).toFixed(2)
-      }));
-      setData(transformedData);
+      let received: EquipmentData[] = [];
+      let cursor = cursorRef.current;
+      let hasMore = true;
+      while (hasMore) {
+        const params = new URLSearchParams({ to, limit: '50000' });
+        if (cursor) {
+          params.set('cursor', cursor);
+        } else {
+          params.set('from', `${day}T00:00:00`);
+        }
+        const response = await fetch(`http://localhost:8889/api/compresseur/data?${params}`);
+        if (!response.ok) throw new Error(`HTTP ${response.status}`);
+        const backendData = (await response.json()) as BackendCompressorData[];
+        // Jour changé pendant la requête : réponse périmée
+        if (generationRef.current !== generation) return;
+        received = received.concat(backendData.map(toEquipmentData));
+        cursor = response.headers.get('X-Next-Cursor') ?? cursor;
+        hasMore = response.headers.get('X-Has-More') === 'true';
+      }
+      // Pages déjà triées par horodatage ; curseur avancé seulement une fois toutes les pages reçues
+      cursorRef.current = cursor;
+      setData(previous => (reload ? received : received.length ? [...previous, ...received] : previous));
     } catch (error) {
       console.error('Error fetching data:', error);
+    } finally {
+      if (generationRef.current === generation) loadingRef.current = false;
     }
   };
 
   useEffect(() => {
     fetchZones();
-    fetchCompressorData();
-    const interval = setInterval(fetchCompressorData, 5000);
-    return () => clearInterval(interval);
   }, []);
 
+  useEffect(() => {
+    setData([]);
+    fetchCompressorData(selectedDate, true);
+    const interval = setInterval(() => fetchCompressorData(selectedDate, false), 5000);
+    return () => clearInterval(interval);
+  }, [selectedDate]);
+
   // Données filtrées pour l'affichage (date sélectionnée + à partir de l'heure choisie, un point toutes les 20s)
   const filteredData = React.useMemo(() => {
     if (!selectedEquipment) return [];
-    const selectedDay = selectedDate.toISOString().slice(0, 10);
-    const filtered = data.filter(d => {
-      if (!d.timestamp) return false;
-      const itemDay = new Date(d.timestamp).toISOString().slice(0, 10);
-      return itemDay === selectedDay && d.time >= selectedHour;
-    });
+    // Le jour est déjà filtré par le backend (from/to)
+    const filtered = data.filter(d => d.timestamp && d.time >= selectedHour);
     let lastTimestamp: number | null = null;
     return filtered.filter(d => {
       const [h, m, s] = d.time.split(':').map(Number);